@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the affinity key of the load-balanced requests of the annotated Feign client
+ * method. With the <code>consistent-hash</code> load balancing strategy, requests with
+ * the same key are sent to the same instance as long as it is not overloaded, so that the
+ * caches of the instances only hold the keys routed to them. Exactly one of the
+ * attributes has to be set.
+ *
+ * @since 3.0.1
+ * @see org.springframework.cloud.openfeign.loadbalancer.ConsistentHashLoadBalancer
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AffinityKey {
+
+	/**
+	 * @return the name of the request header holding the key
+	 */
+	String header() default "";
+
+	/**
+	 * @return the name of the path variable holding the key
+	 */
+	String pathVariable() default "";
+
+	/**
+	 * @return the name of the query parameter holding the key
+	 */
+	String requestParam() default "";
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables request coalescing for the annotated Feign client method. Concurrent
+ * <code>GET</code> requests of the same client to the same URL, with the same headers,
+ * share a single HTTP call. The response body is buffered and every caller decodes its
+ * own copy of it.
+ *
+ * @since 3.0.1
+ * @see CoalescingCapability
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesced {
+
+	/**
+	 * The <code>Authorization</code> and <code>Cookie</code> headers always identify
+	 * requests, so that callers with different credentials never share a response.
+	 * @return the names of the headers that do not identify requests, such as tracing or
+	 * request id headers
+	 */
+	String[] ignoredHeaders() default {};
+
+}
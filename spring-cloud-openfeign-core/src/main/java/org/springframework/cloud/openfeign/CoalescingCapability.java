@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A {@link Capability} that lets concurrent identical <code>GET</code> requests of
+ * methods annotated with {@link Coalesced}, with the same URL and headers, share a single
+ * in-flight call of the underlying {@link Client}. The first caller executes the request
+ * and buffers the response; the callers that arrive while it is in flight wait for it and
+ * get their own {@link Response} over the same buffered body, or the same exception. They
+ * wait no longer than their own read timeout and {@link FeignDeadline}, and then fail as
+ * if their own request had timed out. Requests of other methods are passed through. As it
+ * decorates the {@link Client}, coalescing applies below any invocation handler,
+ * including the circuit breaker one.
+ *
+ * @since 3.0.1
+ */
+public class CoalescingCapability implements Capability {
+
+	/**
+	 * @param type the Feign client interface
+	 * @return whether any method of the interface is annotated with {@link Coalesced}
+	 */
+	public static boolean hasCoalescedMethods(Class<?> type) {
+		for (Method method : type.getMethods()) {
+			if (AnnotatedElementUtils.hasAnnotation(method, Coalesced.class)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return new CoalescingClient(client);
+	}
+
+	private static final class CoalescingClient implements Client {
+
+		private static final Set<String> NOT_COALESCED = new TreeSet<>();
+
+		private static final String[] IDENTIFYING_HEADERS = { HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE };
+
+		private final Client delegate;
+
+		private final ConcurrentMap<Method, Set<String>> ignoredHeaders = new ConcurrentHashMap<>();
+
+		private final ConcurrentMap<List<Object>, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+		private CoalescingClient(Client delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			Set<String> ignoredHeaders = ignoredHeaders(request);
+			if (ignoredHeaders == NOT_COALESCED) {
+				return delegate.execute(request, options);
+			}
+			List<Object> key = key(request, ignoredHeaders);
+			CompletableFuture<Response> call = new CompletableFuture<>();
+			CompletableFuture<Response> existing = inFlight.putIfAbsent(key, call);
+			if (existing != null) {
+				return copy(await(existing, request, options), request);
+			}
+			try {
+				Response response = buffer(delegate.execute(request, options));
+				call.complete(response);
+				return response;
+			}
+			catch (IOException | RuntimeException | Error ex) {
+				call.completeExceptionally(ex);
+				throw ex;
+			}
+			finally {
+				inFlight.remove(key, call);
+			}
+		}
+
+		private Set<String> ignoredHeaders(Request request) {
+			if (request.httpMethod() != Request.HttpMethod.GET || request.requestTemplate() == null) {
+				return NOT_COALESCED;
+			}
+			MethodMetadata metadata = request.requestTemplate().methodMetadata();
+			if (metadata == null || metadata.method() == null) {
+				return NOT_COALESCED;
+			}
+			return ignoredHeaders.computeIfAbsent(metadata.method(), method -> {
+				Coalesced coalesced = AnnotatedElementUtils.findMergedAnnotation(method, Coalesced.class);
+				if (coalesced == null) {
+					return NOT_COALESCED;
+				}
+				Set<String> ignored = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+				for (String header : coalesced.ignoredHeaders()) {
+					ignored.add(header);
+				}
+				for (String header : IDENTIFYING_HEADERS) {
+					ignored.remove(header);
+				}
+				return ignored;
+			});
+		}
+
+		private static List<Object> key(Request request, Set<String> ignoredHeaders) {
+			Map<String, List<String>> headers = new HashMap<>();
+			for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+				if (!ignoredHeaders.contains(header.getKey())) {
+					headers.computeIfAbsent(header.getKey().toLowerCase(Locale.ROOT), name -> new ArrayList<>())
+							.addAll(header.getValue());
+				}
+			}
+			return Arrays.asList(request.url(), headers);
+		}
+
+		private static Response await(CompletableFuture<Response> call, Request request, Request.Options options)
+				throws IOException {
+			long timeout = options.readTimeoutUnit().toMillis(options.readTimeout());
+			FeignDeadline deadline = FeignDeadline.getCurrent();
+			if (deadline != null) {
+				if (deadline.isExpired()) {
+					// like the deadline client, which would not send the request
+					throw new DeadlineExceededException(request);
+				}
+				long remaining = Math.max(deadline.getRemainingMillis(), 1);
+				timeout = timeout > 0 ? Math.min(timeout, remaining) : remaining;
+			}
+			try {
+				return timeout > 0 ? call.get(timeout, TimeUnit.MILLISECONDS) : call.get();
+			}
+			catch (TimeoutException ex) {
+				// like a read timeout of the client, which Feign reports as retryable
+				throw new SocketTimeoutException("Read timed out waiting for a coalesced request to " + request.url());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+			}
+			catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw (Error) cause;
+			}
+		}
+
+		private static Response buffer(Response response) throws IOException {
+			if (response.body() == null) {
+				return response;
+			}
+			try {
+				return response.toBuilder().body(Util.toByteArray(response.body().asInputStream())).build();
+			}
+			finally {
+				response.close();
+			}
+		}
+
+		private static Response copy(Response response, Request request) {
+			return response.toBuilder().request(request).build();
+		}
+
+	}
+
+}
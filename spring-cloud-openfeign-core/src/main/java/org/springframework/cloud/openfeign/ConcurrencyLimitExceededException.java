@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import feign.FeignException;
+import feign.Request;
+
+/**
+ * Thrown when a request is rejected because the concurrency limit of its target host or
+ * service has been reached. The request has not been sent, and, as it is not a
+ * {@link feign.RetryableException}, it is not retried by the {@link feign.Retryer}.
+ *
+ * @since 3.0.1
+ * @see FeignConcurrencyLimiters
+ */
+public class ConcurrencyLimitExceededException extends FeignException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String key;
+
+	private final int limit;
+
+	public ConcurrencyLimitExceededException(String key, int limit, Request request) {
+		super(-1, "Concurrency limit of " + limit + " requests to " + key + " reached", request);
+		this.key = key;
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the host or service id the request was sent to
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the concurrency limit at the time the request was rejected
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+}
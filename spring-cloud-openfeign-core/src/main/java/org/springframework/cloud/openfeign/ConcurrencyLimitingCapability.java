@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.net.URI;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+/**
+ * A {@link Capability} that bounds the requests in flight to every host or, for
+ * load-balanced clients, every service, with the adaptive limits of
+ * {@link FeignConcurrencyLimiters}. Requests over the limit fail with a
+ * {@link ConcurrencyLimitExceededException}. Requests that fail with an
+ * {@link IOException} or are answered with <code>429</code> or <code>503</code> count as
+ * dropped; the round-trip time of the others ends when the response headers are received.
+ *
+ * @since 3.0.1
+ */
+public class ConcurrencyLimitingCapability implements Capability {
+
+	private final FeignConcurrencyLimiters limiters;
+
+	public ConcurrencyLimitingCapability(FeignConcurrencyLimiters limiters) {
+		this.limiters = limiters;
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return new ConcurrencyLimitingClient(client);
+	}
+
+	private static boolean isDropped(int status) {
+		return status == 429 || status == 503;
+	}
+
+	private class ConcurrencyLimitingClient implements Client {
+
+		private final Client delegate;
+
+		ConcurrencyLimitingClient(Client delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			URI uri = URI.create(request.url());
+			String key = uri.getHost() != null ? uri.getHost() : uri.getAuthority();
+			FeignConcurrencyLimiters.Limiter limiter = limiters.getLimiter(key);
+			if (!limiter.acquire()) {
+				throw new ConcurrencyLimitExceededException(key, limiter.getLimit(), request);
+			}
+			long start = System.nanoTime();
+			Response response;
+			try {
+				response = delegate.execute(request, options);
+			}
+			catch (IOException ex) {
+				limiter.release(System.nanoTime() - start, true);
+				throw ex;
+			}
+			catch (RuntimeException | Error ex) {
+				limiter.release();
+				throw ex;
+			}
+			limiter.release(System.nanoTime() - start, isDropped(response.status()));
+			return response;
+		}
+
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import feign.FeignException;
+import feign.Request;
+
+/**
+ * Thrown when the {@link FeignDeadline} of a Feign call has passed before an attempt
+ * could be started. The request has not been sent, and, as it is not a
+ * {@link feign.RetryableException}, it is not retried by the {@link feign.Retryer}.
+ *
+ * @since 3.0.1
+ */
+public class DeadlineExceededException extends FeignException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DeadlineExceededException(Request request) {
+		super(-1, "Deadline exceeded before sending request to " + request.url(), request);
+	}
+
+}
@@ -19,8 +19,6 @@ package org.springframework.cloud.openfeign;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
@@ -30,20 +28,24 @@ import feign.Feign;
 import feign.RequestInterceptor;
 import feign.httpclient.ApacheHttpClient;
 import feign.okhttp.OkHttpClient;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import okhttp3.ConnectionPool;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.actuator.HasFeatures;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
@@ -52,6 +54,11 @@ import org.springframework.cloud.commons.httpclient.ApacheHttpClientConnectionMa
 import org.springframework.cloud.commons.httpclient.ApacheHttpClientFactory;
 import org.springframework.cloud.commons.httpclient.OkHttpClientConnectionPoolFactory;
 import org.springframework.cloud.commons.httpclient.OkHttpClientFactory;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.openfeign.clientconfig.AsyncApacheHttp5Client;
+import org.springframework.cloud.openfeign.clientconfig.FeignApacheHttp5Clients;
+import org.springframework.cloud.openfeign.clientconfig.FeignApacheHttpClients;
+import org.springframework.cloud.openfeign.clientconfig.OnHttpClient5DisabledCondition;
 import org.springframework.cloud.openfeign.security.OAuth2FeignRequestInterceptor;
 import org.springframework.cloud.openfeign.support.DefaultGzipDecoderConfiguration;
 import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
@@ -59,6 +66,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.resource.OAuth2ProtectedResourceDetails;
 
@@ -89,6 +97,68 @@ public class FeignAutoConfiguration {
 		return context;
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("feign.client.concurrency-limit.enabled")
+	public FeignConcurrencyLimiters feignConcurrencyLimiters(FeignClientProperties properties) {
+		FeignClientProperties.ConcurrencyLimit concurrencyLimit = properties.getConcurrencyLimit();
+		return new FeignConcurrencyLimiters(concurrencyLimit.getAlgorithm(), concurrencyLimit.getInitialLimit(),
+				concurrencyLimit.getMinLimit(), concurrencyLimit.getMaxLimit(), concurrencyLimit.getBackoffRatio(),
+				concurrencyLimit.getMaxWait());
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterBinder.class)
+	@ConditionalOnProperty("feign.client.concurrency-limit.enabled")
+	protected static class FeignConcurrencyLimitMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignConcurrencyLimitMetrics feignConcurrencyLimitMetrics(FeignConcurrencyLimiters limiters) {
+			return new FeignConcurrencyLimitMetrics(limiters);
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+	@ConditionalOnProperty("feign.client.deadline-propagation-enabled")
+	protected static class FeignDeadlineServletConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignDeadlineFilter feignDeadlineFilter() {
+			return new FeignDeadlineFilter();
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+	@ConditionalOnProperty("feign.client.deadline-propagation-enabled")
+	protected static class FeignDeadlineReactiveConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignDeadlineWebFilter feignDeadlineWebFilter() {
+			return new FeignDeadlineWebFilter();
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(EnvironmentChangeEvent.class)
+	@ConditionalOnProperty("feign.client.refresh-enabled")
+	protected static class FeignClientOptionsRefreshConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignClientOptionsRefresher feignClientOptionsRefresher(Environment environment) {
+			return new FeignClientOptionsRefresher(environment);
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@Conditional(FeignCircuitBreakerDisabledConditions.class)
 	protected static class DefaultFeignTargeterConfiguration {
@@ -121,19 +191,88 @@ public class FeignAutoConfiguration {
 
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(ApacheHttpClient.class)
+	@ConditionalOnProperty(value = "feign.httpclient.enabled", matchIfMissing = true)
+	@Conditional(OnHttpClient5DisabledCondition.class)
+	protected static class FeignConnectionEvictorConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignConnectionEvictor feignConnectionEvictor(FeignHttpClientProperties httpClientProperties) {
+			return new FeignConnectionEvictor(httpClientProperties.getConnectionTimerRepeat(),
+					httpClientProperties.getIdleConnectionTimeout());
+		}
+
+		@Configuration(proxyBeanMethods = false)
+		@ConditionalOnClass(MeterBinder.class)
+		protected static class FeignConnectionMetricsConfiguration {
+
+			@Bean
+			@ConditionalOnMissingBean
+			public FeignConnectionEvictorMetrics feignConnectionEvictorMetrics(FeignConnectionEvictor evictor) {
+				return new FeignConnectionEvictorMetrics(evictor);
+			}
+
+			@Bean
+			@ConditionalOnMissingBean
+			public FeignConnectionLeases feignConnectionLeases() {
+				return new FeignConnectionLeases();
+			}
+
+			@Bean
+			@ConditionalOnMissingBean
+			public FeignConnectionLeaseMetrics feignConnectionLeaseMetrics(FeignConnectionLeases leases) {
+				return new FeignConnectionLeaseMetrics(leases);
+			}
+
+		}
+
+	}
+
 	// the following configuration is for alternate feign clients if
 	// SC loadbalancer is not on the class path.
 	// see corresponding configurations in FeignRibbonClientAutoConfiguration
 	// for load-balanced clients.
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(CloseableHttpAsyncClient.class)
+	@ConditionalOnProperty("feign.httpclient.hc5.enabled")
+	protected static class HttpClient5FeignConfiguration {
+
+		private CloseableHttpAsyncClient httpClient5;
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CloseableHttpAsyncClient httpClient5(FeignHttpClientProperties httpClientProperties) {
+			this.httpClient5 = FeignApacheHttp5Clients.createClient(httpClientProperties,
+					httpClientProperties.getMaxConnections(), httpClientProperties.getMaxConnectionsPerRoute());
+			return this.httpClient5;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean(Client.class)
+		public Client feignClient(CloseableHttpAsyncClient httpClient5,
+				FeignHttpClientProperties httpClientProperties) {
+			return new AsyncApacheHttp5Client(httpClient5,
+					FeignApacheHttp5Clients.createRequestConfig(httpClientProperties));
+		}
+
+		@PreDestroy
+		public void destroy() {
+			if (this.httpClient5 != null) {
+				this.httpClient5.close(CloseMode.GRACEFUL);
+			}
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnClass(ApacheHttpClient.class)
 	@ConditionalOnMissingBean(CloseableHttpClient.class)
 	@ConditionalOnProperty(value = "feign.httpclient.enabled", matchIfMissing = true)
+	@Conditional(OnHttpClient5DisabledCondition.class)
 	protected static class HttpClientFeignConfiguration {
 
-		private final Timer connectionManagerTimer = new Timer(
-				"FeignApacheHttpClientConfiguration.connectionManagerTimer", true);
-
 		@Autowired(required = false)
 		private RegistryBuilder registryBuilder;
 
@@ -143,29 +282,21 @@ public class FeignAutoConfiguration {
 		@ConditionalOnMissingBean(HttpClientConnectionManager.class)
 		public HttpClientConnectionManager connectionManager(
 				ApacheHttpClientConnectionManagerFactory connectionManagerFactory,
-				FeignHttpClientProperties httpClientProperties) {
-			final HttpClientConnectionManager connectionManager = connectionManagerFactory.newConnectionManager(
-					httpClientProperties.isDisableSslValidation(), httpClientProperties.getMaxConnections(),
-					httpClientProperties.getMaxConnectionsPerRoute(), httpClientProperties.getTimeToLive(),
-					httpClientProperties.getTimeToLiveUnit(), this.registryBuilder);
-			this.connectionManagerTimer.schedule(new TimerTask() {
-				@Override
-				public void run() {
-					connectionManager.closeExpiredConnections();
-				}
-			}, 30000, httpClientProperties.getConnectionTimerRepeat());
+				FeignHttpClientProperties httpClientProperties,
+				ObjectProvider<FeignConnectionEvictor> connectionEvictor) {
+			final HttpClientConnectionManager connectionManager = FeignApacheHttpClients.createConnectionManager(
+					connectionManagerFactory, httpClientProperties, httpClientProperties.getMaxConnections(),
+					httpClientProperties.getMaxConnectionsPerRoute(), this.registryBuilder);
+			connectionEvictor.ifAvailable(evictor -> evictor.register("default", connectionManager));
 			return connectionManager;
 		}
 
 		@Bean
-		public CloseableHttpClient httpClient(ApacheHttpClientFactory httpClientFactory,
-				HttpClientConnectionManager httpClientConnectionManager,
-				FeignHttpClientProperties httpClientProperties) {
-			RequestConfig defaultRequestConfig = RequestConfig.custom()
-					.setConnectTimeout(httpClientProperties.getConnectionTimeout())
-					.setRedirectsEnabled(httpClientProperties.isFollowRedirects()).build();
-			this.httpClient = httpClientFactory.createBuilder().setConnectionManager(httpClientConnectionManager)
-					.setDefaultRequestConfig(defaultRequestConfig).build();
+		public CloseableHttpClient httpClient(ApacheHttpClientFactory httpClientFactory, Environment environment,
+				HttpClientConnectionManager httpClientConnectionManager, FeignHttpClientProperties httpClientProperties,
+				ObjectProvider<FeignConnectionLeases> connectionLeases) {
+			this.httpClient = FeignApacheHttpClients.createClient(httpClientFactory, environment,
+					httpClientConnectionManager, httpClientProperties, connectionLeases.getIfAvailable(), "default");
 			return this.httpClient;
 		}
 
@@ -177,7 +308,6 @@ public class FeignAutoConfiguration {
 
 		@PreDestroy
 		public void destroy() {
-			this.connectionManagerTimer.cancel();
 			if (this.httpClient != null) {
 				try {
 					this.httpClient.close();
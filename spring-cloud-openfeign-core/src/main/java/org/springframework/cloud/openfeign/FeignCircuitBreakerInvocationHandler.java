@@ -94,7 +94,11 @@ class FeignCircuitBreakerInvocationHandler implements InvocationHandler {
 	}
 
 	private Supplier<Object> asSupplier(final Method method, final Object[] args) {
+		// the circuit breaker may run the call on another thread, which has to see the
+		// deadline of the caller
+		final FeignDeadline deadline = FeignDeadline.getCurrent();
 		return () -> {
+			FeignDeadline previous = FeignDeadline.setCurrent(deadline);
 			try {
 				return this.dispatch.get(method).invoke(args);
 			}
@@ -104,6 +108,9 @@ class FeignCircuitBreakerInvocationHandler implements InvocationHandler {
 			catch (Throwable throwable) {
 				throw new RuntimeException(throwable);
 			}
+			finally {
+				FeignDeadline.setCurrent(previous);
+			}
 		};
 	}
 
@@ -69,7 +69,8 @@ public @interface FeignClient {
 	String qualifier() default "";
 
 	/**
-	 * @return an absolute URL or resolvable hostname (the protocol is optional).
+	 * @return an absolute URL or resolvable hostname (the protocol is optional), or
+	 * several of them separated by commas to spread the requests over them.
 	 */
 	String url() default "";
 
@@ -16,32 +16,118 @@
 
 package org.springframework.cloud.openfeign;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.context.ApplicationContext;
+import org.springframework.util.Assert;
 
 /**
  * A builder for creating Feign clients without using the {@link FeignClient} annotation.
  * <p>
  * This builder builds the Feign client exactly like it would be created by using the
  * {@link FeignClient} annotation.
+ * <p>
+ * A builder created with {@link #caching(ApplicationContext, int)} keeps the clients it
+ * has built and returns the same instance for subsequent builds with equal settings, so
+ * that dynamic clients can be built on the request path. The least recently used clients
+ * are evicted once the cache is full, and the child contexts the builder created for them
+ * are closed once no cached client uses them anymore. An evicted client is only released,
+ * and its context closed, once the calls it was executing when it was evicted have
+ * completed. It must not be used for new calls afterwards.
  *
  * @author Sven Döring
  * @author Matt King
  */
 public class FeignClientBuilder {
 
+	private static final Log LOG = LogFactory.getLog(FeignClientBuilder.class);
+
 	private final ApplicationContext applicationContext;
 
+	private ClientCache clientCache;
+
 	public FeignClientBuilder(final ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
 	}
 
+	/**
+	 * Creates a builder that caches up to {@code maxCachedClients} built clients. Evicted
+	 * clients that implement {@link AutoCloseable} are closed once their calls in flight
+	 * have completed.
+	 * @param applicationContext the application context
+	 * @param maxCachedClients the maximum number of cached clients
+	 * @return the caching builder
+	 */
+	public static FeignClientBuilder caching(final ApplicationContext applicationContext, final int maxCachedClients) {
+		return caching(applicationContext, maxCachedClients, FeignClientBuilder::closeIfPossible);
+	}
+
+	/**
+	 * Creates a builder that caches up to {@code maxCachedClients} built clients.
+	 * @param applicationContext the application context
+	 * @param maxCachedClients the maximum number of cached clients
+	 * @param evictionCallback invoked with every client evicted from the cache, e.g. to
+	 * release resources held by it, once the calls in flight on it have completed, and
+	 * with every client built concurrently with an equal one that was cached instead
+	 * @return the caching builder
+	 */
+	public static FeignClientBuilder caching(final ApplicationContext applicationContext, final int maxCachedClients,
+			final Consumer<Object> evictionCallback) {
+		Assert.isTrue(maxCachedClients > 0, "maxCachedClients must be greater than 0");
+		Assert.notNull(evictionCallback, "evictionCallback must not be null");
+		FeignClientBuilder builder = new FeignClientBuilder(applicationContext);
+		builder.clientCache = new ClientCache(applicationContext, maxCachedClients, evictionCallback);
+		return builder;
+	}
+
 	public <T> Builder<T> forType(final Class<T> type, final String name) {
-		return new Builder<>(this.applicationContext, type, name);
+		return new Builder<>(this.applicationContext, this.clientCache, type, name);
 	}
 
+	/**
+	 * Clients built from a provided {@link FeignClientFactoryBean} are never cached, as
+	 * the factory bean may carry settings the cache does not know about.
+	 * @param type the type of the client
+	 * @param clientFactoryBean the factory bean used to build the client
+	 * @param name the name of the client
+	 * @param <T> the type of the client
+	 * @return a builder for the client
+	 */
 	public <T> Builder<T> forType(final Class<T> type, final FeignClientFactoryBean clientFactoryBean,
 			final String name) {
-		return new Builder<>(this.applicationContext, clientFactoryBean, type, name);
+		return new Builder<>(this.applicationContext, clientFactoryBean, null, type, name);
+	}
+
+	/**
+	 * @return the number of clients currently cached by this builder
+	 */
+	public int cachedClients() {
+		return this.clientCache != null ? this.clientCache.size() : 0;
+	}
+
+	private static void closeIfPossible(Object client) {
+		if (client instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) client).close();
+			}
+			catch (Exception e) {
+				LOG.warn("Failed to close evicted Feign client " + client, e);
+			}
+		}
 	}
 
 	/**
@@ -53,13 +139,17 @@ public class FeignClientBuilder {
 
 		private FeignClientFactoryBean feignClientFactoryBean;
 
-		private Builder(final ApplicationContext applicationContext, final Class<T> type, final String name) {
-			this(applicationContext, new FeignClientFactoryBean(), type, name);
+		private final ClientCache clientCache;
+
+		private Builder(final ApplicationContext applicationContext, final ClientCache clientCache, final Class<T> type,
+				final String name) {
+			this(applicationContext, new FeignClientFactoryBean(), clientCache, type, name);
 		}
 
 		private Builder(final ApplicationContext applicationContext, final FeignClientFactoryBean clientFactoryBean,
-				final Class<T> type, final String name) {
+				final ClientCache clientCache, final Class<T> type, final String name) {
 			this.feignClientFactoryBean = clientFactoryBean;
+			this.clientCache = clientCache;
 
 			this.feignClientFactoryBean.setApplicationContext(applicationContext);
 			this.feignClientFactoryBean.setType(type);
@@ -105,8 +195,190 @@ public class FeignClientBuilder {
 		/**
 		 * @return the created Feign client
 		 */
+		@SuppressWarnings("unchecked")
 		public T build() {
-			return this.feignClientFactoryBean.getTarget();
+			if (this.clientCache == null) {
+				return this.feignClientFactoryBean.getTarget();
+			}
+			return (T) this.clientCache.get(cacheKey(), this.feignClientFactoryBean.getType(),
+					this.feignClientFactoryBean.getContextId(), this.feignClientFactoryBean::getTarget);
+		}
+
+		private List<Object> cacheKey() {
+			FeignClientFactoryBean factoryBean = this.feignClientFactoryBean;
+			return Arrays.asList(factoryBean.getType(), factoryBean.getName(), factoryBean.getUrl(),
+					factoryBean.getPath(), factoryBean.getContextId(), factoryBean.isDecode404(),
+					factoryBean.isInheritParentContext(), factoryBean.getFallback());
+		}
+
+	}
+
+	/**
+	 * LRU cache of built clients. Clients are built outside of the lock, so concurrent
+	 * builds of the same missing client may both build it; the first one to finish is
+	 * kept and the other one is passed to the eviction callback. Every cached client
+	 * holds its {@link FeignContext} child context, which is closed once the last cached
+	 * client using it is evicted, provided the cache created it, so that the encoders,
+	 * pools and meters it holds are released. The calls in flight on a client hold it as
+	 * well, so that an eviction does not close what they use.
+	 */
+	private static final class ClientCache {
+
+		private final ApplicationContext applicationContext;
+
+		private final int maxSize;
+
+		private final Consumer<Object> evictionCallback;
+
+		private final Map<List<Object>, CachedClient> clients = new LinkedHashMap<>(16, 0.75f, true);
+
+		private ClientCache(ApplicationContext applicationContext, int maxSize, Consumer<Object> evictionCallback) {
+			this.applicationContext = applicationContext;
+			this.maxSize = maxSize;
+			this.evictionCallback = evictionCallback;
+		}
+
+		Object get(List<Object> key, Class<?> type, String contextId, Supplier<Object> factory) {
+			synchronized (this.clients) {
+				CachedClient cached = this.clients.get(key);
+				if (cached != null) {
+					return cached.client;
+				}
+			}
+			FeignContext feignContext = this.applicationContext.getBeanProvider(FeignContext.class).getIfAvailable();
+			if (feignContext != null) {
+				// held before the client is built, so that an eviction meanwhile does not
+				// close the context the client is built with
+				feignContext.retainContext(contextId);
+			}
+			Object created;
+			try {
+				created = factory.get();
+			}
+			catch (RuntimeException | Error e) {
+				release(feignContext, contextId);
+				throw e;
+			}
+			List<CachedClient> evicted = new ArrayList<>();
+			Object existing = null;
+			synchronized (this.clients) {
+				CachedClient cached = this.clients.get(key);
+				if (cached != null) {
+					existing = cached.client;
+				}
+				else {
+					CachedClient cachedClient = new CachedClient(type, created, contextId);
+					this.clients.put(key, cachedClient);
+					created = cachedClient.client;
+					Iterator<CachedClient> eldest = this.clients.values().iterator();
+					while (this.clients.size() > this.maxSize) {
+						evicted.add(eldest.next());
+						eldest.remove();
+					}
+				}
+			}
+			if (existing != null) {
+				release(feignContext, contextId);
+				this.evictionCallback.accept(created);
+				return existing;
+			}
+			for (CachedClient client : evicted) {
+				client.evict(() -> {
+					this.evictionCallback.accept(client.client);
+					release(feignContext, client.contextId);
+				});
+			}
+			return created;
+		}
+
+		private static void release(FeignContext feignContext, String contextId) {
+			if (feignContext != null) {
+				feignContext.releaseContext(contextId);
+			}
+		}
+
+		int size() {
+			synchronized (this.clients) {
+				return this.clients.size();
+			}
+		}
+
+	}
+
+	/**
+	 * A cached client, handed out as a proxy that counts the calls in flight on the built
+	 * client, so that it is only released once they have completed.
+	 */
+	private static final class CachedClient implements InvocationHandler {
+
+		private final Object target;
+
+		private final Object client;
+
+		private final String contextId;
+
+		// the calls in flight plus one while the client is cached, 0 once released
+		private final AtomicInteger holders = new AtomicInteger(1);
+
+		private volatile Runnable release;
+
+		private CachedClient(Class<?> type, Object target, String contextId) {
+			this.target = target;
+			this.client = type.isInterface() && Proxy.isProxyClass(target.getClass())
+					? Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, this) : target;
+			this.contextId = contextId;
+		}
+
+		void evict(Runnable release) {
+			this.release = release;
+			unhold();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					return this.target.toString();
+				}
+			}
+			// calls on a released client are passed on without holding it
+			boolean held = hold();
+			try {
+				return Proxy.getInvocationHandler(this.target).invoke(this.target, method, args);
+			}
+			finally {
+				if (held) {
+					unhold();
+				}
+			}
+		}
+
+		private boolean hold() {
+			int current;
+			do {
+				current = this.holders.get();
+				if (current == 0) {
+					return false;
+				}
+			}
+			while (!this.holders.compareAndSet(current, current + 1));
+			return true;
+		}
+
+		private void unhold() {
+			if (this.holders.decrementAndGet() == 0) {
+				try {
+					this.release.run();
+				}
+				catch (RuntimeException e) {
+					LOG.warn("Failed to release evicted Feign client " + this.target, e);
+				}
+			}
 		}
 
 	}
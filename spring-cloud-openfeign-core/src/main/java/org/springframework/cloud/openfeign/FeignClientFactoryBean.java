@@ -17,6 +17,8 @@
 package org.springframework.cloud.openfeign;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -44,6 +46,7 @@ import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.cloud.openfeign.clientconfig.FeignClientConfigurer;
+import org.springframework.cloud.openfeign.loadbalancer.AffinityKeyCapability;
 import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -95,6 +98,10 @@ public class FeignClientFactoryBean
 
 	private int connectTimeoutMillis = new Request.Options().connectTimeoutMillis();
 
+	private final Map<String, FeignClientProperties.MethodConfiguration> methodConfigurations = new LinkedHashMap<>();
+
+	private FeignClientOptionsRefresher optionsRefresher;
+
 	@Override
 	public void afterPropertiesSet() {
 		Assert.hasText(contextId, "Context id must be set");
@@ -134,8 +141,22 @@ public class FeignClientFactoryBean
 		FeignClientProperties properties = beanFactory != null ? beanFactory.getBean(FeignClientProperties.class)
 				: applicationContext.getBean(FeignClientProperties.class);
 
+		if (type != null && AffinityKeyCapability.hasAffinityKeys(type)) {
+			// added first, so that it gets the load-balancer client before the other
+			// capabilities wrap it
+			builder.addCapability(new AffinityKeyCapability());
+		}
+		List<String> urls = getStaticUrls();
+		if (urls.size() > 1) {
+			// added before the capabilities that wrap the client as well, so that they
+			// wrap the requests to all of the urls
+			builder.addCapability(new StaticUrlLoadBalancingCapability(urls, getUrlLoadBalancingStrategy()));
+		}
 		FeignClientConfigurer feignClientConfigurer = getOptional(context, FeignClientConfigurer.class);
 		setInheritParentContext(feignClientConfigurer.inheritParentConfiguration());
+		methodConfigurations.clear();
+		optionsRefresher = properties != null && properties.isRefreshEnabled() && inheritParentContext
+				? getIfAvailable(FeignClientOptionsRefresher.class) : null;
 
 		if (properties != null && inheritParentContext) {
 			if (properties.isDefaultToProperties()) {
@@ -152,6 +173,61 @@ public class FeignClientFactoryBean
 		else {
 			configureUsingConfiguration(context, builder);
 		}
+
+		if (properties != null && inheritParentContext) {
+			configureDeadline(properties, builder);
+		}
+		FeignConcurrencyLimiters concurrencyLimiters = getIfAvailable(FeignConcurrencyLimiters.class);
+		if (concurrencyLimiters != null) {
+			builder.addCapability(new ConcurrencyLimitingCapability(concurrencyLimiters));
+		}
+		if (type != null && CoalescingCapability.hasCoalescedMethods(type)) {
+			// added after the concurrency limit, so that waiting callers take no
+			// permit, and before the options of a method are selected, so that they
+			// bound the wait
+			builder.addCapability(new CoalescingCapability());
+		}
+		if (optionsRefresher != null) {
+			configureRefreshableOptions(context, builder, properties);
+		}
+		else if (!methodConfigurations.isEmpty()) {
+			builder.addCapability(new FeignClientMethodOptionsCapability(methodConfigurations));
+		}
+	}
+
+	private void configureDeadline(FeignClientProperties properties, Feign.Builder builder) {
+		Integer deadline = null;
+		for (String configName : Arrays.asList(properties.getDefaultConfig(), contextId)) {
+			FeignClientProperties.FeignClientConfiguration config = properties.getConfig().get(configName);
+			if (config != null && config.getDeadline() != null) {
+				deadline = config.getDeadline();
+			}
+		}
+		if (deadline != null || properties.isDeadlinePropagationEnabled()) {
+			// added before the capabilities that select the options of a method, so that
+			// the deadline cuts down the selected ones
+			builder.addCapability(new FeignDeadlineCapability(deadline != null ? Long.valueOf(deadline) : null,
+					properties.isDeadlinePropagationEnabled()));
+		}
+	}
+
+	private void configureRefreshableOptions(FeignContext context, Feign.Builder builder,
+			FeignClientProperties properties) {
+		Request.Options options = getInheritedAwareOptional(context, Request.Options.class);
+		Retryer retryer = getInheritedAwareOptional(context, Retryer.class);
+		boolean defaultToProperties = properties.isDefaultToProperties();
+		FeignClientOptionsHolder holder = new FeignClientOptionsHolder(contextId,
+				options != null ? options : new Request.Options(), defaultToProperties || options == null,
+				retryer != null ? retryer : new Retryer.Default(), defaultToProperties || retryer == null,
+				this::getOrInstantiate, properties);
+		builder.addCapability(holder);
+		builder.requestInterceptor(holder.requestInterceptor());
+		optionsRefresher.register(holder);
+	}
+
+	private <T> T getIfAvailable(Class<T> type) {
+		return beanFactory != null ? beanFactory.getBeanProvider(type).getIfAvailable()
+				: applicationContext.getBeanProvider(type).getIfAvailable();
 	}
 
 	protected void configureUsingConfiguration(FeignContext context, Feign.Builder builder) {
@@ -245,11 +321,13 @@ public class FeignClientFactoryBean
 			builder.encoder(getOrInstantiate(config.getEncoder()));
 		}
 
-		if (Objects.nonNull(config.getDefaultRequestHeaders())) {
+		// refreshable default headers and query parameters are applied by
+		// FeignClientOptionsHolder
+		if (Objects.nonNull(config.getDefaultRequestHeaders()) && optionsRefresher == null) {
 			builder.requestInterceptor(requestTemplate -> requestTemplate.headers(config.getDefaultRequestHeaders()));
 		}
 
-		if (Objects.nonNull(config.getDefaultQueryParameters())) {
+		if (Objects.nonNull(config.getDefaultQueryParameters()) && optionsRefresher == null) {
 			builder.requestInterceptor(requestTemplate -> requestTemplate.queries(config.getDefaultQueryParameters()));
 		}
 
@@ -264,6 +342,24 @@ public class FeignClientFactoryBean
 		if (Objects.nonNull(config.getExceptionPropagationPolicy())) {
 			builder.exceptionPropagationPolicy(config.getExceptionPropagationPolicy());
 		}
+
+		if (Objects.nonNull(config.getMethods())) {
+			config.getMethods().forEach(this::mergeMethodConfiguration);
+		}
+	}
+
+	private void mergeMethodConfiguration(String methodKey, FeignClientProperties.MethodConfiguration config) {
+		FeignClientProperties.MethodConfiguration merged = methodConfigurations.computeIfAbsent(methodKey,
+				key -> new FeignClientProperties.MethodConfiguration());
+		if (config.getConnectTimeout() != null) {
+			merged.setConnectTimeout(config.getConnectTimeout());
+		}
+		if (config.getReadTimeout() != null) {
+			merged.setReadTimeout(config.getReadTimeout());
+		}
+		if (config.getHedgingDelay() != null) {
+			merged.setHedgingDelay(config.getHedgingDelay());
+		}
 	}
 
 	private <T> T getOrInstantiate(Class<T> tClass) {
@@ -271,7 +367,10 @@ public class FeignClientFactoryBean
 			return beanFactory != null ? beanFactory.getBean(tClass) : applicationContext.getBean(tClass);
 		}
 		catch (NoSuchBeanDefinitionException e) {
-			return BeanUtils.instantiateClass(tClass);
+			FeignContext context = beanFactory != null
+					? beanFactory.getBeanProvider(FeignContext.class).getIfAvailable()
+					: applicationContext.getBeanProvider(FeignContext.class).getIfAvailable();
+			return context != null ? context.getSharedInstance(tClass) : BeanUtils.instantiateClass(tClass);
 		}
 	}
 
@@ -345,7 +444,7 @@ public class FeignClientFactoryBean
 		if (StringUtils.hasText(url) && !url.startsWith("http")) {
 			url = "http://" + url;
 		}
-		String url = this.url + cleanPath();
+		String url = getStaticUrls().get(0);
 		Client client = getOptional(context, Client.class);
 		if (client != null) {
 			if (client instanceof FeignBlockingLoadBalancerClient) {
@@ -359,6 +458,33 @@ public class FeignClientFactoryBean
 		return (T) targeter.target(this, builder, context, new HardCodedTarget<>(type, name, url));
 	}
 
+	/**
+	 * @return the urls the client is configured with, or none if it is load-balanced
+	 */
+	private List<String> getStaticUrls() {
+		List<String> urls = new ArrayList<>();
+		if (StringUtils.hasText(this.url)) {
+			for (String staticUrl : StringUtils.tokenizeToStringArray(this.url, ",")) {
+				urls.add((staticUrl.startsWith("http") ? staticUrl : "http://" + staticUrl) + cleanPath());
+			}
+		}
+		return urls;
+	}
+
+	private StaticUrlLoadBalancingClient.Strategy getUrlLoadBalancingStrategy() {
+		StaticUrlLoadBalancingClient.Strategy strategy = StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN;
+		FeignClientProperties properties = getIfAvailable(FeignClientProperties.class);
+		if (properties != null) {
+			for (String configName : Arrays.asList(properties.getDefaultConfig(), contextId)) {
+				FeignClientProperties.FeignClientConfiguration config = properties.getConfig().get(configName);
+				if (config != null && config.getUrlLoadBalancingStrategy() != null) {
+					strategy = config.getUrlLoadBalancingStrategy();
+				}
+			}
+		}
+		return strategy;
+	}
+
 	private String cleanPath() {
 		String path = this.path.trim();
 		if (StringUtils.hasLength(path)) {
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+
+/**
+ * A {@link Capability} that applies the {@link Request.Options} configured for single
+ * methods of a Feign client. The per-method options are resolved once, when the client is
+ * built, on top of the client-level options. Only the client-level options, which are
+ * marked as such when the client is built, are replaced: options passed as a method
+ * argument or created by another capability are used as they are.
+ *
+ * @since 3.0.1
+ * @see FeignClientProperties.MethodConfiguration
+ */
+public class FeignClientMethodOptionsCapability implements Capability {
+
+	private final Map<String, FeignClientProperties.MethodConfiguration> methodConfigurations;
+
+	private volatile ResolvedOptions resolvedOptions;
+
+	public FeignClientMethodOptionsCapability(
+			Map<String, FeignClientProperties.MethodConfiguration> methodConfigurations) {
+		this.methodConfigurations = new HashMap<>(methodConfigurations);
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return new MethodOptionsClient(client);
+	}
+
+	@Override
+	public Request.Options enrich(Request.Options options) {
+		if (resolvedOptions == null) {
+			resolvedOptions = new ResolvedOptions(options, methodConfigurations);
+		}
+		return options instanceof DefaultOptions ? options : new DefaultOptions(options);
+	}
+
+	/**
+	 * Replaces the client-level and per-method options used for subsequent requests.
+	 * @param clientOptions options for the methods without their own configuration
+	 * @param methodConfigurations per-method configuration keyed by config key
+	 */
+	void update(Request.Options clientOptions,
+			Map<String, FeignClientProperties.MethodConfiguration> methodConfigurations) {
+		resolvedOptions = new ResolvedOptions(clientOptions, methodConfigurations);
+	}
+
+	Request.Options getOptions(String methodKey) {
+		ResolvedOptions resolved = resolvedOptions;
+		if (resolved == null) {
+			return null;
+		}
+		Request.Options options = resolved.methodOptions.get(methodKey);
+		return options != null ? options : resolved.clientOptions;
+	}
+
+	private static Request.Options resolve(Request.Options defaults, FeignClientProperties.MethodConfiguration config) {
+		long connectTimeout = config.getConnectTimeout() != null ? config.getConnectTimeout()
+				: defaults.connectTimeoutUnit().toMillis(defaults.connectTimeout());
+		long readTimeout = config.getReadTimeout() != null ? config.getReadTimeout()
+				: defaults.readTimeoutUnit().toMillis(defaults.readTimeout());
+		Request.Options options = new Request.Options(connectTimeout, TimeUnit.MILLISECONDS, readTimeout,
+				TimeUnit.MILLISECONDS, defaults.isFollowRedirects());
+		return config.getHedgingDelay() != null ? new HedgedRequestOptions(options, config.getHedgingDelay()) : options;
+	}
+
+	/**
+	 * The client-level options, told apart by type rather than by identity from the
+	 * options passed as a method argument or created elsewhere.
+	 */
+	private static final class DefaultOptions extends Request.Options {
+
+		private DefaultOptions(Request.Options options) {
+			super(options.connectTimeout(), options.connectTimeoutUnit(), options.readTimeout(),
+					options.readTimeoutUnit(), options.isFollowRedirects());
+		}
+
+	}
+
+	private static final class ResolvedOptions {
+
+		private final Request.Options clientOptions;
+
+		private final Map<String, Request.Options> methodOptions = new HashMap<>();
+
+		private ResolvedOptions(Request.Options clientOptions,
+				Map<String, FeignClientProperties.MethodConfiguration> methodConfigurations) {
+			this.clientOptions = clientOptions;
+			methodConfigurations
+					.forEach((methodKey, config) -> methodOptions.put(methodKey, resolve(clientOptions, config)));
+		}
+
+	}
+
+	private class MethodOptionsClient implements Client {
+
+		private final Client delegate;
+
+		MethodOptionsClient(Client delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			return delegate.execute(request, selectOptions(request, options));
+		}
+
+		private Request.Options selectOptions(Request request, Request.Options options) {
+			if (!(options instanceof DefaultOptions)) {
+				// passed as a method argument, or of unknown origin
+				return options;
+			}
+			RequestTemplate template = request.requestTemplate();
+			MethodMetadata metadata = template != null ? template.methodMetadata() : null;
+			Request.Options methodOptions = getOptions(metadata != null ? metadata.configKey() : null);
+			return methodOptions != null ? methodOptions : options;
+		}
+
+	}
+
+}
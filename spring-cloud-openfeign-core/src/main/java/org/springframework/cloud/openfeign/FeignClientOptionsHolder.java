@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.RequestInterceptor;
+import feign.RetryableException;
+import feign.Retryer;
+
+/**
+ * Holds the property-driven timeouts, {@link Retryer} and default headers and query
+ * parameters of a single Feign client. The current values are kept in an immutable
+ * snapshot that is swapped atomically by {@link #refresh(FeignClientProperties)} and read
+ * without locking on the request path, so that the client does not have to be rebuilt
+ * when the properties change.
+ *
+ * @since 3.0.1
+ * @see FeignClientOptionsRefresher
+ */
+public class FeignClientOptionsHolder implements Capability {
+
+	private final String contextId;
+
+	private final Request.Options baseOptions;
+
+	private final boolean optionsFromProperties;
+
+	private final Retryer baseRetryer;
+
+	private final boolean retryerFromProperties;
+
+	private final Function<Class<Retryer>, Retryer> retryerFactory;
+
+	private final FeignClientMethodOptionsCapability methodOptionsCapability;
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * @param contextId the context id of the client
+	 * @param baseOptions options applied when no timeouts are set in properties
+	 * @param optionsFromProperties whether timeouts set in properties are applied
+	 * @param baseRetryer retryer used when none is set in properties
+	 * @param retryerFromProperties whether the retryer set in properties is applied
+	 * @param retryerFactory resolves the retryer class set in properties to an instance
+	 * @param properties the properties the client is built with
+	 */
+	public FeignClientOptionsHolder(String contextId, Request.Options baseOptions, boolean optionsFromProperties,
+			Retryer baseRetryer, boolean retryerFromProperties, Function<Class<Retryer>, Retryer> retryerFactory,
+			FeignClientProperties properties) {
+		this.contextId = contextId;
+		this.baseOptions = baseOptions;
+		this.optionsFromProperties = optionsFromProperties;
+		this.baseRetryer = baseRetryer;
+		this.retryerFromProperties = retryerFromProperties;
+		this.retryerFactory = retryerFactory;
+		this.methodOptionsCapability = new FeignClientMethodOptionsCapability(Collections.emptyMap());
+		refresh(properties);
+	}
+
+	/**
+	 * Recomputes the client settings from the given properties and publishes them to the
+	 * request path.
+	 * @param properties the current Feign client properties
+	 */
+	public void refresh(FeignClientProperties properties) {
+		List<FeignClientProperties.FeignClientConfiguration> configs = new ArrayList<>();
+		if (properties.getConfig().get(properties.getDefaultConfig()) != null) {
+			configs.add(properties.getConfig().get(properties.getDefaultConfig()));
+		}
+		if (properties.getConfig().get(contextId) != null) {
+			configs.add(properties.getConfig().get(contextId));
+		}
+
+		Snapshot previous = snapshot;
+		Request.Options options = resolveOptions(configs);
+		methodOptionsCapability.update(options, resolveMethodConfigurations(configs));
+		Class<Retryer> retryerClass = null;
+		Map<String, Collection<String>> headers = new LinkedHashMap<>();
+		Map<String, Collection<String>> queries = new LinkedHashMap<>();
+		for (FeignClientProperties.FeignClientConfiguration config : configs) {
+			if (config.getRetryer() != null) {
+				retryerClass = config.getRetryer();
+			}
+			if (config.getDefaultRequestHeaders() != null) {
+				headers.putAll(config.getDefaultRequestHeaders());
+			}
+			if (config.getDefaultQueryParameters() != null) {
+				queries.putAll(config.getDefaultQueryParameters());
+			}
+		}
+		Retryer retryer = baseRetryer;
+		if (retryerFromProperties && retryerClass != null) {
+			retryer = previous != null && retryerClass.equals(previous.retryerClass) ? previous.retryer
+					: retryerFactory.apply(retryerClass);
+		}
+		snapshot = new Snapshot(options, retryer, retryerClass, headers, queries);
+	}
+
+	public Request.Options getOptions() {
+		return snapshot.options;
+	}
+
+	public Retryer getRetryer() {
+		return snapshot.retryer;
+	}
+
+	/**
+	 * @return a {@link RequestInterceptor} that applies the current default headers and
+	 * query parameters
+	 */
+	public RequestInterceptor requestInterceptor() {
+		return template -> {
+			Snapshot current = snapshot;
+			if (!current.defaultRequestHeaders.isEmpty()) {
+				template.headers(current.defaultRequestHeaders);
+			}
+			if (!current.defaultQueryParameters.isEmpty()) {
+				template.queries(current.defaultQueryParameters);
+			}
+		};
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return methodOptionsCapability.enrich(client);
+	}
+
+	@Override
+	public Request.Options enrich(Request.Options options) {
+		return methodOptionsCapability.enrich(options);
+	}
+
+	@Override
+	public Retryer enrich(Retryer retryer) {
+		return new RefreshableRetryer();
+	}
+
+	private Request.Options resolveOptions(List<FeignClientProperties.FeignClientConfiguration> configs) {
+		if (!optionsFromProperties) {
+			return baseOptions;
+		}
+		long connectTimeout = baseOptions.connectTimeoutUnit().toMillis(baseOptions.connectTimeout());
+		long readTimeout = baseOptions.readTimeoutUnit().toMillis(baseOptions.readTimeout());
+		for (FeignClientProperties.FeignClientConfiguration config : configs) {
+			connectTimeout = config.getConnectTimeout() != null ? config.getConnectTimeout() : connectTimeout;
+			readTimeout = config.getReadTimeout() != null ? config.getReadTimeout() : readTimeout;
+		}
+		return new Request.Options(connectTimeout, TimeUnit.MILLISECONDS, readTimeout, TimeUnit.MILLISECONDS, true);
+	}
+
+	private static Map<String, FeignClientProperties.MethodConfiguration> resolveMethodConfigurations(
+			List<FeignClientProperties.FeignClientConfiguration> configs) {
+		Map<String, FeignClientProperties.MethodConfiguration> merged = new LinkedHashMap<>();
+		for (FeignClientProperties.FeignClientConfiguration config : configs) {
+			if (config.getMethods() == null) {
+				continue;
+			}
+			config.getMethods().forEach((methodKey, methodConfig) -> {
+				FeignClientProperties.MethodConfiguration target = merged.computeIfAbsent(methodKey,
+						key -> new FeignClientProperties.MethodConfiguration());
+				if (methodConfig.getConnectTimeout() != null) {
+					target.setConnectTimeout(methodConfig.getConnectTimeout());
+				}
+				if (methodConfig.getReadTimeout() != null) {
+					target.setReadTimeout(methodConfig.getReadTimeout());
+				}
+				if (methodConfig.getHedgingDelay() != null) {
+					target.setHedgingDelay(methodConfig.getHedgingDelay());
+				}
+			});
+		}
+		return merged;
+	}
+
+	private static final class Snapshot {
+
+		private final Request.Options options;
+
+		private final Retryer retryer;
+
+		private final Class<Retryer> retryerClass;
+
+		private final Map<String, Collection<String>> defaultRequestHeaders;
+
+		private final Map<String, Collection<String>> defaultQueryParameters;
+
+		private Snapshot(Request.Options options, Retryer retryer, Class<Retryer> retryerClass,
+				Map<String, Collection<String>> defaultRequestHeaders,
+				Map<String, Collection<String>> defaultQueryParameters) {
+			this.options = options;
+			this.retryer = retryer;
+			this.retryerClass = retryerClass;
+			this.defaultRequestHeaders = defaultRequestHeaders;
+			this.defaultQueryParameters = defaultQueryParameters;
+		}
+
+	}
+
+	/**
+	 * Feign clones the configured {@link Retryer} for every invocation, so cloning the
+	 * retryer of the current snapshot is enough to pick up a refreshed one.
+	 */
+	private class RefreshableRetryer implements Retryer {
+
+		@Override
+		public void continueOrPropagate(RetryableException e) {
+			snapshot.retryer.continueOrPropagate(e);
+		}
+
+		@Override
+		public Retryer clone() {
+			return snapshot.retryer.clone();
+		}
+
+	}
+
+}
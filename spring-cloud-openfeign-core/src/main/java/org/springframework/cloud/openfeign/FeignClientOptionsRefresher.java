@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * Rebinds {@link FeignClientProperties} when an {@link EnvironmentChangeEvent} touches
+ * <code>feign.client.*</code> keys and pushes the result to the
+ * {@link FeignClientOptionsHolder}s of all Feign clients built so far.
+ *
+ * @since 3.0.1
+ */
+public class FeignClientOptionsRefresher implements ApplicationListener<EnvironmentChangeEvent> {
+
+	private static final Log LOG = LogFactory.getLog(FeignClientOptionsRefresher.class);
+
+	private static final String PREFIX = "feign.client";
+
+	private final Environment environment;
+
+	// holders are referenced by their clients only, so that discarded clients are not
+	// kept alive
+	private final Set<FeignClientOptionsHolder> holders = Collections.newSetFromMap(new WeakHashMap<>());
+
+	public FeignClientOptionsRefresher(Environment environment) {
+		this.environment = environment;
+	}
+
+	public void register(FeignClientOptionsHolder holder) {
+		synchronized (holders) {
+			holders.add(holder);
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		if (event.getKeys().stream().noneMatch(key -> key.startsWith(PREFIX + "."))) {
+			return;
+		}
+		FeignClientProperties properties = Binder.get(environment).bind(PREFIX, FeignClientProperties.class)
+				.orElseGet(FeignClientProperties::new);
+		List<FeignClientOptionsHolder> current;
+		synchronized (holders) {
+			current = new ArrayList<>(holders);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Refreshing options of " + current.size() + " Feign clients");
+		}
+		current.forEach(holder -> holder.refresh(properties));
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.openfeign;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -53,6 +54,21 @@ public class FeignClientProperties {
 	 */
 	private boolean decodeSlash = true;
 
+	/**
+	 * Enables updating timeouts, retryers and default headers and query parameters of
+	 * already created Feign clients when the `feign.client.*` properties change.
+	 */
+	private boolean refreshEnabled = false;
+
+	/**
+	 * Enables reading the deadline of Feign calls from the
+	 * <code>X-Request-Timeout-Ms</code> header of inbound requests and sending the
+	 * remaining time downstream in the same header.
+	 */
+	private boolean deadlinePropagationEnabled = false;
+
+	private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
 	public boolean isDefaultToProperties() {
 		return defaultToProperties;
 	}
@@ -85,6 +101,30 @@ public class FeignClientProperties {
 		this.decodeSlash = decodeSlash;
 	}
 
+	public boolean isRefreshEnabled() {
+		return refreshEnabled;
+	}
+
+	public void setRefreshEnabled(boolean refreshEnabled) {
+		this.refreshEnabled = refreshEnabled;
+	}
+
+	public boolean isDeadlinePropagationEnabled() {
+		return deadlinePropagationEnabled;
+	}
+
+	public void setDeadlinePropagationEnabled(boolean deadlinePropagationEnabled) {
+		this.deadlinePropagationEnabled = deadlinePropagationEnabled;
+	}
+
+	public ConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -95,12 +135,16 @@ public class FeignClientProperties {
 		}
 		FeignClientProperties that = (FeignClientProperties) o;
 		return defaultToProperties == that.defaultToProperties && Objects.equals(defaultConfig, that.defaultConfig)
-				&& Objects.equals(config, that.config) && Objects.equals(decodeSlash, that.decodeSlash);
+				&& Objects.equals(config, that.config) && Objects.equals(decodeSlash, that.decodeSlash)
+				&& refreshEnabled == that.refreshEnabled
+				&& deadlinePropagationEnabled == that.deadlinePropagationEnabled
+				&& Objects.equals(concurrencyLimit, that.concurrencyLimit);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(defaultToProperties, defaultConfig, config, decodeSlash);
+		return Objects.hash(defaultToProperties, defaultConfig, config, decodeSlash, refreshEnabled,
+				deadlinePropagationEnabled, concurrencyLimit);
 	}
 
 	/**
@@ -114,6 +158,17 @@ public class FeignClientProperties {
 
 		private Integer readTimeout;
 
+		/**
+		 * Time in milliseconds within which a call of the client, including its retries,
+		 * has to complete.
+		 */
+		private Integer deadline;
+
+		/**
+		 * How the requests are spread over the URLs of a client with several static URLs.
+		 */
+		private StaticUrlLoadBalancingClient.Strategy urlLoadBalancingStrategy;
+
 		private Class<Retryer> retryer;
 
 		private Class<ErrorDecoder> errorDecoder;
@@ -134,6 +189,18 @@ public class FeignClientProperties {
 
 		private ExceptionPropagationPolicy exceptionPropagationPolicy;
 
+		/**
+		 * Per-method overrides, keyed by the Feign config key of the method (for example
+		 * `StoresClient#getStores()`).
+		 */
+		private Map<String, MethodConfiguration> methods;
+
+		/**
+		 * Connection pool of the client's own, isolated from the one shared by the other
+		 * clients.
+		 */
+		private PoolConfiguration pool;
+
 		public Logger.Level getLoggerLevel() {
 			return loggerLevel;
 		}
@@ -238,6 +305,38 @@ public class FeignClientProperties {
 			this.exceptionPropagationPolicy = exceptionPropagationPolicy;
 		}
 
+		public Integer getDeadline() {
+			return deadline;
+		}
+
+		public void setDeadline(Integer deadline) {
+			this.deadline = deadline;
+		}
+
+		public StaticUrlLoadBalancingClient.Strategy getUrlLoadBalancingStrategy() {
+			return urlLoadBalancingStrategy;
+		}
+
+		public void setUrlLoadBalancingStrategy(StaticUrlLoadBalancingClient.Strategy urlLoadBalancingStrategy) {
+			this.urlLoadBalancingStrategy = urlLoadBalancingStrategy;
+		}
+
+		public Map<String, MethodConfiguration> getMethods() {
+			return methods;
+		}
+
+		public void setMethods(Map<String, MethodConfiguration> methods) {
+			this.methods = methods;
+		}
+
+		public PoolConfiguration getPool() {
+			return pool;
+		}
+
+		public void setPool(PoolConfiguration pool) {
+			this.pool = pool;
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (this == o) {
@@ -255,14 +354,244 @@ public class FeignClientProperties {
 					&& Objects.equals(decoder, that.decoder) && Objects.equals(contract, that.contract)
 					&& Objects.equals(exceptionPropagationPolicy, that.exceptionPropagationPolicy)
 					&& Objects.equals(defaultRequestHeaders, that.defaultRequestHeaders)
-					&& Objects.equals(defaultQueryParameters, that.defaultQueryParameters);
+					&& Objects.equals(defaultQueryParameters, that.defaultQueryParameters)
+					&& Objects.equals(deadline, that.deadline)
+					&& urlLoadBalancingStrategy == that.urlLoadBalancingStrategy
+					&& Objects.equals(methods, that.methods) && Objects.equals(pool, that.pool);
 		}
 
 		@Override
 		public int hashCode() {
 			return Objects.hash(loggerLevel, connectTimeout, readTimeout, retryer, errorDecoder, requestInterceptors,
 					decode404, encoder, decoder, contract, exceptionPropagationPolicy, defaultQueryParameters,
-					defaultRequestHeaders);
+					defaultRequestHeaders, deadline, urlLoadBalancingStrategy, methods, pool);
+		}
+
+	}
+
+	/**
+	 * Feign client connection pool configuration.
+	 */
+	public static class PoolConfiguration {
+
+		/**
+		 * Maximum number of connections of the pool, or of idle connections kept by the
+		 * pool for OkHttp. Defaults to feign.httpclient.max-connections.
+		 */
+		private Integer maxConnections;
+
+		/**
+		 * Maximum number of connections of the pool per route. Defaults to
+		 * feign.httpclient.max-connections-per-route.
+		 */
+		private Integer maxConnectionsPerRoute;
+
+		public Integer getMaxConnections() {
+			return maxConnections;
+		}
+
+		public void setMaxConnections(Integer maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public Integer getMaxConnectionsPerRoute() {
+			return maxConnectionsPerRoute;
+		}
+
+		public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			PoolConfiguration that = (PoolConfiguration) o;
+			return Objects.equals(maxConnections, that.maxConnections)
+					&& Objects.equals(maxConnectionsPerRoute, that.maxConnectionsPerRoute);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(maxConnections, maxConnectionsPerRoute);
+		}
+
+	}
+
+	/**
+	 * Feign client method configuration.
+	 */
+	public static class MethodConfiguration {
+
+		private Integer connectTimeout;
+
+		private Integer readTimeout;
+
+		/**
+		 * Delay in milliseconds after which a load-balanced request of an idempotent
+		 * method is hedged to another instance. 0 uses the observed p95 latency of the
+		 * method.
+		 */
+		private Integer hedgingDelay;
+
+		public Integer getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		public void setConnectTimeout(Integer connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public Integer getReadTimeout() {
+			return readTimeout;
+		}
+
+		public void setReadTimeout(Integer readTimeout) {
+			this.readTimeout = readTimeout;
+		}
+
+		public Integer getHedgingDelay() {
+			return hedgingDelay;
+		}
+
+		public void setHedgingDelay(Integer hedgingDelay) {
+			this.hedgingDelay = hedgingDelay;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			MethodConfiguration that = (MethodConfiguration) o;
+			return Objects.equals(connectTimeout, that.connectTimeout) && Objects.equals(readTimeout, that.readTimeout)
+					&& Objects.equals(hedgingDelay, that.hedgingDelay);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(connectTimeout, readTimeout, hedgingDelay);
+		}
+
+	}
+
+	/**
+	 * Adaptive concurrency limit applied to the requests of all Feign clients, per target
+	 * host or service.
+	 */
+	public static class ConcurrencyLimit {
+
+		/**
+		 * Enables the adaptive concurrency limit.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Algorithm adjusting the limit.
+		 */
+		private FeignConcurrencyLimiters.Algorithm algorithm = FeignConcurrencyLimiters.Algorithm.GRADIENT;
+
+		/**
+		 * Limit used until enough requests have been observed.
+		 */
+		private int initialLimit = 20;
+
+		private int minLimit = 1;
+
+		private int maxLimit = 200;
+
+		/**
+		 * Factor the limit is multiplied with when a request is dropped, for the AIMD
+		 * algorithm.
+		 */
+		private double backoffRatio = 0.9;
+
+		/**
+		 * How long a request waits for the limit to free up before it is rejected. 0
+		 * rejects requests over the limit immediately.
+		 */
+		private Duration maxWait = Duration.ZERO;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public FeignConcurrencyLimiters.Algorithm getAlgorithm() {
+			return algorithm;
+		}
+
+		public void setAlgorithm(FeignConcurrencyLimiters.Algorithm algorithm) {
+			this.algorithm = algorithm;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getBackoffRatio() {
+			return backoffRatio;
+		}
+
+		public void setBackoffRatio(double backoffRatio) {
+			this.backoffRatio = backoffRatio;
+		}
+
+		public Duration getMaxWait() {
+			return maxWait;
+		}
+
+		public void setMaxWait(Duration maxWait) {
+			this.maxWait = maxWait;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			ConcurrencyLimit that = (ConcurrencyLimit) o;
+			return enabled == that.enabled && algorithm == that.algorithm && initialLimit == that.initialLimit
+					&& minLimit == that.minLimit && maxLimit == that.maxLimit
+					&& Double.compare(backoffRatio, that.backoffRatio) == 0 && Objects.equals(maxWait, that.maxWait);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, algorithm, initialLimit, minLimit, maxLimit, backoffRatio, maxWait);
 		}
 
 	}
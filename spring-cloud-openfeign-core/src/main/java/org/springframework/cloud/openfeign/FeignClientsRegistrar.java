@@ -104,15 +104,20 @@ class FeignClientsRegistrar implements ImportBeanDefinitionRegistrar, ResourceLo
 
 	static String getUrl(String url) {
 		if (StringUtils.hasText(url) && !(url.startsWith("#{") && url.contains("}"))) {
-			if (!url.contains("://")) {
-				url = "http://" + url;
-			}
-			try {
-				new URL(url);
-			}
-			catch (MalformedURLException e) {
-				throw new IllegalArgumentException(url + " is malformed", e);
+			// several static URLs are separated by commas
+			String[] urls = StringUtils.tokenizeToStringArray(url, ",");
+			for (int i = 0; i < urls.length; i++) {
+				if (!urls[i].contains("://")) {
+					urls[i] = "http://" + urls[i];
+				}
+				try {
+					new URL(urls[i]);
+				}
+				catch (MalformedURLException e) {
+					throw new IllegalArgumentException(urls[i] + " is malformed", e);
+				}
 			}
+			url = StringUtils.arrayToCommaDelimitedString(urls);
 		}
 		return url;
 	}
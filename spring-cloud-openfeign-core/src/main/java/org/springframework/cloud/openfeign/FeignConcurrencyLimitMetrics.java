@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A {@link MeterBinder} that exposes, for every host or service, the current concurrency
+ * limit of {@link FeignConcurrencyLimiters}, the requests in flight and the number of
+ * rejected requests.
+ *
+ * @since 3.0.1
+ */
+public class FeignConcurrencyLimitMetrics implements MeterBinder {
+
+	private final FeignConcurrencyLimiters limiters;
+
+	public FeignConcurrencyLimitMetrics(FeignConcurrencyLimiters limiters) {
+		this.limiters = limiters;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		limiters.addListener(key -> bindTo(registry, key));
+		limiters.getKeys().forEach(key -> bindTo(registry, key));
+	}
+
+	private void bindTo(MeterRegistry registry, String key) {
+		FeignConcurrencyLimiters.Limiter limiter = limiters.getLimiter(key);
+		Gauge.builder("feign.client.concurrency.limit", limiter, FeignConcurrencyLimiters.Limiter::getLimit)
+				.tag("serviceId", key).description("Current concurrency limit").register(registry);
+		Gauge.builder("feign.client.concurrency.in-flight", limiter, FeignConcurrencyLimiters.Limiter::getInFlight)
+				.tag("serviceId", key).description("Requests in flight").register(registry);
+		FunctionCounter
+				.builder("feign.client.concurrency.rejected", limiter, FeignConcurrencyLimiters.Limiter::getRejected)
+				.tag("serviceId", key).description("Requests rejected over the concurrency limit").register(registry);
+	}
+
+}
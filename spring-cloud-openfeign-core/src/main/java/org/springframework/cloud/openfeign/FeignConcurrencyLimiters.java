@@ -0,0 +1,363 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Adaptive concurrency limits of the hosts and services called by Feign clients, shared
+ * by all clients that call the same one. Every limiter bounds the number of requests in
+ * flight and adjusts the bound to the outcome and the round-trip time of the completed
+ * requests, so that a backend that slows down or starts shedding load receives fewer
+ * concurrent requests instead of a growing queue of them. The outcomes are collected in
+ * windows of a few requests, and the limit is adjusted once per window.
+ *
+ * @since 3.0.1
+ * @see ConcurrencyLimitingCapability
+ */
+public class FeignConcurrencyLimiters {
+
+	// weight of a single sample in the long-term round-trip time
+	private static final double LONG_RTT_WEIGHT = 0.01;
+
+	// weight of the limit computed from a single sample in the new limit
+	private static final double SMOOTHING = 0.2;
+
+	// ratio by which the round-trip time may exceed the long-term one before the limit
+	// is reduced
+	private static final double RTT_TOLERANCE = 1.5;
+
+	private static final double MIN_GRADIENT = 0.5;
+
+	// number of samples after which a window closes
+	private static final int WINDOW_SIZE = 10;
+
+	// time after which a window closes with the next sample, however few it holds
+	private static final long MAX_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+	private final Algorithm algorithm;
+
+	private final int initialLimit;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double backoffRatio;
+
+	private final long maxWaitNanos;
+
+	/**
+	 * @param algorithm the algorithm adjusting the limits
+	 * @param initialLimit the limit used until requests have been observed
+	 * @param minLimit the lowest limit
+	 * @param maxLimit the highest limit
+	 * @param backoffRatio the factor the limit is multiplied with when a request is
+	 * dropped, for {@link Algorithm#AIMD}
+	 * @param maxWait how long a request waits for the limit to free up before it is
+	 * rejected
+	 */
+	public FeignConcurrencyLimiters(Algorithm algorithm, int initialLimit, int minLimit, int maxLimit,
+			double backoffRatio, Duration maxWait) {
+		this.algorithm = algorithm;
+		this.minLimit = Math.max(minLimit, 1);
+		this.maxLimit = Math.max(maxLimit, this.minLimit);
+		this.initialLimit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+		this.backoffRatio = Math.min(Math.max(backoffRatio, 0.1), 1.0);
+		this.maxWaitNanos = maxWait != null ? Math.max(maxWait.toNanos(), 0) : 0;
+	}
+
+	/**
+	 * @param key the host or service id
+	 * @return the limiter of the host or service, created on first access
+	 */
+	public Limiter getLimiter(String key) {
+		Limiter limiter = limiters.get(key);
+		if (limiter != null) {
+			return limiter;
+		}
+		Limiter created = new Limiter();
+		limiter = limiters.putIfAbsent(key, created);
+		if (limiter != null) {
+			return limiter;
+		}
+		listeners.forEach(listener -> listener.accept(key));
+		return created;
+	}
+
+	/**
+	 * @return the hosts and services that have a limiter
+	 */
+	public Set<String> getKeys() {
+		return limiters.keySet();
+	}
+
+	void addListener(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Algorithms adjusting the concurrency limit.
+	 */
+	public enum Algorithm {
+
+		/**
+		 * Additive increase, multiplicative decrease: the limit grows by one with every
+		 * successful request while it is at least half used, and is multiplied with the
+		 * backoff ratio once for every window in which a request is dropped.
+		 */
+		AIMD,
+
+		/**
+		 * Vegas-style gradient: the limit is scaled by the ratio of the long-term
+		 * round-trip time to the current one, so that it shrinks as soon as requests
+		 * start queueing at the backend, and grows by its square root otherwise.
+		 */
+		GRADIENT
+
+	}
+
+	/**
+	 * The concurrency limit of a single host or service. Permits are acquired and samples
+	 * are recorded without locking; the limit is adjusted by a single thread whenever a
+	 * window of samples closes.
+	 */
+	public final class Limiter {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicInteger waiting = new AtomicInteger();
+
+		private final LongAdder rejected = new LongAdder();
+
+		private final Object monitor = new Object();
+
+		// held by the thread that closes a window and adjusts the limit
+		private final AtomicBoolean adjusting = new AtomicBoolean();
+
+		private volatile double limit = initialLimit;
+
+		private volatile Window window = new Window(System.nanoTime());
+
+		// guarded by adjusting
+		private double longRtt;
+
+		private Limiter() {
+		}
+
+		/**
+		 * Acquires a permit, waiting up to the configured maximum wait for one to free
+		 * up.
+		 * @return whether a permit was acquired, in which case it must be released
+		 */
+		public boolean acquire() {
+			if (tryAcquire() || maxWaitNanos > 0 && await()) {
+				return true;
+			}
+			rejected.increment();
+			return false;
+		}
+
+		/**
+		 * Releases a permit and records the outcome of the request, adjusting the limit
+		 * when it closes the current window.
+		 * @param rttNanos the round-trip time of the request
+		 * @param dropped whether the request failed or was shed by the backend
+		 */
+		public void release(long rttNanos, boolean dropped) {
+			int current = inFlight.getAndDecrement();
+			Window window = this.window;
+			int samples = window.record(current, Math.max(rttNanos, 1), dropped);
+			long now = System.nanoTime();
+			if ((samples >= WINDOW_SIZE || now - window.startNanos >= MAX_WINDOW_NANOS)
+					&& adjusting.compareAndSet(false, true)) {
+				try {
+					// samples recorded into the closed window from now on are lost
+					if (this.window == window) {
+						this.window = new Window(now);
+						adjust(window);
+					}
+				}
+				finally {
+					adjusting.set(false);
+				}
+			}
+			signal();
+		}
+
+		/**
+		 * Releases a permit without adjusting the limit, for requests whose outcome says
+		 * nothing about the backend.
+		 */
+		public void release() {
+			inFlight.decrementAndGet();
+			signal();
+		}
+
+		public int getLimit() {
+			return (int) limit;
+		}
+
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		public long getRejected() {
+			return rejected.sum();
+		}
+
+		private boolean tryAcquire() {
+			int current;
+			do {
+				current = inFlight.get();
+				if (current >= (int) limit) {
+					return false;
+				}
+			}
+			while (!inFlight.compareAndSet(current, current + 1));
+			return true;
+		}
+
+		private boolean await() {
+			long deadline = System.nanoTime() + maxWaitNanos;
+			waiting.incrementAndGet();
+			try {
+				synchronized (monitor) {
+					while (!tryAcquire()) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0) {
+							return false;
+						}
+						TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+					}
+					return true;
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			finally {
+				waiting.decrementAndGet();
+			}
+		}
+
+		private void signal() {
+			if (waiting.get() > 0) {
+				synchronized (monitor) {
+					monitor.notify();
+				}
+			}
+		}
+
+		private void adjust(Window window) {
+			long successes = window.successes.sum();
+			boolean dropped = window.dropped.sum() > 0;
+			boolean used = window.maxInFlight.get() * 2 >= limit;
+			double next = algorithm == Algorithm.AIMD ? aimd(successes, used, dropped)
+					: gradient(successes, successes > 0 ? window.rttSum.sum() / successes : 0, used, dropped);
+			limit = Math.min(Math.max(next, minLimit), maxLimit);
+		}
+
+		private double aimd(long successes, boolean used, boolean dropped) {
+			if (dropped) {
+				return limit * backoffRatio;
+			}
+			return used ? limit + successes : limit;
+		}
+
+		// applies the update of every successful sample with the average round-trip
+		// time of the window, followed by a single decrease if any sample was dropped
+		private double gradient(long successes, long rttNanos, boolean used, boolean dropped) {
+			double next = limit;
+			for (long i = 0; i < successes; i++) {
+				longRtt = longRtt == 0 ? rttNanos : longRtt * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+				// lets the long-term round-trip time recover quickly once the backend is
+				// fast again, instead of keeping the limit low
+				if (longRtt > rttNanos * 2) {
+					longRtt *= 0.95;
+				}
+				if (used) {
+					next = smooth(next, Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRtt / rttNanos)));
+				}
+			}
+			return dropped ? smooth(next, MIN_GRADIENT) : next;
+		}
+
+		private double smooth(double limit, double gradient) {
+			double next = limit * gradient + Math.sqrt(limit);
+			return limit * (1 - SMOOTHING) + next * SMOOTHING;
+		}
+
+	}
+
+	/**
+	 * The outcomes of the requests completed since a window was opened, recorded without
+	 * locking.
+	 */
+	private static final class Window {
+
+		private final long startNanos;
+
+		private final AtomicInteger samples = new AtomicInteger();
+
+		private final LongAdder successes = new LongAdder();
+
+		private final LongAdder dropped = new LongAdder();
+
+		private final LongAdder rttSum = new LongAdder();
+
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+
+		private Window(long startNanos) {
+			this.startNanos = startNanos;
+		}
+
+		// returns the number of samples in the window, including this one
+		private int record(int inFlight, long rttNanos, boolean dropped) {
+			if (dropped) {
+				this.dropped.increment();
+			}
+			else {
+				successes.increment();
+				rttSum.add(rttNanos);
+			}
+			int max;
+			do {
+				max = maxInFlight.get();
+			}
+			while (inFlight > max && !maxInFlight.compareAndSet(max, inFlight));
+			return samples.incrementAndGet();
+		}
+
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Closes the expired and idle connections of the Apache HTTP client connection managers
+ * used by Feign clients, for all of them on a single shared scheduler thread. Closing the
+ * connections that have been idle for longer than a server keeps them open avoids
+ * requests failing on half-closed connections. The thread is only started once the first
+ * connection manager is registered.
+ *
+ * @since 3.0.1
+ * @see FeignConnectionEvictorMetrics
+ */
+public class FeignConnectionEvictor implements DisposableBean {
+
+	private static final Log LOG = LogFactory.getLog(FeignConnectionEvictor.class);
+
+	private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+	private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+
+	private final long intervalMillis;
+
+	private final long idleTimeoutMillis;
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param intervalMillis the interval between two evictions in milliseconds
+	 * @param idleTimeoutMillis how long a connection may be idle before it is closed in
+	 * milliseconds, idle connections are not closed if not positive
+	 */
+	public FeignConnectionEvictor(long intervalMillis, long idleTimeoutMillis) {
+		this.intervalMillis = intervalMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 * Starts evicting the connections of a connection manager.
+	 * @param name the name of the connection pool, used as metrics tag
+	 * @param connectionManager the connection manager
+	 */
+	public void register(String name, HttpClientConnectionManager connectionManager) {
+		pools.put(name, new Pool(connectionManager));
+		startIfNecessary();
+		listeners.forEach(listener -> listener.accept(name));
+	}
+
+	/**
+	 * Stops evicting the connections of a connection pool.
+	 * @param name the name the connection pool was registered with
+	 */
+	public void unregister(String name) {
+		if (pools.remove(name) != null) {
+			removalListeners.forEach(listener -> listener.accept(name));
+		}
+	}
+
+	public Set<String> getNames() {
+		return pools.keySet();
+	}
+
+	/**
+	 * @param name the name of the connection pool
+	 * @return how many times the connections of the pool have been evicted
+	 */
+	public long getEvictionRuns(String name) {
+		Pool pool = pools.get(name);
+		return pool != null ? pool.runs.sum() : 0;
+	}
+
+	/**
+	 * The number of connections of a pool closed by an eviction is not known, as
+	 * connections are leased and released while it runs; the available connections before
+	 * and after the last eviction are reported as they are instead.
+	 * @param name the name of the connection pool
+	 * @return the available connections of the pool right before the last eviction, or -1
+	 * if its connection manager does not report them
+	 */
+	public int getAvailableBeforeEviction(String name) {
+		Pool pool = pools.get(name);
+		return pool != null ? pool.availableBefore : -1;
+	}
+
+	/**
+	 * @param name the name of the connection pool
+	 * @return the available connections of the pool right after the last eviction, or -1
+	 * if its connection manager does not report them
+	 */
+	public int getAvailableAfterEviction(String name) {
+		Pool pool = pools.get(name);
+		return pool != null ? pool.availableAfter : -1;
+	}
+
+	void addListener(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+
+	void addRemovalListener(Consumer<String> listener) {
+		removalListeners.add(listener);
+	}
+
+	/**
+	 * Closes the expired and idle connections of all registered connection managers.
+	 */
+	void evict() {
+		pools.forEach((name, pool) -> {
+			try {
+				pool.evict(idleTimeoutMillis);
+			}
+			catch (RuntimeException e) {
+				if (LOG.isWarnEnabled()) {
+					LOG.warn("Could not evict connections of pool " + name, e);
+				}
+			}
+		});
+	}
+
+	private synchronized void startIfNecessary() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "feign-connection-evictor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::evict, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	private static final class Pool {
+
+		private final HttpClientConnectionManager connectionManager;
+
+		private final LongAdder runs = new LongAdder();
+
+		private volatile int availableBefore = -1;
+
+		private volatile int availableAfter = -1;
+
+		private Pool(HttpClientConnectionManager connectionManager) {
+			this.connectionManager = connectionManager;
+		}
+
+		private void evict(long idleTimeoutMillis) {
+			int before = available();
+			connectionManager.closeExpiredConnections();
+			if (idleTimeoutMillis > 0) {
+				connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+			availableBefore = before;
+			availableAfter = available();
+			runs.increment();
+		}
+
+		private int available() {
+			if (connectionManager instanceof ConnPoolControl) {
+				return ((ConnPoolControl<?>) connectionManager).getTotalStats().getAvailable();
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A {@link MeterBinder} that exposes, for every connection pool, how many times
+ * {@link FeignConnectionEvictor} has closed its expired and idle connections, and the
+ * available connections of the pool right before and after the last time. The meters of a
+ * pool are removed when the pool is unregistered.
+ *
+ * @since 3.0.1
+ */
+public class FeignConnectionEvictorMetrics implements MeterBinder {
+
+	private final FeignConnectionEvictor evictor;
+
+	public FeignConnectionEvictorMetrics(FeignConnectionEvictor evictor) {
+		this.evictor = evictor;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		ConcurrentMap<String, List<Meter>> meters = new ConcurrentHashMap<>();
+		evictor.addListener(name -> meters.put(name, bindTo(registry, name)));
+		evictor.addRemovalListener(name -> {
+			List<Meter> removed = meters.remove(name);
+			if (removed != null) {
+				removed.forEach(registry::remove);
+			}
+		});
+		evictor.getNames().forEach(name -> meters.put(name, bindTo(registry, name)));
+	}
+
+	private List<Meter> bindTo(MeterRegistry registry, String name) {
+		FunctionCounter runs = FunctionCounter
+				.builder("feign.httpclient.connections.eviction.runs", evictor, e -> e.getEvictionRuns(name))
+				.tags("pool", name).description("Runs closing the expired and idle connections of the pool")
+				.register(registry);
+		Gauge before = Gauge
+				.builder("feign.httpclient.connections.eviction.available", evictor,
+						e -> e.getAvailableBeforeEviction(name))
+				.tags("pool", name, "stage", "before")
+				.description("Available connections of the pool right before the last eviction").register(registry);
+		Gauge after = Gauge
+				.builder("feign.httpclient.connections.eviction.available", evictor,
+						e -> e.getAvailableAfterEviction(name))
+				.tags("pool", name, "stage", "after")
+				.description("Available connections of the pool right after the last eviction").register(registry);
+		return Arrays.asList(runs, before, after);
+	}
+
+}
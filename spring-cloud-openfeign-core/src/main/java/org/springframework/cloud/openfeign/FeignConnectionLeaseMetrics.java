@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A {@link MeterBinder} that exposes, for every connection pool and route recorded by
+ * {@link FeignConnectionLeases}, the time spent waiting to lease a connection, the number
+ * of requests waiting for one and the number of leases that timed out. The meters of a
+ * pool are removed when the pool is unregistered, and the meters of a route when the
+ * route is forgotten after being idle.
+ *
+ * @since 3.0.1
+ */
+public class FeignConnectionLeaseMetrics implements MeterBinder {
+
+	private final FeignConnectionLeases leases;
+
+	public FeignConnectionLeaseMetrics(FeignConnectionLeases leases) {
+		this.leases = leases;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		ConcurrentMap<FeignConnectionLeases.Route, List<Meter>> meters = new ConcurrentHashMap<>();
+		leases.addListener(route -> meters.put(route, bindTo(registry, route)));
+		leases.addRemovalListener(route -> {
+			List<Meter> removed = meters.remove(route);
+			if (removed != null) {
+				removed.forEach(registry::remove);
+			}
+		});
+		leases.getRoutes().forEach(route -> meters.put(route, bindTo(registry, route)));
+	}
+
+	private List<Meter> bindTo(MeterRegistry registry, FeignConnectionLeases.Route route) {
+		FunctionTimer lease = FunctionTimer
+				.builder("feign.httpclient.connections.lease", route, FeignConnectionLeases.Route::getLeases,
+						FeignConnectionLeases.Route::getLeaseWaitNanos, TimeUnit.NANOSECONDS)
+				.tags("pool", route.getPool(), "route", route.getRoute())
+				.description("Time spent waiting to lease a connection from the pool").register(registry);
+		Gauge pending = Gauge
+				.builder("feign.httpclient.connections.pending", route, FeignConnectionLeases.Route::getPending)
+				.tags("pool", route.getPool(), "route", route.getRoute())
+				.description("Requests waiting to lease a connection from the pool").register(registry);
+		FunctionCounter timeouts = FunctionCounter
+				.builder("feign.httpclient.connections.lease.timeouts", route, FeignConnectionLeases.Route::getTimeouts)
+				.tags("pool", route.getPool(), "route", route.getRoute())
+				.description("Requests that timed out waiting to lease a connection").register(registry);
+		return Arrays.asList(lease, pending, timeouts);
+	}
+
+}
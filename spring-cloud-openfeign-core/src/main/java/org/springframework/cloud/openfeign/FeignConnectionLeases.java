@@ -0,0 +1,337 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Records, for every connection pool of the Apache HTTP clients used by Feign clients and
+ * every route of it, how long requests waited to lease a connection from the pool and how
+ * many of them gave up because the connection request timeout passed. Pools are
+ * instrumented by wrapping their connection manager with {@link #instrument}. A route
+ * that has not leased a connection for the idle time and has no connections left in its
+ * pool is forgotten, so that the routes of pools that are never closed, such as the
+ * shared one, do not pile up as their clients call ever new hosts.
+ *
+ * @since 3.0.1
+ * @see FeignConnectionLeaseMetrics
+ */
+public class FeignConnectionLeases {
+
+	private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+	private final List<Consumer<Route>> listeners = new CopyOnWriteArrayList<>();
+
+	private final List<Consumer<Route>> removalListeners = new CopyOnWriteArrayList<>();
+
+	private final long idleNanos;
+
+	private final AtomicLong nextSweepNanos;
+
+	public FeignConnectionLeases() {
+		this(Duration.ofMinutes(10));
+	}
+
+	/**
+	 * @param idleTime the time after which a route that has not leased a connection and
+	 * has no connections left in its pool is forgotten
+	 */
+	public FeignConnectionLeases(Duration idleTime) {
+		this.idleNanos = Math.max(idleTime.toNanos(), 1);
+		this.nextSweepNanos = new AtomicLong(System.nanoTime() + Math.min(idleNanos, Long.MAX_VALUE / 2));
+	}
+
+	/**
+	 * @param pool the name of the connection pool, used as metrics tag
+	 * @param connectionManager the connection manager of the pool
+	 * @return a connection manager that leases the connections of the given one and
+	 * records the leases
+	 */
+	public HttpClientConnectionManager instrument(String pool, HttpClientConnectionManager connectionManager) {
+		return new InstrumentedConnectionManager(pool, connectionManager);
+	}
+
+	/**
+	 * Stops recording the leases of a connection pool and forgets its routes, once the
+	 * pool is closed.
+	 * @param pool the name the connection pool was instrumented with
+	 */
+	public void unregister(String pool) {
+		routes.values().removeIf(route -> {
+			if (!route.getPool().equals(pool)) {
+				return false;
+			}
+			removalListeners.forEach(listener -> listener.accept(route));
+			return true;
+		});
+	}
+
+	public Collection<Route> getRoutes() {
+		return routes.values();
+	}
+
+	void addListener(Consumer<Route> listener) {
+		listeners.add(listener);
+	}
+
+	void addRemovalListener(Consumer<Route> listener) {
+		removalListeners.add(listener);
+	}
+
+	/**
+	 * Forgets the routes that have been idle for the idle time.
+	 */
+	void sweep() {
+		long now = System.nanoTime();
+		routes.forEach((key, route) -> {
+			if (route.isIdle(now, idleNanos) && routes.remove(key, route)) {
+				removalListeners.forEach(listener -> listener.accept(route));
+			}
+		});
+	}
+
+	private void sweepIfDue() {
+		long now = System.nanoTime();
+		long nextSweep = nextSweepNanos.get();
+		if (now - nextSweep < 0
+				|| !nextSweepNanos.compareAndSet(nextSweep, now + Math.min(idleNanos, Long.MAX_VALUE / 2))) {
+			return;
+		}
+		sweep();
+	}
+
+	private Route getRoute(String pool, HttpRoute httpRoute, HttpClientConnectionManager connectionManager) {
+		sweepIfDue();
+		String route = httpRoute.getTargetHost().toURI();
+		Route existing = routes.get(pool + " " + route);
+		if (existing != null) {
+			return existing;
+		}
+		Route created = new Route(pool, route, httpRoute, connectionManager);
+		existing = routes.putIfAbsent(pool + " " + route, created);
+		if (existing != null) {
+			return existing;
+		}
+		listeners.forEach(listener -> listener.accept(created));
+		return created;
+	}
+
+	/**
+	 * The leases of connections to a single target host from a single pool.
+	 */
+	public static final class Route {
+
+		private final String pool;
+
+		private final String route;
+
+		private final HttpRoute httpRoute;
+
+		private final HttpClientConnectionManager connectionManager;
+
+		private final LongAdder leases = new LongAdder();
+
+		private final LongAdder leaseWaitNanos = new LongAdder();
+
+		private final LongAdder timeouts = new LongAdder();
+
+		private final AtomicInteger activeLeases = new AtomicInteger();
+
+		private volatile long lastLeaseNanos = System.nanoTime();
+
+		private Route(String pool, String route, HttpRoute httpRoute, HttpClientConnectionManager connectionManager) {
+			this.pool = pool;
+			this.route = route;
+			this.httpRoute = httpRoute;
+			this.connectionManager = connectionManager;
+		}
+
+		public String getPool() {
+			return pool;
+		}
+
+		public String getRoute() {
+			return route;
+		}
+
+		/**
+		 * @return the number of leases, including the ones that timed out
+		 */
+		public long getLeases() {
+			return leases.sum();
+		}
+
+		/**
+		 * @return the total time the leases waited for a connection in nanoseconds
+		 */
+		public long getLeaseWaitNanos() {
+			return leaseWaitNanos.sum();
+		}
+
+		/**
+		 * @return the number of leases that timed out before a connection became
+		 * available
+		 */
+		public long getTimeouts() {
+			return timeouts.sum();
+		}
+
+		/**
+		 * @return the number of requests currently waiting for a connection
+		 */
+		@SuppressWarnings("unchecked")
+		public int getPending() {
+			if (connectionManager instanceof ConnPoolControl) {
+				return ((ConnPoolControl<HttpRoute>) connectionManager).getStats(httpRoute).getPending();
+			}
+			return 0;
+		}
+
+		private void leasing() {
+			activeLeases.incrementAndGet();
+			lastLeaseNanos = System.nanoTime();
+		}
+
+		private void leased(long waitNanos, boolean timedOut) {
+			activeLeases.decrementAndGet();
+			lastLeaseNanos = System.nanoTime();
+			leases.increment();
+			leaseWaitNanos.add(waitNanos);
+			if (timedOut) {
+				timeouts.increment();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private boolean isIdle(long now, long idleNanos) {
+			if (activeLeases.get() > 0 || now - lastLeaseNanos <= idleNanos) {
+				return false;
+			}
+			if (connectionManager instanceof ConnPoolControl) {
+				PoolStats stats = ((ConnPoolControl<HttpRoute>) connectionManager).getStats(httpRoute);
+				return stats.getLeased() + stats.getAvailable() + stats.getPending() == 0;
+			}
+			return true;
+		}
+
+	}
+
+	private final class InstrumentedConnectionManager implements HttpClientConnectionManager {
+
+		private final String pool;
+
+		private final HttpClientConnectionManager delegate;
+
+		private InstrumentedConnectionManager(String pool, HttpClientConnectionManager delegate) {
+			this.pool = pool;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute httpRoute, Object state) {
+			ConnectionRequest request = delegate.requestConnection(httpRoute, state);
+			Route route = getRoute(pool, httpRoute, delegate);
+			return new ConnectionRequest() {
+
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit unit)
+						throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+					long start = System.nanoTime();
+					boolean timedOut = false;
+					route.leasing();
+					try {
+						return request.get(timeout, unit);
+					}
+					catch (ConnectionPoolTimeoutException e) {
+						timedOut = true;
+						throw e;
+					}
+					finally {
+						route.leased(System.nanoTime() - start, timedOut);
+					}
+				}
+
+				@Override
+				public boolean cancel() {
+					return request.cancel();
+				}
+
+			};
+		}
+
+		@Override
+		public void releaseConnection(HttpClientConnection connection, Object newState, long validDuration,
+				TimeUnit timeUnit) {
+			delegate.releaseConnection(connection, newState, validDuration, timeUnit);
+		}
+
+		@Override
+		public void connect(HttpClientConnection connection, HttpRoute route, int connectTimeout, HttpContext context)
+				throws IOException {
+			delegate.connect(connection, route, connectTimeout, context);
+		}
+
+		@Override
+		public void upgrade(HttpClientConnection connection, HttpRoute route, HttpContext context) throws IOException {
+			delegate.upgrade(connection, route, context);
+		}
+
+		@Override
+		public void routeComplete(HttpClientConnection connection, HttpRoute route, HttpContext context)
+				throws IOException {
+			delegate.routeComplete(connection, route, context);
+		}
+
+		@Override
+		public void closeIdleConnections(long idleTime, TimeUnit timeUnit) {
+			delegate.closeIdleConnections(idleTime, timeUnit);
+		}
+
+		@Override
+		public void closeExpiredConnections() {
+			delegate.closeExpiredConnections();
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+	}
+
+}
@@ -16,11 +16,18 @@
 
 package org.springframework.cloud.openfeign;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.cloud.context.named.NamedContextFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.lang.Nullable;
 
 /**
@@ -33,6 +40,15 @@ import org.springframework.lang.Nullable;
  */
 public class FeignContext extends NamedContextFactory<FeignClientSpecification> {
 
+	private final Map<Class<?>, Object> sharedInstances = new ConcurrentHashMap<>();
+
+	// kept here rather than by NamedContextFactory, so that single contexts can be
+	// closed; created, looked up and closed under its own lock
+	private final Map<String, AnnotationConfigApplicationContext> contexts = new HashMap<>();
+
+	// number of holders of the contexts created by retainContext, guarded by contexts
+	private final Map<String, Integer> references = new HashMap<>();
+
 	public FeignContext() {
 		super(FeignClientsConfiguration.class, "feign", "feign.client.name");
 	}
@@ -52,4 +68,95 @@ public class FeignContext extends NamedContextFactory<FeignClientSpecification>
 		return getContext(name).getBeansOfType(type);
 	}
 
+	/**
+	 * Returns an instance of the given class that is shared by all Feign clients,
+	 * instantiating it on first use. Classes annotated with {@link NonShared} are
+	 * instantiated on every call.
+	 * @param type the class to instantiate
+	 * @param <T> the type of the instance
+	 * @return the shared instance
+	 */
+	public <T> T getSharedInstance(Class<T> type) {
+		if (AnnotatedElementUtils.hasAnnotation(type, NonShared.class)) {
+			return BeanUtils.instantiateClass(type);
+		}
+		return type.cast(this.sharedInstances.computeIfAbsent(type, BeanUtils::instantiateClass));
+	}
+
+	@Override
+	protected AnnotationConfigApplicationContext getContext(String name) {
+		synchronized (this.contexts) {
+			AnnotationConfigApplicationContext context = this.contexts.get(name);
+			if (context == null) {
+				context = createContext(name);
+				this.contexts.put(name, context);
+			}
+			return context;
+		}
+	}
+
+	@Override
+	public Set<String> getContextNames() {
+		synchronized (this.contexts) {
+			return new HashSet<>(this.contexts.keySet());
+		}
+	}
+
+	/**
+	 * Registers one more holder of the context of the given client, creating the context
+	 * if it does not exist yet. A context created this way is closed once all of its
+	 * holders have released it. A context that already existed, such as the one of a
+	 * client declared with {@link FeignClient}, is never closed by its holders.
+	 * @param name the name of the client
+	 * @see #releaseContext(String)
+	 */
+	public void retainContext(String name) {
+		synchronized (this.contexts) {
+			Integer references = this.references.get(name);
+			if (references != null) {
+				this.references.put(name, references + 1);
+			}
+			else if (!this.contexts.containsKey(name)) {
+				this.contexts.put(name, createContext(name));
+				this.references.put(name, 1);
+			}
+		}
+	}
+
+	/**
+	 * Removes a holder registered by {@link #retainContext(String)}, and closes the
+	 * context, releasing the beans it holds, when it was the last one. The context is
+	 * created again when it is needed the next time.
+	 * @param name the name of the client
+	 */
+	public void releaseContext(String name) {
+		synchronized (this.contexts) {
+			Integer references = this.references.get(name);
+			if (references == null) {
+				return;
+			}
+			if (references > 1) {
+				this.references.put(name, references - 1);
+				return;
+			}
+			this.references.remove(name);
+			// closed under the lock, so that getContext cannot hand it out meanwhile
+			AnnotationConfigApplicationContext context = this.contexts.remove(name);
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		this.sharedInstances.clear();
+		synchronized (this.contexts) {
+			this.contexts.values().forEach(AnnotationConfigApplicationContext::close);
+			this.contexts.clear();
+			this.references.clear();
+		}
+		super.destroy();
+	}
+
 }
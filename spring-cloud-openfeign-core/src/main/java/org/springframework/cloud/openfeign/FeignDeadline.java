@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import feign.Request;
+
+/**
+ * The point in time by which a Feign call, including all its retries, has to complete.
+ * The deadline of the current thread is set from the configured <code>deadline</code> of
+ * a Feign client, from the {@link #HEADER} of an inbound request or explicitly with
+ * {@link #supplyWith(FeignDeadline, Supplier)}. Attempts are not started once it has
+ * passed, and their timeouts are cut down to the remaining time.
+ *
+ * @since 3.0.1
+ * @see FeignDeadlineCapability
+ */
+public final class FeignDeadline {
+
+	/**
+	 * Header carrying the time remaining until the deadline, in milliseconds.
+	 */
+	public static final String HEADER = "X-Request-Timeout-Ms";
+
+	private static final ThreadLocal<FeignDeadline> CURRENT = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+
+	private FeignDeadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * @param timeout the time from now until the deadline
+	 * @param unit the unit of the timeout
+	 * @return a deadline after the given timeout
+	 */
+	public static FeignDeadline after(long timeout, TimeUnit unit) {
+		return new FeignDeadline(System.nanoTime() + unit.toNanos(Math.max(timeout, 0)));
+	}
+
+	/**
+	 * @param headerValue the value of a {@link #HEADER}, may be {@code null}
+	 * @return the deadline carried by the header, or {@code null} if it is missing or
+	 * invalid
+	 */
+	public static FeignDeadline fromHeader(String headerValue) {
+		if (headerValue == null) {
+			return null;
+		}
+		try {
+			return after(Long.parseLong(headerValue.trim()), TimeUnit.MILLISECONDS);
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the deadline of the current thread, or {@code null} if there is none
+	 */
+	public static FeignDeadline getCurrent() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Sets the deadline of the current thread.
+	 * @param deadline the deadline, {@code null} to remove it
+	 * @return the previous deadline, to be restored when the new one no longer applies
+	 */
+	public static FeignDeadline setCurrent(FeignDeadline deadline) {
+		FeignDeadline previous = CURRENT.get();
+		if (deadline != null) {
+			CURRENT.set(deadline);
+		}
+		else {
+			CURRENT.remove();
+		}
+		return previous;
+	}
+
+	/**
+	 * Runs the given Feign calls with a deadline, for example on a thread other than the
+	 * one that received the inbound request.
+	 * @param deadline the deadline, may be {@code null}
+	 * @param supplier the Feign calls
+	 * @param <T> the type of the result
+	 * @return the result of the supplier
+	 */
+	public static <T> T supplyWith(FeignDeadline deadline, Supplier<T> supplier) {
+		FeignDeadline previous = setCurrent(deadline);
+		try {
+			return supplier.get();
+		}
+		finally {
+			setCurrent(previous);
+		}
+	}
+
+	/**
+	 * @param other another deadline, may be {@code null}
+	 * @return the earlier of this and the other deadline
+	 */
+	public FeignDeadline earliest(FeignDeadline other) {
+		return other != null && other.deadlineNanos - deadlineNanos < 0 ? other : this;
+	}
+
+	public boolean isExpired() {
+		return deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @return the time remaining until the deadline, in milliseconds, 0 once it has
+	 * passed
+	 */
+	public long getRemainingMillis() {
+		return Math.max(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()), 0);
+	}
+
+	/**
+	 * @param options the timeouts of an attempt
+	 * @return the given options with both timeouts cut down to the remaining time
+	 */
+	public Request.Options limit(Request.Options options) {
+		long remaining = Math.max(getRemainingMillis(), 1);
+		long connectTimeout = options.connectTimeoutUnit().toMillis(options.connectTimeout());
+		long readTimeout = options.readTimeoutUnit().toMillis(options.readTimeout());
+		if (connectTimeout <= remaining && readTimeout <= remaining) {
+			return options;
+		}
+		Request.Options limited = new Request.Options(Math.min(connectTimeout, remaining), TimeUnit.MILLISECONDS,
+				Math.min(readTimeout, remaining), TimeUnit.MILLISECONDS, options.isFollowRedirects());
+		return options instanceof HedgedRequestOptions ? new HedgedRequestOptions(limited,
+				((HedgedRequestOptions) options).getHedgingDelay(TimeUnit.MILLISECONDS)) : limited;
+	}
+
+	/**
+	 * @param request the request of an attempt
+	 * @return a copy of the request whose {@link #HEADER} carries the remaining time
+	 */
+	public Request propagateTo(Request request) {
+		Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.putAll(request.headers());
+		headers.put(HEADER, Collections.singletonList(String.valueOf(getRemainingMillis())));
+		return Request.create(request.httpMethod(), request.url(), headers, request.body(), request.charset(),
+				request.requestTemplate());
+	}
+
+	@Override
+	public String toString() {
+		return "FeignDeadline{remainingMillis=" + getRemainingMillis() + "}";
+	}
+
+}
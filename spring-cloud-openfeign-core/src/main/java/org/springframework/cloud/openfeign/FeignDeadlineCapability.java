@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.util.concurrent.TimeUnit;
+
+import feign.Capability;
+import feign.Client;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Response;
+
+/**
+ * A {@link Capability} that enforces the {@link FeignDeadline} of the current thread. If
+ * the Feign client has a deadline of its own, every call made through it is bound by the
+ * earlier of that deadline and the one of the caller. Requests are rejected with a
+ * {@link DeadlineExceededException} once the deadline has passed, their timeouts are cut
+ * down to the remaining time and, if propagation is enabled, the remaining time is sent
+ * in the {@link FeignDeadline#HEADER}. When Spring Cloud CircuitBreaker support is
+ * enabled, the deadline is carried over to the thread the circuit breaker runs the call
+ * on.
+ *
+ * @since 3.0.1
+ */
+public class FeignDeadlineCapability implements Capability {
+
+	private final Long deadlineMillis;
+
+	private final boolean propagate;
+
+	/**
+	 * @param deadlineMillis the deadline of every call of the client, may be {@code null}
+	 * @param propagate whether the remaining time is sent downstream
+	 */
+	public FeignDeadlineCapability(Long deadlineMillis, boolean propagate) {
+		this.deadlineMillis = deadlineMillis;
+		this.propagate = propagate;
+	}
+
+	@Override
+	public InvocationHandlerFactory enrich(InvocationHandlerFactory invocationHandlerFactory) {
+		if (deadlineMillis == null) {
+			return invocationHandlerFactory;
+		}
+		return (target, dispatch) -> {
+			InvocationHandler handler = invocationHandlerFactory.create(target, dispatch);
+			// the deadline covers the whole call, including the retries of the Retryer
+			return (proxy, method, args) -> {
+				FeignDeadline previous = FeignDeadline.setCurrent(FeignDeadline
+						.after(deadlineMillis, TimeUnit.MILLISECONDS).earliest(FeignDeadline.getCurrent()));
+				try {
+					return handler.invoke(proxy, method, args);
+				}
+				finally {
+					FeignDeadline.setCurrent(previous);
+				}
+			};
+		};
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return new DeadlineClient(client);
+	}
+
+	private class DeadlineClient implements Client {
+
+		private final Client delegate;
+
+		DeadlineClient(Client delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			FeignDeadline deadline = FeignDeadline.getCurrent();
+			if (deadline == null) {
+				return delegate.execute(request, options);
+			}
+			if (deadline.isExpired()) {
+				throw new DeadlineExceededException(request);
+			}
+			return delegate.execute(propagate ? deadline.propagateTo(request) : request, deadline.limit(options));
+		}
+
+	}
+
+}
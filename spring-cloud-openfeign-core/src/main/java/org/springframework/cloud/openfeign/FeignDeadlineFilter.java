@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sets the {@link FeignDeadline} of the thread handling a servlet request from its
+ * {@link FeignDeadline#HEADER}, so that the Feign calls made while handling it do not
+ * outlast the deadline of the caller.
+ *
+ * @since 3.0.1
+ */
+public class FeignDeadlineFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		FeignDeadline deadline = FeignDeadline.fromHeader(request.getHeader(FeignDeadline.HEADER));
+		if (deadline == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		FeignDeadline previous = FeignDeadline.setCurrent(deadline);
+		try {
+			filterChain.doFilter(request, response);
+		}
+		finally {
+			FeignDeadline.setCurrent(previous);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Reads the {@link FeignDeadline#HEADER} of a WebFlux request and stores the deadline in
+ * the Reactor {@link Context} under the {@link FeignDeadline} class. Blocking Feign calls
+ * do not run on the thread that received the request, so they have to be wrapped with
+ * {@link FeignDeadline#supplyWith(FeignDeadline, java.util.function.Supplier)} to be
+ * bound by it.
+ *
+ * @since 3.0.1
+ */
+public class FeignDeadlineWebFilter implements WebFilter {
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		FeignDeadline deadline = FeignDeadline
+				.fromHeader(exchange.getRequest().getHeaders().getFirst(FeignDeadline.HEADER));
+		if (deadline == null) {
+			return chain.filter(exchange);
+		}
+		return chain.filter(exchange).contextWrite(Context.of(FeignDeadline.class, deadline));
+	}
+
+}
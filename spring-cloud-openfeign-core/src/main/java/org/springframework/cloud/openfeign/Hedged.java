@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables request hedging for the annotated Feign client method. When a load-balanced
+ * request of an idempotent method has not completed within the delay, the same request is
+ * sent to another instance, the first response is used and the other one is closed.
+ *
+ * @since 3.0.1
+ * @see FeignClientProperties.MethodConfiguration#getHedgingDelay()
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Hedged {
+
+	/**
+	 * @return the delay in milliseconds after which the request is hedged; 0 uses the
+	 * observed p95 latency of the method
+	 */
+	long delay() default 0;
+
+}
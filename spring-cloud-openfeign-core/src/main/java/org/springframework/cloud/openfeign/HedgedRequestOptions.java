@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.concurrent.TimeUnit;
+
+import feign.Request;
+
+/**
+ * {@link Request.Options} of a method whose load-balanced requests are hedged.
+ *
+ * @since 3.0.1
+ * @see Hedged
+ */
+public class HedgedRequestOptions extends Request.Options {
+
+	private final long hedgingDelayMillis;
+
+	/**
+	 * @param options the timeouts of the method
+	 * @param hedgingDelayMillis delay after which the request is hedged, 0 to use the
+	 * observed p95 latency of the method
+	 */
+	public HedgedRequestOptions(Request.Options options, long hedgingDelayMillis) {
+		super(options.connectTimeout(), options.connectTimeoutUnit(), options.readTimeout(), options.readTimeoutUnit(),
+				options.isFollowRedirects());
+		this.hedgingDelayMillis = hedgingDelayMillis;
+	}
+
+	public long getHedgingDelay(TimeUnit unit) {
+		return unit.convert(hedgingDelayMillis, TimeUnit.MILLISECONDS);
+	}
+
+}
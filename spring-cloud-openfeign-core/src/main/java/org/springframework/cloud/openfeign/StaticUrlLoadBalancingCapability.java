@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.List;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * A {@link Capability} that spreads the requests of a Feign client configured with
+ * several URLs over them with a {@link StaticUrlLoadBalancingClient}, which executes them
+ * with the client of the {@link feign.Feign.Builder}, whether it was set by a
+ * {@link Client} bean or a {@link FeignBuilderCustomizer}. It has to be added before the
+ * capabilities that wrap the client.
+ *
+ * @since 3.0.1
+ */
+public class StaticUrlLoadBalancingCapability implements Capability {
+
+	private final List<String> urls;
+
+	private final StaticUrlLoadBalancingClient.Strategy strategy;
+
+	/**
+	 * @param urls the base URLs of the service, the first one being the URL the Feign
+	 * client is targeted at
+	 * @param strategy how to pick the URL of a request
+	 */
+	public StaticUrlLoadBalancingCapability(List<String> urls, StaticUrlLoadBalancingClient.Strategy strategy) {
+		this.urls = urls;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return new StaticUrlLoadBalancingClient(client, urls, strategy);
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link Client} that spreads the requests of a Feign client configured with several
+ * static URLs over them, without any discovery infrastructure. The client is targeted at
+ * the first URL, which every request is rewritten from to the URL that is picked, round
+ * robin or the one with fewer outstanding requests out of two random ones. A request that
+ * fails to connect, or any request of an idempotent method that fails with an
+ * {@link IOException}, is sent to the next URL, and the URL that failed is avoided for a
+ * few seconds unless all of them failed. The connection pool of the delegate keeps its
+ * connections per host, so every URL gets its own connections.
+ *
+ * @since 3.0.1
+ */
+public class StaticUrlLoadBalancingClient implements Client {
+
+	private static final long UNAVAILABLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private final Client delegate;
+
+	private final String targetUrl;
+
+	private final List<Endpoint> endpoints = new ArrayList<>();
+
+	private final Strategy strategy;
+
+	private final AtomicInteger position = new AtomicInteger();
+
+	/**
+	 * @param delegate the client that executes the requests
+	 * @param urls the base URLs of the service, the first one being the URL the Feign
+	 * client is targeted at
+	 * @param strategy how to pick the URL of a request
+	 */
+	public StaticUrlLoadBalancingClient(Client delegate, List<String> urls, Strategy strategy) {
+		Assert.notEmpty(urls, "At least one URL must be provided");
+		this.delegate = delegate;
+		this.targetUrl = urls.get(0);
+		urls.forEach(url -> endpoints.add(new Endpoint(url)));
+		this.strategy = strategy;
+	}
+
+	@Override
+	public Response execute(Request request, Request.Options options) throws IOException {
+		String url = request.url();
+		if (!url.startsWith(targetUrl)) {
+			return delegate.execute(request, options);
+		}
+		String relativeUrl = url.substring(targetUrl.length());
+		List<Endpoint> tried = new ArrayList<>(1);
+		while (true) {
+			Endpoint endpoint = choose(tried);
+			tried.add(endpoint);
+			endpoint.outstandingRequests.incrementAndGet();
+			try {
+				Response response = delegate.execute(Request.create(request.httpMethod(), endpoint.url + relativeUrl,
+						request.headers(), request.body(), request.charset(), request.requestTemplate()), options);
+				endpoint.unavailableUntilNanos = 0;
+				return response;
+			}
+			catch (IOException ex) {
+				if (!isSafeToFailOver(request, ex)) {
+					throw ex;
+				}
+				endpoint.unavailableUntilNanos = System.nanoTime() + UNAVAILABLE_NANOS;
+				if (tried.size() >= endpoints.size()) {
+					throw ex;
+				}
+			}
+			finally {
+				endpoint.outstandingRequests.decrementAndGet();
+			}
+		}
+	}
+
+	public Client getDelegate() {
+		return delegate;
+	}
+
+	private Endpoint choose(List<Endpoint> tried) {
+		List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+		long now = System.nanoTime();
+		for (Endpoint endpoint : endpoints) {
+			if (!tried.contains(endpoint) && endpoint.isAvailable(now)) {
+				candidates.add(endpoint);
+			}
+		}
+		if (candidates.isEmpty()) {
+			// every URL failed recently, so any of them is as good as the others
+			for (Endpoint endpoint : endpoints) {
+				if (!tried.contains(endpoint)) {
+					candidates.add(endpoint);
+				}
+			}
+		}
+		if (candidates.size() == 1) {
+			return candidates.get(0);
+		}
+		if (strategy == Strategy.LEAST_OUTSTANDING_REQUESTS) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(candidates.size());
+			int second = random.nextInt(candidates.size() - 1);
+			if (second >= first) {
+				second++;
+			}
+			Endpoint a = candidates.get(first);
+			Endpoint b = candidates.get(second);
+			return a.outstandingRequests.get() <= b.outstandingRequests.get() ? a : b;
+		}
+		return candidates.get((position.getAndIncrement() & Integer.MAX_VALUE) % candidates.size());
+	}
+
+	private static boolean isSafeToFailOver(Request request, IOException ex) {
+		if (ex instanceof ConnectException || ex instanceof NoRouteToHostException
+				|| ex instanceof UnknownHostException) {
+			// the request has not reached the server
+			return true;
+		}
+		switch (request.httpMethod()) {
+		case GET:
+		case HEAD:
+		case OPTIONS:
+		case PUT:
+		case DELETE:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Ways to pick the URL of a request.
+	 */
+	public enum Strategy {
+
+		/**
+		 * Pick the URLs in turn.
+		 */
+		ROUND_ROBIN,
+
+		/**
+		 * Pick the URL with fewer outstanding requests out of two random URLs.
+		 */
+		LEAST_OUTSTANDING_REQUESTS
+
+	}
+
+	private static final class Endpoint {
+
+		private final String url;
+
+		private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+		// 0 while the URL is available
+		private volatile long unavailableUntilNanos;
+
+		private Endpoint(String url) {
+			this.url = url;
+		}
+
+		private boolean isAvailable(long now) {
+			long unavailableUntil = unavailableUntilNanos;
+			return unavailableUntil == 0 || now - unavailableUntil >= 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+
+/**
+ * A {@link Client} that sends requests with an Apache HttpClient 5
+ * {@link CloseableHttpAsyncClient}, which speaks HTTP/2 with the hosts that support it.
+ * The calling thread waits for the head of the response at most the connect and the read
+ * timeout of the request together, and the body is then streamed to it, waiting at most
+ * the read timeout for every further part of it.
+ *
+ * @since 3.0.1
+ * @see FeignApacheHttp5Clients
+ */
+public class AsyncApacheHttp5Client implements Client {
+
+	private final CloseableHttpAsyncClient client;
+
+	private final RequestConfig defaultRequestConfig;
+
+	/**
+	 * @param client the started client that sends the requests
+	 * @param defaultRequestConfig the configuration of the client, whose timeouts and
+	 * redirect handling are replaced by the {@link Request.Options} of every request
+	 */
+	public AsyncApacheHttp5Client(CloseableHttpAsyncClient client, RequestConfig defaultRequestConfig) {
+		this.client = client;
+		this.defaultRequestConfig = defaultRequestConfig;
+	}
+
+	@Override
+	public Response execute(Request request, Request.Options options) throws IOException {
+		Future<Response> future = this.client.execute(SimpleRequestProducer.create(toHttpRequest(request, options)),
+				new StreamingResponseConsumer(request, options.readTimeoutMillis()), null);
+		try {
+			try {
+				if (options.connectTimeoutMillis() > 0 && options.readTimeoutMillis() > 0) {
+					// the I/O reactor only checks the timeouts of its connections once a
+					// second
+					return future.get((long) options.connectTimeoutMillis() + options.readTimeoutMillis(),
+							TimeUnit.MILLISECONDS);
+				}
+				return future.get();
+			}
+			catch (TimeoutException ex) {
+				if (future.cancel(true)) {
+					throw new SocketTimeoutException("Read timed out waiting for the response of " + request.url());
+				}
+				// the response arrived as the wait ended
+				return future.get();
+			}
+		}
+		catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the response of " + request.url());
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	private SimpleHttpRequest toHttpRequest(Request request, Request.Options options) {
+		SimpleHttpRequest httpRequest = new SimpleHttpRequest(request.httpMethod().name(), URI.create(request.url()));
+		httpRequest.setConfig(RequestConfig.copy(this.defaultRequestConfig)
+				.setConnectTimeout(FeignApacheHttp5Clients.timeout(options.connectTimeoutMillis()))
+				.setResponseTimeout(FeignApacheHttp5Clients.timeout(options.readTimeoutMillis()))
+				.setRedirectsEnabled(options.isFollowRedirects()).build());
+		for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+			// the client sets the length of the body itself
+			if (header.getKey().equalsIgnoreCase(Util.CONTENT_LENGTH)) {
+				continue;
+			}
+			for (String value : header.getValue()) {
+				httpRequest.addHeader(header.getKey(), value);
+			}
+		}
+		if (request.body() != null) {
+			// the content type is sent with the headers of the request
+			httpRequest.setBody(request.body(), null);
+		}
+		return httpRequest;
+	}
+
+}
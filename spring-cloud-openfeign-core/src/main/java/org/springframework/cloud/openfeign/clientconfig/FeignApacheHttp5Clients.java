@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.security.GeneralSecurityException;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties.Hc5Properties.VersionPolicy;
+
+/**
+ * Creates the Apache HttpClient 5 clients of Feign, so that the shared client and the
+ * clients with a connection pool of their own apply the {@link FeignHttpClientProperties}
+ * alike.
+ *
+ * @since 3.0.1
+ */
+public final class FeignApacheHttp5Clients {
+
+	// the HttpClient 5 pool fails a lease without a limit as soon as another lease holds
+	// its lock, so waiting without a limit is a wait of about 24 days instead
+	private static final Timeout UNBOUNDED_CONNECTION_REQUEST_TIMEOUT = Timeout.ofMilliseconds(Integer.MAX_VALUE);
+
+	private FeignApacheHttp5Clients() {
+		throw new IllegalStateException("Don't instantiate a utility class");
+	}
+
+	/**
+	 * @param httpClientProperties the properties to apply
+	 * @param maxConnections the maximum number of connections of the pool
+	 * @param maxConnectionsPerRoute the maximum number of connections of a route
+	 * @return a started client, which uses the HTTP versions of
+	 * <code>feign.httpclient.hc5.version-policy</code>
+	 */
+	public static CloseableHttpAsyncClient createClient(FeignHttpClientProperties httpClientProperties,
+			int maxConnections, int maxConnectionsPerRoute) {
+		TlsStrategy tlsStrategy = createTlsStrategy(httpClientProperties.isDisableSslValidation());
+		RequestConfig requestConfig = createRequestConfig(httpClientProperties);
+		TimeValue idleConnectionTimeout = TimeValue.ofMilliseconds(httpClientProperties.getIdleConnectionTimeout());
+		VersionPolicy versionPolicy = httpClientProperties.getHc5().getVersionPolicy();
+		CloseableHttpAsyncClient client;
+		if (versionPolicy == VersionPolicy.FORCE_HTTP_2) {
+			// keeps a single connection per host instead of a pool
+			H2AsyncClientBuilder builder = HttpAsyncClients.customHttp2().setTlsStrategy(tlsStrategy)
+					.setDefaultRequestConfig(requestConfig).disableCookieManagement();
+			if (TimeValue.isPositive(idleConnectionTimeout)) {
+				builder.evictIdleConnections(idleConnectionTimeout);
+			}
+			client = builder.build();
+		}
+		else {
+			PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+					.setTlsStrategy(tlsStrategy).setMaxConnTotal(maxConnections)
+					.setMaxConnPerRoute(maxConnectionsPerRoute)
+					.setConnectionTimeToLive(TimeValue.of(httpClientProperties.getTimeToLive(),
+							httpClientProperties.getTimeToLiveUnit()))
+					.setValidateAfterInactivity(
+							TimeValue.ofMilliseconds(httpClientProperties.getValidateAfterInactivity()))
+					.build();
+			HttpAsyncClientBuilder builder = HttpAsyncClients.custom().setConnectionManager(connectionManager)
+					.setVersionPolicy(versionPolicy == VersionPolicy.FORCE_HTTP_1 ? HttpVersionPolicy.FORCE_HTTP_1
+							: HttpVersionPolicy.NEGOTIATE)
+					.setDefaultRequestConfig(requestConfig).disableCookieManagement().evictExpiredConnections();
+			if (TimeValue.isPositive(idleConnectionTimeout)) {
+				builder.evictIdleConnections(idleConnectionTimeout);
+			}
+			client = builder.build();
+		}
+		client.start();
+		return client;
+	}
+
+	/**
+	 * @param httpClientProperties the properties to apply
+	 * @return the request configuration the client starts from for every request
+	 */
+	public static RequestConfig createRequestConfig(FeignHttpClientProperties httpClientProperties) {
+		return RequestConfig.custom().setConnectTimeout(timeout(httpClientProperties.getConnectionTimeout()))
+				.setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout() > 0
+						? Timeout.ofMilliseconds(httpClientProperties.getConnectionRequestTimeout())
+						: UNBOUNDED_CONNECTION_REQUEST_TIMEOUT)
+				.setRedirectsEnabled(httpClientProperties.isFollowRedirects()).build();
+	}
+
+	static Timeout timeout(long millis) {
+		return millis > 0 ? Timeout.ofMilliseconds(millis) : Timeout.DISABLED;
+	}
+
+	private static TlsStrategy createTlsStrategy(boolean disableSslValidation) {
+		if (!disableSslValidation) {
+			return ClientTlsStrategyBuilder.create().useSystemProperties().build();
+		}
+		try {
+			return ClientTlsStrategyBuilder.create()
+					.setSslContext(SSLContextBuilder.create().loadTrustMaterial(TrustAllStrategy.INSTANCE).build())
+					.setHostnameVerifier(NoopHostnameVerifier.INSTANCE).build();
+		}
+		catch (GeneralSecurityException ex) {
+			throw new IllegalStateException("Could not create an SSL context that trusts all certificates", ex);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import org.springframework.cloud.commons.httpclient.ApacheHttpClientConnectionManagerFactory;
+import org.springframework.cloud.commons.httpclient.ApacheHttpClientFactory;
+import org.springframework.cloud.openfeign.FeignConnectionLeases;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.core.env.Environment;
+
+/**
+ * Creates the Apache HTTP clients of Feign, so that the shared client and the clients
+ * with a connection pool of their own apply the {@link FeignHttpClientProperties} alike.
+ *
+ * @since 3.0.1
+ */
+public final class FeignApacheHttpClients {
+
+	private FeignApacheHttpClients() {
+		throw new IllegalStateException("Don't instantiate a utility class");
+	}
+
+	/**
+	 * @param connectionManagerFactory the factory of the connection manager
+	 * @param httpClientProperties the properties to apply
+	 * @param maxConnections the maximum number of connections of the pool
+	 * @param maxConnectionsPerRoute the maximum number of connections of a route
+	 * @param registryBuilder the registry of connection socket factories, may be
+	 * {@code null}
+	 * @return a connection manager that validates connections idle for longer than
+	 * {@link FeignHttpClientProperties#getValidateAfterInactivity()}
+	 */
+	public static HttpClientConnectionManager createConnectionManager(
+			ApacheHttpClientConnectionManagerFactory connectionManagerFactory,
+			FeignHttpClientProperties httpClientProperties, int maxConnections, int maxConnectionsPerRoute,
+			RegistryBuilder registryBuilder) {
+		HttpClientConnectionManager connectionManager = connectionManagerFactory.newConnectionManager(
+				httpClientProperties.isDisableSslValidation(), maxConnections, maxConnectionsPerRoute,
+				httpClientProperties.getTimeToLive(), httpClientProperties.getTimeToLiveUnit(), registryBuilder);
+		if (connectionManager instanceof PoolingHttpClientConnectionManager) {
+			((PoolingHttpClientConnectionManager) connectionManager)
+					.setValidateAfterInactivity(httpClientProperties.getValidateAfterInactivity());
+		}
+		return connectionManager;
+	}
+
+	/**
+	 * @param httpClientFactory the factory of the builder, whose builder disables content
+	 * compression
+	 * @param environment the environment that tells whether
+	 * <code>feign.compression.response.enabled</code> is set, in which case a builder
+	 * that decompresses responses is used instead
+	 * @param connectionManager the connection manager of the client
+	 * @param httpClientProperties the properties to apply
+	 * @param connectionLeases the leases to instrument the connection manager with, may
+	 * be {@code null}
+	 * @param poolName the name the connection leases are reported with
+	 * @return the client
+	 */
+	public static CloseableHttpClient createClient(ApacheHttpClientFactory httpClientFactory, Environment environment,
+			HttpClientConnectionManager connectionManager, FeignHttpClientProperties httpClientProperties,
+			FeignConnectionLeases connectionLeases, String poolName) {
+		HttpClientBuilder builder = environment.getProperty("feign.compression.response.enabled", Boolean.class, false)
+				? HttpClientBuilder.create().disableCookieManagement().useSystemProperties()
+				: httpClientFactory.createBuilder();
+		RequestConfig defaultRequestConfig = RequestConfig.custom()
+				.setConnectTimeout(httpClientProperties.getConnectionTimeout())
+				.setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout())
+				.setRedirectsEnabled(httpClientProperties.isFollowRedirects()).build();
+		return builder.setDefaultRequestConfig(defaultRequestConfig).setConnectionManager(
+				connectionLeases != null ? connectionLeases.instrument(poolName, connectionManager) : connectionManager)
+				.build();
+	}
+
+}
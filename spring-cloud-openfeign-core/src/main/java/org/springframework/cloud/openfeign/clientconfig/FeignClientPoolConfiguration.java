@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.io.IOException;
+
+import javax.annotation.PreDestroy;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import feign.okhttp.OkHttpClient;
+import okhttp3.ConnectionPool;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SearchStrategy;
+import org.springframework.cloud.commons.httpclient.ApacheHttpClientConnectionManagerFactory;
+import org.springframework.cloud.commons.httpclient.ApacheHttpClientFactory;
+import org.springframework.cloud.commons.httpclient.OkHttpClientConnectionPoolFactory;
+import org.springframework.cloud.openfeign.FeignClientProperties;
+import org.springframework.cloud.openfeign.FeignConnectionEvictor;
+import org.springframework.cloud.openfeign.FeignConnectionLeases;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration of the context of a single Feign client that has its own connection pool
+ * set in <code>feign.client.config.&lt;name&gt;.pool</code>. The client gets an Apache
+ * HTTP, Apache HttpClient 5 or OkHttp client of its own, built like the shared one but
+ * with a separate pool, which is closed together with the context. If the shared
+ * {@link Client} balances the requests with Spring Cloud LoadBalancer, the client's
+ * {@link Client} balances them the same way.
+ *
+ * @since 3.0.1
+ */
+@Configuration(proxyBeanMethods = false)
+@Conditional(OnFeignClientPoolCondition.class)
+public class FeignClientPoolConfiguration {
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(CloseableHttpAsyncClient.class)
+	@ConditionalOnBean(CloseableHttpAsyncClient.class)
+	@ConditionalOnProperty("feign.httpclient.hc5.enabled")
+	protected static class HttpClient5PoolConfiguration {
+
+		private CloseableHttpAsyncClient httpClient5;
+
+		@Bean
+		@ConditionalOnMissingBean(search = SearchStrategy.CURRENT)
+		public Client feignClient(ApplicationContext context, Environment environment,
+				FeignHttpClientProperties httpClientProperties, FeignClientProperties clientProperties) {
+			FeignClientProperties.PoolConfiguration pool = FeignClientPools.getPool(clientProperties,
+					FeignClientPools.getName(environment));
+			int maxConnections = pool.getMaxConnections() != null ? pool.getMaxConnections()
+					: httpClientProperties.getMaxConnections();
+			int maxConnectionsPerRoute = pool.getMaxConnectionsPerRoute() != null ? pool.getMaxConnectionsPerRoute()
+					: httpClientProperties.getMaxConnectionsPerRoute();
+			httpClient5 = FeignApacheHttp5Clients.createClient(httpClientProperties, maxConnections,
+					maxConnectionsPerRoute);
+			return FeignClientPools.withDelegate(context.getParent().getBeanProvider(Client.class).getIfUnique(),
+					new AsyncApacheHttp5Client(httpClient5,
+							FeignApacheHttp5Clients.createRequestConfig(httpClientProperties)),
+					AsyncApacheHttp5Client.class);
+		}
+
+		@PreDestroy
+		public void destroy() {
+			if (httpClient5 != null) {
+				httpClient5.close(CloseMode.GRACEFUL);
+			}
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(ApacheHttpClient.class)
+	@ConditionalOnBean(CloseableHttpClient.class)
+	@ConditionalOnProperty(value = "feign.httpclient.enabled", matchIfMissing = true)
+	@Conditional(OnHttpClient5DisabledCondition.class)
+	protected static class HttpClientPoolConfiguration {
+
+		private static final Log LOG = LogFactory.getLog(HttpClientPoolConfiguration.class);
+
+		@Autowired(required = false)
+		private RegistryBuilder registryBuilder;
+
+		private FeignConnectionEvictor connectionEvictor;
+
+		private FeignConnectionLeases connectionLeases;
+
+		private String name;
+
+		private CloseableHttpClient httpClient;
+
+		@Bean
+		@ConditionalOnMissingBean(search = SearchStrategy.CURRENT)
+		public Client feignClient(ApplicationContext context, Environment environment,
+				ApacheHttpClientConnectionManagerFactory connectionManagerFactory,
+				ApacheHttpClientFactory httpClientFactory, FeignHttpClientProperties httpClientProperties,
+				FeignClientProperties clientProperties, ObjectProvider<FeignConnectionEvictor> connectionEvictor,
+				ObjectProvider<FeignConnectionLeases> connectionLeases) {
+			name = FeignClientPools.getName(environment);
+			FeignClientProperties.PoolConfiguration pool = FeignClientPools.getPool(clientProperties, name);
+			int maxConnections = pool.getMaxConnections() != null ? pool.getMaxConnections()
+					: httpClientProperties.getMaxConnections();
+			int maxConnectionsPerRoute = pool.getMaxConnectionsPerRoute() != null ? pool.getMaxConnectionsPerRoute()
+					: httpClientProperties.getMaxConnectionsPerRoute();
+			HttpClientConnectionManager connectionManager = FeignApacheHttpClients.createConnectionManager(
+					connectionManagerFactory, httpClientProperties, maxConnections, maxConnectionsPerRoute,
+					registryBuilder);
+			this.connectionLeases = connectionLeases.getIfAvailable();
+			httpClient = FeignApacheHttpClients.createClient(httpClientFactory, environment, connectionManager,
+					httpClientProperties, this.connectionLeases, name);
+			this.connectionEvictor = connectionEvictor.getIfAvailable();
+			if (this.connectionEvictor != null) {
+				this.connectionEvictor.register(name, connectionManager);
+			}
+			return FeignClientPools.withDelegate(context.getParent().getBeanProvider(Client.class).getIfUnique(),
+					new ApacheHttpClient(httpClient), ApacheHttpClient.class);
+		}
+
+		@PreDestroy
+		public void destroy() {
+			if (connectionEvictor != null) {
+				connectionEvictor.unregister(name);
+			}
+			if (connectionLeases != null) {
+				connectionLeases.unregister(name);
+			}
+			if (httpClient != null) {
+				try {
+					httpClient.close();
+				}
+				catch (IOException e) {
+					if (LOG.isErrorEnabled()) {
+						LOG.error("Could not correctly close httpClient of " + name + ".");
+					}
+				}
+			}
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(OkHttpClient.class)
+	@ConditionalOnBean(okhttp3.OkHttpClient.class)
+	@ConditionalOnProperty("feign.okhttp.enabled")
+	protected static class OkHttpPoolConfiguration {
+
+		private ConnectionPool connectionPool;
+
+		@Bean
+		@ConditionalOnMissingBean(search = SearchStrategy.CURRENT)
+		public Client feignClient(ApplicationContext context, Environment environment,
+				OkHttpClientConnectionPoolFactory connectionPoolFactory, FeignHttpClientProperties httpClientProperties,
+				FeignClientProperties clientProperties) {
+			FeignClientProperties.PoolConfiguration pool = FeignClientPools.getPool(clientProperties,
+					FeignClientPools.getName(environment));
+			int maxConnections = pool.getMaxConnections() != null ? pool.getMaxConnections()
+					: httpClientProperties.getMaxConnections();
+			connectionPool = connectionPoolFactory.create(maxConnections, httpClientProperties.getTimeToLive(),
+					httpClientProperties.getTimeToLiveUnit());
+			// shares the dispatcher and the settings of the shared client
+			okhttp3.OkHttpClient okHttpClient = context.getParent().getBean(okhttp3.OkHttpClient.class).newBuilder()
+					.connectionPool(connectionPool).build();
+			return FeignClientPools.withDelegate(context.getParent().getBeanProvider(Client.class).getIfUnique(),
+					new OkHttpClient(okHttpClient), OkHttpClient.class);
+		}
+
+		@PreDestroy
+		public void destroy() {
+			if (connectionPool != null) {
+				connectionPool.evictAll();
+			}
+		}
+
+	}
+
+}
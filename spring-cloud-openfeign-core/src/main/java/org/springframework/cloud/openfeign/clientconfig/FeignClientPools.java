@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.util.Arrays;
+
+import feign.Client;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.openfeign.FeignClientProperties;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.cloud.openfeign.loadbalancer.RetryableFeignBlockingLoadBalancerClient;
+import org.springframework.core.env.Environment;
+
+/**
+ * Support for the connection pools of single Feign clients.
+ *
+ * @see FeignClientPoolConfiguration
+ */
+final class FeignClientPools {
+
+	private static final Log LOG = LogFactory.getLog(FeignClientPools.class);
+
+	private FeignClientPools() {
+		throw new IllegalStateException("Don't instantiate a utility class");
+	}
+
+	/**
+	 * Replaces the client that executes the requests of the shared {@link Client}.
+	 * @param client the shared client, may be {@code null}
+	 * @param delegate the client of the Feign client's own connection pool
+	 * @param type the type of the client that is replaced
+	 * @return the client that executes the requests with the given delegate, or the
+	 * shared client if it does not use a client of the given type
+	 */
+	static Client withDelegate(Client client, Client delegate, Class<? extends Client> type) {
+		if (client == null || type.isInstance(client)) {
+			return delegate;
+		}
+		if (client instanceof FeignBlockingLoadBalancerClient
+				&& type.isInstance(((FeignBlockingLoadBalancerClient) client).getDelegate())) {
+			return ((FeignBlockingLoadBalancerClient) client).withDelegate(delegate);
+		}
+		if (client instanceof RetryableFeignBlockingLoadBalancerClient
+				&& type.isInstance(((RetryableFeignBlockingLoadBalancerClient) client).getDelegate())) {
+			return ((RetryableFeignBlockingLoadBalancerClient) client).withDelegate(delegate);
+		}
+		if (LOG.isWarnEnabled()) {
+			LOG.warn("Not using the connection pool configured for the Feign client, because its client "
+					+ client.getClass().getName() + " does not use " + type.getName());
+		}
+		return client;
+	}
+
+	static FeignClientProperties.PoolConfiguration getPool(FeignClientProperties properties, String name) {
+		FeignClientProperties.PoolConfiguration pool = new FeignClientProperties.PoolConfiguration();
+		for (String configName : Arrays.asList(properties.getDefaultConfig(), name)) {
+			FeignClientProperties.FeignClientConfiguration config = properties.getConfig().get(configName);
+			if (config == null || config.getPool() == null) {
+				continue;
+			}
+			if (config.getPool().getMaxConnections() != null) {
+				pool.setMaxConnections(config.getPool().getMaxConnections());
+			}
+			if (config.getPool().getMaxConnectionsPerRoute() != null) {
+				pool.setMaxConnectionsPerRoute(config.getPool().getMaxConnectionsPerRoute());
+			}
+		}
+		return pool;
+	}
+
+	static String getName(Environment environment) {
+		return environment.getProperty("feign.client.name");
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Default configuration for {@link CloseableHttpAsyncClient}.
+ *
+ * @since 3.0.1
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnMissingBean(CloseableHttpAsyncClient.class)
+public class HttpClient5FeignConfiguration {
+
+	private CloseableHttpAsyncClient httpClient5;
+
+	@Bean
+	public CloseableHttpAsyncClient httpClient5(FeignHttpClientProperties httpClientProperties) {
+		this.httpClient5 = FeignApacheHttp5Clients.createClient(httpClientProperties,
+				httpClientProperties.getMaxConnections(), httpClientProperties.getMaxConnectionsPerRoute());
+		return this.httpClient5;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (this.httpClient5 != null) {
+			this.httpClient5.close(CloseMode.GRACEFUL);
+		}
+	}
+
+}
@@ -17,27 +17,26 @@
 package org.springframework.cloud.openfeign.clientconfig;
 
 import java.io.IOException;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import javax.annotation.PreDestroy;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.commons.httpclient.ApacheHttpClientConnectionManagerFactory;
 import org.springframework.cloud.commons.httpclient.ApacheHttpClientFactory;
+import org.springframework.cloud.openfeign.FeignConnectionEvictor;
+import org.springframework.cloud.openfeign.FeignConnectionLeases;
 import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * Default configuration for {@link CloseableHttpClient}.
@@ -53,9 +52,6 @@ public class HttpClientFeignConfiguration {
 
 	private static final Log LOG = LogFactory.getLog(HttpClientFeignConfiguration.class);
 
-	private final Timer connectionManagerTimer = new Timer("FeignApacheHttpClientConfiguration.connectionManagerTimer",
-			true);
-
 	private CloseableHttpClient httpClient;
 
 	@Autowired(required = false)
@@ -65,51 +61,25 @@ public class HttpClientFeignConfiguration {
 	@ConditionalOnMissingBean(HttpClientConnectionManager.class)
 	public HttpClientConnectionManager connectionManager(
 			ApacheHttpClientConnectionManagerFactory connectionManagerFactory,
-			FeignHttpClientProperties httpClientProperties) {
-		final HttpClientConnectionManager connectionManager = connectionManagerFactory.newConnectionManager(
-				httpClientProperties.isDisableSslValidation(), httpClientProperties.getMaxConnections(),
-				httpClientProperties.getMaxConnectionsPerRoute(), httpClientProperties.getTimeToLive(),
-				httpClientProperties.getTimeToLiveUnit(), this.registryBuilder);
-		this.connectionManagerTimer.schedule(new TimerTask() {
-			@Override
-			public void run() {
-				connectionManager.closeExpiredConnections();
-			}
-		}, 30000, httpClientProperties.getConnectionTimerRepeat());
+			FeignHttpClientProperties httpClientProperties, ObjectProvider<FeignConnectionEvictor> connectionEvictor) {
+		final HttpClientConnectionManager connectionManager = FeignApacheHttpClients.createConnectionManager(
+				connectionManagerFactory, httpClientProperties, httpClientProperties.getMaxConnections(),
+				httpClientProperties.getMaxConnectionsPerRoute(), this.registryBuilder);
+		connectionEvictor.ifAvailable(evictor -> evictor.register("default", connectionManager));
 		return connectionManager;
 	}
 
 	@Bean
-	@ConditionalOnProperty(value = "feign.compression.response.enabled", havingValue = "true")
-	public CloseableHttpClient customHttpClient(HttpClientConnectionManager httpClientConnectionManager,
-			FeignHttpClientProperties httpClientProperties) {
-		HttpClientBuilder builder = HttpClientBuilder.create().disableCookieManagement().useSystemProperties();
-		this.httpClient = createClient(builder, httpClientConnectionManager, httpClientProperties);
-		return this.httpClient;
-	}
-
-	@Bean
-	@ConditionalOnProperty(value = "feign.compression.response.enabled", havingValue = "false", matchIfMissing = true)
-	public CloseableHttpClient httpClient(ApacheHttpClientFactory httpClientFactory,
-			HttpClientConnectionManager httpClientConnectionManager, FeignHttpClientProperties httpClientProperties) {
-		this.httpClient = createClient(httpClientFactory.createBuilder(), httpClientConnectionManager,
-				httpClientProperties);
+	public CloseableHttpClient httpClient(ApacheHttpClientFactory httpClientFactory, Environment environment,
+			HttpClientConnectionManager httpClientConnectionManager, FeignHttpClientProperties httpClientProperties,
+			ObjectProvider<FeignConnectionLeases> connectionLeases) {
+		this.httpClient = FeignApacheHttpClients.createClient(httpClientFactory, environment,
+				httpClientConnectionManager, httpClientProperties, connectionLeases.getIfAvailable(), "default");
 		return this.httpClient;
 	}
 
-	private CloseableHttpClient createClient(HttpClientBuilder builder,
-			HttpClientConnectionManager httpClientConnectionManager, FeignHttpClientProperties httpClientProperties) {
-		RequestConfig defaultRequestConfig = RequestConfig.custom()
-				.setConnectTimeout(httpClientProperties.getConnectionTimeout())
-				.setRedirectsEnabled(httpClientProperties.isFollowRedirects()).build();
-		CloseableHttpClient httpClient = builder.setDefaultRequestConfig(defaultRequestConfig)
-				.setConnectionManager(httpClientConnectionManager).build();
-		return httpClient;
-	}
-
 	@PreDestroy
 	public void destroy() {
-		this.connectionManagerTimer.cancel();
 		if (this.httpClient != null) {
 			try {
 				this.httpClient.close();
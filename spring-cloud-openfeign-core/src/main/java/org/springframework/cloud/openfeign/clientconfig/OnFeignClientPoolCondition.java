@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.util.Arrays;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.cloud.openfeign.FeignClientProperties;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * A condition that matches in the context of a Feign client that has a connection pool
+ * configured, under its own name or the default config name.
+ */
+class OnFeignClientPoolCondition extends SpringBootCondition {
+
+	@Override
+	public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+		String name = FeignClientPools.getName(context.getEnvironment());
+		FeignClientProperties properties = context.getBeanFactory() != null
+				? context.getBeanFactory().getBeanProvider(FeignClientProperties.class).getIfAvailable() : null;
+		if (name == null || properties == null) {
+			return ConditionOutcome.noMatch("Not in the context of a Feign client");
+		}
+		for (String configName : Arrays.asList(properties.getDefaultConfig(), name)) {
+			FeignClientProperties.FeignClientConfiguration config = properties.getConfig().get(configName);
+			if (config != null && config.getPool() != null) {
+				return ConditionOutcome.match("Connection pool configured for " + configName);
+			}
+		}
+		return ConditionOutcome.noMatch("No connection pool configured for " + name);
+	}
+
+}
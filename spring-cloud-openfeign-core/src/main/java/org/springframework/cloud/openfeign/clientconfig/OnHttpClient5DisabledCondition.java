@@ -0,0 +1,42 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+
+/**
+ * A condition that verifies that the Apache HttpClient 5 is not on the classpath or
+ * <code>feign.httpclient.hc5.enabled</code> is not set to <code>true</code>, so that the
+ * Apache HTTP client 4 backs off when Feign uses the Apache HttpClient 5.
+ *
+ * @since 3.0.1
+ */
+public class OnHttpClient5DisabledCondition extends NoneNestedConditions {
+
+	public OnHttpClient5DisabledCondition() {
+		super(ConfigurationPhase.PARSE_CONFIGURATION);
+	}
+
+	@ConditionalOnClass(name = "org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient")
+	@ConditionalOnProperty("feign.httpclient.hc5.enabled")
+	static class OnHttpClient5EnabledCondition {
+
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import feign.Request;
+import feign.Response;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStreamResetException;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Turns the response to a request of an {@link AsyncApacheHttp5Client} into a Feign
+ * {@link Response} as soon as its head arrives. The body is streamed to the reader
+ * through a buffer of {@value #BUFFER_SIZE} bytes, and the connection is only read
+ * further once the reader has made room in it, so that large bodies are not held in
+ * memory.
+ *
+ * @since 3.0.1
+ */
+class StreamingResponseConsumer implements AsyncResponseConsumer<Response> {
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Request request;
+
+	private final long readTimeoutMillis;
+
+	private volatile ResponseBody body;
+
+	/**
+	 * @param request the request the response belongs to
+	 * @param readTimeoutMillis how long a read of the body waits for more of it, or
+	 * <code>0</code> to wait without a limit
+	 */
+	StreamingResponseConsumer(Request request, long readTimeoutMillis) {
+		this.request = request;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	@Override
+	public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+			FutureCallback<Response> resultCallback) {
+		Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (Header header : response.getHeaders()) {
+			headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+		}
+		Response.Builder builder = Response.builder().status(response.getCode()).reason(response.getReasonPhrase())
+				.headers(headers).request(this.request);
+		if (entityDetails != null) {
+			this.body = new ResponseBody(this.readTimeoutMillis);
+			long length = entityDetails.getContentLength();
+			builder.body(this.body, length >= 0 && length <= Integer.MAX_VALUE ? (int) length : null);
+		}
+		resultCallback.completed(builder.build());
+	}
+
+	@Override
+	public void informationResponse(HttpResponse response, HttpContext context) {
+	}
+
+	@Override
+	public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+		this.body.updateCapacity(capacityChannel);
+	}
+
+	@Override
+	public void consume(ByteBuffer src) throws IOException {
+		this.body.fill(src);
+	}
+
+	@Override
+	public void streamEnd(List<? extends Header> trailers) {
+		this.body.end(null);
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		ResponseBody body = this.body;
+		if (body != null) {
+			body.end(cause instanceof IOException ? (IOException) cause : new IOException(cause));
+		}
+	}
+
+	@Override
+	public void releaseResources() {
+	}
+
+	/**
+	 * The body of a response, filled by the I/O reactor and read by the caller. The
+	 * capacity granted to the connection never exceeds the room left in the buffer.
+	 */
+	static class ResponseBody extends InputStream {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition filled = this.lock.newCondition();
+
+		private final long readTimeoutNanos;
+
+		private byte[] buffer = new byte[BUFFER_SIZE];
+
+		private int start;
+
+		private int end;
+
+		// the bytes granted to the connection that have not arrived yet
+		private int granted;
+
+		private CapacityChannel capacityChannel;
+
+		private boolean ended;
+
+		private IOException failure;
+
+		private boolean closed;
+
+		ResponseBody(long readTimeoutMillis) {
+			this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+		}
+
+		void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+			int increment;
+			this.lock.lock();
+			try {
+				this.capacityChannel = capacityChannel;
+				increment = reserveCapacity(1);
+			}
+			finally {
+				this.lock.unlock();
+			}
+			grant(capacityChannel, increment);
+		}
+
+		void fill(ByteBuffer src) throws IOException {
+			this.lock.lock();
+			try {
+				if (this.closed) {
+					// cancels the exchange, which resets an HTTP/2 stream or closes an
+					// HTTP/1.1 connection, instead of reading the rest of the body
+					throw new HttpStreamResetException("The body of the response was closed");
+				}
+				int length = src.remaining();
+				this.granted = Math.max(0, this.granted - length);
+				// the connection may pass on more than it was granted
+				if (this.buffer.length - this.end < length) {
+					int buffered = this.end - this.start;
+					byte[] target = buffered + length > this.buffer.length
+							? new byte[Math.max(buffered + length, this.buffer.length * 2)] : this.buffer;
+					System.arraycopy(this.buffer, this.start, target, 0, buffered);
+					this.buffer = target;
+					this.start = 0;
+					this.end = buffered;
+				}
+				src.get(this.buffer, this.end, length);
+				this.end += length;
+				this.filled.signalAll();
+			}
+			finally {
+				this.lock.unlock();
+			}
+		}
+
+		void end(IOException failure) {
+			this.lock.lock();
+			try {
+				if (!this.ended) {
+					this.ended = true;
+					this.failure = failure;
+					this.capacityChannel = null;
+					this.filled.signalAll();
+				}
+			}
+			finally {
+				this.lock.unlock();
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			int count;
+			int increment;
+			CapacityChannel capacityChannel;
+			this.lock.lock();
+			try {
+				awaitData();
+				if (this.start == this.end) {
+					return -1;
+				}
+				count = Math.min(len, this.end - this.start);
+				System.arraycopy(this.buffer, this.start, b, off, count);
+				this.start += count;
+				if (this.start == this.end) {
+					this.start = 0;
+					this.end = 0;
+				}
+				capacityChannel = this.capacityChannel;
+				increment = reserveCapacity(BUFFER_SIZE / 2);
+			}
+			finally {
+				this.lock.unlock();
+			}
+			grant(capacityChannel, increment);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			this.lock.lock();
+			try {
+				return this.end - this.start;
+			}
+			finally {
+				this.lock.unlock();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			CapacityChannel capacityChannel;
+			this.lock.lock();
+			try {
+				if (this.closed) {
+					return;
+				}
+				this.closed = true;
+				this.start = 0;
+				this.end = 0;
+				capacityChannel = this.ended ? null : this.capacityChannel;
+			}
+			finally {
+				this.lock.unlock();
+			}
+			// lets more of the body arrive, so that the exchange is cancelled
+			grant(capacityChannel, BUFFER_SIZE);
+		}
+
+		private void awaitData() throws IOException {
+			if (this.closed) {
+				throw new IOException("The body of the response was closed");
+			}
+			long remaining = this.readTimeoutNanos;
+			while (this.start == this.end && !this.ended) {
+				try {
+					if (this.readTimeoutNanos <= 0) {
+						this.filled.await();
+					}
+					else if (remaining <= 0) {
+						throw new SocketTimeoutException("Read timed out");
+					}
+					else {
+						remaining = this.filled.awaitNanos(remaining);
+					}
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while reading the body of the response");
+				}
+			}
+			if (this.start == this.end && this.failure != null) {
+				throw this.failure;
+			}
+		}
+
+		private int reserveCapacity(int minimum) {
+			if (this.capacityChannel == null || this.closed) {
+				return 0;
+			}
+			int room = BUFFER_SIZE - (this.end - this.start) - this.granted;
+			if (room < minimum) {
+				return 0;
+			}
+			this.granted += room;
+			return room;
+		}
+
+		// called without holding the lock, since the connection takes locks of its own
+		private void grant(CapacityChannel capacityChannel, int increment) throws IOException {
+			if (capacityChannel != null && increment > 0) {
+				capacityChannel.update(increment);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import feign.Capability;
+import feign.Client;
+import feign.Contract;
+import feign.InvocationHandlerFactory;
+import feign.MethodMetadata;
+
+import org.springframework.cloud.openfeign.AffinityKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * A {@link Capability} that validates the {@link AffinityKey}s of a Feign client when its
+ * contract is parsed, captures the path variables used as affinity keys from the
+ * arguments of the calls, and lets its load-balancer client resolve the affinity keys of
+ * its requests. It has to be added before the capabilities that wrap the client.
+ *
+ * @since 3.0.1
+ */
+public class AffinityKeyCapability implements Capability {
+
+	final AffinityKeys affinityKeys = new AffinityKeys();
+
+	/**
+	 * @param type the Feign client interface
+	 * @return whether any method of the interface is annotated with {@link AffinityKey}
+	 */
+	public static boolean hasAffinityKeys(Class<?> type) {
+		for (Method method : type.getMethods()) {
+			if (AnnotatedElementUtils.hasAnnotation(method, AffinityKey.class)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Contract enrich(Contract contract) {
+		return targetType -> {
+			List<MethodMetadata> metadata = contract.parseAndValidateMetadata(targetType);
+			metadata.forEach(affinityKeys::register);
+			return metadata;
+		};
+	}
+
+	@Override
+	public InvocationHandlerFactory enrich(InvocationHandlerFactory invocationHandlerFactory) {
+		// the contract has been parsed by the time the handler is created
+		return (target, dispatch) -> invocationHandlerFactory.create(target,
+				affinityKeys.capturePathVariables(dispatch));
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		if (client instanceof FeignBlockingLoadBalancerClient) {
+			return ((FeignBlockingLoadBalancerClient) client).withAffinityKeys(affinityKeys);
+		}
+		if (client instanceof RetryableFeignBlockingLoadBalancerClient) {
+			return ((RetryableFeignBlockingLoadBalancerClient) client).withAffinityKeys(affinityKeys);
+		}
+		return client;
+	}
+
+}
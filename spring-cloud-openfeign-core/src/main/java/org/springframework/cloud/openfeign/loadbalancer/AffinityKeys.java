@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import feign.InvocationHandlerFactory.MethodHandler;
+import feign.MethodMetadata;
+import feign.Param;
+import feign.Request;
+import feign.RequestTemplate;
+
+import org.springframework.cloud.openfeign.AffinityKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriTemplate;
+
+/**
+ * Resolves the {@link AffinityKey} of the requests of a Feign client. The annotation of
+ * every method is validated and turned into a resolver when the contract of the client is
+ * parsed, so that requests of methods without an affinity key only pay for a map lookup.
+ * Path variables are captured from the arguments of the call, as Feign expands them into
+ * the path, rather than parsed out of the url of every request.
+ *
+ * @since 3.0.1
+ * @see AffinityKeyCapability
+ */
+final class AffinityKeys {
+
+	// matches whatever the client url adds in front of the path of the method
+	private static final String PREFIX_VARIABLE = "{affinityKeyPrefix:.*}";
+
+	private final Map<Method, Resolver> resolvers = new ConcurrentHashMap<>();
+
+	// the path variable captured from the call of the client in progress on this thread
+	private final ThreadLocal<String> pathVariable = new ThreadLocal<>();
+
+	/**
+	 * Validates the {@link AffinityKey} of a method of the client, if it has one.
+	 * @param metadata the metadata of the method
+	 * @throws IllegalStateException if the affinity key is invalid
+	 */
+	void register(MethodMetadata metadata) {
+		Method method = metadata.method();
+		AffinityKey affinityKey = method != null ? AnnotatedElementUtils.findMergedAnnotation(method, AffinityKey.class)
+				: null;
+		if (affinityKey != null) {
+			resolvers.put(method, createResolver(metadata, affinityKey));
+		}
+	}
+
+	/**
+	 * Decorates the handlers of the methods whose affinity key is a path variable, so
+	 * that they capture its value for the duration of the call.
+	 * @param dispatch the handlers of the methods of the client
+	 * @return the decorated handlers
+	 */
+	Map<Method, MethodHandler> capturePathVariables(Map<Method, MethodHandler> dispatch) {
+		Map<Method, MethodHandler> decorated = null;
+		for (Map.Entry<Method, Resolver> entry : resolvers.entrySet()) {
+			MethodHandler handler = dispatch.get(entry.getKey());
+			if (entry.getValue() instanceof PathVariableResolver && handler != null) {
+				if (decorated == null) {
+					decorated = new LinkedHashMap<>(dispatch);
+				}
+				PathVariableResolver resolver = (PathVariableResolver) entry.getValue();
+				decorated.put(entry.getKey(), argv -> {
+					String previous = pathVariable.get();
+					pathVariable.set(resolver.capture(argv));
+					try {
+						return handler.invoke(argv);
+					}
+					finally {
+						pathVariable.set(previous);
+					}
+				});
+			}
+		}
+		return decorated != null ? decorated : dispatch;
+	}
+
+	/**
+	 * Path variables are only known on the thread that makes the call, so this has to be
+	 * called before the request is handed over to other threads.
+	 * @param request the Feign request
+	 * @return the affinity key of the request, or <code>null</code> if its method has
+	 * none or the request does not hold it
+	 */
+	String resolve(Request request) {
+		RequestTemplate template = request.requestTemplate();
+		MethodMetadata metadata = template != null ? template.methodMetadata() : null;
+		Method method = metadata != null ? metadata.method() : null;
+		Resolver resolver = method != null ? resolvers.get(method) : null;
+		return resolver != null ? resolver.resolve(request) : null;
+	}
+
+	private Resolver createResolver(MethodMetadata metadata, AffinityKey affinityKey) {
+		String header = affinityKey.header();
+		String pathVariable = affinityKey.pathVariable();
+		String requestParam = affinityKey.requestParam();
+		int selected = (StringUtils.hasText(header) ? 1 : 0) + (StringUtils.hasText(pathVariable) ? 1 : 0)
+				+ (StringUtils.hasText(requestParam) ? 1 : 0);
+		if (selected != 1) {
+			throw new IllegalStateException(
+					"Exactly one of header, pathVariable and requestParam must be set in @AffinityKey of "
+							+ metadata.configKey());
+		}
+		if (StringUtils.hasText(header)) {
+			return request -> first(request.headers().get(header));
+		}
+		if (StringUtils.hasText(requestParam)) {
+			return request -> first(request.requestTemplate().queries().get(requestParam));
+		}
+		UriTemplate uriTemplate = new UriTemplate(PREFIX_VARIABLE + metadata.template().path());
+		Integer index = null;
+		for (Map.Entry<Integer, Collection<String>> entry : metadata.indexToName().entrySet()) {
+			if (entry.getValue().contains(pathVariable)) {
+				index = entry.getKey();
+			}
+		}
+		if (index == null || !uriTemplate.getVariableNames().contains(pathVariable)) {
+			throw new IllegalStateException("The path of " + metadata.configKey() + " has no variable '" + pathVariable
+					+ "' for its @AffinityKey");
+		}
+		Map<Integer, Param.Expander> expanders = metadata.indexToExpander();
+		return new PathVariableResolver(index, expanders != null ? expanders.get(index) : null);
+	}
+
+	private static String first(Collection<String> values) {
+		return values != null && !values.isEmpty() ? values.iterator().next() : null;
+	}
+
+	private interface Resolver {
+
+		String resolve(Request request);
+
+	}
+
+	/**
+	 * Resolves the value of a path variable captured from the arguments of the call,
+	 * expanded the way Feign expands it into the path.
+	 */
+	private final class PathVariableResolver implements Resolver {
+
+		private final int index;
+
+		private final Param.Expander expander;
+
+		private PathVariableResolver(int index, Param.Expander expander) {
+			this.index = index;
+			this.expander = expander;
+		}
+
+		@Override
+		public String resolve(Request request) {
+			return pathVariable.get();
+		}
+
+		private String capture(Object[] argv) {
+			Object value = argv[index];
+			if (value instanceof Iterable) {
+				List<String> values = new ArrayList<>();
+				for (Object element : (Iterable<?>) value) {
+					values.add(expand(element));
+				}
+				return String.join(",", values);
+			}
+			return value != null ? expand(value) : null;
+		}
+
+		private String expand(Object value) {
+			return expander != null ? expander.expand(value) : String.valueOf(value);
+		}
+
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link PowerOfTwoChoicesLoadBalancer} whose load of an instance is the load the
+ * instance reports in a response header, recorded in {@link FeignLoadBalancerStats},
+ * multiplied by its outstanding requests plus one. Traffic thus follows the actual
+ * utilization of the instances rather than the requests sent by this client only, while
+ * the outstanding requests keep a burst from piling up on the instance that reported the
+ * lowest load last.
+ *
+ * @since 3.0.1
+ */
+public class BackendLoadLoadBalancer extends PowerOfTwoChoicesLoadBalancer {
+
+	// keeps the outstanding requests relevant for instances that report no load at all
+	private static final double MIN_LOAD = 0.01;
+
+	public BackendLoadLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, FeignLoadBalancerStats stats) {
+		super(serviceInstanceListSupplierProvider, serviceId, stats);
+	}
+
+	@Override
+	protected double load(ServiceInstance instance) {
+		FeignLoadBalancerStats.InstanceStats instanceStats = getStats().getStats(instance);
+		return Math.max(instanceStats.getBackendLoad(), MIN_LOAD) * (instanceStats.getOutstandingRequests() + 1);
+	}
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.RetryableRequestContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.openfeign.AffinityKey;
+
+/**
+ * A {@link LeastOutstandingRequestsLoadBalancer} that sends the requests with an
+ * {@link AffinityKey} to the instance the key maps to on a consistent hash ring, so that
+ * the same key keeps going to the same instance and only the keys of an instance that
+ * joins or leaves move. Following consistent hashing with bounded loads, an instance
+ * whose outstanding requests exceed the load factor times the average is skipped for the
+ * next one on the ring, which keeps hot keys from overloading a single instance. Retries
+ * and hedged requests skip the instance the previous attempt went to. Requests without an
+ * affinity key go to the instance with fewer outstanding requests out of two random ones.
+ *
+ * @since 3.0.1
+ */
+public class ConsistentHashLoadBalancer extends LeastOutstandingRequestsLoadBalancer {
+
+	/**
+	 * Name of the {@link RequestData} attribute holding the affinity key of a request.
+	 */
+	public static final String AFFINITY_KEY_ATTRIBUTE = ConsistentHashLoadBalancer.class.getName() + ".affinityKey";
+
+	private final double loadFactor;
+
+	private final int virtualNodes;
+
+	// the ring of the last instances, which usually stay the same for many requests
+	private volatile Ring ring;
+
+	/**
+	 * @param serviceInstanceListSupplierProvider provides the instances of the service
+	 * @param serviceId the id of the service
+	 * @param stats the statistics of the instances
+	 * @param loadFactor how many times the average outstanding requests an instance can
+	 * take before keys are moved to the next instance, greater than 1
+	 * @param virtualNodes the number of points of every instance on the ring
+	 */
+	public ConsistentHashLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, FeignLoadBalancerStats stats, double loadFactor, int virtualNodes) {
+		super(serviceInstanceListSupplierProvider, serviceId, stats);
+		this.loadFactor = Math.max(loadFactor, 1);
+		this.virtualNodes = Math.max(virtualNodes, 1);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	protected ServiceInstance select(List<ServiceInstance> instances, Request request) {
+		String affinityKey = affinityKey(request);
+		if (affinityKey == null) {
+			return super.select(instances, request);
+		}
+		ServiceInstance previous = request.getContext() instanceof RetryableRequestContext
+				? ((RetryableRequestContext) request.getContext()).getPreviousServiceInstance() : null;
+		int totalOutstandingRequests = 0;
+		for (ServiceInstance instance : instances) {
+			totalOutstandingRequests += getStats().getStats(instance).getOutstandingRequests();
+		}
+		double capacity = Math.ceil(loadFactor * (totalOutstandingRequests + 1) / instances.size());
+		Ring current = ring(instances);
+		int start = current.indexOf(SubsetServiceInstanceListSupplier.hash(affinityKey));
+		for (int i = 0; i < current.owners.length; i++) {
+			ServiceInstance instance = instances.get(current.owners[(start + i) % current.owners.length]);
+			if (!isSameInstance(instance, previous)
+					&& getStats().getStats(instance).getOutstandingRequests() < capacity) {
+				return instance;
+			}
+		}
+		return super.select(instances, request);
+	}
+
+	/**
+	 * @param request the load balancer request
+	 * @return the affinity key of the request, or {@code null} if it has none
+	 */
+	@SuppressWarnings("rawtypes")
+	static String affinityKey(Request request) {
+		if (!(request.getContext() instanceof RequestDataContext)) {
+			return null;
+		}
+		RequestData requestData = ((RequestDataContext) request.getContext()).getClientRequest();
+		Map<String, Object> attributes = requestData != null ? requestData.getAttributes() : null;
+		Object affinityKey = attributes != null ? attributes.get(AFFINITY_KEY_ATTRIBUTE) : null;
+		return affinityKey != null ? affinityKey.toString() : null;
+	}
+
+	private static boolean isSameInstance(ServiceInstance instance, ServiceInstance other) {
+		return other != null && Objects.equals(instance.getHost(), other.getHost())
+				&& instance.getPort() == other.getPort();
+	}
+
+	private Ring ring(List<ServiceInstance> instances) {
+		Ring current = ring;
+		if (current != null && current.list == instances) {
+			return current;
+		}
+		// suppliers may hand out a new list for every request, so the ring is only
+		// rebuilt when the instances change
+		current = current != null && current.hasSameInstances(instances) ? new Ring(current, instances)
+				: new Ring(instances, virtualNodes);
+		ring = current;
+		return current;
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	/**
+	 * The points of all the instances on the ring, sorted by hash, along with the index
+	 * in the list of instances of the instance each point belongs to.
+	 */
+	private static final class Ring {
+
+		private final List<ServiceInstance> list;
+
+		private final String[] hosts;
+
+		private final int[] ports;
+
+		private final long[] hashes;
+
+		private final int[] owners;
+
+		private Ring(List<ServiceInstance> list, int virtualNodes) {
+			this.list = list;
+			this.hosts = new String[list.size()];
+			this.ports = new int[list.size()];
+			long[][] points = new long[list.size() * virtualNodes][];
+			for (int i = 0; i < list.size(); i++) {
+				ServiceInstance instance = list.get(i);
+				hosts[i] = instance.getHost();
+				ports[i] = instance.getPort();
+				String key = key(instance);
+				for (int node = 0; node < virtualNodes; node++) {
+					points[i * virtualNodes + node] = new long[] {
+							SubsetServiceInstanceListSupplier.hash(key + "#" + node), i };
+				}
+			}
+			Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+			this.hashes = new long[points.length];
+			this.owners = new int[points.length];
+			for (int i = 0; i < points.length; i++) {
+				hashes[i] = points[i][0];
+				owners[i] = (int) points[i][1];
+			}
+		}
+
+		// the same points, owned by the instances at the same index of another list
+		private Ring(Ring ring, List<ServiceInstance> list) {
+			this.list = list;
+			this.hosts = ring.hosts;
+			this.ports = ring.ports;
+			this.hashes = ring.hashes;
+			this.owners = ring.owners;
+		}
+
+		// whether the list holds the instances of this ring in the same order, checked
+		// without allocating anything
+		private boolean hasSameInstances(List<ServiceInstance> instances) {
+			if (instances.size() != hosts.length) {
+				return false;
+			}
+			for (int i = 0; i < hosts.length; i++) {
+				ServiceInstance instance = instances.get(i);
+				if (instance.getPort() != ports[i] || !Objects.equals(instance.getHost(), hosts[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// index of the first point at or after the hash, wrapping around the ring
+		private int indexOf(long hash) {
+			int index = Arrays.binarySearch(hashes, hash);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return index == hashes.length ? 0 : index;
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import feign.Client;
 import feign.Request;
@@ -27,17 +28,21 @@ import feign.Response;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.CompletionContext;
 import org.springframework.cloud.client.loadbalancer.DefaultRequest;
 import org.springframework.cloud.client.loadbalancer.DefaultResponse;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
-import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
 import org.springframework.cloud.client.loadbalancer.RequestDataContext;
 import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.RetryableRequestContext;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.Hedged;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.Assert;
 
@@ -46,13 +51,18 @@ import static org.springframework.cloud.openfeign.loadbalancer.LoadBalancerUtils
 
 /**
  * A {@link Client} implementation that uses {@link LoadBalancerClient} to select a
- * {@link ServiceInstance} to use while resolving the request host.
+ * {@link ServiceInstance} to use while resolving the request host. The lifecycle
+ * processors and hint of every serviceId are cached and dropped whenever an application
+ * context is refreshed. Requests of idempotent methods annotated with {@link Hedged} or
+ * configured with a hedging delay are hedged to a second instance, on threads that are
+ * stopped when the client is destroyed.
  *
  * @author Olga Maciaszek-Sharma
  * @since 2.2.0
  */
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class FeignBlockingLoadBalancerClient implements Client {
+public class FeignBlockingLoadBalancerClient
+		implements Client, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
 
 	private static final Log LOG = LogFactory.getLog(FeignBlockingLoadBalancerClient.class);
 
@@ -60,16 +70,33 @@ public class FeignBlockingLoadBalancerClient implements Client {
 
 	private final LoadBalancerClient loadBalancerClient;
 
-	private final LoadBalancerProperties properties;
+	private final LoadBalancerRequestPlans requestPlans;
 
-	private final LoadBalancerClientFactory loadBalancerClientFactory;
+	private final HedgedRequestExecutor hedgedRequestExecutor;
+
+	private final boolean sharedHedgedRequestExecutor;
+
+	private final AffinityKeys affinityKeys;
 
 	public FeignBlockingLoadBalancerClient(Client delegate, LoadBalancerClient loadBalancerClient,
 			LoadBalancerProperties properties, LoadBalancerClientFactory loadBalancerClientFactory) {
 		this.delegate = delegate;
 		this.loadBalancerClient = loadBalancerClient;
-		this.properties = properties;
-		this.loadBalancerClientFactory = loadBalancerClientFactory;
+		this.requestPlans = new LoadBalancerRequestPlans(properties, loadBalancerClientFactory,
+				RequestDataContext.class);
+		this.hedgedRequestExecutor = new HedgedRequestExecutor();
+		this.sharedHedgedRequestExecutor = false;
+		this.affinityKeys = null;
+	}
+
+	private FeignBlockingLoadBalancerClient(Client delegate, FeignBlockingLoadBalancerClient client,
+			AffinityKeys affinityKeys) {
+		this.delegate = delegate;
+		this.loadBalancerClient = client.loadBalancerClient;
+		this.requestPlans = client.requestPlans;
+		this.hedgedRequestExecutor = client.hedgedRequestExecutor;
+		this.sharedHedgedRequestExecutor = true;
+		this.affinityKeys = affinityKeys;
 	}
 
 	@Override
@@ -77,15 +104,36 @@ public class FeignBlockingLoadBalancerClient implements Client {
 		final URI originalUri = URI.create(request.url());
 		String serviceId = originalUri.getHost();
 		Assert.state(serviceId != null, "Request URI does not contain a valid hostname: " + originalUri);
-		String hint = getHint(serviceId);
-		DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(
-				new RequestDataContext(buildRequestData(request), hint));
-		Set<LoadBalancerLifecycle> supportedLifecycleProcessors = LoadBalancerLifecycleValidator
-				.getSupportedLifecycleProcessors(
-						loadBalancerClientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
-						RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+		LoadBalancerRequestPlans.Plan plan = requestPlans.get(serviceId);
+		// resolved on the calling thread, before the request is hedged
+		String affinityKey = affinityKeys != null ? affinityKeys.resolve(request) : null;
+		long hedgingDelay = hedgedRequestExecutor.hedgingDelay(request, options);
+		if (hedgingDelay < 0) {
+			return execute(request, options, originalUri, affinityKey, serviceId, plan, null, null);
+		}
+		return hedgedRequestExecutor.execute(request, hedgingDelay,
+				(previousInstance, chosenInstance) -> execute(request, options, originalUri, affinityKey, serviceId,
+						plan, previousInstance, chosenInstance));
+	}
+
+	private Response execute(Request request, Request.Options options, URI originalUri, String affinityKey,
+			String serviceId, LoadBalancerRequestPlans.Plan plan, ServiceInstance previousInstance,
+			AtomicReference<ServiceInstance> chosenInstance) throws IOException {
+		RequestDataContext context = previousInstance != null
+				? new RetryableRequestContext(previousInstance, buildRequestData(request, originalUri, affinityKey),
+						plan.getHint())
+				: new RequestDataContext(buildRequestData(request, originalUri, affinityKey), plan.getHint());
+		DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(context);
+		Set<LoadBalancerLifecycle> supportedLifecycleProcessors = plan.getLifecycleProcessors();
 		supportedLifecycleProcessors.forEach(lifecycle -> lifecycle.onStart(lbRequest));
 		ServiceInstance instance = loadBalancerClient.choose(serviceId, lbRequest);
+		if (HedgedRequestExecutor.isSameInstance(instance, previousInstance)) {
+			// a hedged request should not go to the instance it is hedging
+			instance = loadBalancerClient.choose(serviceId, lbRequest);
+		}
+		if (chosenInstance != null) {
+			chosenInstance.set(instance);
+		}
 		org.springframework.cloud.client.loadbalancer.Response<ServiceInstance> lbResponse = new DefaultResponse(
 				instance);
 		if (instance == null) {
@@ -115,10 +163,35 @@ public class FeignBlockingLoadBalancerClient implements Client {
 		return delegate;
 	}
 
-	private String getHint(String serviceId) {
-		String defaultHint = properties.getHint().getOrDefault("default", "default");
-		String hintPropertyValue = properties.getHint().get(serviceId);
-		return hintPropertyValue != null ? hintPropertyValue : defaultHint;
+	/**
+	 * @param delegate the client that executes the requests
+	 * @return a client that balances the requests like this one, sharing its cached
+	 * lifecycle processors and hints and its hedging threads, but executes them with the
+	 * given client
+	 */
+	public FeignBlockingLoadBalancerClient withDelegate(Client delegate) {
+		return new FeignBlockingLoadBalancerClient(delegate, this, affinityKeys);
+	}
+
+	/**
+	 * @param affinityKeys the affinity keys of the requests of a Feign client
+	 * @return a client that balances the requests like this one, sharing its cached
+	 * settings and its hedging threads, but resolves their affinity keys
+	 */
+	FeignBlockingLoadBalancerClient withAffinityKeys(AffinityKeys affinityKeys) {
+		return new FeignBlockingLoadBalancerClient(delegate, this, affinityKeys);
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		requestPlans.clear();
+	}
+
+	@Override
+	public void destroy() {
+		if (!sharedHedgedRequestExecutor) {
+			hedgedRequestExecutor.shutdown();
+		}
 	}
 
 }
@@ -18,18 +18,24 @@ package org.springframework.cloud.openfeign.loadbalancer;
 
 import feign.Client;
 import feign.Feign;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerAutoConfiguration;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.cloud.loadbalancer.config.BlockingLoadBalancerClientAutoConfiguration;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
 import org.springframework.cloud.openfeign.FeignAutoConfiguration;
 import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
@@ -44,13 +50,69 @@ import org.springframework.context.annotation.Import;
 @ConditionalOnBean({ LoadBalancerClient.class, LoadBalancerClientFactory.class })
 @AutoConfigureBefore(FeignAutoConfiguration.class)
 @AutoConfigureAfter({ BlockingLoadBalancerClientAutoConfiguration.class, LoadBalancerAutoConfiguration.class })
-@EnableConfigurationProperties(FeignHttpClientProperties.class)
+@EnableConfigurationProperties({ FeignHttpClientProperties.class, FeignLoadBalancerProperties.class })
 @Configuration(proxyBeanMethods = false)
+@LoadBalancerClients(defaultConfiguration = FeignLoadBalancerClientConfiguration.class)
 // Order is important here, last should be the default, first should be optional
 // see
 // https://github.com/spring-cloud/spring-cloud-netflix/issues/2086#issuecomment-316281653
-@Import({ HttpClientFeignLoadBalancerConfiguration.class, OkHttpFeignLoadBalancerConfiguration.class,
-		DefaultFeignLoadBalancerConfiguration.class })
+@Import({ HttpClient5FeignLoadBalancerConfiguration.class, HttpClientFeignLoadBalancerConfiguration.class,
+		OkHttpFeignLoadBalancerConfiguration.class, DefaultFeignLoadBalancerConfiguration.class })
 public class FeignLoadBalancerAutoConfiguration {
 
+	@Bean
+	@ConditionalOnMissingBean
+	@Conditional(OnFeignLoadBalancingStrategyCondition.class)
+	public FeignLoadBalancerStats feignLoadBalancerStats(FeignLoadBalancerProperties properties) {
+		return new FeignLoadBalancerStats(properties.getPeakEwma().getDecayTime(),
+				properties.getBackendLoad().getDecayTime());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(FeignLoadBalancerStats.class)
+	public FeignLoadBalancerStatsLifecycle feignLoadBalancerStatsLifecycle(FeignLoadBalancerStats stats,
+			FeignLoadBalancerProperties properties) {
+		return new FeignLoadBalancerStatsLifecycle(stats, properties.getBackendLoad().getHeader());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("feign.loadbalancer.outlier-detection.enabled")
+	public FeignOutlierDetector feignOutlierDetector(FeignLoadBalancerProperties properties) {
+		FeignLoadBalancerProperties.OutlierDetection outlierDetection = properties.getOutlierDetection();
+		return new FeignOutlierDetector(outlierDetection.getConsecutiveFailures(),
+				outlierDetection.getBaseEjectionTime(), outlierDetection.getMaxEjectionTime(),
+				outlierDetection.getMaxEjectionPercent());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(FeignOutlierDetector.class)
+	public FeignOutlierDetectorLifecycle feignOutlierDetectorLifecycle(FeignOutlierDetector outlierDetector) {
+		return new FeignOutlierDetectorLifecycle(outlierDetector);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("feign.loadbalancer.retry-budget.enabled")
+	public FeignRetryBudgets feignRetryBudgets(FeignLoadBalancerProperties properties) {
+		FeignLoadBalancerProperties.RetryBudget retryBudget = properties.getRetryBudget();
+		return new FeignRetryBudgets(retryBudget.getPercentCanRetry(), retryBudget.getMinRetriesPerSecond(),
+				retryBudget.getMaxTokens());
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterBinder.class)
+	@ConditionalOnProperty("feign.loadbalancer.outlier-detection.enabled")
+	protected static class FeignOutlierDetectorMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public FeignOutlierDetectorMetrics feignOutlierDetectorMetrics(FeignOutlierDetector outlierDetector) {
+			return new FeignOutlierDetectorMetrics(outlierDetector);
+		}
+
+	}
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Default configuration of the Spring Cloud LoadBalancer child contexts that provides the
+ * {@link ReactorLoadBalancer} of the configured {@link FeignLoadBalancerProperties}
+ * strategy, narrows the instances down to a subset if subsetting is enabled, reports the
+ * instances to the {@link FeignOutlierDetector} if outlier detection is enabled and ramps
+ * up the traffic to new instances if slow start is enabled. Load balancers defined for a
+ * single service take precedence.
+ *
+ * @since 3.0.1
+ */
+@Configuration(proxyBeanMethods = false)
+class FeignLoadBalancerClientConfiguration {
+
+	// the condition is evaluated per bean, as the child context does not inherit the
+	// parent environment until it is refreshed
+	@Bean
+	@ConditionalOnMissingBean
+	@Conditional(OnFeignLoadBalancingStrategyCondition.class)
+	public ReactorLoadBalancer<ServiceInstance> feignReactorLoadBalancer(Environment environment,
+			LoadBalancerClientFactory loadBalancerClientFactory, FeignLoadBalancerProperties properties,
+			FeignLoadBalancerStats stats) {
+		String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		ObjectProvider<ServiceInstanceListSupplier> supplierProvider = loadBalancerClientFactory.getLazyProvider(name,
+				ServiceInstanceListSupplier.class);
+		switch (properties.getStrategy()) {
+		case PEAK_EWMA:
+			return new PeakEwmaLoadBalancer(supplierProvider, name, stats);
+		case LEAST_OUTSTANDING_REQUESTS:
+			return new LeastOutstandingRequestsLoadBalancer(supplierProvider, name, stats);
+		case BACKEND_LOAD:
+			return new BackendLoadLoadBalancer(supplierProvider, name, stats);
+		case CONSISTENT_HASH:
+			FeignLoadBalancerProperties.ConsistentHash consistentHash = properties.getConsistentHash();
+			return new ConsistentHashLoadBalancer(supplierProvider, name, stats, consistentHash.getLoadFactor(),
+					consistentHash.getVirtualNodes());
+		default:
+			throw new IllegalStateException("Unsupported load balancing strategy: " + properties.getStrategy());
+		}
+	}
+
+	@Bean
+	@ConditionalOnProperty("feign.loadbalancer.subset.enabled")
+	public static SubsetServiceInstanceListSupplierPostProcessor feignSubsetServiceInstanceListSupplierPostProcessor(
+			Environment environment, ObjectProvider<FeignLoadBalancerProperties> properties) {
+		return new SubsetServiceInstanceListSupplierPostProcessor(environment, properties);
+	}
+
+	@Bean
+	@ConditionalOnProperty("feign.loadbalancer.outlier-detection.enabled")
+	public static OutlierDetectionServiceInstanceListSupplierPostProcessor feignOutlierDetectionPostProcessor(
+			ObjectProvider<FeignOutlierDetector> outlierDetector) {
+		return new OutlierDetectionServiceInstanceListSupplierPostProcessor(outlierDetector);
+	}
+
+	@Bean
+	@ConditionalOnProperty("feign.loadbalancer.slow-start.enabled")
+	public static SlowStartServiceInstanceListSupplierPostProcessor slowStartServiceInstanceListSupplierPostProcessor(
+			ObjectProvider<FeignLoadBalancerProperties> properties) {
+		return new SlowStartServiceInstanceListSupplierPostProcessor(properties);
+	}
+
+}
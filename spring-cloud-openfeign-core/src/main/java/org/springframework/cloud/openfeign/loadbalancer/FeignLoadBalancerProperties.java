@@ -0,0 +1,652 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the load balancing done for Feign clients.
+ *
+ * @since 3.0.1
+ */
+@ConfigurationProperties("feign.loadbalancer")
+public class FeignLoadBalancerProperties {
+
+	/**
+	 * The strategy used to pick service instances. Any strategy but the default one
+	 * replaces the Spring Cloud LoadBalancer of the services that do not define their own
+	 * load balancer, for every load-balanced client of the application, not only for
+	 * Feign clients.
+	 */
+	private Strategy strategy = Strategy.DEFAULT;
+
+	private PeakEwma peakEwma = new PeakEwma();
+
+	private BackendLoad backendLoad = new BackendLoad();
+
+	private ConsistentHash consistentHash = new ConsistentHash();
+
+	private OutlierDetection outlierDetection = new OutlierDetection();
+
+	private RetryBudget retryBudget = new RetryBudget();
+
+	private Subset subset = new Subset();
+
+	private SlowStart slowStart = new SlowStart();
+
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(Strategy strategy) {
+		this.strategy = strategy;
+	}
+
+	public PeakEwma getPeakEwma() {
+		return peakEwma;
+	}
+
+	public void setPeakEwma(PeakEwma peakEwma) {
+		this.peakEwma = peakEwma;
+	}
+
+	public BackendLoad getBackendLoad() {
+		return backendLoad;
+	}
+
+	public void setBackendLoad(BackendLoad backendLoad) {
+		this.backendLoad = backendLoad;
+	}
+
+	public ConsistentHash getConsistentHash() {
+		return consistentHash;
+	}
+
+	public void setConsistentHash(ConsistentHash consistentHash) {
+		this.consistentHash = consistentHash;
+	}
+
+	public OutlierDetection getOutlierDetection() {
+		return outlierDetection;
+	}
+
+	public void setOutlierDetection(OutlierDetection outlierDetection) {
+		this.outlierDetection = outlierDetection;
+	}
+
+	public RetryBudget getRetryBudget() {
+		return retryBudget;
+	}
+
+	public void setRetryBudget(RetryBudget retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
+	public Subset getSubset() {
+		return subset;
+	}
+
+	public void setSubset(Subset subset) {
+		this.subset = subset;
+	}
+
+	public SlowStart getSlowStart() {
+		return slowStart;
+	}
+
+	public void setSlowStart(SlowStart slowStart) {
+		this.slowStart = slowStart;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		FeignLoadBalancerProperties that = (FeignLoadBalancerProperties) o;
+		return strategy == that.strategy && Objects.equals(peakEwma, that.peakEwma)
+				&& Objects.equals(backendLoad, that.backendLoad) && Objects.equals(consistentHash, that.consistentHash)
+				&& Objects.equals(outlierDetection, that.outlierDetection)
+				&& Objects.equals(retryBudget, that.retryBudget) && Objects.equals(subset, that.subset)
+				&& Objects.equals(slowStart, that.slowStart);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(strategy, peakEwma, backendLoad, consistentHash, outlierDetection, retryBudget, subset,
+				slowStart);
+	}
+
+	/**
+	 * Strategies for picking service instances.
+	 */
+	public enum Strategy {
+
+		/**
+		 * Use the load balancer configured for Spring Cloud LoadBalancer.
+		 */
+		DEFAULT,
+
+		/**
+		 * Prefer the instance with the lower peak EWMA latency weighted by outstanding
+		 * requests, out of two random instances.
+		 */
+		PEAK_EWMA,
+
+		/**
+		 * Prefer the instance with fewer outstanding requests, out of two random
+		 * instances.
+		 */
+		LEAST_OUTSTANDING_REQUESTS,
+
+		/**
+		 * Prefer the instance with the lower load reported by the instances themselves in
+		 * a response header, weighted by outstanding requests, out of two random
+		 * instances.
+		 */
+		BACKEND_LOAD,
+
+		/**
+		 * Send the requests with the same affinity key to the same instance, unless it
+		 * has too many outstanding requests, and the other requests to the instance with
+		 * fewer outstanding requests out of two random instances.
+		 */
+		CONSISTENT_HASH
+
+	}
+
+	/**
+	 * Peak EWMA properties.
+	 */
+	public static class PeakEwma {
+
+		/**
+		 * Time it takes for an observed latency to decay by a factor of e.
+		 */
+		private Duration decayTime = Duration.ofSeconds(10);
+
+		public Duration getDecayTime() {
+			return decayTime;
+		}
+
+		public void setDecayTime(Duration decayTime) {
+			this.decayTime = decayTime;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			PeakEwma that = (PeakEwma) o;
+			return Objects.equals(decayTime, that.decayTime);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(decayTime);
+		}
+
+	}
+
+	/**
+	 * Backend load properties.
+	 */
+	public static class BackendLoad {
+
+		/**
+		 * Name of the response header in which the instances report their load, as a
+		 * decimal number such as 0.73 for 73% utilization.
+		 */
+		private String header = "X-Backend-Load";
+
+		/**
+		 * Time it takes for a reported load to decay by a factor of e.
+		 */
+		private Duration decayTime = Duration.ofSeconds(2);
+
+		public String getHeader() {
+			return header;
+		}
+
+		public void setHeader(String header) {
+			this.header = header;
+		}
+
+		public Duration getDecayTime() {
+			return decayTime;
+		}
+
+		public void setDecayTime(Duration decayTime) {
+			this.decayTime = decayTime;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			BackendLoad that = (BackendLoad) o;
+			return Objects.equals(header, that.header) && Objects.equals(decayTime, that.decayTime);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(header, decayTime);
+		}
+
+	}
+
+	/**
+	 * Consistent hashing properties.
+	 */
+	public static class ConsistentHash {
+
+		/**
+		 * How many times the average outstanding requests of the instances an instance
+		 * can have before the requests mapped to it go to the next instance on the ring.
+		 */
+		private double loadFactor = 1.25;
+
+		/**
+		 * Number of points of every instance on the hash ring. More points spread the
+		 * keys more evenly.
+		 */
+		private int virtualNodes = 100;
+
+		public double getLoadFactor() {
+			return loadFactor;
+		}
+
+		public void setLoadFactor(double loadFactor) {
+			this.loadFactor = loadFactor;
+		}
+
+		public int getVirtualNodes() {
+			return virtualNodes;
+		}
+
+		public void setVirtualNodes(int virtualNodes) {
+			this.virtualNodes = virtualNodes;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			ConsistentHash that = (ConsistentHash) o;
+			return Double.compare(loadFactor, that.loadFactor) == 0 && virtualNodes == that.virtualNodes;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(loadFactor, virtualNodes);
+		}
+
+	}
+
+	/**
+	 * Passive outlier detection properties.
+	 */
+	public static class OutlierDetection {
+
+		/**
+		 * Whether instances failing consecutive requests are ejected from load balancing.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Number of consecutive 5xx responses, connect failures or timeouts that ejects
+		 * an instance.
+		 */
+		private int consecutiveFailures = 5;
+
+		/**
+		 * Duration of the first ejection of an instance. Every further ejection lasts
+		 * twice as long.
+		 */
+		private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+		/**
+		 * Maximum duration of an ejection.
+		 */
+		private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+		/**
+		 * Maximum percentage of the instances of a service that are ejected at the same
+		 * time.
+		 */
+		private int maxEjectionPercent = 50;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		public void setConsecutiveFailures(int consecutiveFailures) {
+			this.consecutiveFailures = consecutiveFailures;
+		}
+
+		public Duration getBaseEjectionTime() {
+			return baseEjectionTime;
+		}
+
+		public void setBaseEjectionTime(Duration baseEjectionTime) {
+			this.baseEjectionTime = baseEjectionTime;
+		}
+
+		public Duration getMaxEjectionTime() {
+			return maxEjectionTime;
+		}
+
+		public void setMaxEjectionTime(Duration maxEjectionTime) {
+			this.maxEjectionTime = maxEjectionTime;
+		}
+
+		public int getMaxEjectionPercent() {
+			return maxEjectionPercent;
+		}
+
+		public void setMaxEjectionPercent(int maxEjectionPercent) {
+			this.maxEjectionPercent = maxEjectionPercent;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			OutlierDetection that = (OutlierDetection) o;
+			return enabled == that.enabled && consecutiveFailures == that.consecutiveFailures
+					&& maxEjectionPercent == that.maxEjectionPercent
+					&& Objects.equals(baseEjectionTime, that.baseEjectionTime)
+					&& Objects.equals(maxEjectionTime, that.maxEjectionTime);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, consecutiveFailures, baseEjectionTime, maxEjectionTime, maxEjectionPercent);
+		}
+
+	}
+
+	/**
+	 * Retry budget properties.
+	 */
+	public static class RetryBudget {
+
+		/**
+		 * Whether retries of load-balanced Feign requests are limited by a budget per
+		 * service.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Percentage of the successful requests that can be retried.
+		 */
+		private int percentCanRetry = 20;
+
+		/**
+		 * Number of retries allowed per second regardless of the successful requests.
+		 */
+		private int minRetriesPerSecond = 10;
+
+		/**
+		 * Maximum number of retries that can be saved up.
+		 */
+		private int maxTokens = 100;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getPercentCanRetry() {
+			return percentCanRetry;
+		}
+
+		public void setPercentCanRetry(int percentCanRetry) {
+			this.percentCanRetry = percentCanRetry;
+		}
+
+		public int getMinRetriesPerSecond() {
+			return minRetriesPerSecond;
+		}
+
+		public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+			this.minRetriesPerSecond = minRetriesPerSecond;
+		}
+
+		public int getMaxTokens() {
+			return maxTokens;
+		}
+
+		public void setMaxTokens(int maxTokens) {
+			this.maxTokens = maxTokens;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			RetryBudget that = (RetryBudget) o;
+			return enabled == that.enabled && percentCanRetry == that.percentCanRetry
+					&& minRetriesPerSecond == that.minRetriesPerSecond && maxTokens == that.maxTokens;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, percentCanRetry, minRetriesPerSecond, maxTokens);
+		}
+
+	}
+
+	/**
+	 * Deterministic subsetting properties.
+	 */
+	public static class Subset {
+
+		/**
+		 * Whether every client only load balances over a stable subset of the instances
+		 * of each service.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum number of instances of the subset.
+		 */
+		private int size = 100;
+
+		/**
+		 * Id the subset of this client is derived from, which has to be different for
+		 * every replica of the client. Defaults to an id built from the host name, IP
+		 * address and port of the replica.
+		 */
+		private String clientId;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public String getClientId() {
+			return clientId;
+		}
+
+		public void setClientId(String clientId) {
+			this.clientId = clientId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Subset that = (Subset) o;
+			return enabled == that.enabled && size == that.size && Objects.equals(clientId, that.clientId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, size, clientId);
+		}
+
+	}
+
+	/**
+	 * Slow-start properties.
+	 */
+	public static class SlowStart {
+
+		/**
+		 * Whether instances that were not known to this client get a share of the traffic
+		 * that grows over a window, instead of their full share right away.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Time it takes for a new instance to reach its full share of the traffic.
+		 */
+		private Duration window = Duration.ofSeconds(30);
+
+		/**
+		 * Share of its full traffic a new instance starts with.
+		 */
+		private double minWeight = 0.1;
+
+		/**
+		 * How the share of a new instance grows over the window.
+		 */
+		private Ramp ramp = Ramp.LINEAR;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+		public double getMinWeight() {
+			return minWeight;
+		}
+
+		public void setMinWeight(double minWeight) {
+			this.minWeight = minWeight;
+		}
+
+		public Ramp getRamp() {
+			return ramp;
+		}
+
+		public void setRamp(Ramp ramp) {
+			this.ramp = ramp;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			SlowStart that = (SlowStart) o;
+			return enabled == that.enabled && Double.compare(minWeight, that.minWeight) == 0
+					&& Objects.equals(window, that.window) && ramp == that.ramp;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, window, minWeight, ramp);
+		}
+
+		/**
+		 * Ways the share of a new instance grows over the slow-start window.
+		 */
+		public enum Ramp {
+
+			/**
+			 * Grow the share by the same amount over time.
+			 */
+			LINEAR,
+
+			/**
+			 * Grow the share by the same factor over time, which keeps it low for longer.
+			 */
+			EXPONENTIAL
+
+		}
+
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Statistics of the load-balanced Feign requests sent to every {@link ServiceInstance},
+ * recorded by {@link FeignLoadBalancerStatsLifecycle}. All updates are lock-free, so that
+ * they can be recorded and read on the request path. The statistics of an instance
+ * without outstanding requests are dropped once it has not been used for five decay
+ * times, when they have decayed below 1%, so that instances that left the service, e.g.
+ * during rolling deployments, are forgotten.
+ *
+ * @since 3.0.1
+ */
+public class FeignLoadBalancerStats {
+
+	private static final int IDLE_DECAY_TIMES = 5;
+
+	private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+	private final long decayNanos;
+
+	private final long loadDecayNanos;
+
+	private final long idleNanos;
+
+	private final AtomicLong nextSweepNanos;
+
+	/**
+	 * @param decayTime the time it takes for an observed latency to decay by a factor of
+	 * e in the peak EWMA
+	 */
+	public FeignLoadBalancerStats(Duration decayTime) {
+		this(decayTime, decayTime);
+	}
+
+	/**
+	 * @param decayTime the time it takes for an observed latency to decay by a factor of
+	 * e in the peak EWMA
+	 * @param loadDecayTime the time it takes for a load reported by an instance to decay
+	 * by a factor of e
+	 */
+	public FeignLoadBalancerStats(Duration decayTime, Duration loadDecayTime) {
+		this.decayNanos = Math.max(decayTime.toNanos(), 1);
+		this.loadDecayNanos = Math.max(loadDecayTime.toNanos(), 1);
+		long longestDecayNanos = Math.max(decayNanos, loadDecayNanos);
+		this.idleNanos = longestDecayNanos > Long.MAX_VALUE / IDLE_DECAY_TIMES ? Long.MAX_VALUE
+				: longestDecayNanos * IDLE_DECAY_TIMES;
+		this.nextSweepNanos = new AtomicLong(System.nanoTime() + Math.min(idleNanos, Long.MAX_VALUE / 2));
+	}
+
+	/**
+	 * @param instance the service instance
+	 * @return the statistics of the instance, created on first access
+	 */
+	public InstanceStats getStats(ServiceInstance instance) {
+		sweepIfDue();
+		String key = key(instance);
+		// a plain get does not lock on the hot path, unlike computeIfAbsent on Java 8
+		InstanceStats instanceStats = stats.get(key);
+		return instanceStats != null ? instanceStats
+				: stats.computeIfAbsent(key, missing -> new InstanceStats(decayNanos, loadDecayNanos));
+	}
+
+	int size() {
+		return stats.size();
+	}
+
+	private void sweepIfDue() {
+		long now = System.nanoTime();
+		long nextSweep = nextSweepNanos.get();
+		if (now - nextSweep < 0
+				|| !nextSweepNanos.compareAndSet(nextSweep, now + Math.min(idleNanos, Long.MAX_VALUE / 2))) {
+			return;
+		}
+		for (String key : stats.keySet()) {
+			stats.computeIfPresent(key,
+					(k, instanceStats) -> instanceStats.isIdle(now, idleNanos) ? null : instanceStats);
+		}
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+	}
+
+	/**
+	 * Statistics of a single service instance.
+	 */
+	public static final class InstanceStats {
+
+		private final long decayNanos;
+
+		private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+		private final LongAdder completedRequests = new LongAdder();
+
+		private final LongAdder failedRequests = new LongAdder();
+
+		private final AtomicLong peakEwmaBits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+		private volatile long lastObservedNanos = System.nanoTime();
+
+		private final long loadDecayNanos;
+
+		// NaN until the instance reports its load for the first time
+		private final AtomicLong backendLoadBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+		private volatile long lastLoadReportedNanos = System.nanoTime();
+
+		private volatile long lastUsedNanos = System.nanoTime();
+
+		private InstanceStats(long decayNanos, long loadDecayNanos) {
+			this.decayNanos = decayNanos;
+			this.loadDecayNanos = loadDecayNanos;
+		}
+
+		void requestStarted() {
+			outstandingRequests.incrementAndGet();
+			lastUsedNanos = System.nanoTime();
+		}
+
+		void requestCompleted(long latencyNanos, boolean failed) {
+			// a request started on dropped statistics completes on new ones
+			outstandingRequests.updateAndGet(outstanding -> outstanding > 0 ? outstanding - 1 : 0);
+			lastUsedNanos = System.nanoTime();
+			completedRequests.increment();
+			if (failed) {
+				failedRequests.increment();
+			}
+			if (latencyNanos >= 0) {
+				observeLatency(latencyNanos);
+			}
+		}
+
+		void requestDiscarded() {
+			outstandingRequests.updateAndGet(outstanding -> outstanding > 0 ? outstanding - 1 : 0);
+			lastUsedNanos = System.nanoTime();
+		}
+
+		private void observeLatency(long latencyNanos) {
+			long now = System.nanoTime();
+			double elapsed = Math.max(now - lastObservedNanos, 0);
+			double weight = Math.exp(-elapsed / decayNanos);
+			long currentBits;
+			double updated;
+			do {
+				currentBits = peakEwmaBits.get();
+				double current = Double.longBitsToDouble(currentBits);
+				// peak sensitive: a latency above the average replaces it at once
+				updated = latencyNanos > current ? latencyNanos : current * weight + latencyNanos * (1 - weight);
+			}
+			while (!peakEwmaBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)));
+			lastObservedNanos = now;
+		}
+
+		void backendLoadReported(double load) {
+			long now = System.nanoTime();
+			double elapsed = Math.max(now - lastLoadReportedNanos, 0);
+			double weight = Math.exp(-elapsed / loadDecayNanos);
+			long currentBits;
+			double updated;
+			do {
+				currentBits = backendLoadBits.get();
+				double current = Double.longBitsToDouble(currentBits);
+				updated = Double.isNaN(current) ? load : current * weight + load * (1 - weight);
+			}
+			while (!backendLoadBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)));
+			lastLoadReportedNanos = now;
+		}
+
+		private boolean isIdle(long now, long idleNanos) {
+			return outstandingRequests.get() <= 0 && now - lastUsedNanos > idleNanos;
+		}
+
+		public int getOutstandingRequests() {
+			return Math.max(outstandingRequests.get(), 0);
+		}
+
+		public long getCompletedRequests() {
+			return completedRequests.sum();
+		}
+
+		public long getFailedRequests() {
+			return failedRequests.sum();
+		}
+
+		/**
+		 * @return the peak EWMA of the latency in nanoseconds, decayed to the current
+		 * time
+		 */
+		public double getPeakEwmaLatency() {
+			double elapsed = Math.max(System.nanoTime() - lastObservedNanos, 0);
+			return Double.longBitsToDouble(peakEwmaBits.get()) * Math.exp(-elapsed / decayNanos);
+		}
+
+		/**
+		 * @return the EWMA of the load reported by the instance, decayed to the current
+		 * time so that an instance that stopped getting requests is tried again, or 0 if
+		 * the instance has not reported its load
+		 */
+		public double getBackendLoad() {
+			double load = Double.longBitsToDouble(backendLoadBits.get());
+			if (Double.isNaN(load)) {
+				return 0;
+			}
+			double elapsed = Math.max(System.nanoTime() - lastLoadReportedNanos, 0);
+			return load * Math.exp(-elapsed / loadDecayNanos);
+		}
+
+	}
+
+}
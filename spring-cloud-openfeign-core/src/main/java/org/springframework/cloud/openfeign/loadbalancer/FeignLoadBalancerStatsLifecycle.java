@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link LoadBalancerLifecycle} that records the outstanding requests and latencies of
+ * load-balanced requests in {@link FeignLoadBalancerStats}, along with the load the
+ * instances report in a response header, if any. Like any lifecycle bean, it sees the
+ * requests of every load-balanced client of the application, not only the ones of Feign.
+ *
+ * @since 3.0.1
+ */
+public class FeignLoadBalancerStatsLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Log LOG = LogFactory.getLog(FeignLoadBalancerStatsLifecycle.class);
+
+	private final FeignLoadBalancerStats stats;
+
+	private final String loadHeader;
+
+	public FeignLoadBalancerStatsLifecycle(FeignLoadBalancerStats stats) {
+		this(stats, null);
+	}
+
+	/**
+	 * @param stats the statistics to record the requests in
+	 * @param loadHeader the name of the response header in which the instances report
+	 * their load, or <code>null</code> not to record it
+	 */
+	public FeignLoadBalancerStatsLifecycle(FeignLoadBalancerStats stats, String loadHeader) {
+		this.stats = stats;
+		this.loadHeader = StringUtils.hasText(loadHeader) ? loadHeader : null;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+		return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+		ServiceInstance instance = lbResponse != null ? lbResponse.getServer() : null;
+		if (instance == null) {
+			return;
+		}
+		Object context = request.getContext();
+		if (context instanceof TimedRequestContext && ((TimedRequestContext) context).getRequestStartTime() == 0) {
+			((TimedRequestContext) context).setRequestStartTime(System.nanoTime());
+		}
+		stats.getStats(instance).requestStarted();
+	}
+
+	@Override
+	public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+		ServiceInstance instance = lbResponse != null ? lbResponse.getServer() : null;
+		if (instance == null) {
+			return;
+		}
+		if (completionContext.status() == CompletionContext.Status.DISCARD) {
+			// a cancelled request says nothing about the instance
+			stats.getStats(instance).requestDiscarded();
+			return;
+		}
+		long latency = -1;
+		Object context = completionContext.getLoadBalancerRequest().getContext();
+		if (context instanceof TimedRequestContext && ((TimedRequestContext) context).getRequestStartTime() != 0) {
+			latency = System.nanoTime() - ((TimedRequestContext) context).getRequestStartTime();
+		}
+		FeignLoadBalancerStats.InstanceStats instanceStats = stats.getStats(instance);
+		instanceStats.requestCompleted(latency, completionContext.status() == CompletionContext.Status.FAILED);
+		if (loadHeader != null && completionContext.status() == CompletionContext.Status.SUCCESS) {
+			recordBackendLoad(instanceStats,
+					LoadBalancerUtils.getFirstHeader(completionContext.getClientResponse(), loadHeader));
+		}
+	}
+
+	private void recordBackendLoad(FeignLoadBalancerStats.InstanceStats instanceStats, String value) {
+		if (value == null) {
+			return;
+		}
+		try {
+			double load = Double.parseDouble(value.trim());
+			if (load >= 0 && !Double.isInfinite(load)) {
+				instanceStats.backendLoadReported(load);
+			}
+		}
+		catch (NumberFormatException e) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Ignoring invalid value of load header " + loadHeader + ": " + value);
+			}
+		}
+	}
+
+}
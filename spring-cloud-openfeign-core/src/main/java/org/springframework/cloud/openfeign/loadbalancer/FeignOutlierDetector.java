@@ -0,0 +1,343 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Passive health tracking of the {@link ServiceInstance}s Feign requests are sent to. An
+ * instance that fails a number of consecutive requests, with a 5xx response, a connect
+ * failure or a timeout, is ejected from selection. Every further ejection of the same
+ * instance lasts twice as long as the previous one, up to a maximum, and the ejection
+ * time is reset once the instance has stayed healthy for as long as it was last ejected.
+ * No more than a maximum percentage of the current instances of a service are ejected at
+ * the same time.
+ * <p>
+ * Outcomes are recorded by {@link FeignOutlierDetectorLifecycle}, and ejected instances
+ * are left out of the instances supplied by
+ * {@link OutlierDetectionServiceInstanceListSupplier}, which also reports the current
+ * instances of a service; until they are reported, the instances that received requests
+ * are considered current.
+ *
+ * @since 3.0.1
+ */
+public class FeignOutlierDetector {
+
+	private static final Log LOG = LogFactory.getLog(FeignOutlierDetector.class);
+
+	private final ConcurrentMap<String, ServiceHealth> services = new ConcurrentHashMap<>();
+
+	private final List<Consumer<String>> serviceListeners = new CopyOnWriteArrayList<>();
+
+	private final int consecutiveFailures;
+
+	private final long baseEjectionNanos;
+
+	private final long maxEjectionNanos;
+
+	private final int maxEjectionPercent;
+
+	/**
+	 * @param consecutiveFailures number of consecutive failures that ejects an instance
+	 * @param baseEjectionTime duration of the first ejection of an instance
+	 * @param maxEjectionTime maximum duration of an ejection
+	 * @param maxEjectionPercent maximum percentage of the instances of a service that are
+	 * ejected at the same time
+	 */
+	public FeignOutlierDetector(int consecutiveFailures, Duration baseEjectionTime, Duration maxEjectionTime,
+			int maxEjectionPercent) {
+		this.consecutiveFailures = Math.max(consecutiveFailures, 1);
+		this.baseEjectionNanos = Math.max(baseEjectionTime.toNanos(), 1);
+		this.maxEjectionNanos = Math.max(maxEjectionTime.toNanos(), baseEjectionNanos);
+		this.maxEjectionPercent = maxEjectionPercent;
+	}
+
+	/**
+	 * @param instance a service instance
+	 * @return whether the instance is currently ejected from selection
+	 */
+	public boolean isEjected(ServiceInstance instance) {
+		ServiceHealth service = services.get(instance.getServiceId());
+		InstanceHealth health = service != null ? service.instances.get(key(instance)) : null;
+		if (health == null || !health.ejected) {
+			return false;
+		}
+		if (System.nanoTime() - health.ejectedUntilNanos < 0) {
+			return true;
+		}
+		service.release(health);
+		return false;
+	}
+
+	/**
+	 * Records a successful request, which resets the consecutive failures of the
+	 * instance.
+	 * @param instance the service instance
+	 */
+	public void recordSuccess(ServiceInstance instance) {
+		ServiceHealth service = service(instance.getServiceId());
+		InstanceHealth health = service.health(key(instance));
+		health.consecutiveFailures.set(0);
+		if (health.ejectionCount > 0 && !health.ejected) {
+			service.forgive(health);
+		}
+	}
+
+	/**
+	 * Records a failed request, which may eject the instance.
+	 * @param instance the service instance
+	 */
+	public void recordFailure(ServiceInstance instance) {
+		ServiceHealth service = service(instance.getServiceId());
+		InstanceHealth health = service.health(key(instance));
+		if (health.consecutiveFailures.incrementAndGet() >= consecutiveFailures && !health.ejected) {
+			service.eject(instance, key(instance), health);
+		}
+	}
+
+	/**
+	 * Records the current instances of a service. The health of instances that are no
+	 * longer current is dropped, and only the current instances count towards the maximum
+	 * ejection percentage. Reporting the same list instance again is cheap, as the
+	 * instances are only compared when the list changes.
+	 * @param serviceId the service id
+	 * @param instances the current instances of the service
+	 */
+	public void updateInstances(String serviceId, List<ServiceInstance> instances) {
+		ServiceHealth service = service(serviceId);
+		if (service.reportedInstances == instances) {
+			return;
+		}
+		Set<String> keys = new HashSet<>();
+		for (ServiceInstance instance : instances) {
+			keys.add(key(instance));
+		}
+		if (!keys.equals(service.currentInstances)) {
+			service.update(keys);
+		}
+		service.reportedInstances = instances;
+	}
+
+	/**
+	 * @param serviceId the service id
+	 * @return a number that changes whenever an instance of the service is ejected or
+	 * released, or the current instances change
+	 */
+	long getEjectionVersion(String serviceId) {
+		ServiceHealth service = services.get(serviceId);
+		return service != null ? service.version : 0;
+	}
+
+	/**
+	 * @param serviceId the service id
+	 * @param nowNanos the current {@link System#nanoTime()}
+	 * @return the {@link System#nanoTime()} at which the first of the ejections of the
+	 * service in effect ends, or {@code nowNanos} if there is none
+	 */
+	long getNextReleaseNanos(String serviceId, long nowNanos) {
+		ServiceHealth service = services.get(serviceId);
+		return service != null ? service.nextRelease(nowNanos) : nowNanos;
+	}
+
+	/**
+	 * @return the ids of the services requests were recorded for
+	 */
+	public Set<String> getServiceIds() {
+		return services.keySet();
+	}
+
+	/**
+	 * @param serviceId the service id
+	 * @return the number of currently ejected instances of the service
+	 */
+	public int getEjectedInstances(String serviceId) {
+		ServiceHealth service = services.get(serviceId);
+		if (service == null) {
+			return 0;
+		}
+		service.releaseExpired();
+		return service.ejectedInstances.get();
+	}
+
+	/**
+	 * @param serviceId the service id
+	 * @return the number of ejections of instances of the service so far
+	 */
+	public long getEjections(String serviceId) {
+		ServiceHealth service = services.get(serviceId);
+		return service != null ? service.ejections.sum() : 0;
+	}
+
+	/**
+	 * @param listener called with the id of every service requests are recorded for, once
+	 */
+	void addServiceListener(Consumer<String> listener) {
+		serviceListeners.add(listener);
+	}
+
+	private ServiceHealth service(String serviceId) {
+		ServiceHealth service = services.get(serviceId);
+		if (service != null) {
+			return service;
+		}
+		ServiceHealth created = new ServiceHealth();
+		service = services.putIfAbsent(serviceId, created);
+		if (service != null) {
+			return service;
+		}
+		serviceListeners.forEach(listener -> listener.accept(serviceId));
+		return created;
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	private final class ServiceHealth {
+
+		private final ConcurrentMap<String, InstanceHealth> instances = new ConcurrentHashMap<>();
+
+		private final AtomicInteger ejectedInstances = new AtomicInteger();
+
+		private final LongAdder ejections = new LongAdder();
+
+		// null until the current instances are reported
+		private volatile Set<String> currentInstances;
+
+		// the list the current instances were last reported with
+		private volatile List<ServiceInstance> reportedInstances;
+
+		// changed, while holding the lock, with every ejection, release and update
+		private volatile long version;
+
+		private InstanceHealth health(String key) {
+			InstanceHealth health = instances.get(key);
+			return health != null ? health : instances.computeIfAbsent(key, missing -> new InstanceHealth());
+		}
+
+		// state changes are rare, so they are serialized per service
+		private synchronized void eject(ServiceInstance instance, String key, InstanceHealth health) {
+			Set<String> current = currentInstances;
+			if (health.ejected || current != null && !current.contains(key)) {
+				return;
+			}
+			releaseExpired();
+			int total = current != null ? current.size() : instances.size();
+			if ((ejectedInstances.get() + 1) * 100 > maxEjectionPercent * total) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Not ejecting " + instance.getUri() + ", maximum ejection percentage reached");
+				}
+				return;
+			}
+			long ejectionNanos = baseEjectionNanos << Math.min(health.ejectionCount, 30);
+			if (ejectionNanos <= 0 || ejectionNanos > maxEjectionNanos) {
+				ejectionNanos = maxEjectionNanos;
+			}
+			health.ejectionCount++;
+			health.ejectionNanos = ejectionNanos;
+			health.ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+			health.consecutiveFailures.set(0);
+			health.ejected = true;
+			version++;
+			ejectedInstances.incrementAndGet();
+			ejections.increment();
+			if (LOG.isWarnEnabled()) {
+				LOG.warn("Ejecting " + instance.getUri() + " of service " + instance.getServiceId() + " for "
+						+ Duration.ofNanos(ejectionNanos));
+			}
+		}
+
+		private synchronized void release(InstanceHealth health) {
+			if (health.ejected && System.nanoTime() - health.ejectedUntilNanos >= 0) {
+				health.ejected = false;
+				version++;
+				ejectedInstances.decrementAndGet();
+			}
+		}
+
+		private synchronized void releaseExpired() {
+			for (InstanceHealth health : instances.values()) {
+				release(health);
+			}
+		}
+
+		private synchronized long nextRelease(long nowNanos) {
+			long next = nowNanos;
+			for (InstanceHealth health : instances.values()) {
+				if (health.ejected && health.ejectedUntilNanos - nowNanos > 0
+						&& (next == nowNanos || health.ejectedUntilNanos - next < 0)) {
+					next = health.ejectedUntilNanos;
+				}
+			}
+			return next;
+		}
+
+		private synchronized void update(Set<String> keys) {
+			currentInstances = keys;
+			version++;
+			for (Iterator<Map.Entry<String, InstanceHealth>> entries = instances.entrySet().iterator(); entries
+					.hasNext();) {
+				Map.Entry<String, InstanceHealth> entry = entries.next();
+				if (!keys.contains(entry.getKey())) {
+					entries.remove();
+					if (entry.getValue().ejected) {
+						entry.getValue().ejected = false;
+						ejectedInstances.decrementAndGet();
+					}
+				}
+			}
+		}
+
+		private synchronized void forgive(InstanceHealth health) {
+			if (!health.ejected && System.nanoTime() - health.ejectedUntilNanos >= health.ejectionNanos) {
+				health.ejectionCount = 0;
+			}
+		}
+
+	}
+
+	private static final class InstanceHealth {
+
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		private volatile boolean ejected;
+
+		private volatile int ejectionCount;
+
+		private volatile long ejectionNanos;
+
+		private volatile long ejectedUntilNanos;
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A {@link LoadBalancerLifecycle} that reports the outcome of load-balanced requests to a
+ * {@link FeignOutlierDetector}. 5xx responses, connect failures and timeouts are
+ * failures, other responses are successes and any other exception, as well as a cancelled
+ * request, is ignored.
+ *
+ * @since 3.0.1
+ */
+public class FeignOutlierDetectorLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private final FeignOutlierDetector outlierDetector;
+
+	public FeignOutlierDetectorLifecycle(FeignOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+		return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+	}
+
+	@Override
+	public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+		ServiceInstance instance = lbResponse != null ? lbResponse.getServer() : null;
+		if (instance == null) {
+			return;
+		}
+		if (completionContext.status() == CompletionContext.Status.FAILED) {
+			if (isConnectFailureOrTimeout(completionContext.getThrowable())) {
+				outlierDetector.recordFailure(instance);
+			}
+		}
+		else if (completionContext.status() == CompletionContext.Status.SUCCESS) {
+			Object clientResponse = completionContext.getClientResponse();
+			HttpStatus status = clientResponse instanceof ResponseData ? ((ResponseData) clientResponse).getHttpStatus()
+					: null;
+			if (status != null && status.is5xxServerError()) {
+				outlierDetector.recordFailure(instance);
+			}
+			else {
+				outlierDetector.recordSuccess(instance);
+			}
+		}
+	}
+
+	private static boolean isConnectFailureOrTimeout(Throwable throwable) {
+		for (Throwable current = throwable; current != null; current = current.getCause()) {
+			// connect timeouts of Apache HttpClient have a SocketTimeoutException cause
+			if (current instanceof SocketTimeoutException || current instanceof ConnectException
+					|| current instanceof NoRouteToHostException) {
+				return true;
+			}
+			if (current.getCause() == current) {
+				break;
+			}
+		}
+		return false;
+	}
+
+}
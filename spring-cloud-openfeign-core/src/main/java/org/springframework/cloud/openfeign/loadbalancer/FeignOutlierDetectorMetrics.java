@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A {@link MeterBinder} that exposes, for every service, the number of instances
+ * currently ejected by a {@link FeignOutlierDetector} and the number of ejections so far.
+ *
+ * @since 3.0.1
+ */
+public class FeignOutlierDetectorMetrics implements MeterBinder {
+
+	private final FeignOutlierDetector outlierDetector;
+
+	public FeignOutlierDetectorMetrics(FeignOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		outlierDetector.addServiceListener(serviceId -> bindTo(registry, serviceId));
+		outlierDetector.getServiceIds().forEach(serviceId -> bindTo(registry, serviceId));
+	}
+
+	private void bindTo(MeterRegistry registry, String serviceId) {
+		Gauge.builder("feign.loadbalancer.outlier.ejected", outlierDetector,
+				detector -> detector.getEjectedInstances(serviceId)).tag("serviceId", serviceId)
+				.description("Instances currently ejected from load balancing").register(registry);
+		FunctionCounter
+				.builder("feign.loadbalancer.outlier.ejections", outlierDetector,
+						detector -> detector.getEjections(serviceId))
+				.tag("serviceId", serviceId).description("Ejections of instances from load balancing")
+				.register(registry);
+	}
+
+}
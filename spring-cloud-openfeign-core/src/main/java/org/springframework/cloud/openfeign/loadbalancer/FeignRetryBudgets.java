@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry budgets of the services called by Feign clients, shared by all clients that call
+ * the same serviceId. Every budget is a token bucket: each successful request deposits a
+ * fraction of a token, the bucket is also refilled at a minimum rate over time, and a
+ * retry is only allowed if it can withdraw a whole token. Retries are therefore limited
+ * to a percentage of the recent successful requests plus a small floor, which keeps them
+ * from multiplying the load of a struggling service.
+ *
+ * @since 3.0.1
+ */
+public class FeignRetryBudgets {
+
+	// tokens are counted in thousandths so that deposits of a fraction of a token add up
+	private static final long TOKEN = 1000;
+
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final ConcurrentMap<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+	private final long deposit;
+
+	private final int minRetriesPerSecond;
+
+	private final long maxBalance;
+
+	// time it takes the minimum rate to fill an empty bucket
+	private final long refillNanos;
+
+	/**
+	 * @param percentCanRetry percentage of the successful requests that can be retried
+	 * @param minRetriesPerSecond retries allowed per second regardless of the successful
+	 * requests
+	 * @param maxTokens maximum number of retries that can be saved up
+	 */
+	public FeignRetryBudgets(int percentCanRetry, int minRetriesPerSecond, int maxTokens) {
+		this.deposit = TOKEN * Math.max(percentCanRetry, 0) / 100;
+		this.minRetriesPerSecond = Math.max(minRetriesPerSecond, 0);
+		this.maxBalance = TOKEN * Math.max(maxTokens, 1);
+		this.refillNanos = this.minRetriesPerSecond > 0 ? maxBalance * NANOS_PER_MILLI / this.minRetriesPerSecond
+				: Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param serviceId the service id
+	 * @return the retry budget of the service, created on first access
+	 */
+	public RetryBudget getBudget(String serviceId) {
+		RetryBudget budget = budgets.get(serviceId);
+		return budget != null ? budget : budgets.computeIfAbsent(serviceId, missing -> new RetryBudget());
+	}
+
+	/**
+	 * The retry budget of a single service. All operations are lock-free.
+	 */
+	public final class RetryBudget {
+
+		private final AtomicLong balance = new AtomicLong(
+				Math.min(TOKEN * minRetriesPerSecond, FeignRetryBudgets.this.maxBalance));
+
+		private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+		private RetryBudget() {
+		}
+
+		/**
+		 * Deposits the share of a successful request.
+		 */
+		public void deposit() {
+			add(deposit);
+		}
+
+		/**
+		 * @return whether a retry is allowed, in which case a token was withdrawn
+		 */
+		public boolean tryWithdraw() {
+			refill();
+			long current;
+			do {
+				current = balance.get();
+				if (current < TOKEN) {
+					return false;
+				}
+			}
+			while (!balance.compareAndSet(current, current - TOKEN));
+			return true;
+		}
+
+		/**
+		 * @return the number of whole tokens currently available
+		 */
+		public long getAvailableTokens() {
+			refill();
+			return balance.get() / TOKEN;
+		}
+
+		private void refill() {
+			if (minRetriesPerSecond == 0) {
+				return;
+			}
+			long now = System.nanoTime();
+			long last = lastRefillNanos.get();
+			long elapsed = now - last;
+			long next;
+			long amount;
+			if (elapsed >= refillNanos) {
+				next = now;
+				amount = maxBalance;
+			}
+			else {
+				amount = elapsed * minRetriesPerSecond / NANOS_PER_MILLI;
+				// only the time that produced whole thousandths is consumed, so that the
+				// remainder counts for the next refill
+				next = last + amount * NANOS_PER_MILLI / minRetriesPerSecond;
+			}
+			if (amount > 0 && lastRefillNanos.compareAndSet(last, next)) {
+				add(amount);
+			}
+		}
+
+		private void add(long amount) {
+			balance.accumulateAndGet(amount, (current, added) -> Math.min(current + added, maxBalance));
+		}
+
+	}
+
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import feign.MethodMetadata;
+import feign.Request;
+import feign.Response;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.openfeign.FeignDeadline;
+import org.springframework.cloud.openfeign.Hedged;
+import org.springframework.cloud.openfeign.HedgedRequestOptions;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Sends a second attempt of a request of an idempotent method to another instance when
+ * the first attempt has not completed within the hedging delay of the method. Both
+ * attempts run on a bounded pool of threads while the calling thread waits for the first
+ * response, so that it returns as soon as either attempt succeeds, even if the other one
+ * is blocked in a socket read that ignores interrupts. While all threads are busy, the
+ * request runs on the calling thread without a hedge. The first response wins, the other
+ * attempt is cancelled by interrupting the thread that runs it, and its response is
+ * closed if it still arrives, which releases its connection. Every attempt reports its
+ * own outcome to the
+ * {@link org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle} processors.
+ *
+ * @since 3.0.1
+ * @see Hedged
+ * @see HedgedRequestOptions
+ */
+final class HedgedRequestExecutor {
+
+	private static final Set<Request.HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(Request.HttpMethod.GET,
+			Request.HttpMethod.HEAD, Request.HttpMethod.OPTIONS, Request.HttpMethod.TRACE, Request.HttpMethod.PUT,
+			Request.HttpMethod.DELETE);
+
+	private static final long NOT_HEDGED = -1;
+
+	private static final int DEFAULT_MAX_CONCURRENT_HEDGES = 64;
+
+	private final ConcurrentMap<Method, Long> annotatedDelays = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+	private final int maxConcurrentHedges;
+
+	private ScheduledThreadPoolExecutor scheduler;
+
+	private ThreadPoolExecutor executor;
+
+	private boolean shutdown;
+
+	HedgedRequestExecutor() {
+		this(DEFAULT_MAX_CONCURRENT_HEDGES);
+	}
+
+	HedgedRequestExecutor(int maxConcurrentHedges) {
+		this.maxConcurrentHedges = maxConcurrentHedges;
+	}
+
+	/**
+	 * @param request the request
+	 * @param options the options of the request
+	 * @return the hedging delay in milliseconds, 0 for the observed p95 latency, or a
+	 * negative value if the request must not be hedged
+	 */
+	long hedgingDelay(Request request, Request.Options options) {
+		if (!IDEMPOTENT_METHODS.contains(request.httpMethod())) {
+			return NOT_HEDGED;
+		}
+		if (options instanceof HedgedRequestOptions) {
+			return ((HedgedRequestOptions) options).getHedgingDelay(TimeUnit.MILLISECONDS);
+		}
+		MethodMetadata metadata = request.requestTemplate() != null ? request.requestTemplate().methodMetadata() : null;
+		if (metadata == null || metadata.method() == null) {
+			return NOT_HEDGED;
+		}
+		return annotatedDelays.computeIfAbsent(metadata.method(), method -> {
+			Hedged hedged = AnnotatedElementUtils.findMergedAnnotation(method, Hedged.class);
+			return hedged != null ? Math.max(hedged.delay(), 0) : NOT_HEDGED;
+		});
+	}
+
+	Response execute(Request request, long hedgingDelay, Attempt attempt) throws IOException {
+		LatencyWindow latencyWindow = latencies.computeIfAbsent(methodKey(request), key -> new LatencyWindow());
+		long delay = hedgingDelay > 0 ? hedgingDelay : latencyWindow.p95();
+		long start = System.nanoTime();
+		ScheduledThreadPoolExecutor scheduler = delay > 0 ? scheduler() : null;
+		HedgedCall call = scheduler != null ? new HedgedCall(executor()) : null;
+		AtomicReference<ServiceInstance> primaryInstance = new AtomicReference<>();
+		if (call == null || !call.start(() -> attempt.execute(null, primaryInstance))) {
+			// not enough samples yet to know when to hedge, shut down, or all threads
+			// busy
+			Response response = attempt.execute(null, null);
+			latencyWindow.record(start);
+			return response;
+		}
+		ScheduledFuture<?> trigger = scheduler.schedule(
+				() -> call.start(() -> attempt.execute(primaryInstance.get(), null)), delay, TimeUnit.MILLISECONDS);
+		try {
+			return call.await();
+		}
+		finally {
+			trigger.cancel(false);
+			latencyWindow.record(start);
+		}
+	}
+
+	/**
+	 * Stops the threads of this executor. Running hedges are cancelled and requests are
+	 * no longer hedged.
+	 */
+	void shutdown() {
+		ScheduledThreadPoolExecutor scheduler;
+		ThreadPoolExecutor executor;
+		synchronized (this) {
+			shutdown = true;
+			scheduler = this.scheduler;
+			executor = this.executor;
+		}
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			executor.shutdownNow();
+		}
+	}
+
+	private synchronized ScheduledThreadPoolExecutor scheduler() {
+		if (shutdown) {
+			return null;
+		}
+		if (scheduler == null) {
+			CustomizableThreadFactory timerThreadFactory = new CustomizableThreadFactory("feign-hedging-timer-");
+			timerThreadFactory.setDaemon(true);
+			scheduler = new ScheduledThreadPoolExecutor(1, timerThreadFactory);
+			// the timers of requests that completed in time are cancelled
+			scheduler.setRemoveOnCancelPolicy(true);
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("feign-hedging-");
+			threadFactory.setDaemon(true);
+			executor = new ThreadPoolExecutor(0, maxConcurrentHedges, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+					threadFactory);
+		}
+		return scheduler;
+	}
+
+	private synchronized ThreadPoolExecutor executor() {
+		return executor;
+	}
+
+	static boolean isSameInstance(ServiceInstance instance, ServiceInstance other) {
+		return instance != null && other != null && Objects.equals(instance.getHost(), other.getHost())
+				&& instance.getPort() == other.getPort();
+	}
+
+	private static IOException rethrow(Throwable throwable) {
+		if (throwable instanceof IOException) {
+			return (IOException) throwable;
+		}
+		if (throwable instanceof RuntimeException) {
+			throw (RuntimeException) throwable;
+		}
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+		return new IOException(throwable);
+	}
+
+	private static String methodKey(Request request) {
+		MethodMetadata metadata = request.requestTemplate() != null ? request.requestTemplate().methodMetadata() : null;
+		return metadata != null ? metadata.configKey() : request.httpMethod() + " " + request.url();
+	}
+
+	/**
+	 * A single attempt of a hedged request.
+	 */
+	interface Attempt {
+
+		/**
+		 * @param previousInstance the instance of the attempt being hedged, if any
+		 * @param chosenInstance receives the instance chosen for this attempt, may be
+		 * {@code null}
+		 * @return the response
+		 * @throws IOException if the request fails
+		 */
+		Response execute(ServiceInstance previousInstance, AtomicReference<ServiceInstance> chosenInstance)
+				throws IOException;
+
+	}
+
+	private interface Callable {
+
+		Response call() throws IOException;
+
+	}
+
+	/**
+	 * The two attempts of a hedged request, which both run on the hedging threads while
+	 * the calling thread waits for the first of them to succeed, or for both to fail.
+	 */
+	private static final class HedgedCall {
+
+		private final ThreadPoolExecutor executor;
+
+		private final FeignDeadline deadline = FeignDeadline.getCurrent();
+
+		private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+		// the fields below are guarded by this
+
+		private final List<AttemptTask> tasks = new ArrayList<>(2);
+
+		private int running;
+
+		private HedgedCall(ThreadPoolExecutor executor) {
+			this.executor = executor;
+		}
+
+		/**
+		 * @param callable the attempt to start
+		 * @return whether the attempt was started, which it is not once the call has
+		 * completed or while all hedging threads are busy
+		 */
+		synchronized boolean start(Callable callable) {
+			if (result.isDone()) {
+				return false;
+			}
+			AttemptTask task = new AttemptTask(callable);
+			try {
+				task.future = executor.submit(task);
+			}
+			catch (RejectedExecutionException e) {
+				return false;
+			}
+			tasks.add(task);
+			running++;
+			return true;
+		}
+
+		/**
+		 * @return the response of the attempt that succeeded first
+		 * @throws IOException the failure of the attempt that failed last, if both failed
+		 */
+		Response await() throws IOException {
+			try {
+				return result.get();
+			}
+			catch (ExecutionException e) {
+				throw rethrow(e.getCause());
+			}
+			catch (InterruptedException e) {
+				if (!result.completeExceptionally(e)) {
+					result.thenAccept(Response::close);
+				}
+				cancel(null);
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a hedged request");
+			}
+		}
+
+		private void succeeded(AttemptTask task, Response response) {
+			boolean won;
+			synchronized (this) {
+				running--;
+				won = result.complete(response);
+			}
+			if (won) {
+				cancel(task);
+			}
+			else {
+				// the other attempt won, or the caller gave up, before this one completed
+				response.close();
+			}
+		}
+
+		private void failed(Throwable failure) {
+			synchronized (this) {
+				running--;
+				if (running == 0) {
+					// the hedge is no longer started once the call has completed
+					result.completeExceptionally(failure);
+				}
+			}
+		}
+
+		/**
+		 * Interrupts the attempts still running. Those blocked in a socket read that
+		 * ignores the interrupt keep their hedging thread until the read completes, but
+		 * not the caller, and their response is closed when it arrives.
+		 */
+		private void cancel(AttemptTask winner) {
+			List<AttemptTask> losers;
+			synchronized (this) {
+				losers = new ArrayList<>(tasks);
+			}
+			losers.stream().filter(task -> task != winner).forEach(task -> task.future.cancel(true));
+		}
+
+		private final class AttemptTask implements Runnable {
+
+			private final Callable callable;
+
+			private Future<?> future;
+
+			private AttemptTask(Callable callable) {
+				this.callable = callable;
+			}
+
+			@Override
+			public void run() {
+				FeignDeadline previous = FeignDeadline.setCurrent(deadline);
+				Response response;
+				try {
+					response = callable.call();
+				}
+				catch (Throwable throwable) {
+					failed(throwable);
+					return;
+				}
+				finally {
+					FeignDeadline.setCurrent(previous);
+				}
+				succeeded(this, response);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Keeps the latest latencies of a method in a ring buffer and periodically derives
+	 * their p95.
+	 */
+	private static final class LatencyWindow {
+
+		private static final int SIZE = 128;
+
+		private static final int MIN_SAMPLES = 20;
+
+		private static final int RECOMPUTE_INTERVAL = 16;
+
+		private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private volatile long p95;
+
+		void record(long startNanos) {
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			long index = count.getAndIncrement();
+			samples.set((int) (index % SIZE), millis);
+			long recorded = index + 1;
+			if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL == 0) {
+				int size = (int) Math.min(recorded, SIZE);
+				long[] sorted = new long[size];
+				for (int i = 0; i < size; i++) {
+					sorted[i] = samples.get(i);
+				}
+				Arrays.sort(sorted);
+				p95 = Math.max(sorted[(int) Math.ceil(size * 0.95) - 1], 1);
+			}
+		}
+
+		long p95() {
+			return p95;
+		}
+
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link PowerOfTwoChoicesLoadBalancer} whose load of an instance is the number of its
+ * outstanding Feign requests recorded in {@link FeignLoadBalancerStats}. Instances that
+ * answer faster, for example because they are bigger, complete their requests sooner and
+ * therefore get more traffic than with round robin.
+ *
+ * @since 3.0.1
+ */
+public class LeastOutstandingRequestsLoadBalancer extends PowerOfTwoChoicesLoadBalancer {
+
+	public LeastOutstandingRequestsLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider, String serviceId,
+			FeignLoadBalancerStats stats) {
+		super(serviceInstanceListSupplierProvider, serviceId, stats);
+	}
+
+	@Override
+	protected double load(ServiceInstance instance) {
+		return getStats().getStats(instance).getOutstandingRequests();
+	}
+
+}
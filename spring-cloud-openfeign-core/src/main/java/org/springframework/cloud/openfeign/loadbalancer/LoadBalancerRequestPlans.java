@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+
+/**
+ * Caches, per serviceId, the supported {@link LoadBalancerLifecycle} processors and the
+ * hint, which would otherwise be looked up in the serviceId's child context on every
+ * load-balanced request. A cached plan is dropped when the hints in
+ * {@link LoadBalancerProperties} are rebound or when {@link #clear()} is called.
+ *
+ * @since 3.0.1
+ */
+@SuppressWarnings("rawtypes")
+final class LoadBalancerRequestPlans {
+
+	private final LoadBalancerProperties properties;
+
+	private final LoadBalancerClientFactory loadBalancerClientFactory;
+
+	private final Class<?> requestContextClass;
+
+	private final ConcurrentMap<String, Plan> plans = new ConcurrentHashMap<>();
+
+	LoadBalancerRequestPlans(LoadBalancerProperties properties, LoadBalancerClientFactory loadBalancerClientFactory,
+			Class<?> requestContextClass) {
+		this.properties = properties;
+		this.loadBalancerClientFactory = loadBalancerClientFactory;
+		this.requestContextClass = requestContextClass;
+	}
+
+	Plan get(String serviceId) {
+		Map<String, String> hints = properties.getHint();
+		Plan plan = plans.get(serviceId);
+		if (plan == null || plan.hints != hints) {
+			plan = createPlan(serviceId, hints);
+			plans.put(serviceId, plan);
+		}
+		return plan;
+	}
+
+	void clear() {
+		plans.clear();
+	}
+
+	private Plan createPlan(String serviceId, Map<String, String> hints) {
+		Set<LoadBalancerLifecycle> lifecycleProcessors = LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+				loadBalancerClientFactory.getInstances(serviceId, LoadBalancerLifecycle.class), requestContextClass,
+				ResponseData.class, ServiceInstance.class);
+		String defaultHint = hints.getOrDefault("default", "default");
+		String hintPropertyValue = hints.get(serviceId);
+		return new Plan(hints, lifecycleProcessors, hintPropertyValue != null ? hintPropertyValue : defaultHint);
+	}
+
+	static final class Plan {
+
+		private final Map<String, String> hints;
+
+		private final Set<LoadBalancerLifecycle> lifecycleProcessors;
+
+		private final String hint;
+
+		private Plan(Map<String, String> hints, Set<LoadBalancerLifecycle> lifecycleProcessors, String hint) {
+			this.hints = hints;
+			this.lifecycleProcessors = lifecycleProcessors;
+			this.hint = hint;
+		}
+
+		Set<LoadBalancerLifecycle> getLifecycleProcessors() {
+			return lifecycleProcessors;
+		}
+
+		String getHint() {
+			return hint;
+		}
+
+	}
+
+}
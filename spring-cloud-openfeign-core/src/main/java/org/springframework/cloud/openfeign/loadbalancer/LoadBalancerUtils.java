@@ -17,9 +17,14 @@
 package org.springframework.cloud.openfeign.loadbalancer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import feign.Client;
@@ -63,25 +68,82 @@ final class LoadBalancerUtils {
 		}
 		catch (Exception exception) {
 			if (loadBalanced) {
-				supportedLifecycleProcessors.forEach(lifecycle -> lifecycle.onComplete(
-						new CompletionContext<>(CompletionContext.Status.FAILED, exception, lbRequest, lbResponse)));
+				CompletionContext.Status status = isCancelled(exception) ? CompletionContext.Status.DISCARD
+						: CompletionContext.Status.FAILED;
+				supportedLifecycleProcessors.forEach(lifecycle -> lifecycle
+						.onComplete(new CompletionContext<>(status, exception, lbRequest, lbResponse)));
 			}
 			throw exception;
 		}
 	}
 
+	/**
+	 * @param exception the exception a request failed with
+	 * @return whether the request was cancelled, by interrupting the thread that executed
+	 * it, rather than failed
+	 */
+	static boolean isCancelled(Exception exception) {
+		if (Thread.currentThread().isInterrupted()) {
+			return true;
+		}
+		for (Throwable current = exception; current != null; current = current.getCause()) {
+			// socket timeouts are subclasses and the OkHttp call timeout says "timeout"
+			if (current instanceof InterruptedException || current instanceof ClosedByInterruptException
+					|| current.getClass() == InterruptedIOException.class && !"timeout".equals(current.getMessage())) {
+				return true;
+			}
+			if (current.getCause() == current) {
+				break;
+			}
+		}
+		return false;
+	}
+
 	static ResponseData buildResponseData(Response response) {
-		HttpHeaders responseHeaders = new HttpHeaders();
-		response.headers().forEach((key, value) -> responseHeaders.put(key, new ArrayList<>(value)));
-		return new ResponseData(HttpStatus.resolve(response.status()), responseHeaders, null,
-				buildRequestData(response.request()));
+		return new LazyResponseData(response);
+	}
+
+	/**
+	 * @param clientResponse the client response of a {@link CompletionContext}
+	 * @param name the name of a header
+	 * @return the first value of the header in the response, or <code>null</code> if
+	 * there is none
+	 */
+	static String getFirstHeader(Object clientResponse, String name) {
+		if (clientResponse instanceof LazyResponseData) {
+			// reads the case-insensitive Feign headers without copying them
+			Collection<String> values = ((LazyResponseData) clientResponse).response.headers().get(name);
+			return values != null && !values.isEmpty() ? values.iterator().next() : null;
+		}
+		if (clientResponse instanceof ResponseData) {
+			HttpHeaders headers = ((ResponseData) clientResponse).getHeaders();
+			return headers != null ? headers.getFirst(name) : null;
+		}
+		return null;
 	}
 
 	static RequestData buildRequestData(Request request) {
-		HttpHeaders requestHeaders = new HttpHeaders();
-		request.headers().forEach((key, value) -> requestHeaders.put(key, new ArrayList<>(value)));
-		return new RequestData(HttpMethod.resolve(request.httpMethod().name()), URI.create(request.url()),
-				requestHeaders, null, new HashMap<>());
+		return new LazyRequestData(request, null);
+	}
+
+	/**
+	 * @param request the Feign request
+	 * @param url the already parsed url of the request
+	 * @param affinityKey the affinity key of the request, may be {@code null}
+	 * @return the request data
+	 */
+	static RequestData buildRequestData(Request request, URI url, String affinityKey) {
+		RequestData requestData = new LazyRequestData(request, url);
+		if (affinityKey != null) {
+			requestData.getAttributes().put(ConsistentHashLoadBalancer.AFFINITY_KEY_ATTRIBUTE, affinityKey);
+		}
+		return requestData;
+	}
+
+	private static HttpHeaders buildHeaders(Map<String, Collection<String>> headers) {
+		HttpHeaders httpHeaders = new HttpHeaders();
+		headers.forEach((key, value) -> httpHeaders.put(key, new ArrayList<>(value)));
+		return httpHeaders;
 	}
 
 	static Response executeWithLoadBalancerLifecycleProcessing(Client feignClient, Request.Options options,
@@ -92,4 +154,142 @@ final class LoadBalancerUtils {
 				supportedLifecycleProcessors, true);
 	}
 
+	/**
+	 * {@link RequestData} that copies the headers and parses the url of the Feign request
+	 * only when a {@link LoadBalancerLifecycle} or load balancer actually reads them.
+	 */
+	private static final class LazyRequestData extends RequestData {
+
+		private final Request request;
+
+		private volatile URI url;
+
+		private volatile HttpHeaders headers;
+
+		private Map<String, Object> attributes;
+
+		private LazyRequestData(Request request, URI url) {
+			super(HttpMethod.resolve(request.httpMethod().name()), url, null, null, null);
+			this.request = request;
+			this.url = url;
+		}
+
+		@Override
+		public URI getUrl() {
+			URI url = this.url;
+			if (url == null) {
+				url = URI.create(request.url());
+				this.url = url;
+			}
+			return url;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			HttpHeaders headers = this.headers;
+			if (headers == null) {
+				headers = buildHeaders(request.headers());
+				this.headers = headers;
+			}
+			return headers;
+		}
+
+		@Override
+		public synchronized Map<String, Object> getAttributes() {
+			if (attributes == null) {
+				attributes = new HashMap<>();
+			}
+			return attributes;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LazyRequestData)) {
+				return false;
+			}
+			LazyRequestData that = (LazyRequestData) o;
+			return getHttpMethod() == that.getHttpMethod() && Objects.equals(getUrl(), that.getUrl())
+					&& Objects.equals(getHeaders(), that.getHeaders())
+					&& Objects.equals(getAttributes(), that.getAttributes());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(getHttpMethod(), getUrl(), getHeaders(), getAttributes());
+		}
+
+		@Override
+		public String toString() {
+			return "RequestData{httpMethod=" + getHttpMethod() + ", url=" + getUrl() + ", headers=" + getHeaders()
+					+ ", attributes=" + getAttributes() + '}';
+		}
+
+	}
+
+	/**
+	 * {@link ResponseData} that copies the headers of the Feign response and builds the
+	 * {@link RequestData} of its request only when they are read.
+	 */
+	private static final class LazyResponseData extends ResponseData {
+
+		private final Response response;
+
+		private volatile HttpHeaders headers;
+
+		private volatile RequestData requestData;
+
+		private LazyResponseData(Response response) {
+			super(HttpStatus.resolve(response.status()), null, null, null);
+			this.response = response;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			HttpHeaders headers = this.headers;
+			if (headers == null) {
+				headers = buildHeaders(response.headers());
+				this.headers = headers;
+			}
+			return headers;
+		}
+
+		@Override
+		public RequestData getRequestData() {
+			RequestData requestData = this.requestData;
+			if (requestData == null) {
+				requestData = buildRequestData(response.request());
+				this.requestData = requestData;
+			}
+			return requestData;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LazyResponseData)) {
+				return false;
+			}
+			LazyResponseData that = (LazyResponseData) o;
+			return getHttpStatus() == that.getHttpStatus() && Objects.equals(getHeaders(), that.getHeaders())
+					&& Objects.equals(getRequestData(), that.getRequestData());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(getHttpStatus(), getHeaders(), getRequestData());
+		}
+
+		@Override
+		public String toString() {
+			return "ResponseData{httpStatus=" + getHttpStatus() + ", headers=" + getHeaders() + ", requestData="
+					+ getRequestData() + '}';
+		}
+
+	}
+
 }
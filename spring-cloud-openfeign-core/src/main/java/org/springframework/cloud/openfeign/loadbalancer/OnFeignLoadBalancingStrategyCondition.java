@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * A condition that matches when <code>feign.loadbalancer.strategy</code> is set to a
+ * strategy other than {@link FeignLoadBalancerProperties.Strategy#DEFAULT}.
+ *
+ * @since 3.0.1
+ */
+public class OnFeignLoadBalancingStrategyCondition extends SpringBootCondition {
+
+	@Override
+	public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+		FeignLoadBalancerProperties.Strategy strategy = Binder.get(context.getEnvironment())
+				.bind("feign.loadbalancer.strategy", FeignLoadBalancerProperties.Strategy.class)
+				.orElse(FeignLoadBalancerProperties.Strategy.DEFAULT);
+		if (strategy == FeignLoadBalancerProperties.Strategy.DEFAULT) {
+			return ConditionOutcome.noMatch("default Feign load balancing strategy");
+		}
+		return ConditionOutcome.match("Feign load balancing strategy " + strategy);
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ServiceInstanceListSupplier} that leaves the instances ejected by the
+ * {@link FeignOutlierDetector} out of the instances it supplies, so that ejection works
+ * with any load balancing strategy. The supplied instances are also reported to the
+ * detector, so that instances that left are no longer tracked and the maximum ejection
+ * percentage applies to the current instances. If every instance is ejected, all of them
+ * are supplied.
+ *
+ * @since 3.0.1
+ */
+public class OutlierDetectionServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+	private final FeignOutlierDetector outlierDetector;
+
+	private volatile Filtered last;
+
+	/**
+	 * @param delegate the supplier of the instances
+	 * @param outlierDetector the outlier detector to report the instances to
+	 */
+	public OutlierDetectionServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+			FeignOutlierDetector outlierDetector) {
+		super(delegate);
+		this.outlierDetector = outlierDetector;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return delegate.get().map(this::filter);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Flux<List<ServiceInstance>> get(Request request) {
+		return delegate.get(request).map(this::filter);
+	}
+
+	private List<ServiceInstance> filter(List<ServiceInstance> instances) {
+		String serviceId = getServiceId();
+		Filtered filtered = last;
+		long now = System.nanoTime();
+		// the same list instance is handed out until the instances or the ejections
+		// change, so that the caches of the load balancers downstream keep working
+		if (filtered != null && filtered.instances == instances
+				&& filtered.version == outlierDetector.getEjectionVersion(serviceId)
+				&& (filtered.available == instances || filtered.validUntilNanos - now > 0)) {
+			return filtered.available;
+		}
+		outlierDetector.updateInstances(serviceId, instances);
+		long version = outlierDetector.getEjectionVersion(serviceId);
+		List<ServiceInstance> available = null;
+		for (int i = 0; i < instances.size(); i++) {
+			ServiceInstance instance = instances.get(i);
+			if (outlierDetector.isEjected(instance)) {
+				if (available == null) {
+					available = new ArrayList<>(instances.subList(0, i));
+				}
+			}
+			else if (available != null) {
+				available.add(instance);
+			}
+		}
+		if (available == null || available.isEmpty()) {
+			available = instances;
+		}
+		if (version == outlierDetector.getEjectionVersion(serviceId)) {
+			last = new Filtered(instances, version, available,
+					available == instances ? now : outlierDetector.getNextReleaseNanos(serviceId, now));
+		}
+		return available;
+	}
+
+	private static final class Filtered {
+
+		private final List<ServiceInstance> instances;
+
+		private final long version;
+
+		private final List<ServiceInstance> available;
+
+		// when the first ejection ends, if any instance is left out
+		private final long validUntilNanos;
+
+		private Filtered(List<ServiceInstance> instances, long version, List<ServiceInstance> available,
+				long validUntilNanos) {
+			this.instances = instances;
+			this.version = version;
+			this.available = available;
+			this.validUntilNanos = validUntilNanos;
+		}
+
+	}
+
+}
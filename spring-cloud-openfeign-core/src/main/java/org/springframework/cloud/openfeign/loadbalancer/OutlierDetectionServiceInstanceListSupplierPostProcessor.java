@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.core.Ordered;
+
+/**
+ * Wraps the {@link ServiceInstanceListSupplier} of a Spring Cloud LoadBalancer child
+ * context in an {@link OutlierDetectionServiceInstanceListSupplier}, whatever
+ * configuration provides it. Runs after the
+ * {@link SubsetServiceInstanceListSupplierPostProcessor}, so that the instances of the
+ * subset are reported, and before the
+ * {@link SlowStartServiceInstanceListSupplierPostProcessor}, so that warming instances
+ * are not dropped.
+ *
+ * @since 3.0.1
+ */
+class OutlierDetectionServiceInstanceListSupplierPostProcessor implements BeanPostProcessor, Ordered {
+
+	private final ObjectProvider<FeignOutlierDetector> outlierDetector;
+
+	OutlierDetectionServiceInstanceListSupplierPostProcessor(ObjectProvider<FeignOutlierDetector> outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (!(bean instanceof ServiceInstanceListSupplier)
+				|| bean instanceof OutlierDetectionServiceInstanceListSupplier) {
+			return bean;
+		}
+		FeignOutlierDetector detector = outlierDetector.getIfAvailable();
+		return detector != null
+				? new OutlierDetectionServiceInstanceListSupplier((ServiceInstanceListSupplier) bean, detector) : bean;
+	}
+
+	@Override
+	public int getOrder() {
+		return SubsetServiceInstanceListSupplierPostProcessor.ORDER + 1;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link PowerOfTwoChoicesLoadBalancer} whose load of an instance is the peak EWMA of
+ * its latency multiplied by its outstanding requests plus one. Slow or overloaded
+ * instances therefore get less traffic. The statistics are those of the Feign requests
+ * recorded in {@link FeignLoadBalancerStats}.
+ *
+ * @since 3.0.1
+ */
+public class PeakEwmaLoadBalancer extends PowerOfTwoChoicesLoadBalancer {
+
+	// load of an instance with requests in flight but no observed latency yet, far above
+	// any real latency in nanoseconds but small enough for the outstanding requests added
+	// to it to still tell two such instances apart
+	private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+	public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, FeignLoadBalancerStats stats) {
+		super(serviceInstanceListSupplierProvider, serviceId, stats);
+	}
+
+	@Override
+	protected double load(ServiceInstance instance) {
+		FeignLoadBalancerStats.InstanceStats instanceStats = getStats().getStats(instance);
+		double latency = instanceStats.getPeakEwmaLatency();
+		int outstandingRequests = instanceStats.getOutstandingRequests();
+		if (latency == 0 && outstandingRequests > 0) {
+			return PENALTY + outstandingRequests;
+		}
+		return latency * (outstandingRequests + 1);
+	}
+
+}
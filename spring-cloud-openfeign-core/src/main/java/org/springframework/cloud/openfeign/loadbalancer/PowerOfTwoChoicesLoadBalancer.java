@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ReactorServiceInstanceLoadBalancer} that picks two distinct random instances
+ * and returns the one with the lower {@link #load(ServiceInstance) load}. Comparing two
+ * random choices avoids both the herding of always picking the least loaded instance and
+ * the cost of scanning all of them. No locks are taken when choosing an instance.
+ *
+ * @since 3.0.1
+ */
+public abstract class PowerOfTwoChoicesLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+	private static final Log LOG = LogFactory.getLog(PowerOfTwoChoicesLoadBalancer.class);
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+	private final String serviceId;
+
+	private final FeignLoadBalancerStats stats;
+
+	protected PowerOfTwoChoicesLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider, String serviceId,
+			FeignLoadBalancerStats stats) {
+		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+		this.serviceId = serviceId;
+		this.stats = stats;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return supplier.get(request).next().map(instances -> processInstanceResponse(supplier, instances, request));
+	}
+
+	/**
+	 * @param instance a service instance
+	 * @return the load of the instance, instances with a lower load being preferred
+	 */
+	protected abstract double load(ServiceInstance instance);
+
+	/**
+	 * Picks the instance of a request out of two distinct random instances.
+	 * @param instances the instances of the service, at least two of them
+	 * @param request the load balancer request
+	 * @return the chosen instance
+	 */
+	@SuppressWarnings("rawtypes")
+	protected ServiceInstance select(List<ServiceInstance> instances, Request request) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(instances.size());
+		int second = random.nextInt(instances.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		ServiceInstance a = instances.get(first);
+		ServiceInstance b = instances.get(second);
+		return load(a) <= load(b) ? a : b;
+	}
+
+	protected FeignLoadBalancerStats getStats() {
+		return stats;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private Response<ServiceInstance> processInstanceResponse(ServiceInstanceListSupplier supplier,
+			List<ServiceInstance> instances, Request request) {
+		Response<ServiceInstance> response = getInstanceResponse(instances, request);
+		if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+			((SelectedInstanceCallback) supplier).selectedServiceInstance(response.getServer());
+		}
+		return response;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private Response<ServiceInstance> getInstanceResponse(List<ServiceInstance> instances, Request request) {
+		if (instances.isEmpty()) {
+			if (LOG.isWarnEnabled()) {
+				LOG.warn("No servers available for service: " + serviceId);
+			}
+			return new EmptyResponse();
+		}
+		if (instances.size() == 1) {
+			return new DefaultResponse(instances.get(0));
+		}
+		return new DefaultResponse(select(instances, request));
+	}
+
+}
@@ -24,6 +24,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import feign.Client;
 import feign.Request;
@@ -31,6 +34,7 @@ import feign.Response;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.CompletionContext;
 import org.springframework.cloud.client.loadbalancer.DefaultRequest;
@@ -42,16 +46,22 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryFactory;
 import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryPolicy;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
-import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
 import org.springframework.cloud.client.loadbalancer.ResponseData;
 import org.springframework.cloud.client.loadbalancer.RetryableRequestContext;
 import org.springframework.cloud.client.loadbalancer.RetryableStatusCodeException;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.DeadlineExceededException;
+import org.springframework.cloud.openfeign.FeignDeadline;
+import org.springframework.cloud.openfeign.Hedged;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpRequest;
+import org.springframework.retry.RetryContext;
 import org.springframework.retry.RetryListener;
+import org.springframework.retry.RetryPolicy;
 import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.retry.backoff.NoBackOffPolicy;
 import org.springframework.retry.policy.NeverRetryPolicy;
@@ -62,13 +72,21 @@ import static org.springframework.cloud.openfeign.loadbalancer.LoadBalancerUtils
 
 /**
  * A {@link Client} implementation that provides Spring Retry support for requests
- * load-balanced with Spring Cloud LoadBalancer.
+ * load-balanced with Spring Cloud LoadBalancer. The lifecycle processors, hint and retry
+ * settings of every serviceId are cached and dropped whenever an application context is
+ * refreshed. Unless {@link RetryListener}s are configured, the first attempt of a request
+ * runs without a {@link RetryTemplate}, whose state is only created if that attempt
+ * fails. If the current thread has a {@link FeignDeadline}, every attempt only gets the
+ * time that remains until it, and no attempt is started once it has passed. The first
+ * attempt of requests of idempotent methods annotated with {@link Hedged} or configured
+ * with a hedging delay is hedged to a second instance before the request is retried.
  *
  * @author Olga Maciaszek-Sharma
  * @since 2.2.6
  */
 @SuppressWarnings({ "rawtypes", "unchecked" })
-public class RetryableFeignBlockingLoadBalancerClient implements Client {
+public class RetryableFeignBlockingLoadBalancerClient
+		implements Client, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
 
 	private static final Log LOG = LogFactory.getLog(FeignBlockingLoadBalancerClient.class);
 
@@ -78,18 +96,59 @@ public class RetryableFeignBlockingLoadBalancerClient implements Client {
 
 	private final LoadBalancedRetryFactory loadBalancedRetryFactory;
 
-	private final LoadBalancerProperties properties;
+	private final LoadBalancerRequestPlans requestPlans;
 
-	private final LoadBalancerClientFactory loadBalancerClientFactory;
+	private final FeignRetryBudgets retryBudgets;
+
+	private final ConcurrentMap<String, RetrySettings> retrySettings;
+
+	private final HedgedRequestExecutor hedgedRequestExecutor;
+
+	private final boolean sharedHedgedRequestExecutor;
+
+	private final AffinityKeys affinityKeys;
 
 	public RetryableFeignBlockingLoadBalancerClient(Client delegate, LoadBalancerClient loadBalancerClient,
 			LoadBalancedRetryFactory loadBalancedRetryFactory, LoadBalancerProperties properties,
 			LoadBalancerClientFactory loadBalancerClientFactory) {
+		this(delegate, loadBalancerClient, loadBalancedRetryFactory, properties, loadBalancerClientFactory, null);
+	}
+
+	/**
+	 * @param delegate the client that executes the requests
+	 * @param loadBalancerClient the client that chooses the instances
+	 * @param loadBalancedRetryFactory the factory of the retry policies
+	 * @param properties the load-balancer properties
+	 * @param loadBalancerClientFactory the factory of the load-balancer contexts
+	 * @param retryBudgets the retry budgets checked before each retry, may be
+	 * {@code null}
+	 */
+	public RetryableFeignBlockingLoadBalancerClient(Client delegate, LoadBalancerClient loadBalancerClient,
+			LoadBalancedRetryFactory loadBalancedRetryFactory, LoadBalancerProperties properties,
+			LoadBalancerClientFactory loadBalancerClientFactory, FeignRetryBudgets retryBudgets) {
 		this.delegate = delegate;
 		this.loadBalancerClient = loadBalancerClient;
 		this.loadBalancedRetryFactory = loadBalancedRetryFactory;
-		this.properties = properties;
-		this.loadBalancerClientFactory = loadBalancerClientFactory;
+		this.requestPlans = new LoadBalancerRequestPlans(properties, loadBalancerClientFactory,
+				RetryableRequestContext.class);
+		this.retryBudgets = retryBudgets;
+		this.retrySettings = new ConcurrentHashMap<>();
+		this.hedgedRequestExecutor = new HedgedRequestExecutor();
+		this.sharedHedgedRequestExecutor = false;
+		this.affinityKeys = null;
+	}
+
+	private RetryableFeignBlockingLoadBalancerClient(Client delegate, RetryableFeignBlockingLoadBalancerClient client,
+			AffinityKeys affinityKeys) {
+		this.delegate = delegate;
+		this.loadBalancerClient = client.loadBalancerClient;
+		this.loadBalancedRetryFactory = client.loadBalancedRetryFactory;
+		this.requestPlans = client.requestPlans;
+		this.retryBudgets = client.retryBudgets;
+		this.retrySettings = client.retrySettings;
+		this.hedgedRequestExecutor = client.hedgedRequestExecutor;
+		this.sharedHedgedRequestExecutor = true;
+		this.affinityKeys = affinityKeys;
 	}
 
 	@Override
@@ -97,74 +156,124 @@ public class RetryableFeignBlockingLoadBalancerClient implements Client {
 		final URI originalUri = URI.create(request.url());
 		String serviceId = originalUri.getHost();
 		Assert.state(serviceId != null, "Request URI does not contain a valid hostname: " + originalUri);
-		final LoadBalancedRetryPolicy retryPolicy = loadBalancedRetryFactory.createRetryPolicy(serviceId,
-				loadBalancerClient);
-		RetryTemplate retryTemplate = buildRetryTemplate(serviceId, request, retryPolicy);
-		return retryTemplate.execute(context -> {
-			Request feignRequest = null;
-			ServiceInstance retrievedServiceInstance = null;
-			Set<LoadBalancerLifecycle> supportedLifecycleProcessors = LoadBalancerLifecycleValidator
-					.getSupportedLifecycleProcessors(
-							loadBalancerClientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
-							RetryableRequestContext.class, ResponseData.class, ServiceInstance.class);
-			String hint = getHint(serviceId);
-			DefaultRequest<RetryableRequestContext> lbRequest = new DefaultRequest<>(
-					new RetryableRequestContext(null, buildRequestData(request), hint));
-			// On retries the policy will choose the server and set it in the context
-			// and extract the server and update the request being made
-			if (context instanceof LoadBalancedRetryContext) {
-				LoadBalancedRetryContext lbContext = (LoadBalancedRetryContext) context;
-				ServiceInstance serviceInstance = lbContext.getServiceInstance();
-				if (serviceInstance == null) {
-					if (LOG.isDebugEnabled()) {
-						LOG.debug("Service instance retrieved from LoadBalancedRetryContext: was null. "
-								+ "Reattempting service instance selection");
-					}
-					ServiceInstance previousServiceInstance = lbContext.getPreviousServiceInstance();
-					lbRequest.getContext().setPreviousServiceInstance(previousServiceInstance);
-					supportedLifecycleProcessors.forEach(lifecycle -> lifecycle.onStart(lbRequest));
-					retrievedServiceInstance = loadBalancerClient.choose(serviceId, lbRequest);
-					if (LOG.isDebugEnabled()) {
-						LOG.debug(String.format("Selected service instance: %s", retrievedServiceInstance));
-					}
-					lbContext.setServiceInstance(retrievedServiceInstance);
-				}
+		RetrySettings retrySettings = getRetrySettings(serviceId);
+		LoadBalancerRequestPlans.Plan plan = requestPlans.get(serviceId);
+		FeignRetryBudgets.RetryBudget retryBudget = retryBudgets != null ? retryBudgets.getBudget(serviceId) : null;
+		FeignDeadline deadline = FeignDeadline.getCurrent();
+		if (deadline != null && deadline.isExpired()) {
+			throw new DeadlineExceededException(request);
+		}
+		if (retrySettings.retryListeners != null && retrySettings.retryListeners.length != 0) {
+			// retry listeners see every request, so the first attempt runs in the retry
+			// template
+			return retry(request, options, originalUri, serviceId, plan, retrySettings, retryBudget, deadline, null,
+					null);
+		}
+		// the first attempt runs without any retry state, which is only created if it
+		// fails
+		AtomicReference<ServiceInstance> firstServiceInstance = new AtomicReference<>();
+		try {
+			return executeFirstAttempt(request, options, originalUri, serviceId, plan, retrySettings, retryBudget,
+					deadline, firstServiceInstance);
+		}
+		catch (IOException | RuntimeException ex) {
+			if (retrySettings.statusCodePolicy == null) {
+				throw ex;
+			}
+			return retry(request, options, originalUri, serviceId, plan, retrySettings, retryBudget, deadline,
+					firstServiceInstance.get(), ex);
+		}
+	}
+
+	private Response executeFirstAttempt(Request request, Request.Options options, URI originalUri, String serviceId,
+			LoadBalancerRequestPlans.Plan plan, RetrySettings retrySettings, FeignRetryBudgets.RetryBudget retryBudget,
+			FeignDeadline deadline, AtomicReference<ServiceInstance> firstServiceInstance) throws IOException {
+		// resolved on the calling thread, before the request is hedged
+		String affinityKey = affinityKey(request);
+		long hedgingDelay = hedgedRequestExecutor.hedgingDelay(request, options);
+		if (hedgingDelay < 0) {
+			return executeFirstAttempt(request, options, originalUri, affinityKey, serviceId, plan, retrySettings,
+					retryBudget, deadline, null, null, firstServiceInstance);
+		}
+		return hedgedRequestExecutor.execute(request, hedgingDelay,
+				(previousInstance, chosenInstance) -> executeFirstAttempt(request, options, originalUri, affinityKey,
+						serviceId, plan, retrySettings, retryBudget, deadline, previousInstance, chosenInstance,
+						previousInstance == null ? firstServiceInstance : null));
+	}
+
+	private Response executeFirstAttempt(Request request, Request.Options options, URI originalUri, String affinityKey,
+			String serviceId, LoadBalancerRequestPlans.Plan plan, RetrySettings retrySettings,
+			FeignRetryBudgets.RetryBudget retryBudget, FeignDeadline deadline, ServiceInstance previousInstance,
+			AtomicReference<ServiceInstance> chosenInstance, AtomicReference<ServiceInstance> firstServiceInstance)
+			throws IOException {
+		DefaultRequest<RetryableRequestContext> lbRequest = buildLoadBalancerRequest(request, originalUri, affinityKey,
+				plan, previousInstance);
+		ServiceInstance serviceInstance = choose(serviceId, plan, lbRequest);
+		if (HedgedRequestExecutor.isSameInstance(serviceInstance, previousInstance)) {
+			// a hedged request should not go to the instance it is hedging
+			serviceInstance = loadBalancerClient.choose(serviceId, lbRequest);
+		}
+		if (chosenInstance != null) {
+			chosenInstance.set(serviceInstance);
+		}
+		if (firstServiceInstance != null) {
+			firstServiceInstance.set(serviceInstance);
+		}
+		return executeAttempt(request, options, originalUri, serviceId, plan, lbRequest, serviceInstance, retrySettings,
+				retryBudget, deadline);
+	}
 
-				if (retrievedServiceInstance == null) {
-					if (LOG.isWarnEnabled()) {
-						LOG.warn("Service instance was not resolved, executing the original request");
+	private Response retry(Request request, Request.Options options, URI originalUri, String serviceId,
+			LoadBalancerRequestPlans.Plan plan, RetrySettings retrySettings, FeignRetryBudgets.RetryBudget retryBudget,
+			FeignDeadline deadline, ServiceInstance firstServiceInstance, Exception firstFailure) throws IOException {
+		if (firstFailure != null && deadline != null && deadline.isExpired()) {
+			// same outcome as when the retries are exhausted
+			if (firstFailure instanceof RetryableStatusCodeException) {
+				return (Response) ((RetryableStatusCodeException) firstFailure).getResponse();
+			}
+			return rethrow(firstFailure);
+		}
+		LoadBalancedRetryPolicy retryPolicy = loadBalancedRetryFactory.createRetryPolicy(serviceId, loadBalancerClient);
+		if (firstFailure != null && retryPolicy == null) {
+			return rethrow(firstFailure);
+		}
+		RetryTemplate retryTemplate = buildRetryTemplate(serviceId, request, originalUri, retryPolicy, retrySettings,
+				retryBudget, deadline);
+		return retryTemplate.execute(context -> {
+			LoadBalancedRetryContext lbContext = (LoadBalancedRetryContext) context;
+			if (context.getRetryCount() == 0) {
+				if (firstFailure == null) {
+					AtomicReference<ServiceInstance> chosenInstance = new AtomicReference<>();
+					try {
+						return executeFirstAttempt(request, options, originalUri, serviceId, plan, retrySettings,
+								retryBudget, deadline, chosenInstance);
 					}
-					org.springframework.cloud.client.loadbalancer.Response<ServiceInstance> lbResponse = new DefaultResponse(
-							retrievedServiceInstance);
-					supportedLifecycleProcessors.forEach(lifecycle -> lifecycle
-							.onComplete(new CompletionContext<ResponseData, ServiceInstance, RetryableRequestContext>(
-									CompletionContext.Status.DISCARD, lbRequest, lbResponse)));
-					feignRequest = request;
-				}
-				else {
-					if (LOG.isDebugEnabled()) {
-						LOG.debug(String.format("Using service instance from LoadBalancedRetryContext: %s",
-								retrievedServiceInstance));
+					finally {
+						lbContext.setServiceInstance(chosenInstance.get());
 					}
-					String reconstructedUrl = loadBalancerClient.reconstructURI(retrievedServiceInstance, originalUri)
-							.toString();
-					feignRequest = buildRequest(request, reconstructedUrl);
 				}
+				// hand the outcome of the first attempt over to the retry policy
+				lbContext.setServiceInstance(firstServiceInstance);
+				return rethrow(firstFailure);
 			}
-			org.springframework.cloud.client.loadbalancer.Response<ServiceInstance> lbResponse = new DefaultResponse(
-					retrievedServiceInstance);
-			Response response = LoadBalancerUtils.executeWithLoadBalancerLifecycleProcessing(delegate, options,
-					feignRequest, lbRequest, lbResponse, supportedLifecycleProcessors,
-					retrievedServiceInstance != null);
-			int responseStatus = response.status();
-			if (retryPolicy != null && retryPolicy.retryableStatusCode(responseStatus)) {
+			DefaultRequest<RetryableRequestContext> lbRequest = buildLoadBalancerRequest(request, originalUri,
+					affinityKey(request), plan, lbContext.getPreviousServiceInstance());
+			// On retries the policy will choose the server and set it in the context
+			// and extract the server and update the request being made
+			ServiceInstance serviceInstance = lbContext.getServiceInstance();
+			if (serviceInstance == null) {
 				if (LOG.isDebugEnabled()) {
-					LOG.debug(String.format("Retrying on status code: %d", responseStatus));
+					LOG.debug("Service instance retrieved from LoadBalancedRetryContext: was null. "
+							+ "Reattempting service instance selection");
 				}
-				response.close();
-				throw new RetryableStatusCodeException(serviceId, responseStatus, response, URI.create(request.url()));
+				serviceInstance = choose(serviceId, plan, lbRequest);
+				lbContext.setServiceInstance(serviceInstance);
+			}
+			else if (LOG.isDebugEnabled()) {
+				LOG.debug(String.format("Using service instance from LoadBalancedRetryContext: %s", serviceInstance));
 			}
-			return response;
+			return executeAttempt(request, options, originalUri, serviceId, plan, lbRequest, serviceInstance,
+					retrySettings, retryBudget, deadline);
 		}, new LoadBalancedRecoveryCallback<Response, Response>() {
 			@Override
 			protected Response createResponse(Response response, URI uri) {
@@ -173,31 +282,145 @@ public class RetryableFeignBlockingLoadBalancerClient implements Client {
 		});
 	}
 
+	private static Response rethrow(Exception failure) throws IOException {
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		throw (RuntimeException) failure;
+	}
+
+	private DefaultRequest<RetryableRequestContext> buildLoadBalancerRequest(Request request, URI originalUri,
+			String affinityKey, LoadBalancerRequestPlans.Plan plan, ServiceInstance previousServiceInstance) {
+		return new DefaultRequest<>(new RetryableRequestContext(previousServiceInstance,
+				buildRequestData(request, originalUri, affinityKey), plan.getHint()));
+	}
+
+	private String affinityKey(Request request) {
+		return affinityKeys != null ? affinityKeys.resolve(request) : null;
+	}
+
+	private ServiceInstance choose(String serviceId, LoadBalancerRequestPlans.Plan plan,
+			DefaultRequest<RetryableRequestContext> lbRequest) {
+		plan.getLifecycleProcessors().forEach(lifecycle -> lifecycle.onStart(lbRequest));
+		ServiceInstance serviceInstance = loadBalancerClient.choose(serviceId, lbRequest);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Selected service instance: %s", serviceInstance));
+		}
+		return serviceInstance;
+	}
+
+	private Response executeAttempt(Request request, Request.Options options, URI originalUri, String serviceId,
+			LoadBalancerRequestPlans.Plan plan, DefaultRequest<RetryableRequestContext> lbRequest,
+			ServiceInstance serviceInstance, RetrySettings retrySettings, FeignRetryBudgets.RetryBudget retryBudget,
+			FeignDeadline deadline) throws IOException {
+		Set<LoadBalancerLifecycle> supportedLifecycleProcessors = plan.getLifecycleProcessors();
+		org.springframework.cloud.client.loadbalancer.Response<ServiceInstance> lbResponse = new DefaultResponse(
+				serviceInstance);
+		Request feignRequest;
+		if (serviceInstance == null) {
+			if (LOG.isWarnEnabled()) {
+				LOG.warn("Service instance was not resolved, executing the original request");
+			}
+			supportedLifecycleProcessors.forEach(lifecycle -> lifecycle
+					.onComplete(new CompletionContext<ResponseData, ServiceInstance, RetryableRequestContext>(
+							CompletionContext.Status.DISCARD, lbRequest, lbResponse)));
+			feignRequest = request;
+		}
+		else {
+			String reconstructedUrl = loadBalancerClient.reconstructURI(serviceInstance, originalUri).toString();
+			feignRequest = buildRequest(request, reconstructedUrl);
+		}
+		Request.Options attemptOptions = options;
+		if (deadline != null) {
+			attemptOptions = deadline.limit(options);
+			// refreshes the remaining time sent downstream, if it is propagated
+			if (feignRequest.headers().containsKey(FeignDeadline.HEADER)) {
+				feignRequest = deadline.propagateTo(feignRequest);
+			}
+		}
+		Response response = LoadBalancerUtils.executeWithLoadBalancerLifecycleProcessing(delegate, attemptOptions,
+				feignRequest, lbRequest, lbResponse, supportedLifecycleProcessors, serviceInstance != null);
+		int responseStatus = response.status();
+		if (retrySettings.statusCodePolicy != null
+				&& retrySettings.statusCodePolicy.retryableStatusCode(responseStatus)) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(String.format("Retrying on status code: %d", responseStatus));
+			}
+			response.close();
+			throw new RetryableStatusCodeException(serviceId, responseStatus, response, originalUri);
+		}
+		if (retryBudget != null && responseStatus < 500) {
+			retryBudget.deposit();
+		}
+		return response;
+	}
+
 	protected Request buildRequest(Request request, String reconstructedUrl) {
 		return Request.create(request.httpMethod(), reconstructedUrl, request.headers(), request.body(),
 				request.charset(), request.requestTemplate());
 	}
 
-	private RetryTemplate buildRetryTemplate(String serviceId, Request request, LoadBalancedRetryPolicy retryPolicy) {
+	private RetryTemplate buildRetryTemplate(String serviceId, Request request, URI originalUri,
+			LoadBalancedRetryPolicy retryPolicy, RetrySettings retrySettings, FeignRetryBudgets.RetryBudget retryBudget,
+			FeignDeadline deadline) {
 		RetryTemplate retryTemplate = new RetryTemplate();
-		BackOffPolicy backOffPolicy = this.loadBalancedRetryFactory.createBackOffPolicy(serviceId);
-		retryTemplate.setBackOffPolicy(backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy);
-		RetryListener[] retryListeners = this.loadBalancedRetryFactory.createRetryListeners(serviceId);
-		if (retryListeners != null && retryListeners.length != 0) {
-			retryTemplate.setListeners(retryListeners);
+		retryTemplate.setBackOffPolicy(retrySettings.backOffPolicy);
+		if (retrySettings.retryListeners != null && retrySettings.retryListeners.length != 0) {
+			retryTemplate.setListeners(retrySettings.retryListeners);
+		}
+		if (retryPolicy == null) {
+			retryTemplate.setRetryPolicy(new NeverRetryPolicy());
+		}
+		else {
+			RetryPolicy interceptorRetryPolicy = new InterceptorRetryPolicy(toHttpRequest(request, originalUri),
+					retryPolicy, loadBalancerClient, serviceId);
+			RetryPolicy budgetedRetryPolicy = retryBudget == null ? interceptorRetryPolicy
+					: new RetryBudgetPolicy(interceptorRetryPolicy, retryBudget);
+			retryTemplate.setRetryPolicy(
+					deadline == null ? budgetedRetryPolicy : new DeadlinePolicy(budgetedRetryPolicy, deadline));
 		}
-
-		retryTemplate.setRetryPolicy(retryPolicy == null ? new NeverRetryPolicy()
-				: new InterceptorRetryPolicy(toHttpRequest(request), retryPolicy, loadBalancerClient, serviceId));
 		return retryTemplate;
 	}
 
+	private RetrySettings getRetrySettings(String serviceId) {
+		RetrySettings retrySettings = this.retrySettings.get(serviceId);
+		if (retrySettings == null) {
+			retrySettings = this.retrySettings.computeIfAbsent(serviceId, this::createRetrySettings);
+		}
+		return retrySettings;
+	}
+
+	private RetrySettings createRetrySettings(String serviceId) {
+		BackOffPolicy backOffPolicy = loadBalancedRetryFactory.createBackOffPolicy(serviceId);
+		return new RetrySettings(loadBalancedRetryFactory.createRetryPolicy(serviceId, loadBalancerClient),
+				backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy,
+				loadBalancedRetryFactory.createRetryListeners(serviceId));
+	}
+
 	// Visible for Sleuth instrumentation
 	public Client getDelegate() {
 		return delegate;
 	}
 
-	private HttpRequest toHttpRequest(Request request) {
+	/**
+	 * @param delegate the client that executes the requests
+	 * @return a client that balances and retries the requests like this one, sharing its
+	 * cached settings and its hedging threads, but executes them with the given client
+	 */
+	public RetryableFeignBlockingLoadBalancerClient withDelegate(Client delegate) {
+		return new RetryableFeignBlockingLoadBalancerClient(delegate, this, affinityKeys);
+	}
+
+	/**
+	 * @param affinityKeys the affinity keys of the requests of a Feign client
+	 * @return a client that balances the requests like this one, sharing its cached
+	 * settings and its hedging threads, but resolves their affinity keys
+	 */
+	RetryableFeignBlockingLoadBalancerClient withAffinityKeys(AffinityKeys affinityKeys) {
+		return new RetryableFeignBlockingLoadBalancerClient(delegate, this, affinityKeys);
+	}
+
+	private HttpRequest toHttpRequest(Request request, URI originalUri) {
 		return new HttpRequest() {
 			@Override
 			public HttpMethod getMethod() {
@@ -211,7 +434,7 @@ public class RetryableFeignBlockingLoadBalancerClient implements Client {
 
 			@Override
 			public URI getURI() {
-				return URI.create(request.url());
+				return originalUri;
 			}
 
 			@Override
@@ -228,10 +451,139 @@ public class RetryableFeignBlockingLoadBalancerClient implements Client {
 		};
 	}
 
-	private String getHint(String serviceId) {
-		String defaultHint = properties.getHint().getOrDefault("default", "default");
-		String hintPropertyValue = properties.getHint().get(serviceId);
-		return hintPropertyValue != null ? hintPropertyValue : defaultHint;
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		requestPlans.clear();
+		retrySettings.clear();
+	}
+
+	@Override
+	public void destroy() {
+		if (!sharedHedgedRequestExecutor) {
+			hedgedRequestExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * The retry configuration of a serviceId that can be shared by all its requests.
+	 * {@link LoadBalancedRetryPolicy} instances count the attempts of a single request,
+	 * so the one kept here is only asked which status codes are retryable.
+	 */
+	private static final class RetrySettings {
+
+		private final LoadBalancedRetryPolicy statusCodePolicy;
+
+		private final BackOffPolicy backOffPolicy;
+
+		private final RetryListener[] retryListeners;
+
+		private RetrySettings(LoadBalancedRetryPolicy statusCodePolicy, BackOffPolicy backOffPolicy,
+				RetryListener[] retryListeners) {
+			this.statusCodePolicy = statusCodePolicy;
+			this.backOffPolicy = backOffPolicy;
+			this.retryListeners = retryListeners;
+		}
+
+	}
+
+	/**
+	 * A {@link RetryPolicy} that only allows a retry if the retry budget of the service
+	 * can pay for it. {@link RetryTemplate} asks several times whether the same retry is
+	 * allowed, so the attempt paid for is kept in the context and a refused retry
+	 * exhausts it.
+	 */
+	private static final class RetryBudgetPolicy implements RetryPolicy {
+
+		private static final String PAID_ATTEMPT = RetryBudgetPolicy.class.getName() + ".paidAttempt";
+
+		private final RetryPolicy delegate;
+
+		private final FeignRetryBudgets.RetryBudget retryBudget;
+
+		private RetryBudgetPolicy(RetryPolicy delegate, FeignRetryBudgets.RetryBudget retryBudget) {
+			this.delegate = delegate;
+			this.retryBudget = retryBudget;
+		}
+
+		@Override
+		public boolean canRetry(RetryContext context) {
+			if (context.isExhaustedOnly() || !delegate.canRetry(context)) {
+				return false;
+			}
+			int attempt = context.getRetryCount();
+			if (attempt == 0 || Integer.valueOf(attempt).equals(context.getAttribute(PAID_ATTEMPT))) {
+				return true;
+			}
+			if (!retryBudget.tryWithdraw()) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Retry budget exhausted, not retrying");
+				}
+				context.setExhaustedOnly();
+				return false;
+			}
+			context.setAttribute(PAID_ATTEMPT, attempt);
+			return true;
+		}
+
+		@Override
+		public RetryContext open(RetryContext parent) {
+			return delegate.open(parent);
+		}
+
+		@Override
+		public void close(RetryContext context) {
+			delegate.close(context);
+		}
+
+		@Override
+		public void registerThrowable(RetryContext context, Throwable throwable) {
+			delegate.registerThrowable(context, throwable);
+		}
+
+	}
+
+	/**
+	 * A {@link RetryPolicy} that does not allow any retry once the {@link FeignDeadline}
+	 * of the request has passed, including after a back-off. The outcome of the first
+	 * attempt is always handed over.
+	 */
+	private static final class DeadlinePolicy implements RetryPolicy {
+
+		private final RetryPolicy delegate;
+
+		private final FeignDeadline deadline;
+
+		private DeadlinePolicy(RetryPolicy delegate, FeignDeadline deadline) {
+			this.delegate = delegate;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public boolean canRetry(RetryContext context) {
+			if (context.getRetryCount() > 0 && deadline.isExpired()) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Deadline exceeded, not retrying");
+				}
+				return false;
+			}
+			return delegate.canRetry(context);
+		}
+
+		@Override
+		public RetryContext open(RetryContext parent) {
+			return delegate.open(parent);
+		}
+
+		@Override
+		public void close(RetryContext context) {
+			delegate.close(context);
+		}
+
+		@Override
+		public void registerThrowable(RetryContext context, Throwable throwable) {
+			delegate.registerThrowable(context, throwable);
+		}
+
 	}
 
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.openfeign.loadbalancer.FeignLoadBalancerProperties.SlowStart.Ramp;
+
+/**
+ * A {@link ServiceInstanceListSupplier} that gives instances this client has not seen
+ * before a share of the traffic growing from a minimum weight to their full share over a
+ * slow-start window, so that freshly started instances can warm up before they take their
+ * full load. Every request goes to an instance in its window with the probability of its
+ * weight in the sum of the weights of all instances, the warm ones weighing 1, by handing
+ * the load balancer that instance alone; the other requests are balanced over the warm
+ * instances. This works with any load balancer, and warming instances get exactly their
+ * weighted share of the requests. The instances present when the client first gets the
+ * list are considered warm, and an instance that leaves and comes back starts its window
+ * again.
+ * <p>
+ * Requests with an {@link org.springframework.cloud.openfeign.AffinityKey} get all the
+ * instances, so that the {@link ConsistentHashLoadBalancer} keeps the same ring and the
+ * keys of the other instances do not move while an instance warms up; the bounded load of
+ * the ring keeps the keys of a warming instance from overloading it.
+ *
+ * @since 3.0.1
+ */
+public class SlowStartServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+	private final long windowNanos;
+
+	private final double minWeight;
+
+	private final Ramp ramp;
+
+	private volatile Instances last;
+
+	/**
+	 * @param delegate the supplier of all instances
+	 * @param window the time it takes for a new instance to reach its full weight
+	 * @param minWeight the weight a new instance starts with, between 0 and 1
+	 * @param ramp how the weight of a new instance grows over the window
+	 */
+	public SlowStartServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, Duration window, double minWeight,
+			Ramp ramp) {
+		super(delegate);
+		this.windowNanos = window.toNanos();
+		this.minWeight = Math.min(Math.max(minWeight, 0.01), 1);
+		this.ramp = ramp;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return delegate.get().map(this::filter);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Flux<List<ServiceInstance>> get(Request request) {
+		if (ConsistentHashLoadBalancer.affinityKey(request) != null) {
+			return delegate.get(request).map(this::observe);
+		}
+		return delegate.get(request).map(this::filter);
+	}
+
+	private List<ServiceInstance> observe(List<ServiceInstance> instances) {
+		// the window of a new instance starts when it is first seen, whatever the request
+		observe(instances, System.nanoTime());
+		return instances;
+	}
+
+	List<ServiceInstance> filter(List<ServiceInstance> instances) {
+		return filter(instances, System.nanoTime());
+	}
+
+	List<ServiceInstance> filter(List<ServiceInstance> instances, long now) {
+		Instances current = observe(instances, now);
+		if (now - current.warmNanos >= 0) {
+			return instances;
+		}
+		Partition partition = current.partition;
+		if (partition == null || now - partition.validUntilNanos >= 0) {
+			partition = new Partition(current, now);
+			current.partition = partition;
+		}
+		double warmingWeight = 0;
+		for (long firstSeenNanos : partition.warmingFirstSeenNanos) {
+			warmingWeight += weight(now - firstSeenNanos);
+		}
+		double pick = ThreadLocalRandom.current().nextDouble() * (partition.warm.size() + warmingWeight);
+		if (pick < partition.warm.size()) {
+			return partition.warm;
+		}
+		pick -= partition.warm.size();
+		int last = partition.warming.size() - 1;
+		for (int i = 0; i < last; i++) {
+			pick -= weight(now - partition.warmingFirstSeenNanos[i]);
+			if (pick < 0) {
+				return partition.warming.get(i);
+			}
+		}
+		return partition.warming.get(last);
+	}
+
+	/**
+	 * @param elapsedNanos the time since the instance was first seen
+	 * @return the weight of the instance, between the minimum weight and 1
+	 */
+	double weight(long elapsedNanos) {
+		if (elapsedNanos >= windowNanos) {
+			return 1;
+		}
+		double progress = Math.max(elapsedNanos, 0) / (double) windowNanos;
+		if (ramp == Ramp.EXPONENTIAL) {
+			return minWeight * Math.pow(1 / minWeight, progress);
+		}
+		return minWeight + (1 - minWeight) * progress;
+	}
+
+	private Instances observe(List<ServiceInstance> instances, long now) {
+		Instances previous = last;
+		if (previous != null && previous.instances == instances) {
+			return previous;
+		}
+		// only the instances still listed are remembered, so a returning one is new again
+		Map<String, Long> firstSeenNanos = new HashMap<>();
+		long warmNanos = now;
+		for (ServiceInstance instance : instances) {
+			String key = key(instance);
+			Long seen = previous != null ? previous.firstSeenNanos.get(key) : null;
+			if (seen == null) {
+				seen = previous != null ? now : now - windowNanos;
+			}
+			firstSeenNanos.put(key, seen);
+			if (seen + windowNanos - warmNanos > 0) {
+				warmNanos = seen + windowNanos;
+			}
+		}
+		Instances current = new Instances(instances, firstSeenNanos, warmNanos);
+		last = current;
+		return current;
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	private static final class Instances {
+
+		private final List<ServiceInstance> instances;
+
+		private final Map<String, Long> firstSeenNanos;
+
+		// time from which all the instances have their full weight
+		private final long warmNanos;
+
+		private volatile Partition partition;
+
+		private Instances(List<ServiceInstance> instances, Map<String, Long> firstSeenNanos, long warmNanos) {
+			this.instances = instances;
+			this.firstSeenNanos = firstSeenNanos;
+			this.warmNanos = warmNanos;
+		}
+
+	}
+
+	/**
+	 * The instances split into the warm ones and the ones in their window, kept until the
+	 * first of the latter becomes warm, so that requests get the same lists.
+	 */
+	private final class Partition {
+
+		private final List<ServiceInstance> warm;
+
+		// every warming instance alone, as it is handed to the load balancer
+		private final List<List<ServiceInstance>> warming = new ArrayList<>();
+
+		private final long[] warmingFirstSeenNanos;
+
+		private final long validUntilNanos;
+
+		private Partition(Instances instances, long now) {
+			List<ServiceInstance> warm = new ArrayList<>(instances.instances.size());
+			List<Long> warmingFirstSeenNanos = new ArrayList<>();
+			long validUntilNanos = instances.warmNanos;
+			for (ServiceInstance instance : instances.instances) {
+				long firstSeenNanos = instances.firstSeenNanos.get(key(instance));
+				long warmNanos = firstSeenNanos + windowNanos;
+				if (now - warmNanos >= 0) {
+					warm.add(instance);
+				}
+				else {
+					warming.add(Collections.singletonList(instance));
+					warmingFirstSeenNanos.add(firstSeenNanos);
+					if (warmNanos - validUntilNanos < 0) {
+						validUntilNanos = warmNanos;
+					}
+				}
+			}
+			this.warm = warm;
+			this.warmingFirstSeenNanos = new long[warmingFirstSeenNanos.size()];
+			for (int i = 0; i < this.warmingFirstSeenNanos.length; i++) {
+				this.warmingFirstSeenNanos[i] = warmingFirstSeenNanos.get(i);
+			}
+			this.validUntilNanos = validUntilNanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.core.Ordered;
+
+/**
+ * Wraps the {@link ServiceInstanceListSupplier} of a Spring Cloud LoadBalancer child
+ * context in a {@link SlowStartServiceInstanceListSupplier}, whatever configuration
+ * provides it. Runs after the {@link SubsetServiceInstanceListSupplierPostProcessor}, so
+ * that the slow start applies to the instances of the subset, and after the
+ * {@link OutlierDetectionServiceInstanceListSupplierPostProcessor}.
+ *
+ * @since 3.0.1
+ */
+class SlowStartServiceInstanceListSupplierPostProcessor implements BeanPostProcessor, Ordered {
+
+	private final ObjectProvider<FeignLoadBalancerProperties> properties;
+
+	SlowStartServiceInstanceListSupplierPostProcessor(ObjectProvider<FeignLoadBalancerProperties> properties) {
+		this.properties = properties;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (!(bean instanceof ServiceInstanceListSupplier) || bean instanceof SlowStartServiceInstanceListSupplier) {
+			return bean;
+		}
+		FeignLoadBalancerProperties.SlowStart slowStart = properties.getIfAvailable(FeignLoadBalancerProperties::new)
+				.getSlowStart();
+		return new SlowStartServiceInstanceListSupplier((ServiceInstanceListSupplier) bean, slowStart.getWindow(),
+				slowStart.getMinWeight(), slowStart.getRamp());
+	}
+
+	@Override
+	public int getOrder() {
+		return SubsetServiceInstanceListSupplierPostProcessor.ORDER + 2;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ServiceInstanceListSupplier} that narrows the instances of a service down to a
+ * subset of a fixed size, chosen by rendezvous hashing of the client id with every
+ * instance. Each client keeps working against the same instances, the subsets of many
+ * clients are spread evenly over all the instances and, when an instance joins or leaves,
+ * only the subsets that contain it change, by that single instance. Pooled connections
+ * and the memory they take then scale with the subset size instead of the number of
+ * instances.
+ *
+ * @since 3.0.1
+ */
+public class SubsetServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+	private final long clientHash;
+
+	private final int size;
+
+	// the subset of the last list of instances, which is usually handed out again until
+	// the instances change
+	private volatile Subset last;
+
+	/**
+	 * @param delegate the supplier of all instances
+	 * @param clientId the stable id of this client
+	 * @param size the maximum number of instances of the subset
+	 */
+	public SubsetServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, String clientId, int size) {
+		super(delegate);
+		this.clientHash = hash(clientId);
+		this.size = Math.max(size, 1);
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return delegate.get().map(this::subset);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Flux<List<ServiceInstance>> get(Request request) {
+		return delegate.get(request).map(this::subset);
+	}
+
+	List<ServiceInstance> subset(List<ServiceInstance> instances) {
+		if (instances.size() <= size) {
+			return instances;
+		}
+		Subset subset = last;
+		if (subset != null && subset.instances == instances) {
+			return subset.selected;
+		}
+		long[] scores = new long[instances.size()];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = mix(clientHash ^ hash(key(instances.get(i))));
+		}
+		long[] sorted = scores.clone();
+		Arrays.sort(sorted);
+		long threshold = sorted[sorted.length - size];
+		// keeps the order of the instances, for load balancers that rely on it
+		List<ServiceInstance> selected = new ArrayList<>(size);
+		for (int i = 0; i < scores.length && selected.size() < size; i++) {
+			if (scores[i] >= threshold) {
+				selected.add(instances.get(i));
+			}
+		}
+		last = new Subset(instances, selected);
+		return selected;
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getInstanceId() != null ? instance.getInstanceId()
+				: instance.getHost() + ":" + instance.getPort();
+	}
+
+	// 64-bit FNV-1a, also used for the ring of ConsistentHashLoadBalancer
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	// finalizer of MurmurHash3, spreads the bits of the combined hashes
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static final class Subset {
+
+		private final List<ServiceInstance> instances;
+
+		private final List<ServiceInstance> selected;
+
+		private Subset(List<ServiceInstance> instances, List<ServiceInstance> selected) {
+			this.instances = instances;
+			this.selected = selected;
+		}
+
+	}
+
+}
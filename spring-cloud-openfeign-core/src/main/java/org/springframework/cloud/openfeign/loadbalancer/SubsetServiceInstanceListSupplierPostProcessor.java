@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+/**
+ * Wraps the {@link ServiceInstanceListSupplier} of a Spring Cloud LoadBalancer child
+ * context in a {@link SubsetServiceInstanceListSupplier}, whatever configuration provides
+ * it. Unless a client id is configured, the subset is derived from the host and port of
+ * this replica, or from an id that is random for every process if the host is unknown.
+ *
+ * @since 3.0.1
+ */
+class SubsetServiceInstanceListSupplierPostProcessor implements BeanPostProcessor, Ordered {
+
+	/**
+	 * Order of the post-processor, which wraps the supplier before the ones with a higher
+	 * order.
+	 */
+	static final int ORDER = 0;
+
+	private static final Log LOG = LogFactory.getLog(SubsetServiceInstanceListSupplierPostProcessor.class);
+
+	private static final String PROCESS_ID = UUID.randomUUID().toString();
+
+	private final Environment environment;
+
+	private final ObjectProvider<FeignLoadBalancerProperties> properties;
+
+	SubsetServiceInstanceListSupplierPostProcessor(Environment environment,
+			ObjectProvider<FeignLoadBalancerProperties> properties) {
+		this.environment = environment;
+		this.properties = properties;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (!(bean instanceof ServiceInstanceListSupplier) || bean instanceof SubsetServiceInstanceListSupplier) {
+			return bean;
+		}
+		FeignLoadBalancerProperties.Subset subset = properties.getIfAvailable(FeignLoadBalancerProperties::new)
+				.getSubset();
+		String clientId = StringUtils.hasText(subset.getClientId()) ? subset.getClientId()
+				: defaultClientId(environment);
+		return new SubsetServiceInstanceListSupplier((ServiceInstanceListSupplier) bean, clientId, subset.getSize());
+	}
+
+	static String defaultClientId(Environment environment) {
+		// the application name and port are the same on every replica, so the host tells
+		// the replicas apart
+		String instanceId = environment.getProperty("vcap.application.instance_id");
+		if (StringUtils.hasText(instanceId)) {
+			return instanceId;
+		}
+		String host = environment.getProperty("spring.cloud.client.hostname");
+		String ipAddress = environment.getProperty("spring.cloud.client.ip-address");
+		if (!StringUtils.hasText(host) && !StringUtils.hasText(ipAddress)) {
+			if (LOG.isWarnEnabled()) {
+				LOG.warn("The host of this replica is unknown, so its subset is chosen at random, set "
+						+ "feign.loadbalancer.subset.client-id to keep it stable across restarts");
+			}
+			return PROCESS_ID;
+		}
+		String port = environment.getProperty("local.server.port", environment.getProperty("server.port", "0"));
+		return host + ":" + ipAddress + ":" + port + ":"
+				+ environment.getProperty("spring.application.instance_id", "");
+	}
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+}
@@ -61,11 +61,26 @@ public class FeignHttpClientProperties {
 	 */
 	public static final int DEFAULT_CONNECTION_TIMEOUT = 2000;
 
+	/**
+	 * Default value for connection request timeout, which leaves the wait unbounded.
+	 */
+	public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = -1;
+
 	/**
 	 * Default value for connection timer repeat.
 	 */
 	public static final int DEFAULT_CONNECTION_TIMER_REPEAT = 3000;
 
+	/**
+	 * Default value for idle connection timeout.
+	 */
+	public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+
+	/**
+	 * Default value for validate after inactivity.
+	 */
+	public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+
 	private boolean disableSslValidation = DEFAULT_DISABLE_SSL_VALIDATION;
 
 	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
@@ -80,8 +95,33 @@ public class FeignHttpClientProperties {
 
 	private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
 
+	/**
+	 * Time in milliseconds a request waits to lease a connection from a pool whose
+	 * connections are all in use before it fails. Requests wait indefinitely if 0 or
+	 * negative.
+	 */
+	private int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
 	private int connectionTimerRepeat = DEFAULT_CONNECTION_TIMER_REPEAT;
 
+	/**
+	 * Time in milliseconds after which pooled connections that have not been used are
+	 * closed, checked every connectionTimerRepeat milliseconds. Idle connections are not
+	 * closed if not positive.
+	 */
+	private int idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+	/**
+	 * Time in milliseconds of inactivity after which a pooled connection is checked
+	 * before it is leased. Connections are not checked if negative.
+	 */
+	private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+
+	/**
+	 * Apache HttpClient 5 properties.
+	 */
+	private Hc5Properties hc5 = new Hc5Properties();
+
 	public int getConnectionTimerRepeat() {
 		return this.connectionTimerRepeat;
 	}
@@ -90,6 +130,22 @@ public class FeignHttpClientProperties {
 		this.connectionTimerRepeat = connectionTimerRepeat;
 	}
 
+	public int getIdleConnectionTimeout() {
+		return this.idleConnectionTimeout;
+	}
+
+	public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+		this.idleConnectionTimeout = idleConnectionTimeout;
+	}
+
+	public int getValidateAfterInactivity() {
+		return this.validateAfterInactivity;
+	}
+
+	public void setValidateAfterInactivity(int validateAfterInactivity) {
+		this.validateAfterInactivity = validateAfterInactivity;
+	}
+
 	public boolean isDisableSslValidation() {
 		return this.disableSslValidation;
 	}
@@ -146,4 +202,84 @@ public class FeignHttpClientProperties {
 		this.connectionTimeout = connectionTimeout;
 	}
 
+	public int getConnectionRequestTimeout() {
+		return this.connectionRequestTimeout;
+	}
+
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	public Hc5Properties getHc5() {
+		return this.hc5;
+	}
+
+	public void setHc5(Hc5Properties hc5) {
+		this.hc5 = hc5;
+	}
+
+	/**
+	 * Apache HttpClient 5 properties.
+	 */
+	public static class Hc5Properties {
+
+		/**
+		 * Default value for the HTTP version policy.
+		 */
+		public static final VersionPolicy DEFAULT_VERSION_POLICY = VersionPolicy.NEGOTIATE;
+
+		/**
+		 * Enables the use of the Apache HttpClient 5 by Feign.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * HTTP version policy. With NEGOTIATE, HTTP/2 is used with hosts that agree to it
+		 * while connecting over TLS, and every connection of the pool carries one request
+		 * at a time. With FORCE_HTTP_2, all requests to a host are multiplexed over a
+		 * single HTTP/2 connection, which the host must support, and the pool size
+		 * properties do not apply.
+		 */
+		private VersionPolicy versionPolicy = DEFAULT_VERSION_POLICY;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public VersionPolicy getVersionPolicy() {
+			return this.versionPolicy;
+		}
+
+		public void setVersionPolicy(VersionPolicy versionPolicy) {
+			this.versionPolicy = versionPolicy;
+		}
+
+		/**
+		 * The HTTP versions the Apache HttpClient 5 uses.
+		 */
+		public enum VersionPolicy {
+
+			/**
+			 * HTTP/1.1 only.
+			 */
+			FORCE_HTTP_1,
+
+			/**
+			 * HTTP/2 only, multiplexing all requests to a host over a single connection.
+			 */
+			FORCE_HTTP_2,
+
+			/**
+			 * HTTP/2 with hosts that agree to it over TLS, HTTP/1.1 otherwise.
+			 */
+			NEGOTIATE
+
+		}
+
+	}
+
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import feign.Client;
+import feign.Feign;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CoalescingCapability}.
+ */
+class CoalescingCapabilityTests {
+
+	private final BlockingClient blockingClient = new BlockingClient();
+
+	private final Client client = new CoalescingCapability().enrich(blockingClient);
+
+	@Test
+	void shouldShareInFlightCallBetweenIdenticalRequests() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Response> second = executeAsync(request("coalesced", "a"));
+		Thread.sleep(200);
+		blockingClient.release.countDown();
+
+		Response firstResponse = first.get(5, TimeUnit.SECONDS);
+		Response secondResponse = second.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(1);
+		assertThat(firstResponse).isNotSameAs(secondResponse);
+		assertThat(Util.toString(firstResponse.body().asReader(StandardCharsets.UTF_8))).isEqualTo("OK");
+		assertThat(Util.toString(secondResponse.body().asReader(StandardCharsets.UTF_8))).isEqualTo("OK");
+	}
+
+	@Test
+	void shouldNotShareCallBetweenRequestsWithDifferentHeaders() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		client.execute(request("coalesced", "b"), new Request.Options());
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(2);
+	}
+
+	@Test
+	void shouldNotShareCallBetweenRequestsWithDifferentAuthorization() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a", "Authorization", "Bearer first"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		client.execute(request("coalesced", "a", "Authorization", "Bearer second"), new Request.Options());
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(2);
+	}
+
+	@Test
+	void shouldShareCallBetweenRequestsThatOnlyDifferInIgnoredHeaders() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a", "X-Request-Id", "1"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Response> second = executeAsync(request("coalesced", "a", "X-Request-Id", "2"));
+		Thread.sleep(200);
+		blockingClient.release.countDown();
+
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(1);
+	}
+
+	@Test
+	void shouldNotIgnoreAuthorizationHeader() throws Exception {
+		CompletableFuture<Response> first = executeAsync(
+				request("ignoringAuthorization", "a", "Authorization", "Bearer first"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		client.execute(request("ignoringAuthorization", "a", "Authorization", "Bearer second"), new Request.Options());
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(2);
+	}
+
+	@Test
+	void shouldNotShareCallOfMethodWithoutAnnotation() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("notCoalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		client.execute(request("notCoalesced", "a"), new Request.Options());
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(2);
+	}
+
+	@Test
+	void shouldPropagateFailureToWaitingCallers() throws Exception {
+		blockingClient.failure = new IOException("test");
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Response> second = executeAsync(request("coalesced", "a"));
+		Thread.sleep(200);
+		blockingClient.release.countDown();
+
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IOException.class);
+		assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IOException.class);
+		assertThat(blockingClient.calls).hasValue(1);
+	}
+
+	@Test
+	void shouldStopWaitingAfterReadTimeout() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThatThrownBy(() -> client.execute(request("coalesced", "a"),
+				new Request.Options(1, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS, true)))
+						.isInstanceOf(SocketTimeoutException.class);
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		assertThat(blockingClient.calls).hasValue(1);
+	}
+
+	@Test
+	void shouldStopWaitingAtDeadline() throws Exception {
+		CompletableFuture<Response> first = executeAsync(request("coalesced", "a"));
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+		Request request = request("coalesced", "a");
+
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> executeWithDeadline(request, 100)).hasCauseInstanceOf(SocketTimeoutException.class);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+		assertThatThrownBy(() -> executeWithDeadline(request, 0)).isInstanceOf(DeadlineExceededException.class);
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void shouldDetectCoalescedMethods() {
+		assertThat(CoalescingCapability.hasCoalescedMethods(TestClient.class)).isTrue();
+		assertThat(CoalescingCapability.hasCoalescedMethods(Runnable.class)).isFalse();
+	}
+
+	private CompletableFuture<Response> executeAsync(Request request) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return client.execute(request, new Request.Options());
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+	}
+
+	private Response executeWithDeadline(Request request, long deadlineMillis) {
+		return FeignDeadline.supplyWith(FeignDeadline.after(deadlineMillis, TimeUnit.MILLISECONDS), () -> {
+			try {
+				return client.execute(request, new Request.Options());
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+	}
+
+	private static Request request(String methodName, String tenant, String... otherHeaders)
+			throws NoSuchMethodException {
+		String configKey = Feign.configKey(TestClient.class, TestClient.class.getMethod(methodName));
+		MethodMetadata metadata = new SpringMvcContract().parseAndValidateMetadata(TestClient.class).stream()
+				.filter(candidate -> candidate.configKey().equals(configKey)).findFirst().get();
+		RequestTemplate template = new RequestTemplate();
+		template.methodMetadata(metadata);
+		Map<String, Collection<String>> headers = new HashMap<>();
+		headers.put("tenant", Collections.singletonList(tenant));
+		for (int i = 0; i < otherHeaders.length; i += 2) {
+			headers.put(otherHeaders[i], Collections.singletonList(otherHeaders[i + 1]));
+		}
+		return Request.create(Request.HttpMethod.GET, "http://test/stores", headers, null, StandardCharsets.UTF_8,
+				template);
+	}
+
+	interface TestClient {
+
+		@Coalesced(ignoredHeaders = "X-Request-Id")
+		@GetMapping("/stores")
+		String coalesced();
+
+		@Coalesced(ignoredHeaders = "Authorization")
+		@GetMapping("/stores")
+		String ignoringAuthorization();
+
+		@GetMapping("/stores")
+		String notCoalesced();
+
+	}
+
+	static class BlockingClient implements Client {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private volatile IOException failure;
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			// only the first call blocks, until the test releases it
+			if (calls.incrementAndGet() == 1) {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("OK", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+}
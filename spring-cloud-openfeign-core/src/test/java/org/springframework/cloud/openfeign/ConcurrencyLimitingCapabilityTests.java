@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import feign.Client;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ConcurrencyLimitingCapability}.
+ */
+class ConcurrencyLimitingCapabilityTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(FeignAutoConfiguration.class))
+			.withPropertyValues("feign.httpclient.enabled=false");
+
+	@Test
+	void shouldRejectRequestsOverTheLimitWithoutSendingThem() throws Exception {
+		FeignConcurrencyLimiters limiters = new FeignConcurrencyLimiters(FeignConcurrencyLimiters.Algorithm.GRADIENT, 1,
+				1, 1, 0.9, Duration.ZERO);
+		BlockingClient blockingClient = new BlockingClient();
+		Client client = new ConcurrencyLimitingCapability(limiters).enrich(blockingClient);
+
+		CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> {
+			try {
+				return client.execute(request("http://limited/stores"), new Request.Options());
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		assertThat(blockingClient.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThatThrownBy(() -> client.execute(request("http://limited/stores"), new Request.Options()))
+				.isInstanceOf(ConcurrencyLimitExceededException.class).hasFieldOrPropertyWithValue("key", "limited")
+				.hasFieldOrPropertyWithValue("limit", 1);
+		client.execute(request("http://other/stores"), new Request.Options());
+		blockingClient.release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+
+		assertThat(blockingClient.calls).hasValue(2);
+		assertThat(limiters.getLimiter("limited").getInFlight()).isZero();
+	}
+
+	@Test
+	void shouldCountOverloadResponsesAsDropped() throws IOException {
+		FeignConcurrencyLimiters limiters = new FeignConcurrencyLimiters(FeignConcurrencyLimiters.Algorithm.AIMD, 1, 1,
+				10, 0.5, Duration.ZERO);
+		Client client = new ConcurrencyLimitingCapability(limiters).enrich(
+				(Client) (request, options) -> Response.builder().status(request.url().contains("shed") ? 503 : 200)
+						.request(request).headers(Collections.emptyMap()).build());
+		FeignConcurrencyLimiters.Limiter limiter = limiters.getLimiter("service");
+
+		for (int i = 0; i < 10; i++) {
+			client.execute(request("http://service/ok"), new Request.Options());
+		}
+		assertThat(limiter.getLimit()).isEqualTo(10);
+
+		for (int i = 0; i < 10; i++) {
+			client.execute(request("http://service/shed"), new Request.Options());
+		}
+		assertThat(limiter.getLimit()).isEqualTo(5);
+	}
+
+	@Test
+	void shouldCountIOExceptionsAsDropped() {
+		FeignConcurrencyLimiters limiters = new FeignConcurrencyLimiters(FeignConcurrencyLimiters.Algorithm.AIMD, 4, 1,
+				10, 0.5, Duration.ZERO);
+		Client client = new ConcurrencyLimitingCapability(limiters).enrich((Client) (request, options) -> {
+			throw new IOException("test");
+		});
+
+		for (int i = 0; i < 10; i++) {
+			assertThatThrownBy(() -> client.execute(request("http://service/stores"), new Request.Options()))
+					.isInstanceOf(IOException.class);
+		}
+
+		assertThat(limiters.getLimiter("service").getLimit()).isEqualTo(2);
+		assertThat(limiters.getLimiter("service").getInFlight()).isZero();
+	}
+
+	@Test
+	void shouldCreateLimitersAndMetricsWhenEnabled() {
+		contextRunner.withPropertyValues("feign.client.concurrency-limit.enabled=true",
+				"feign.client.concurrency-limit.algorithm=aimd", "feign.client.concurrency-limit.initial-limit=5")
+				.run(context -> {
+					assertThat(context).hasSingleBean(FeignConcurrencyLimiters.class)
+							.hasSingleBean(FeignConcurrencyLimitMetrics.class);
+					assertThat(context.getBean(FeignConcurrencyLimiters.class).getLimiter("service").getLimit())
+							.isEqualTo(5);
+				});
+	}
+
+	@Test
+	void shouldNotCreateLimitersByDefault() {
+		contextRunner.run(context -> assertThat(context).doesNotHaveBean(FeignConcurrencyLimiters.class)
+				.doesNotHaveBean(FeignConcurrencyLimitMetrics.class));
+	}
+
+	@Test
+	void shouldApplyLimitToFeignClients() {
+		contextRunner.withPropertyValues("feign.client.concurrency-limit.enabled=true",
+				"feign.client.concurrency-limit.algorithm=aimd", "feign.client.concurrency-limit.initial-limit=10",
+				"feign.client.concurrency-limit.backoff-ratio=0.5").run(context -> {
+					FeignClientFactoryBean factoryBean = new FeignClientFactoryBean();
+					factoryBean.setContextId("limited");
+					factoryBean.setType(LimitedClient.class);
+					factoryBean.setApplicationContext(context);
+					LimitedClient client = factoryBean.feign(context.getBean(FeignContext.class))
+							.client((request, options) -> Response.builder().status(503).request(request)
+									.headers(Collections.emptyMap()).build())
+							.target(LimitedClient.class, "http://limited");
+
+					for (int i = 0; i < 10; i++) {
+						assertThatThrownBy(client::hello).isInstanceOf(FeignException.class);
+					}
+
+					assertThat(context.getBean(FeignConcurrencyLimiters.class).getLimiter("limited").getLimit())
+							.isEqualTo(5);
+				});
+	}
+
+	private static Request request(String url) {
+		return Request.create(Request.HttpMethod.GET, url, Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+	}
+
+	protected interface LimitedClient {
+
+		@GetMapping("/hello")
+		void hello();
+
+	}
+
+	static class BlockingClient implements Client {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public Response execute(Request request, Request.Options options) {
+			// only the first call blocks, until the test releases it
+			if (calls.incrementAndGet() == 1) {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("OK", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+}
@@ -17,9 +17,13 @@
 package org.springframework.cloud.openfeign;
 
 import java.lang.reflect.Field;
+import java.util.List;
 
+import feign.Capability;
+import feign.Client;
 import feign.Feign;
 import feign.Logger;
+import feign.Target;
 import org.junit.Test;
 
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -74,6 +78,41 @@ public class FeignBuilderCustomizerTests {
 		context.close();
 	}
 
+	@Test
+	public void testBuilderCustomizerClientKeptForUrl() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				FeignBuilderCustomizerTests.SampleConfiguration4.class);
+
+		context.getBean(FeignClientFactoryBean.class).getTarget();
+
+		assertFeignBuilderField(context.getBean(SampleConfiguration4.class).builder, "client",
+				SampleConfiguration4.CLIENT);
+
+		context.close();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBuilderCustomizerClientUsedForMultipleUrls() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				FeignBuilderCustomizerTests.SampleConfiguration4.class);
+		FeignClientFactoryBean clientFactoryBean = context.getBean(FeignClientFactoryBean.class);
+		clientFactoryBean.setUrl("http://some.absolute.url,http://other.absolute.url");
+
+		clientFactoryBean.getTarget();
+
+		Feign.Builder builder = context.getBean(SampleConfiguration4.class).builder;
+		assertFeignBuilderField(builder, "client", SampleConfiguration4.CLIENT);
+		Field capabilities = ReflectionUtils.findField(Feign.Builder.class, "capabilities");
+		ReflectionUtils.makeAccessible(capabilities);
+		Client client = Capability.enrich(SampleConfiguration4.CLIENT,
+				(List<Capability>) ReflectionUtils.getField(capabilities, builder));
+		assertThat(client).isInstanceOf(StaticUrlLoadBalancingClient.class);
+		assertThat(((StaticUrlLoadBalancingClient) client).getDelegate()).isSameAs(SampleConfiguration4.CLIENT);
+
+		context.close();
+	}
+
 	private static FeignClientFactoryBean defaultFeignClientFactoryBean() {
 		FeignClientFactoryBean feignClientFactoryBean = new FeignClientFactoryBean();
 		feignClientFactoryBean.setContextId("test");
@@ -153,4 +192,46 @@ public class FeignBuilderCustomizerTests {
 
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@Import(FeignClientsConfiguration.class)
+	protected static class SampleConfiguration4 {
+
+		static final Client CLIENT = new Client.Default(null, null);
+
+		private Feign.Builder builder;
+
+		@Bean
+		FeignContext feignContext() {
+			return new FeignContext();
+		}
+
+		@Bean
+		FeignClientProperties feignClientProperties() {
+			return new FeignClientProperties();
+		}
+
+		@Bean
+		FeignBuilderCustomizer feignBuilderCustomizer() {
+			return builder -> builder.client(CLIENT);
+		}
+
+		@Bean
+		Targeter targeter() {
+			return new Targeter() {
+				@Override
+				public <T> T target(FeignClientFactoryBean factory, Feign.Builder feign, FeignContext context,
+						Target.HardCodedTarget<T> target) {
+					builder = feign;
+					return null;
+				}
+			};
+		}
+
+		@Bean
+		FeignClientFactoryBean feignClientFactoryBean() {
+			return defaultFeignClientFactoryBean();
+		}
+
+	}
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import feign.Capability;
+import feign.Client;
+import feign.Feign;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignClientMethodOptionsCapability}.
+ */
+class FeignClientMethodOptionsCapabilityTests {
+
+	private final CapturingClient client = new CapturingClient();
+
+	@Test
+	void shouldKeepOptionsCreatedByAnotherCapability() {
+		Api api = Feign.builder().client(client)
+				.options(new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, true))
+				.addCapability(capability()).addCapability(new CopyingCapability())
+				.target(Api.class, "http://localhost");
+
+		api.get();
+
+		assertThat(client.options.readTimeoutMillis()).isEqualTo(2000);
+	}
+
+	@Test
+	void shouldApplyMethodOptionsToClientOptions() {
+		Api api = Feign.builder().client(client)
+				.options(new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, true))
+				.addCapability(capability()).target(Api.class, "http://localhost");
+
+		api.get();
+
+		assertThat(client.options.readTimeoutMillis()).isEqualTo(500);
+	}
+
+	@Test
+	void shouldApplyOptionsPassedAsMethodArgument() {
+		Api api = Feign.builder().client(client).addCapability(capability()).target(Api.class, "http://localhost");
+
+		api.get(new Request.Options(1, TimeUnit.SECONDS, 3, TimeUnit.SECONDS, true));
+
+		assertThat(client.options.readTimeoutMillis()).isEqualTo(3000);
+	}
+
+	@Test
+	void shouldApplyMethodOptionsWhenNoOptionsArePassed() {
+		Api api = Feign.builder().client(client).addCapability(capability()).target(Api.class, "http://localhost");
+
+		api.get(null);
+
+		assertThat(client.options.readTimeoutMillis()).isEqualTo(700);
+	}
+
+	private static FeignClientMethodOptionsCapability capability() {
+		FeignClientProperties.MethodConfiguration get = new FeignClientProperties.MethodConfiguration();
+		get.setReadTimeout(500);
+		FeignClientProperties.MethodConfiguration getWithOptions = new FeignClientProperties.MethodConfiguration();
+		getWithOptions.setReadTimeout(700);
+		Map<String, FeignClientProperties.MethodConfiguration> configurations = new HashMap<>();
+		configurations.put("Api#get()", get);
+		configurations.put("Api#get(Options)", getWithOptions);
+		return new FeignClientMethodOptionsCapability(configurations);
+	}
+
+	interface Api {
+
+		@RequestLine("GET /")
+		String get();
+
+		@RequestLine("GET /")
+		String get(Request.Options options);
+
+	}
+
+	/**
+	 * Replaces the client-level options with equal ones, like a capability that rebuilds
+	 * them.
+	 */
+	public static class CopyingCapability implements Capability {
+
+		@Override
+		public Request.Options enrich(Request.Options options) {
+			return new Request.Options(options.connectTimeout(), options.connectTimeoutUnit(), options.readTimeout(),
+					options.readTimeoutUnit(), options.isFollowRedirects());
+		}
+
+	}
+
+	private static class CapturingClient implements Client {
+
+		private volatile Request.Options options;
+
+		@Override
+		public Response execute(Request request, Request.Options options) {
+			this.options = options;
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("ok", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+}
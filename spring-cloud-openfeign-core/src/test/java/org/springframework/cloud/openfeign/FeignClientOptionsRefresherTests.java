@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignClientOptionsRefresher}.
+ */
+@SpringBootTest(classes = FeignClientOptionsRefresherTests.Application.class,
+		webEnvironment = SpringBootTest.WebEnvironment.NONE,
+		properties = { "feign.client.refresh-enabled=true", "feign.client.config.refreshable.readTimeout=1000",
+				"feign.client.config.refreshable.defaultRequestHeaders.tenant=a",
+				"feign.client.config.notRefreshed.readTimeout=2000" })
+@DirtiesContext
+class FeignClientOptionsRefresherTests {
+
+	@Autowired
+	private ConfigurableApplicationContext applicationContext;
+
+	@Autowired
+	private FeignContext feignContext;
+
+	@Test
+	void shouldApplyRefreshedPropertiesToExistingClient() {
+		CapturingClient capturingClient = new CapturingClient();
+		RefreshableClient client = refreshableClient("refreshable", capturingClient);
+
+		client.hello();
+
+		assertThat(capturingClient.options.readTimeoutMillis()).isEqualTo(1000);
+		assertThat(capturingClient.request.headers()).containsEntry("tenant", Collections.singletonList("a"));
+
+		TestPropertyValues.of("feign.client.config.refreshable.readTimeout=3000",
+				"feign.client.config.refreshable.defaultRequestHeaders.tenant=b").applyTo(applicationContext);
+		applicationContext.publishEvent(new EnvironmentChangeEvent(applicationContext,
+				new HashSet<>(Collections.singletonList("feign.client.config.refreshable.readTimeout"))));
+		client.hello();
+
+		assertThat(capturingClient.options.readTimeoutMillis()).isEqualTo(3000);
+		assertThat(capturingClient.request.headers()).containsEntry("tenant", Collections.singletonList("b"));
+	}
+
+	@Test
+	void shouldIgnoreUnrelatedEnvironmentChanges() {
+		CapturingClient capturingClient = new CapturingClient();
+		RefreshableClient client = refreshableClient("notRefreshed", capturingClient);
+
+		TestPropertyValues.of("feign.client.config.notRefreshed.readTimeout=5000").applyTo(applicationContext);
+		applicationContext.publishEvent(new EnvironmentChangeEvent(applicationContext,
+				new HashSet<>(Collections.singletonList("spring.application.name"))));
+		client.hello();
+
+		assertThat(capturingClient.options.readTimeoutMillis()).isEqualTo(2000);
+	}
+
+	private RefreshableClient refreshableClient(String contextId, Client client) {
+		FeignClientFactoryBean factoryBean = new FeignClientFactoryBean();
+		factoryBean.setContextId(contextId);
+		factoryBean.setType(RefreshableClient.class);
+		factoryBean.setApplicationContext(applicationContext);
+		return factoryBean.feign(feignContext).client(client).target(RefreshableClient.class, "http://refreshable");
+	}
+
+	protected interface RefreshableClient {
+
+		@GetMapping("/hello")
+		String hello();
+
+	}
+
+	static class CapturingClient implements Client {
+
+		private Request request;
+
+		private Request.Options options;
+
+		@Override
+		public Response execute(Request request, Request.Options options) {
+			this.request = request;
+			this.options = options;
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("OK", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@EnableAutoConfiguration
+	protected static class Application {
+
+	}
+
+}
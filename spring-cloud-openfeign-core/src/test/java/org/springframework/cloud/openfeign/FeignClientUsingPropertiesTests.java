@@ -232,6 +232,26 @@ public class FeignClientUsingPropertiesTests {
 		assertThat(options.readTimeoutMillis()).isEqualTo(5000);
 	}
 
+	@Test
+	public void methodReadTimeoutShouldOverrideClientReadTimeout() {
+		String response = methodOptionsClient().bar();
+		assertThat(response).isEqualTo("OK");
+	}
+
+	@Test(expected = RetryableException.class)
+	public void clientReadTimeoutShouldApplyToMethodsWithoutOverride() {
+		methodOptionsClient().unconfiguredBar();
+		fail("it should timeout");
+	}
+
+	public MethodOptionsClient methodOptionsClient() {
+		FeignClientFactoryBean methodOptionsFactoryBean = new FeignClientFactoryBean();
+		methodOptionsFactoryBean.setContextId("methodOptions");
+		methodOptionsFactoryBean.setType(FeignClientFactoryBean.class);
+		methodOptionsFactoryBean.setApplicationContext(applicationContext);
+		return methodOptionsFactoryBean.feign(context).target(MethodOptionsClient.class, "http://localhost:" + port);
+	}
+
 	private Request.Options getRequestOptions(Proxy client) {
 		Object invocationHandler = ReflectionTestUtils.getField(client, "h");
 		Map<Method, InvocationHandlerFactory.MethodHandler> dispatch = (Map<Method, InvocationHandlerFactory.MethodHandler>) ReflectionTestUtils
@@ -283,6 +303,16 @@ public class FeignClientUsingPropertiesTests {
 
 	}
 
+	protected interface MethodOptionsClient {
+
+		@GetMapping(path = "/bar")
+		String bar();
+
+		@GetMapping(path = "/bar") // intentionally /bar
+		String unconfiguredBar();
+
+	}
+
 	protected interface TimeoutClient {
 
 		@GetMapping("/timeouts")
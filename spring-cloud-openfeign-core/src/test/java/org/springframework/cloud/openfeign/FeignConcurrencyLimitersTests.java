@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignConcurrencyLimiters}.
+ */
+class FeignConcurrencyLimitersTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@Test
+	void shouldRejectRequestsOverTheLimit() {
+		FeignConcurrencyLimiters.Limiter limiter = limiters(FeignConcurrencyLimiters.Algorithm.GRADIENT, 2)
+				.getLimiter("service");
+
+		assertThat(limiter.acquire()).isTrue();
+		assertThat(limiter.acquire()).isTrue();
+		assertThat(limiter.acquire()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+		assertThat(limiter.getRejected()).isEqualTo(1);
+
+		limiter.release();
+
+		assertThat(limiter.acquire()).isTrue();
+	}
+
+	@Test
+	void shouldGrowGradientLimitWhileRoundTripTimeIsStableAndShrinkItWhenItIncreases() {
+		FeignConcurrencyLimiters.Limiter limiter = limiters(FeignConcurrencyLimiters.Algorithm.GRADIENT, 20)
+				.getLimiter("service");
+
+		sample(limiter, 200, FAST, false);
+		int grown = limiter.getLimit();
+		sample(limiter, 20, SLOW, false);
+
+		assertThat(grown).isGreaterThan(20);
+		assertThat(limiter.getLimit()).isLessThan(grown / 2);
+	}
+
+	@Test
+	void shouldNotGrowLimitThatIsNotInUse() {
+		FeignConcurrencyLimiters.Limiter limiter = limiters(FeignConcurrencyLimiters.Algorithm.GRADIENT, 20)
+				.getLimiter("service");
+
+		for (int i = 0; i < 100; i++) {
+			limiter.acquire();
+			limiter.release(FAST, false);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(20);
+	}
+
+	@Test
+	void shouldIncreaseAimdLimitAdditivelyAndDecreaseItMultiplicatively() {
+		FeignConcurrencyLimiters.Limiter limiter = limiters(FeignConcurrencyLimiters.Algorithm.AIMD, 20)
+				.getLimiter("service");
+
+		sample(limiter, 10, FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(30);
+
+		sample(limiter, 10, FAST, true);
+		assertThat(limiter.getLimit()).isEqualTo(27);
+	}
+
+	@Test
+	void shouldAdjustLimitOnlyWhenWindowCloses() {
+		FeignConcurrencyLimiters.Limiter limiter = limiters(FeignConcurrencyLimiters.Algorithm.AIMD, 20)
+				.getLimiter("service");
+
+		sample(limiter, 9, FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(20);
+
+		sample(limiter, 1, FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(30);
+	}
+
+	@Test
+	void shouldKeepLimitWithinBoundsUnderConcurrentReleases() throws Exception {
+		FeignConcurrencyLimiters.Limiter limiter = new FeignConcurrencyLimiters(
+				FeignConcurrencyLimiters.Algorithm.GRADIENT, 20, 5, 50, 0.9, Duration.ZERO).getLimiter("service");
+		Runnable requests = () -> {
+			for (int i = 0; i < 10000; i++) {
+				if (limiter.acquire()) {
+					limiter.release(i % 2 == 0 ? FAST : SLOW, i % 100 == 0);
+				}
+			}
+		};
+		CompletableFuture<?>[] threads = new CompletableFuture<?>[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = CompletableFuture.runAsync(requests);
+		}
+		CompletableFuture.allOf(threads).get(30, TimeUnit.SECONDS);
+
+		assertThat(limiter.getInFlight()).isZero();
+		assertThat(limiter.getLimit()).isBetween(5, 50);
+	}
+
+	@Test
+	void shouldKeepLimitWithinBounds() {
+		FeignConcurrencyLimiters limiters = new FeignConcurrencyLimiters(FeignConcurrencyLimiters.Algorithm.AIMD, 5, 2,
+				8, 0.5, Duration.ZERO);
+		FeignConcurrencyLimiters.Limiter limiter = limiters.getLimiter("service");
+
+		sample(limiter, 10, FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(8);
+
+		sample(limiter, 20, FAST, true);
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldWaitForPermitUpToMaxWait() throws Exception {
+		FeignConcurrencyLimiters.Limiter limiter = new FeignConcurrencyLimiters(
+				FeignConcurrencyLimiters.Algorithm.GRADIENT, 1, 1, 1, 0.9, Duration.ofSeconds(5)).getLimiter("service");
+		assertThat(limiter.acquire()).isTrue();
+
+		CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(limiter::acquire);
+		Thread.sleep(100);
+		assertThat(waiting).isNotDone();
+		limiter.release();
+
+		assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(limiter.getRejected()).isZero();
+	}
+
+	@Test
+	void shouldRejectRequestAfterMaxWait() {
+		FeignConcurrencyLimiters.Limiter limiter = new FeignConcurrencyLimiters(
+				FeignConcurrencyLimiters.Algorithm.GRADIENT, 1, 1, 1, 0.9, Duration.ofMillis(50)).getLimiter("service");
+		assertThat(limiter.acquire()).isTrue();
+
+		long start = System.nanoTime();
+		assertThat(limiter.acquire()).isFalse();
+
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(limiter.getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldShareLimiterPerKey() {
+		FeignConcurrencyLimiters limiters = limiters(FeignConcurrencyLimiters.Algorithm.GRADIENT, 20);
+
+		assertThat(limiters.getLimiter("a")).isSameAs(limiters.getLimiter("a"));
+		assertThat(limiters.getLimiter("a")).isNotSameAs(limiters.getLimiter("b"));
+		assertThat(limiters.getKeys()).containsExactlyInAnyOrder("a", "b");
+	}
+
+	private static FeignConcurrencyLimiters limiters(FeignConcurrencyLimiters.Algorithm algorithm, int initialLimit) {
+		return new FeignConcurrencyLimiters(algorithm, initialLimit, 1, 200, 0.9, Duration.ZERO);
+	}
+
+	// keeps the limiter fully used and completes one request per sample
+	private static void sample(FeignConcurrencyLimiters.Limiter limiter, int samples, long rttNanos, boolean dropped) {
+		for (int i = 0; i < samples; i++) {
+			while (limiter.getInFlight() < limiter.getLimit()) {
+				limiter.acquire();
+			}
+			limiter.release(rttNanos, dropped);
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link FeignConnectionEvictor}.
+ */
+class FeignConnectionEvictorTests {
+
+	@Test
+	void shouldCloseExpiredAndIdleConnectionsAndRecordPoolStats() {
+		PoolingHttpClientConnectionManager connectionManager = connectionManager(5, 2);
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(60000, 30000);
+		evictor.register("default", connectionManager);
+		assertThat(evictor.getAvailableBeforeEviction("default")).isEqualTo(-1);
+
+		evictor.evict();
+
+		verify(connectionManager).closeExpiredConnections();
+		verify(connectionManager).closeIdleConnections(30000, TimeUnit.MILLISECONDS);
+		assertThat(evictor.getEvictionRuns("default")).isEqualTo(1);
+		assertThat(evictor.getAvailableBeforeEviction("default")).isEqualTo(5);
+		assertThat(evictor.getAvailableAfterEviction("default")).isEqualTo(2);
+		evictor.destroy();
+	}
+
+	@Test
+	void shouldNotCloseIdleConnectionsWithoutIdleTimeout() {
+		PoolingHttpClientConnectionManager connectionManager = connectionManager(5, 5);
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(60000, 0);
+		evictor.register("default", connectionManager);
+
+		evictor.evict();
+
+		verify(connectionManager).closeExpiredConnections();
+		verify(connectionManager, never()).closeIdleConnections(anyLong(), any());
+		evictor.destroy();
+	}
+
+	@Test
+	void shouldEvictOtherPoolsWhenOneFails() {
+		PoolingHttpClientConnectionManager failing = connectionManager(1, 1);
+		willThrow(new IllegalStateException("Connection pool shut down")).given(failing).closeExpiredConnections();
+		PoolingHttpClientConnectionManager connectionManager = connectionManager(3, 2);
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(60000, 30000);
+		evictor.register("failing", failing);
+		evictor.register("default", connectionManager);
+
+		evictor.evict();
+
+		verify(connectionManager).closeExpiredConnections();
+		assertThat(evictor.getEvictionRuns("default")).isEqualTo(1);
+		assertThat(evictor.getEvictionRuns("failing")).isZero();
+		evictor.destroy();
+	}
+
+	@Test
+	void shouldEvictOnSharedScheduler() {
+		PoolingHttpClientConnectionManager first = connectionManager(0, 0);
+		PoolingHttpClientConnectionManager second = connectionManager(0, 0);
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(10, 30000);
+		evictor.register("first", first);
+		evictor.register("second", second);
+
+		verify(first, timeout(1000).atLeastOnce()).closeIdleConnections(30000, TimeUnit.MILLISECONDS);
+		verify(second, timeout(1000).atLeastOnce()).closeIdleConnections(30000, TimeUnit.MILLISECONDS);
+		evictor.destroy();
+	}
+
+	@Test
+	void shouldExposeEvictionsAsMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(60000, 30000);
+		new FeignConnectionEvictorMetrics(evictor).bindTo(registry);
+		evictor.register("default", connectionManager(5, 2));
+
+		evictor.evict();
+
+		assertThat(registry.get("feign.httpclient.connections.eviction.runs").tags("pool", "default").functionCounter()
+				.count()).isEqualTo(1);
+		assertThat(registry.get("feign.httpclient.connections.eviction.available")
+				.tags("pool", "default", "stage", "before").gauge().value()).isEqualTo(5);
+		assertThat(registry.get("feign.httpclient.connections.eviction.available")
+				.tags("pool", "default", "stage", "after").gauge().value()).isEqualTo(2);
+		evictor.destroy();
+	}
+
+	@Test
+	void shouldRemoveMetricsOfUnregisteredPool() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		FeignConnectionEvictor evictor = new FeignConnectionEvictor(60000, 30000);
+		new FeignConnectionEvictorMetrics(evictor).bindTo(registry);
+		evictor.register("default", connectionManager(5, 2));
+		evictor.register("isolated", connectionManager(5, 2));
+
+		evictor.unregister("isolated");
+
+		assertThat(registry.find("feign.httpclient.connections.eviction.runs").tags("pool", "isolated").meter())
+				.isNull();
+		assertThat(registry.find("feign.httpclient.connections.eviction.available").tags("pool", "isolated").meters())
+				.isEmpty();
+		assertThat(registry.find("feign.httpclient.connections.eviction.available").tags("pool", "default").meters())
+				.hasSize(2);
+		evictor.destroy();
+	}
+
+	private static PoolingHttpClientConnectionManager connectionManager(int available, int... next) {
+		PoolingHttpClientConnectionManager connectionManager = mock(PoolingHttpClientConnectionManager.class);
+		PoolStats[] nextStats = new PoolStats[next.length];
+		for (int i = 0; i < next.length; i++) {
+			nextStats[i] = new PoolStats(0, 0, next[i], 200);
+		}
+		given(connectionManager.getTotalStats()).willReturn(new PoolStats(0, 0, available, 200), nextStats);
+		return connectionManager;
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link FeignConnectionLeases}.
+ */
+class FeignConnectionLeasesTests {
+
+	private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("localhost", 8080));
+
+	private final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+
+	private final FeignConnectionLeases leases = new FeignConnectionLeases();
+
+	private final HttpClientConnectionManager connectionManager = leases.instrument("default", pool);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void shouldRecordLeasesAndTimeoutsPerRoute() throws Exception {
+		pool.setDefaultMaxPerRoute(1);
+
+		connectionManager.requestConnection(ROUTE, null).get(100, TimeUnit.MILLISECONDS);
+
+		assertThatThrownBy(() -> connectionManager.requestConnection(ROUTE, null).get(50, TimeUnit.MILLISECONDS))
+				.isInstanceOf(ConnectionPoolTimeoutException.class);
+		assertThat(leases.getRoutes()).hasSize(1);
+		FeignConnectionLeases.Route route = leases.getRoutes().iterator().next();
+		assertThat(route.getPool()).isEqualTo("default");
+		assertThat(route.getRoute()).isEqualTo("http://localhost:8080");
+		assertThat(route.getLeases()).isEqualTo(2);
+		assertThat(route.getTimeouts()).isEqualTo(1);
+		assertThat(route.getLeaseWaitNanos()).isPositive();
+	}
+
+	@Test
+	void shouldExposePendingLeases() throws Exception {
+		pool.setDefaultMaxPerRoute(1);
+		HttpClientConnection connection = connectionManager.requestConnection(ROUTE, null).get(100,
+				TimeUnit.MILLISECONDS);
+		FeignConnectionLeases.Route route = leases.getRoutes().iterator().next();
+
+		CompletableFuture<HttpClientConnection> pending = CompletableFuture.supplyAsync(() -> {
+			try {
+				return connectionManager.requestConnection(ROUTE, null).get(5, TimeUnit.SECONDS);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (route.getPending() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertThat(route.getPending()).isEqualTo(1);
+		connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+		assertThat(pending.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(route.getPending()).isZero();
+	}
+
+	@Test
+	void shouldExposeLeasesAsMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new FeignConnectionLeaseMetrics(leases).bindTo(registry);
+
+		connectionManager.requestConnection(ROUTE, null).get(100, TimeUnit.MILLISECONDS);
+
+		assertThat(registry.get("feign.httpclient.connections.lease")
+				.tags("pool", "default", "route", "http://localhost:8080").functionTimer().count()).isEqualTo(1);
+		assertThat(registry.get("feign.httpclient.connections.pending")
+				.tags("pool", "default", "route", "http://localhost:8080").gauge().value()).isZero();
+		assertThat(registry.get("feign.httpclient.connections.lease.timeouts")
+				.tags("pool", "default", "route", "http://localhost:8080").functionCounter().count()).isZero();
+	}
+
+	@Test
+	void shouldForgetRoutesAndMetricsOfUnregisteredPool() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new FeignConnectionLeaseMetrics(leases).bindTo(registry);
+		PoolingHttpClientConnectionManager otherPool = new PoolingHttpClientConnectionManager();
+		HttpClientConnectionManager otherConnectionManager = leases.instrument("other", otherPool);
+		connectionManager.requestConnection(ROUTE, null).get(100, TimeUnit.MILLISECONDS);
+		otherConnectionManager.requestConnection(ROUTE, null).get(100, TimeUnit.MILLISECONDS);
+
+		otherPool.shutdown();
+		leases.unregister("other");
+
+		assertThat(leases.getRoutes()).extracting(FeignConnectionLeases.Route::getPool).containsExactly("default");
+		assertThat(registry.find("feign.httpclient.connections.pending").tag("pool", "other").meters()).isEmpty();
+		assertThat(registry.find("feign.httpclient.connections.pending").tag("pool", "default").meters()).hasSize(1);
+	}
+
+	@Test
+	void shouldForgetIdleRoutesAndTheirMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		FeignConnectionLeases leases = new FeignConnectionLeases(Duration.ofMillis(50));
+		new FeignConnectionLeaseMetrics(leases).bindTo(registry);
+		HttpClientConnectionManager connectionManager = leases.instrument("default", pool);
+		HttpRoute otherRoute = new HttpRoute(new HttpHost("localhost", 8081));
+		HttpClientConnection connection = connectionManager.requestConnection(ROUTE, null).get(100,
+				TimeUnit.MILLISECONDS);
+		HttpClientConnection otherConnection = connectionManager.requestConnection(otherRoute, null).get(100,
+				TimeUnit.MILLISECONDS);
+		// the connections were never opened, so the pool drops them
+		connectionManager.releaseConnection(otherConnection, null, 0, TimeUnit.MILLISECONDS);
+
+		Thread.sleep(100);
+		leases.sweep();
+
+		assertThat(leases.getRoutes()).extracting(FeignConnectionLeases.Route::getRoute)
+				.containsExactly("http://localhost:8080");
+		assertThat(registry.find("feign.httpclient.connections.pending").tag("route", "http://localhost:8081").meters())
+				.isEmpty();
+		assertThat(registry.find("feign.httpclient.connections.pending").tag("route", "http://localhost:8080").meters())
+				.hasSize(1);
+		connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+	}
+
+}
@@ -20,6 +20,8 @@ import java.util.Collection;
 
 import feign.Logger;
 import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.codec.ErrorDecoder;
 import org.assertj.core.util.Lists;
 import org.junit.Test;
 
@@ -94,6 +96,26 @@ public class FeignContextTest {
 		assertThat(interceptors.size()).isEqualTo(1);
 	}
 
+	@Test
+	public void getSharedInstance_returnsSameInstance() {
+		FeignContext feignContext = new FeignContext();
+
+		ErrorDecoder first = feignContext.getSharedInstance(ErrorDecoder.Default.class);
+		ErrorDecoder second = feignContext.getSharedInstance(ErrorDecoder.Default.class);
+
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	public void getSharedInstance_instantiatesNonSharedClassesEveryTime() {
+		FeignContext feignContext = new FeignContext();
+
+		RequestInterceptor first = feignContext.getSharedInstance(StatefulRequestInterceptor.class);
+		RequestInterceptor second = feignContext.getSharedInstance(StatefulRequestInterceptor.class);
+
+		assertThat(second).isNotSameAs(first);
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@Import(FeignClientsConfiguration.class)
 	protected static class EmptyConfiguration {
@@ -117,4 +139,16 @@ public class FeignContextTest {
 
 	}
 
+	@NonShared
+	public static class StatefulRequestInterceptor implements RequestInterceptor {
+
+		private int count;
+
+		@Override
+		public void apply(RequestTemplate template) {
+			template.header("count", String.valueOf(++count));
+		}
+
+	}
+
 }
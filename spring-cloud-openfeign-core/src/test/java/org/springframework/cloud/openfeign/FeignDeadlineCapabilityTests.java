@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import feign.Client;
+import feign.Feign;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.ConfigBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link FeignDeadlineCapability}.
+ */
+class FeignDeadlineCapabilityTests {
+
+	private final CapturingClient capturingClient = new CapturingClient();
+
+	@AfterEach
+	void tearDown() {
+		FeignDeadline.setCurrent(null);
+	}
+
+	@Test
+	void shouldPassRequestsWithoutDeadlineUnchanged() throws Exception {
+		Client client = new FeignDeadlineCapability(null, true).enrich(capturingClient);
+		Request.Options options = new Request.Options();
+
+		client.execute(request(), options);
+
+		assertThat(capturingClient.options).isSameAs(options);
+		assertThat(capturingClient.request.headers()).doesNotContainKey(FeignDeadline.HEADER);
+	}
+
+	@Test
+	void shouldLimitTimeoutsToRemainingTimeAndPropagateIt() throws Exception {
+		Client client = new FeignDeadlineCapability(null, true).enrich(capturingClient);
+		FeignDeadline.setCurrent(FeignDeadline.after(1, TimeUnit.SECONDS));
+
+		client.execute(request(), new Request.Options(10, TimeUnit.SECONDS, 60, TimeUnit.SECONDS, true));
+
+		assertThat(capturingClient.options.connectTimeoutMillis()).isBetween(1, 1000);
+		assertThat(capturingClient.options.readTimeoutMillis()).isBetween(1, 1000);
+		assertThat(Long.parseLong(capturingClient.request.headers().get(FeignDeadline.HEADER).iterator().next()))
+				.isBetween(0L, 1000L);
+	}
+
+	@Test
+	void shouldNotPropagateDeadlineUnlessEnabled() throws Exception {
+		Client client = new FeignDeadlineCapability(null, false).enrich(capturingClient);
+		FeignDeadline.setCurrent(FeignDeadline.after(1, TimeUnit.SECONDS));
+
+		client.execute(request(), new Request.Options());
+
+		assertThat(capturingClient.request.headers()).doesNotContainKey(FeignDeadline.HEADER);
+	}
+
+	@Test
+	void shouldRejectRequestsAfterDeadline() {
+		Client client = new FeignDeadlineCapability(null, true).enrich(capturingClient);
+		FeignDeadline.setCurrent(FeignDeadline.after(0, TimeUnit.MILLISECONDS));
+
+		assertThatThrownBy(() -> client.execute(request(), new Request.Options()))
+				.isInstanceOf(DeadlineExceededException.class);
+		assertThat(capturingClient.request).isNull();
+	}
+
+	@Test
+	void shouldBindDeadlineOfClientForTheWholeCall() {
+		TestClient client = Feign.builder().addCapability(new FeignDeadlineCapability(500L, false))
+				.client(capturingClient).target(TestClient.class, "http://test");
+
+		client.hello();
+
+		assertThat(capturingClient.deadline).isNotNull();
+		assertThat(capturingClient.options.readTimeoutMillis()).isBetween(1, 500);
+		assertThat(FeignDeadline.getCurrent()).isNull();
+	}
+
+	@Test
+	void shouldKeepEarlierDeadlineOfCaller() {
+		TestClient client = Feign.builder().addCapability(new FeignDeadlineCapability(10000L, false))
+				.client(capturingClient).target(TestClient.class, "http://test");
+		FeignDeadline callerDeadline = FeignDeadline.after(100, TimeUnit.MILLISECONDS);
+		FeignDeadline.setCurrent(callerDeadline);
+
+		client.hello();
+
+		assertThat(capturingClient.deadline).isSameAs(callerDeadline);
+		assertThat(FeignDeadline.getCurrent()).isSameAs(callerDeadline);
+	}
+
+	@Test
+	void shouldCarryDeadlineOverToCircuitBreakerThread() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TestClient client = circuitBreakerBuilder(executor).addCapability(new FeignDeadlineCapability(500L, true))
+					.client(capturingClient).target(TestClient.class, "http://test");
+
+			client.hello();
+
+			assertThat(capturingClient.thread).isNotSameAs(Thread.currentThread());
+			assertThat(capturingClient.deadline).isNotNull();
+			assertThat(capturingClient.options.readTimeoutMillis()).isBetween(1, 500);
+			assertThat(capturingClient.request.headers()).containsKey(FeignDeadline.HEADER);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void shouldCarryDeadlineOfCallerOverToCircuitBreakerThread() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TestClient client = circuitBreakerBuilder(executor).addCapability(new FeignDeadlineCapability(null, false))
+					.client(capturingClient).target(TestClient.class, "http://test");
+			FeignDeadline callerDeadline = FeignDeadline.after(100, TimeUnit.MILLISECONDS);
+			FeignDeadline.setCurrent(callerDeadline);
+
+			client.hello();
+
+			assertThat(capturingClient.thread).isNotSameAs(Thread.currentThread());
+			assertThat(capturingClient.deadline).isSameAs(callerDeadline);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static FeignCircuitBreaker.Builder circuitBreakerBuilder(ExecutorService executor) {
+		// runs every call on the executor, like a circuit breaker with a time limiter
+		CircuitBreaker circuitBreaker = new CircuitBreaker() {
+			@Override
+			public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+				try {
+					return executor.submit(toRun::get).get(5, TimeUnit.SECONDS);
+				}
+				catch (Exception ex) {
+					return fallback.apply(ex);
+				}
+			}
+		};
+		return FeignCircuitBreaker.builder().circuitBreakerFactory(new CircuitBreakerFactory() {
+			@Override
+			public CircuitBreaker create(String id) {
+				return circuitBreaker;
+			}
+
+			@Override
+			protected ConfigBuilder configBuilder(String id) {
+				return Object::new;
+			}
+
+			@Override
+			public void configureDefault(Function defaultConfiguration) {
+			}
+		}).feignClientName("test");
+	}
+
+	private static Request request() {
+		return Request.create(Request.HttpMethod.GET, "http://test/hello", Collections.emptyMap(), null,
+				StandardCharsets.UTF_8, null);
+	}
+
+	interface TestClient {
+
+		@RequestLine("GET /hello")
+		void hello();
+
+	}
+
+	static class CapturingClient implements Client {
+
+		private Request request;
+
+		private Request.Options options;
+
+		private FeignDeadline deadline;
+
+		private Thread thread;
+
+		@Override
+		public Response execute(Request request, Request.Options options) {
+			this.request = request;
+			this.options = options;
+			this.deadline = FeignDeadline.getCurrent();
+			this.thread = Thread.currentThread();
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap()).build();
+		}
+
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import feign.Request;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignDeadline} and the filters reading it from inbound requests.
+ */
+class FeignDeadlineTests {
+
+	@Test
+	void shouldParseRemainingTimeFromHeader() {
+		FeignDeadline deadline = FeignDeadline.fromHeader("500");
+
+		assertThat(deadline.getRemainingMillis()).isBetween(1L, 500L);
+		assertThat(FeignDeadline.fromHeader("soon")).isNull();
+		assertThat(FeignDeadline.fromHeader(null)).isNull();
+	}
+
+	@Test
+	void shouldSelectEarliestDeadline() {
+		FeignDeadline early = FeignDeadline.after(1, TimeUnit.SECONDS);
+		FeignDeadline late = FeignDeadline.after(1, TimeUnit.MINUTES);
+
+		assertThat(early.earliest(late)).isSameAs(early);
+		assertThat(late.earliest(early)).isSameAs(early);
+		assertThat(late.earliest(null)).isSameAs(late);
+	}
+
+	@Test
+	void shouldKeepOptionsWithinRemainingTime() {
+		Request.Options options = new Request.Options(100, TimeUnit.MILLISECONDS, 200, TimeUnit.MILLISECONDS, true);
+
+		assertThat(FeignDeadline.after(1, TimeUnit.MINUTES).limit(options)).isSameAs(options);
+	}
+
+	@Test
+	void shouldKeepHedgingDelayWhenLimitingOptions() {
+		HedgedRequestOptions options = new HedgedRequestOptions(new Request.Options(), 50);
+
+		Request.Options limited = FeignDeadline.after(1, TimeUnit.SECONDS).limit(options);
+
+		assertThat(limited).isInstanceOf(HedgedRequestOptions.class);
+		assertThat(((HedgedRequestOptions) limited).getHedgingDelay(TimeUnit.MILLISECONDS)).isEqualTo(50);
+		assertThat(limited.readTimeoutMillis()).isBetween(1, 1000);
+	}
+
+	@Test
+	void shouldBindDeadlineOfServletRequest() throws Exception {
+		AtomicReference<FeignDeadline> deadline = new AtomicReference<>();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(FeignDeadline.HEADER, "500");
+
+		new FeignDeadlineFilter().doFilter(request, new MockHttpServletResponse(),
+				new MockFilterChain(new HttpServlet() {
+					@Override
+					protected void service(HttpServletRequest req, HttpServletResponse resp) {
+						deadline.set(FeignDeadline.getCurrent());
+					}
+				}));
+
+		assertThat(deadline.get().getRemainingMillis()).isBetween(1L, 500L);
+		assertThat(FeignDeadline.getCurrent()).isNull();
+	}
+
+	@Test
+	void shouldStoreDeadlineOfWebFluxRequestInReactorContext() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").header(FeignDeadline.HEADER, "500"));
+		AtomicReference<FeignDeadline> deadline = new AtomicReference<>();
+
+		new FeignDeadlineWebFilter().filter(exchange, serverWebExchange -> Mono.deferContextual(context -> {
+			deadline.set(context.getOrDefault(FeignDeadline.class, null));
+			return Mono.empty();
+		})).block();
+
+		assertThat(deadline.get().getRemainingMillis()).isBetween(1L, 500L);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.commons.httpclient.HttpClientConfiguration;
+import org.springframework.cloud.openfeign.clientconfig.AsyncApacheHttp5Client;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the Apache HttpClient 5 configuration of {@link FeignAutoConfiguration}.
+ */
+class FeignHttpClient5ConfigurationTests {
+
+	private final ApplicationContextRunner runner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(HttpClientConfiguration.class, FeignAutoConfiguration.class));
+
+	@Test
+	void shouldUseHttpClient5WhenEnabled() {
+		runner.withPropertyValues("feign.httpclient.enabled=false", "feign.httpclient.hc5.enabled=true",
+				"feign.httpclient.connection-timeout=500", "feign.httpclient.connection-request-timeout=300",
+				"feign.httpclient.follow-redirects=false").run(context -> {
+					Client client = context.getBean(Client.class);
+
+					assertThat(client).isInstanceOf(AsyncApacheHttp5Client.class);
+					assertThat(ReflectionTestUtils.getField(client, "client"))
+							.isSameAs(context.getBean(CloseableHttpAsyncClient.class));
+					RequestConfig requestConfig = (RequestConfig) ReflectionTestUtils.getField(client,
+							"defaultRequestConfig");
+					assertThat(requestConfig.getConnectTimeout()).isEqualTo(Timeout.ofMilliseconds(500));
+					assertThat(requestConfig.getConnectionRequestTimeout()).isEqualTo(Timeout.ofMilliseconds(300));
+					assertThat(requestConfig.isRedirectsEnabled()).isFalse();
+				});
+	}
+
+	@Test
+	void shouldWaitForPooledConnectionsWithoutLimitWhenRequestTimeoutIsZero() {
+		runner.withPropertyValues("feign.httpclient.hc5.enabled=true", "feign.httpclient.connection-request-timeout=0")
+				.run(context -> {
+					RequestConfig requestConfig = (RequestConfig) ReflectionTestUtils
+							.getField(context.getBean(Client.class), "defaultRequestConfig");
+					assertThat(requestConfig.getConnectionRequestTimeout().toMilliseconds())
+							.isEqualTo(Integer.MAX_VALUE);
+				});
+	}
+
+	@Test
+	void shouldNotUseHttpClient5ByDefault() {
+		runner.run(context -> {
+			assertThat(context).doesNotHaveBean(CloseableHttpAsyncClient.class);
+			assertThat(context.getBean(Client.class)).isInstanceOf(ApacheHttpClient.class);
+		});
+	}
+
+	@Test
+	void shouldSendRequestsWithProvidedHttpClient5() {
+		CloseableHttpAsyncClient httpClient = HttpAsyncClients.createDefault();
+		runner.withPropertyValues("feign.httpclient.hc5.enabled=true")
+				.withBean(CloseableHttpAsyncClient.class, () -> httpClient)
+				.run(context -> assertThat(ReflectionTestUtils.getField(context.getBean(Client.class), "client"))
+						.isSameAs(httpClient));
+	}
+
+	@Test
+	void shouldCloseHttpClient5WithContext() {
+		AtomicReference<CloseableHttpAsyncClient> httpClient = new AtomicReference<>();
+		runner.withPropertyValues("feign.httpclient.hc5.enabled=true").run(context -> {
+			httpClient.set(context.getBean(CloseableHttpAsyncClient.class));
+			assertThat(httpClient.get().getStatus()).isNotEqualTo(IOReactorStatus.SHUT_DOWN);
+		});
+
+		assertThat(httpClient.get().getStatus()).isEqualTo(IOReactorStatus.SHUT_DOWN);
+	}
+
+}
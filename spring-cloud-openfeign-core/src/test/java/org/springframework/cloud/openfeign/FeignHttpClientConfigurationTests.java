@@ -22,10 +22,13 @@ import javax.net.ssl.SSLContextSpi;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
 
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Lookup;
 import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -72,6 +75,32 @@ public class FeignHttpClientConfigurationTests {
 		assertThat(this.getX509TrustManager(socketFactoryRegistry).getAcceptedIssuers()).isNull();
 	}
 
+	@Test
+	public void connectionManagerIsValidatedAndEvicted() {
+		HttpClientConnectionManager connectionManager = this.context.getBean(HttpClientConnectionManager.class);
+		assertThat(((PoolingHttpClientConnectionManager) connectionManager).getValidateAfterInactivity())
+				.isEqualTo(2000);
+		assertThat(this.context.getBean(FeignConnectionEvictor.class).getNames()).containsExactly("default");
+	}
+
+	@Test
+	public void connectionRequestTimeoutIsUnboundedByDefault() {
+		CloseableHttpClient httpClient = this.context.getBean(CloseableHttpClient.class);
+		RequestConfig requestConfig = (RequestConfig) this.getField(httpClient, "defaultConfig");
+		assertThat(requestConfig.getConnectionRequestTimeout()).isEqualTo(-1);
+	}
+
+	@Test
+	public void connectionRequestTimeoutIsBoundedWhenSet() {
+		try (ConfigurableApplicationContext boundedContext = new SpringApplicationBuilder()
+				.properties("feign.httpclient.connection-request-timeout=2000").web(WebApplicationType.NONE)
+				.sources(HttpClientConfiguration.class, FeignAutoConfiguration.class).run()) {
+			CloseableHttpClient httpClient = boundedContext.getBean(CloseableHttpClient.class);
+			RequestConfig requestConfig = (RequestConfig) this.getField(httpClient, "defaultConfig");
+			assertThat(requestConfig.getConnectionRequestTimeout()).isEqualTo(2000);
+		}
+	}
+
 	private Lookup<ConnectionSocketFactory> getConnectionSocketFactoryLookup(
 			HttpClientConnectionManager connectionManager) {
 		DefaultHttpClientConnectionOperator connectionOperator = (DefaultHttpClientConnectionOperator) this
@@ -17,8 +17,10 @@
 package org.springframework.cloud.openfeign;
 
 import java.lang.reflect.Field;
+import java.util.List;
 import java.util.Objects;
 
+import feign.Capability;
 import feign.Client;
 import feign.Feign;
 import feign.Target;
@@ -64,6 +66,9 @@ class FeignHttpClientUrlTests {
 	@Autowired
 	private BeanUrlClient beanClient;
 
+	@Autowired
+	private MultipleUrlsClient multipleUrlsClient;
+
 	@BeforeAll
 	public static void beforeClass() {
 		port = SocketUtils.findAvailableTcpPort();
@@ -97,6 +102,13 @@ class FeignHttpClientUrlTests {
 		assertThat(hello).as("first hello didn't match").isEqualTo(new Hello("hello world 1"));
 	}
 
+	@Test
+	void testMultipleUrlsFailOverToAvailableUrl() {
+		for (int i = 0; i < 4; i++) {
+			assertThat(multipleUrlsClient.getHello()).isEqualTo(new Hello("hello world 1"));
+		}
+	}
+
 	// this tests that
 	@FeignClient(name = "localappurl", url = "http://localhost:${server.port}/")
 	protected interface UrlClient {
@@ -122,10 +134,20 @@ class FeignHttpClientUrlTests {
 
 	}
 
+	// nothing listens on the first URL
+	@FeignClient(name = "multipleurls", url = "http://localhost:1, localhost:${server.port}/")
+	protected interface MultipleUrlsClient {
+
+		@RequestMapping(method = RequestMethod.GET, value = "/hello")
+		Hello getHello();
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@EnableAutoConfiguration
 	@RestController
-	@EnableFeignClients(clients = { UrlClient.class, BeanUrlClient.class, BeanUrlClientNoProtocol.class })
+	@EnableFeignClients(
+			clients = { UrlClient.class, BeanUrlClient.class, BeanUrlClientNoProtocol.class, MultipleUrlsClient.class })
 	@Import(NoSecurityConfiguration.class)
 	protected static class TestConfig {
 
@@ -153,6 +175,7 @@ class FeignHttpClientUrlTests {
 		public Targeter feignTargeter() {
 			return new Targeter() {
 				@Override
+				@SuppressWarnings("unchecked")
 				public <T> T target(FeignClientFactoryBean factory, Feign.Builder feign, FeignContext context,
 						Target.HardCodedTarget<T> target) {
 					Field field = ReflectionUtils.findField(Feign.Builder.class, "client");
@@ -161,6 +184,16 @@ class FeignHttpClientUrlTests {
 					if (target.name().equals("localappurl")) {
 						assertThat(client).isInstanceOf(ApacheHttpClient.class).as("client was wrong type");
 					}
+					if (target.name().equals("multipleurls")) {
+						Field capabilities = ReflectionUtils.findField(Feign.Builder.class, "capabilities");
+						ReflectionUtils.makeAccessible(capabilities);
+						Capability capability = ((List<Capability>) ReflectionUtils.getField(capabilities, feign))
+								.stream().filter(StaticUrlLoadBalancingCapability.class::isInstance).findFirst().get();
+						Client loadBalancingClient = capability.enrich(client);
+						assertThat(loadBalancingClient).isInstanceOf(StaticUrlLoadBalancingClient.class);
+						assertThat(((StaticUrlLoadBalancingClient) loadBalancingClient).getDelegate())
+								.isInstanceOf(ApacheHttpClient.class);
+					}
 					return feign.target(target);
 				}
 			};
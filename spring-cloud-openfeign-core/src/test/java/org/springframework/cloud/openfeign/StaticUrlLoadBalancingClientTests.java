@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link StaticUrlLoadBalancingClient}.
+ */
+class StaticUrlLoadBalancingClientTests {
+
+	private static final List<String> URLS = Arrays.asList("http://a:8080/api", "http://b:8080/api",
+			"http://c:8080/api");
+
+	private final StubFleet fleet = new StubFleet();
+
+	@Test
+	void shouldSpreadRequestsRoundRobin() throws IOException {
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN);
+
+		for (int i = 0; i < 30; i++) {
+			client.execute(request(Request.HttpMethod.GET, "http://a:8080/api/items?page=1"), new Request.Options());
+		}
+
+		assertThat(fleet.hosts).containsOnlyKeys("a", "b", "c");
+		assertThat(fleet.hosts.values()).containsOnly(10);
+		assertThat(fleet.urls).allMatch(url -> url.endsWith(":8080/api/items?page=1"));
+	}
+
+	@Test
+	void shouldSpreadRequestsByOutstandingRequests() throws IOException {
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.LEAST_OUTSTANDING_REQUESTS);
+
+		for (int i = 0; i < 300; i++) {
+			client.execute(request(Request.HttpMethod.GET, "http://a:8080/api/items"), new Request.Options());
+		}
+
+		assertThat(fleet.hosts).containsOnlyKeys("a", "b", "c");
+	}
+
+	@Test
+	void shouldFailOverWhenConnectionFails() throws IOException {
+		fleet.down.add("a");
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN);
+
+		for (int i = 0; i < 10; i++) {
+			Response response = client.execute(request(Request.HttpMethod.POST, "http://a:8080/api/items"),
+					new Request.Options());
+			assertThat(response.status()).isEqualTo(200);
+		}
+
+		// the unavailable URL is tried once, then avoided
+		assertThat(fleet.attempts.get("a")).isEqualTo(1);
+		assertThat(fleet.hosts).doesNotContainKey("a");
+	}
+
+	@Test
+	void shouldNotFailOverNonIdempotentRequestThatMayHaveReachedServer() {
+		fleet.failure = new SocketTimeoutException("Read timed out");
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN);
+
+		assertThatThrownBy(() -> client.execute(request(Request.HttpMethod.POST, "http://a:8080/api/items"),
+				new Request.Options())).isInstanceOf(SocketTimeoutException.class);
+		assertThat(fleet.attempts.values()).containsExactly(1);
+	}
+
+	@Test
+	void shouldFailOverIdempotentRequest() throws IOException {
+		fleet.failure = new SocketTimeoutException("Read timed out");
+		fleet.failuresLeft = 2;
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN);
+
+		Response response = client.execute(request(Request.HttpMethod.GET, "http://a:8080/api/items"),
+				new Request.Options());
+
+		assertThat(response.status()).isEqualTo(200);
+		assertThat(fleet.attempts).hasSize(3);
+	}
+
+	@Test
+	void shouldThrowWhenAllUrlsFail() {
+		fleet.down.addAll(Arrays.asList("a", "b", "c"));
+		StaticUrlLoadBalancingClient client = new StaticUrlLoadBalancingClient(fleet, URLS,
+				StaticUrlLoadBalancingClient.Strategy.ROUND_ROBIN);
+
+		assertThatThrownBy(
+				() -> client.execute(request(Request.HttpMethod.GET, "http://a:8080/api/items"), new Request.Options()))
+						.isInstanceOf(ConnectException.class);
+		assertThat(fleet.attempts).containsOnlyKeys("a", "b", "c");
+	}
+
+	private static Request request(Request.HttpMethod method, String url) {
+		return Request.create(method, url, Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+	}
+
+	/**
+	 * Stands in for the hosts behind the static URLs.
+	 */
+	static class StubFleet implements Client {
+
+		private final Set<String> down = new HashSet<>();
+
+		private final Map<String, Integer> attempts = new HashMap<>();
+
+		private final Map<String, Integer> hosts = new HashMap<>();
+
+		private final List<String> urls = new ArrayList<>();
+
+		private IOException failure;
+
+		private int failuresLeft = Integer.MAX_VALUE;
+
+		@Override
+		public Response execute(Request request, Request.Options options) throws IOException {
+			String host = request.url().substring("http://".length(), request.url().indexOf(':', 5));
+			attempts.merge(host, 1, Integer::sum);
+			if (down.contains(host)) {
+				throw new ConnectException("Connection refused");
+			}
+			if (failure != null && failuresLeft-- > 0) {
+				throw failure;
+			}
+			hosts.merge(host, 1, Integer::sum);
+			urls.add(request.url());
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("OK", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+}
@@ -18,9 +18,16 @@ package org.springframework.cloud.openfeign.beans;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import feign.Contract;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -33,6 +40,8 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.cloud.openfeign.FeignClientBuilder;
+import org.springframework.cloud.openfeign.FeignContext;
+import org.springframework.cloud.openfeign.test.NoSecurityConfiguration;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -110,13 +119,101 @@ public class BeansFeignClientTests {
 		assertThat(invocationHandler).as("invocationHandler was null").isNotNull();
 	}
 
+	@Test
+	public void cachedBuilderReturnsSameClientForSameSettings() {
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 2);
+
+		TestClient first = builder.forType(TestClient.class, "cached").url("http://localhost:" + this.port).build();
+		TestClient second = builder.forType(TestClient.class, "cached").url("http://localhost:" + this.port).build();
+		TestClient otherUrl = builder.forType(TestClient.class, "cached").url("http://127.0.0.1:" + this.port).build();
+
+		assertThat(second).isSameAs(first);
+		assertThat(otherUrl).isNotSameAs(first);
+		assertThat(builder.cachedClients()).isEqualTo(2);
+	}
+
+	@Test
+	public void cachedBuilderEvictsLeastRecentlyUsedClient() {
+		List<Object> evicted = new ArrayList<>();
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 2, evicted::add);
+
+		TestClient first = builder.forType(TestClient.class, "first").build();
+		TestClient second = builder.forType(TestClient.class, "second").build();
+		assertThat(builder.forType(TestClient.class, "first").build()).isSameAs(first);
+		builder.forType(TestClient.class, "third").build();
+
+		assertThat(evicted).containsExactly(second);
+		assertThat(builder.cachedClients()).isEqualTo(2);
+	}
+
+	@Test
+	public void cachedBuilderClosesContextOfEvictedClient() {
+		FeignContext feignContext = this.context.getBean(FeignContext.class);
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 1);
+
+		builder.forType(TestClient.class, "evictedContext").build();
+		assertThat(feignContext.getContextNames()).contains("evictedContext");
+		builder.forType(TestClient.class, "keptContext").build();
+
+		assertThat(feignContext.getContextNames()).doesNotContain("evictedContext").contains("keptContext");
+	}
+
+	@Test
+	public void cachedBuilderKeepsContextItDidNotCreate() {
+		FeignContext feignContext = this.context.getBean(FeignContext.class);
+		feignContext.getInstance("sharedContext", Contract.class);
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 1);
+
+		builder.forType(TestClient.class, "sharedContext").build();
+		builder.forType(TestClient.class, "otherContext").build();
+
+		assertThat(feignContext.getContextNames()).contains("sharedContext");
+	}
+
+	@Test
+	public void cachedBuilderClosesContextWhenLastClientUsingItIsEvicted() {
+		FeignContext feignContext = this.context.getBean(FeignContext.class);
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 2);
+
+		builder.forType(TestClient.class, "first").contextId("sharedCachedContext").build();
+		builder.forType(TestClient.class, "second").contextId("sharedCachedContext").build();
+		builder.forType(TestClient.class, "third").build();
+		assertThat(feignContext.getContextNames()).contains("sharedCachedContext");
+		builder.forType(TestClient.class, "fourth").build();
+
+		assertThat(feignContext.getContextNames()).doesNotContain("sharedCachedContext");
+	}
+
+	@Test
+	public void cachedBuilderReleasesEvictedClientOnceItsCallsComplete() throws Exception {
+		FeignContext feignContext = this.context.getBean(FeignContext.class);
+		List<Object> evicted = new CopyOnWriteArrayList<>();
+		FeignClientBuilder builder = FeignClientBuilder.caching(this.context, 1, evicted::add);
+		TestClient busy = builder.forType(TestClient.class, "busyContext").url("http://localhost:" + this.port).build();
+
+		CompletableFuture<Hello> call = CompletableFuture.supplyAsync(busy::getBlockedHello);
+		assertThat(Application.BLOCKED_CALL_RECEIVED.await(5, TimeUnit.SECONDS)).isTrue();
+		builder.forType(TestClient.class, "idleContext").build();
+
+		assertThat(evicted).isEmpty();
+		assertThat(feignContext.getContextNames()).contains("busyContext");
+		Application.BLOCKED_CALL_RELEASED.countDown();
+		assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo(new Hello("hello world 1"));
+		assertThat(evicted).containsExactly(busy);
+		assertThat(feignContext.getContextNames()).doesNotContain("busyContext");
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@EnableAutoConfiguration
 	@RestController
 	@EnableFeignClients
-	@Import(FeignClientBuilder.class)
+	@Import({ FeignClientBuilder.class, NoSecurityConfiguration.class })
 	protected static class Application {
 
+		static final CountDownLatch BLOCKED_CALL_RECEIVED = new CountDownLatch(1);
+
+		static final CountDownLatch BLOCKED_CALL_RELEASED = new CountDownLatch(1);
+
 		@Bean("build-by-builder")
 		public TestClient buildByBuilder(final FeignClientBuilder feignClientBuilder) {
 			return feignClientBuilder.forType(TestClient.class, "builderapp").build();
@@ -127,6 +224,13 @@ public class BeansFeignClientTests {
 			return new Hello("hello world 1");
 		}
 
+		@RequestMapping(method = RequestMethod.GET, value = "/hello/blocked")
+		public Hello getBlockedHello() throws InterruptedException {
+			BLOCKED_CALL_RECEIVED.countDown();
+			BLOCKED_CALL_RELEASED.await(5, TimeUnit.SECONDS);
+			return new Hello("hello world 1");
+		}
+
 	}
 
 	public static class Hello {
@@ -29,4 +29,7 @@ public interface TestClient {
 	@RequestMapping(method = RequestMethod.GET, value = "/hello")
 	Hello getHello();
 
+	@RequestMapping(method = RequestMethod.GET, value = "/hello/blocked")
+	Hello getBlockedHello();
+
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties.Hc5Properties.VersionPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link AsyncApacheHttp5Client}.
+ */
+class AsyncApacheHttp5ClientTests {
+
+	private static final byte[] LARGE_BODY = new byte[4 * 1024 * 1024];
+
+	static {
+		new Random(42).nextBytes(LARGE_BODY);
+	}
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private final FeignHttpClientProperties properties = new FeignHttpClientProperties();
+
+	private HttpAsyncServer server;
+
+	private CloseableHttpAsyncClient httpClient;
+
+	private String url;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// speaks HTTP/1.1, or HTTP/2 with clients that start with the HTTP/2 preface
+		server = H2ServerBootstrap.bootstrap().setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+				.setIOSessionDecorator(session -> {
+					connections.incrementAndGet();
+					return session;
+				}).register("*", new EchoHandler()).create();
+		server.start();
+		InetSocketAddress address = (InetSocketAddress) server.listen(new InetSocketAddress("localhost", 0)).get()
+				.getAddress();
+		url = "http://localhost:" + address.getPort();
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (httpClient != null) {
+			httpClient.close(CloseMode.IMMEDIATE);
+		}
+		server.close(CloseMode.IMMEDIATE);
+		executor.shutdownNow();
+		callers.shutdownNow();
+	}
+
+	@Test
+	void shouldSendRequestAndReadResponse() throws Exception {
+		Map<String, Collection<String>> headers = new HashMap<>();
+		headers.put("Content-Type", Collections.singletonList("text/plain"));
+		headers.put("Content-Length", Collections.singletonList("5"));
+		headers.put("X-Test", Collections.singletonList("value"));
+
+		Response response = client().execute(Request.create(Request.HttpMethod.POST, url + "/echo?delay=0", headers,
+				"hello".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, null), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(200);
+		assertThat(response.headers().get("x-method")).containsExactly("POST");
+		assertThat(response.headers().get("X-Protocol")).containsExactly("HTTP/1.1");
+		assertThat(Util.toString(response.body().asReader(StandardCharsets.UTF_8)))
+				.isEqualTo("/echo?delay=0 value hello");
+	}
+
+	@Test
+	void shouldReturnResponseWithoutBody() throws Exception {
+		Response response = client().execute(get("/empty"), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(204);
+		assertThat(response.body()).isNull();
+	}
+
+	@Test
+	void shouldFailWhenResponseTakesLongerThanReadTimeout() {
+		Request.Options options = new Request.Options(100, TimeUnit.MILLISECONDS, 100, TimeUnit.MILLISECONDS, true);
+
+		assertThatThrownBy(() -> client().execute(get("/echo?delay=1000"), options))
+				.isInstanceOf(SocketTimeoutException.class);
+	}
+
+	@Test
+	void shouldStreamBodyLargerThanBuffer() throws Exception {
+		Response response = client().execute(get("/large"), new Request.Options());
+
+		assertThat(response.body().length()).isEqualTo(LARGE_BODY.length);
+		try (InputStream body = response.body().asInputStream()) {
+			assertThat(Util.toByteArray(body)).isEqualTo(LARGE_BODY);
+		}
+	}
+
+	@Test
+	void shouldStreamBodyLargerThanBufferOverHttp2() throws Exception {
+		properties.getHc5().setVersionPolicy(VersionPolicy.FORCE_HTTP_2);
+
+		Response response = client().execute(get("/large"), new Request.Options());
+
+		assertThat(response.headers().get("X-Protocol")).containsExactly("HTTP/2.0");
+		try (InputStream body = response.body().asInputStream()) {
+			assertThat(Util.toByteArray(body)).isEqualTo(LARGE_BODY);
+		}
+	}
+
+	@Test
+	void shouldFailWhenBodyStopsForLongerThanReadTimeout() throws Exception {
+		Request.Options options = new Request.Options(100, TimeUnit.MILLISECONDS, 100, TimeUnit.MILLISECONDS, true);
+
+		Response response = client().execute(get("/stall"), options);
+
+		try (InputStream body = response.body().asInputStream()) {
+			byte[] first = new byte[5];
+			assertThat(body.read(first)).isEqualTo(5);
+			assertThat(first).isEqualTo("first".getBytes(StandardCharsets.UTF_8));
+			assertThatThrownBy(body::read).isInstanceOf(SocketTimeoutException.class);
+		}
+	}
+
+	@Test
+	void shouldMultiplexConcurrentRequestsOverOneConnectionWithForcedHttp2() throws Exception {
+		properties.getHc5().setVersionPolicy(VersionPolicy.FORCE_HTTP_2);
+		AsyncApacheHttp5Client client = client();
+		// the concurrent requests share the connection once it is established
+		client.execute(get("/echo?delay=0"), new Request.Options());
+
+		List<Response> responses = executeConcurrently(client, 4);
+
+		assertThat(connections).hasValue(1);
+		assertThat(responses).allSatisfy(response -> {
+			assertThat(response.status()).isEqualTo(200);
+			assertThat(response.headers().get("X-Protocol")).containsExactly("HTTP/2.0");
+		});
+	}
+
+	@Test
+	void shouldUseConnectionPerConcurrentRequestWithHttp1() throws Exception {
+		List<Response> responses = executeConcurrently(client(), 4);
+
+		assertThat(connections).hasValue(4);
+		assertThat(responses).allSatisfy(response -> assertThat(response.status()).isEqualTo(200));
+	}
+
+	private AsyncApacheHttp5Client client() {
+		httpClient = FeignApacheHttp5Clients.createClient(properties, properties.getMaxConnections(),
+				properties.getMaxConnectionsPerRoute());
+		return new AsyncApacheHttp5Client(httpClient, FeignApacheHttp5Clients.createRequestConfig(properties));
+	}
+
+	private List<Response> executeConcurrently(AsyncApacheHttp5Client client, int requests) throws Exception {
+		List<CompletableFuture<Response>> futures = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return client.execute(get("/echo?delay=500"), new Request.Options());
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			}, callers));
+		}
+		List<Response> responses = new ArrayList<>();
+		for (CompletableFuture<Response> future : futures) {
+			responses.add(future.get(5, TimeUnit.SECONDS));
+		}
+		return responses;
+	}
+
+	private Request get(String path) {
+		return Request.create(Request.HttpMethod.GET, url + path, Collections.emptyMap(), null, StandardCharsets.UTF_8,
+				null);
+	}
+
+	/**
+	 * Answers with the path, the <code>X-Test</code> header and the body of the request
+	 * after the delay in milliseconds of the <code>delay</code> query parameter.
+	 * <code>/large</code> answers with {@link #LARGE_BODY}, and <code>/stall</code> with
+	 * a body that stops after its first part.
+	 */
+	private class EchoHandler implements AsyncServerRequestHandler<Message<HttpRequest, String>> {
+
+		@Override
+		public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request,
+				EntityDetails entityDetails, HttpContext context) {
+			return new BasicRequestConsumer<>(entityDetails != null ? new StringAsyncEntityConsumer() : null);
+		}
+
+		@Override
+		public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger, HttpContext context) {
+			HttpRequest request = message.getHead();
+			if (request.getPath().equals("/empty")) {
+				submit(responseTrigger, AsyncResponseBuilder.create(204), context);
+				return;
+			}
+			if (request.getPath().equals("/large")) {
+				submit(responseTrigger,
+						AsyncResponseBuilder.create(200)
+								.addHeader("X-Protocol", HttpCoreContext.adapt(context).getProtocolVersion().toString())
+								.setEntity(LARGE_BODY, ContentType.APPLICATION_OCTET_STREAM),
+						context);
+				return;
+			}
+			if (request.getPath().equals("/stall")) {
+				submit(responseTrigger, AsyncResponseBuilder.create(200).setEntity(new StallingEntityProducer()),
+						context);
+				return;
+			}
+			Header test = request.getFirstHeader("X-Test");
+			AsyncResponseBuilder response = AsyncResponseBuilder.create(200).addHeader("X-Method", request.getMethod())
+					.addHeader("X-Protocol", HttpCoreContext.adapt(context).getProtocolVersion().toString()).setEntity(
+							request.getPath() + " " + (test != null ? test.getValue() : "") + " " + message.getBody(),
+							ContentType.TEXT_PLAIN);
+			long delay = Long.parseLong(request.getPath().substring(request.getPath().indexOf('=') + 1));
+			executor.schedule(() -> submit(responseTrigger, response, context), delay, TimeUnit.MILLISECONDS);
+		}
+
+		private void submit(ResponseTrigger responseTrigger, AsyncResponseBuilder response, HttpContext context) {
+			try {
+				responseTrigger.submitResponse(response.build(), context);
+			}
+			catch (HttpException | IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+	}
+
+	/**
+	 * Sends the first part of a chunked body and then nothing more.
+	 */
+	private static class StallingEntityProducer implements AsyncEntityProducer {
+
+		private volatile boolean sent;
+
+		@Override
+		public boolean isRepeatable() {
+			return false;
+		}
+
+		@Override
+		public int available() {
+			return this.sent ? 0 : 1;
+		}
+
+		@Override
+		public void produce(DataStreamChannel channel) throws IOException {
+			if (!this.sent) {
+				channel.write(ByteBuffer.wrap("first".getBytes(StandardCharsets.UTF_8)));
+				this.sent = true;
+			}
+		}
+
+		@Override
+		public void failed(Exception cause) {
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public String getContentType() {
+			return ContentType.TEXT_PLAIN.toString();
+		}
+
+		@Override
+		public String getContentEncoding() {
+			return null;
+		}
+
+		@Override
+		public boolean isChunked() {
+			return true;
+		}
+
+		@Override
+		public Set<String> getTrailerNames() {
+			return null;
+		}
+
+		@Override
+		public void releaseResources() {
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.clientconfig;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import feign.okhttp.OkHttpClient;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.commons.httpclient.HttpClientConfiguration;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.FeignAutoConfiguration;
+import org.springframework.cloud.openfeign.FeignConnectionEvictor;
+import org.springframework.cloud.openfeign.FeignContext;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link FeignClientPoolConfiguration}.
+ */
+class FeignClientPoolConfigurationTests {
+
+	private final ApplicationContextRunner runner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(HttpClientConfiguration.class, FeignAutoConfiguration.class));
+
+	@Test
+	void shouldCreateConnectionPoolOfTheClientInItsContext() {
+		runner.withPropertyValues("feign.client.config.isolated.pool.max-connections=5",
+				"feign.client.config.isolated.pool.max-connections-per-route=2").run(context -> {
+					FeignContext feignContext = context.getBean(FeignContext.class);
+					Client sharedClient = context.getBean(Client.class);
+
+					Client client = feignContext.getInstance("isolated", Client.class);
+
+					assertThat(feignContext.getInstance("shared", Client.class)).isSameAs(sharedClient);
+					assertThat(client).isInstanceOf(ApacheHttpClient.class).isNotSameAs(sharedClient);
+					PoolingHttpClientConnectionManager connectionManager = connectionManager(client);
+					assertThat(connectionManager.getMaxTotal()).isEqualTo(5);
+					assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(2);
+					FeignConnectionEvictor evictor = context.getBean(FeignConnectionEvictor.class);
+					assertThat(evictor.getNames()).containsExactlyInAnyOrder("default", "isolated");
+
+					feignContext.destroy();
+
+					assertThat(evictor.getNames()).containsExactly("default");
+				});
+	}
+
+	@Test
+	void shouldInheritPoolLimitsNotSetForTheClient() {
+		runner.withPropertyValues("feign.httpclient.max-connections-per-route=7",
+				"feign.client.config.default.pool.max-connections=5").run(context -> {
+					Client client = context.getBean(FeignContext.class).getInstance("any", Client.class);
+
+					PoolingHttpClientConnectionManager connectionManager = connectionManager(client);
+					assertThat(connectionManager.getMaxTotal()).isEqualTo(5);
+					assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(7);
+				});
+	}
+
+	@Test
+	void shouldCreateOkHttpConnectionPoolOfTheClient() {
+		runner.withPropertyValues("feign.httpclient.enabled=false", "feign.okhttp.enabled=true",
+				"feign.client.config.isolated.pool.max-connections=5").run(context -> {
+					okhttp3.OkHttpClient sharedClient = context.getBean(okhttp3.OkHttpClient.class);
+
+					Client client = context.getBean(FeignContext.class).getInstance("isolated", Client.class);
+
+					assertThat(client).isInstanceOf(OkHttpClient.class);
+					okhttp3.OkHttpClient okHttpClient = (okhttp3.OkHttpClient) ReflectionTestUtils.getField(client,
+							"delegate");
+					assertThat(okHttpClient.connectionPool()).isNotSameAs(sharedClient.connectionPool());
+					assertThat(okHttpClient.dispatcher()).isSameAs(sharedClient.dispatcher());
+				});
+	}
+
+	@Test
+	void shouldCreateHttpClient5ConnectionPoolOfTheClient() {
+		runner.withPropertyValues("feign.httpclient.hc5.enabled=true",
+				"feign.client.config.isolated.pool.max-connections=5").run(context -> {
+					CloseableHttpAsyncClient sharedClient = context.getBean(CloseableHttpAsyncClient.class);
+
+					Client client = context.getBean(FeignContext.class).getInstance("isolated", Client.class);
+
+					assertThat(client).isInstanceOf(AsyncApacheHttp5Client.class);
+					assertThat(ReflectionTestUtils.getField(client, "client"))
+							.isInstanceOf(CloseableHttpAsyncClient.class).isNotSameAs(sharedClient);
+				});
+	}
+
+	@Test
+	void shouldKeepLoadBalancingWithTheClientOfThePool() {
+		Client delegate = mock(Client.class);
+		FeignBlockingLoadBalancerClient sharedClient = new FeignBlockingLoadBalancerClient(new ApacheHttpClient(),
+				mock(LoadBalancerClient.class), new LoadBalancerProperties(), mock(LoadBalancerClientFactory.class));
+
+		Client client = FeignClientPools.withDelegate(sharedClient, delegate, ApacheHttpClient.class);
+
+		assertThat(client).isInstanceOf(FeignBlockingLoadBalancerClient.class).isNotSameAs(sharedClient);
+		assertThat(((FeignBlockingLoadBalancerClient) client).getDelegate()).isSameAs(delegate);
+	}
+
+	@Test
+	void shouldKeepClientThatDoesNotUseTheClientOfThePool() {
+		Client sharedClient = new Client.Default(null, null);
+
+		assertThat(FeignClientPools.withDelegate(sharedClient, mock(Client.class), ApacheHttpClient.class))
+				.isSameAs(sharedClient);
+	}
+
+	private static PoolingHttpClientConnectionManager connectionManager(Client client) {
+		Object connectionManager = ReflectionTestUtils.getField(ReflectionTestUtils.getField(client, "client"),
+				"connManager");
+		if (!(connectionManager instanceof PoolingHttpClientConnectionManager)) {
+			// instrumented by FeignConnectionLeases
+			connectionManager = ReflectionTestUtils.getField(connectionManager, "delegate");
+		}
+		return (PoolingHttpClientConnectionManager) connectionManager;
+	}
+
+}
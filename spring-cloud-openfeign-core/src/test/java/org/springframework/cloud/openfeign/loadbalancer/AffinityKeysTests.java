@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import feign.Client;
+import feign.Feign;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.openfeign.AffinityKey;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link AffinityKeys} and {@link AffinityKeyCapability}.
+ */
+class AffinityKeysTests {
+
+	private final AffinityKeyCapability capability = new AffinityKeyCapability();
+
+	private final CapturingClient capturingClient = new CapturingClient(capability.affinityKeys);
+
+	private final TestClient client = Feign.builder().contract(new SpringMvcContract()).addCapability(capability)
+			.client(capturingClient).target(TestClient.class, "http://test/api");
+
+	@Test
+	void shouldResolveKeyFromHeader() {
+		client.byHeader("acme");
+
+		assertThat(capturingClient.affinityKey).isEqualTo("acme");
+	}
+
+	@Test
+	void shouldResolveKeyFromPathVariable() {
+		client.byPathVariable("acme", "42");
+
+		assertThat(capturingClient.affinityKey).isEqualTo("acme");
+	}
+
+	@Test
+	void shouldResolveKeyFromPathVariableOnlyDuringCall() {
+		client.byPathVariable("acme", "42");
+
+		assertThat(capability.affinityKeys.resolve(capturingClient.request)).isNull();
+	}
+
+	@Test
+	void shouldResolveKeyFromPathVariableOfNestedCall() {
+		capturingClient.nested = () -> client.byPathVariable("nested", "1");
+
+		client.byPathVariable("acme", "42");
+
+		assertThat(capturingClient.affinityKey).isEqualTo("acme");
+	}
+
+	@Test
+	void shouldResolveKeyFromRequestParam() {
+		client.byRequestParam("acme", 10);
+
+		assertThat(capturingClient.affinityKey).isEqualTo("acme");
+	}
+
+	@Test
+	void shouldNotResolveKeyOfMethodWithoutAffinityKey() {
+		client.withoutAffinityKey("acme");
+
+		assertThat(capturingClient.affinityKey).isNull();
+	}
+
+	@Test
+	void shouldAddKeyToRequestData() {
+		client.byHeader("acme");
+
+		RequestData requestData = LoadBalancerUtils.buildRequestData(capturingClient.request,
+				URI.create(capturingClient.request.url()), capturingClient.affinityKey);
+
+		assertThat(requestData.getAttributes()).containsEntry(ConsistentHashLoadBalancer.AFFINITY_KEY_ATTRIBUTE,
+				"acme");
+	}
+
+	@Test
+	void shouldRejectAffinityKeyWithoutSingleSourceWhenClientIsBuilt() {
+		assertThatThrownBy(() -> Feign.builder().contract(new SpringMvcContract())
+				.addCapability(new AffinityKeyCapability()).target(AmbiguousClient.class, "http://test/api"))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("AmbiguousClient#ambiguous(String)");
+	}
+
+	@Test
+	void shouldRejectMissingPathVariableWhenClientIsBuilt() {
+		assertThatThrownBy(() -> Feign.builder().contract(new SpringMvcContract())
+				.addCapability(new AffinityKeyCapability()).target(MissingPathVariableClient.class, "http://test/api"))
+						.isInstanceOf(IllegalStateException.class).hasMessageContaining("'tenant'");
+	}
+
+	@Test
+	void shouldResolveKeysOfLoadBalancerClient() {
+		FeignBlockingLoadBalancerClient loadBalancerClient = new FeignBlockingLoadBalancerClient(capturingClient, null,
+				new LoadBalancerProperties(), null);
+
+		Client client = capability.enrich(loadBalancerClient);
+
+		assertThat(client).isInstanceOf(FeignBlockingLoadBalancerClient.class).isNotSameAs(loadBalancerClient);
+		assertThat(((FeignBlockingLoadBalancerClient) client).getDelegate()).isSameAs(capturingClient);
+		assertThat(capability.enrich(capturingClient)).isSameAs(capturingClient);
+	}
+
+	@Test
+	void shouldDetectClientsWithAffinityKeys() {
+		assertThat(AffinityKeyCapability.hasAffinityKeys(TestClient.class)).isTrue();
+		assertThat(AffinityKeyCapability.hasAffinityKeys(Runnable.class)).isFalse();
+	}
+
+	interface TestClient {
+
+		@AffinityKey(header = "tenant")
+		@GetMapping("/items")
+		String byHeader(@RequestHeader("tenant") String tenant);
+
+		@AffinityKey(pathVariable = "tenant")
+		@GetMapping("/tenants/{tenant}/items/{id}")
+		String byPathVariable(@PathVariable("tenant") String tenant, @PathVariable("id") String id);
+
+		@AffinityKey(requestParam = "tenant")
+		@GetMapping("/items")
+		String byRequestParam(@RequestParam("tenant") String tenant, @RequestParam("size") int size);
+
+		@GetMapping("/items")
+		String withoutAffinityKey(@RequestHeader("tenant") String tenant);
+
+	}
+
+	interface AmbiguousClient {
+
+		@AffinityKey(header = "tenant", requestParam = "tenant")
+		@GetMapping("/items")
+		String ambiguous(@RequestHeader("tenant") String tenant);
+
+	}
+
+	interface MissingPathVariableClient {
+
+		@AffinityKey(pathVariable = "tenant")
+		@GetMapping("/items/{id}")
+		String missing(@PathVariable("id") String id);
+
+	}
+
+	static class CapturingClient implements Client {
+
+		private final AffinityKeys affinityKeys;
+
+		private Request request;
+
+		private String affinityKey;
+
+		private Runnable nested;
+
+		CapturingClient(AffinityKeys affinityKeys) {
+			this.affinityKeys = affinityKeys;
+		}
+
+		@Override
+		public Response execute(Request request, Request.Options options) {
+			Runnable nested = this.nested;
+			if (nested != null) {
+				this.nested = null;
+				nested.run();
+			}
+			this.request = request;
+			this.affinityKey = affinityKeys.resolve(request);
+			return Response.builder().status(200).request(request).headers(Collections.emptyMap())
+					.body("OK", StandardCharsets.UTF_8).build();
+		}
+
+	}
+
+}
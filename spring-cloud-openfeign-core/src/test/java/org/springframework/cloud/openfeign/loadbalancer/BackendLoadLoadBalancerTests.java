@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link BackendLoadLoadBalancer}.
+ */
+class BackendLoadLoadBalancerTests {
+
+	private static final String LOAD_HEADER = "X-Backend-Load";
+
+	private final ServiceInstance heavy = new DefaultServiceInstance("heavy", "test", "heavy", 8080, false);
+
+	private final ServiceInstance medium = new DefaultServiceInstance("medium", "test", "medium", 8080, false);
+
+	private final ServiceInstance light = new DefaultServiceInstance("light", "test", "light", 8080, false);
+
+	private final FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofSeconds(10),
+			Duration.ofSeconds(10));
+
+	private final FeignLoadBalancerStatsLifecycle lifecycle = new FeignLoadBalancerStatsLifecycle(stats, LOAD_HEADER);
+
+	@Test
+	void shouldPreferInstancesReportingLowerLoad() {
+		// a stub fleet whose instances report a fixed utilization on every response
+		Map<ServiceInstance, String> fleet = new HashMap<>();
+		fleet.put(heavy, "0.9");
+		fleet.put(medium, "0.5");
+		fleet.put(light, "0.1");
+		BackendLoadLoadBalancer loadBalancer = loadBalancer(heavy, medium, light);
+		Map<ServiceInstance, Integer> picks = new HashMap<>();
+
+		for (int i = 0; i < 3000; i++) {
+			ServiceInstance instance = choose(loadBalancer);
+			execute(instance, fleet.get(instance));
+			picks.merge(instance, 1, Integer::sum);
+		}
+
+		assertThat(picks.getOrDefault(heavy, 0)).isLessThan(30);
+		assertThat(picks.get(light)).isGreaterThan(picks.get(medium)).isGreaterThan(1800);
+	}
+
+	@Test
+	void shouldWeightReportedLoadByOutstandingRequests() {
+		BackendLoadLoadBalancer loadBalancer = loadBalancer(heavy, light);
+		execute(heavy, "0.8");
+		execute(light, "0.2");
+		for (int i = 0; i < 5; i++) {
+			stats.getStats(light).requestStarted();
+		}
+
+		assertThat(choose(loadBalancer)).isEqualTo(heavy);
+	}
+
+	@Test
+	void shouldIgnoreMissingAndInvalidLoadHeader() {
+		execute(light, "0.4");
+		execute(light, null);
+		execute(light, "high");
+		execute(light, "-1");
+
+		assertThat(stats.getStats(light).getBackendLoad()).isCloseTo(0.4, within(0.01));
+		assertThat(stats.getStats(light).getCompletedRequests()).isEqualTo(4);
+	}
+
+	@Test
+	void shouldReleaseDiscardedRequestsWithoutCompletingThem() {
+		DefaultRequest<Object> lbRequest = new DefaultRequest<>();
+		DefaultResponse lbResponse = new DefaultResponse(light);
+		lifecycle.onStartRequest(lbRequest, lbResponse);
+
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.DISCARD, lbRequest, lbResponse));
+
+		assertThat(stats.getStats(light).getOutstandingRequests()).isZero();
+		assertThat(stats.getStats(light).getCompletedRequests()).isZero();
+	}
+
+	@Test
+	void shouldDecayReportedLoad() throws InterruptedException {
+		FeignLoadBalancerStats decayingStats = new FeignLoadBalancerStats(Duration.ofSeconds(10),
+				Duration.ofMillis(10));
+		decayingStats.getStats(heavy).backendLoadReported(1);
+
+		Thread.sleep(100);
+
+		assertThat(decayingStats.getStats(heavy).getBackendLoad()).isLessThan(0.01);
+	}
+
+	private void execute(ServiceInstance instance, String load) {
+		DefaultRequest<Object> lbRequest = new DefaultRequest<>();
+		DefaultResponse lbResponse = new DefaultResponse(instance);
+		lifecycle.onStartRequest(lbRequest, lbResponse);
+		Map<String, Collection<String>> headers = load != null
+				? Collections.singletonMap(LOAD_HEADER.toLowerCase(), Collections.singletonList(load))
+				: Collections.emptyMap();
+		Request request = Request.create(Request.HttpMethod.GET, "http://" + instance.getHost() + "/", headers, null,
+				StandardCharsets.UTF_8, null);
+		Response response = Response.builder().status(200).request(request).headers(headers).build();
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, lbRequest, lbResponse,
+				LoadBalancerUtils.buildResponseData(response)));
+	}
+
+	private BackendLoadLoadBalancer loadBalancer(ServiceInstance... instances) {
+		List<ServiceInstance> list = Arrays.asList(instances);
+		ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(list);
+			}
+		};
+		return new BackendLoadLoadBalancer(new SimpleObjectProvider<>(supplier), "test", stats);
+	}
+
+	private static ServiceInstance choose(BackendLoadLoadBalancer loadBalancer) {
+		return loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.RetryableRequestContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ConsistentHashLoadBalancer}.
+ */
+class ConsistentHashLoadBalancerTests {
+
+	private final FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofSeconds(10));
+
+	private final List<ServiceInstance> instances = instances(5);
+
+	@Test
+	void shouldSendSameKeyToSameInstance() {
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+		ServiceInstance instance = choose(loadBalancer, "tenant-1");
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(choose(loadBalancer, "tenant-1")).isEqualTo(instance);
+		}
+	}
+
+	@Test
+	void shouldSendSameKeyToSameInstanceOfEveryNewList() {
+		List<List<ServiceInstance>> lists = new ArrayList<>();
+		ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				// a new list of new instances, in a different order every time
+				List<ServiceInstance> list = instances(5);
+				Collections.rotate(list, lists.size());
+				lists.add(list);
+				return Flux.just(list);
+			}
+		};
+		ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new SimpleObjectProvider<>(supplier),
+				"test", stats, 1.25, 100);
+		ServiceInstance instance = choose(loadBalancer, "tenant-1");
+
+		for (int i = 0; i < 10; i++) {
+			ServiceInstance chosen = choose(loadBalancer, "tenant-1");
+			assertThat(chosen).isEqualTo(instance);
+			assertThat(lists.get(lists.size() - 1)).anySatisfy(current -> assertThat(current).isSameAs(chosen));
+		}
+	}
+
+	@Test
+	void shouldChooseFromLatestListWithSameInstances() {
+		List<List<ServiceInstance>> lists = new ArrayList<>();
+		ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				// a new list of new instances, in the same order every time
+				List<ServiceInstance> list = instances(5);
+				lists.add(list);
+				return Flux.just(list);
+			}
+		};
+		ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new SimpleObjectProvider<>(supplier),
+				"test", stats, 1.25, 100);
+		int index = lists.size();
+		ServiceInstance instance = choose(loadBalancer, "tenant-1");
+		assertThat(lists.get(index)).anySatisfy(current -> assertThat(current).isSameAs(instance));
+
+		ServiceInstance chosen = choose(loadBalancer, "tenant-1");
+
+		assertThat(chosen).isEqualTo(instance).isNotSameAs(instance);
+		assertThat(lists.get(lists.size() - 1)).anySatisfy(current -> assertThat(current).isSameAs(chosen));
+	}
+
+	@Test
+	void shouldSpreadKeysOverInstances() {
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+		Map<ServiceInstance, Integer> keysPerInstance = new HashMap<>();
+
+		for (int i = 0; i < 1000; i++) {
+			keysPerInstance.merge(choose(loadBalancer, "tenant-" + i), 1, Integer::sum);
+		}
+
+		assertThat(keysPerInstance).hasSize(5);
+		assertThat(keysPerInstance.values()).allSatisfy(count -> assertThat(count).isBetween(120, 280));
+	}
+
+	@Test
+	void shouldOnlyMoveKeysOfRemovedInstance() {
+		Map<String, ServiceInstance> before = new HashMap<>();
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+		for (int i = 0; i < 1000; i++) {
+			before.put("tenant-" + i, choose(loadBalancer, "tenant-" + i));
+		}
+		List<ServiceInstance> remaining = new ArrayList<>(instances);
+		ServiceInstance removed = remaining.remove(2);
+		ConsistentHashLoadBalancer shrunk = loadBalancer(remaining);
+
+		before.forEach((key, instance) -> {
+			if (!instance.equals(removed)) {
+				assertThat(choose(shrunk, key)).isEqualTo(instance);
+			}
+		});
+	}
+
+	@Test
+	void shouldMoveKeyOffOverloadedInstance() {
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+		ServiceInstance instance = choose(loadBalancer, "hot");
+		for (int i = 0; i < 10; i++) {
+			stats.getStats(instance).requestStarted();
+		}
+
+		ServiceInstance other = choose(loadBalancer, "hot");
+
+		assertThat(other).isNotEqualTo(instance);
+		assertThat(choose(loadBalancer, "hot")).isEqualTo(other);
+	}
+
+	@Test
+	void shouldNotRetryOnPreviousInstance() {
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+		ServiceInstance instance = choose(loadBalancer, "tenant-1");
+
+		ServiceInstance retried = loadBalancer
+				.choose(new DefaultRequest<>(new RetryableRequestContext(instance, requestData("tenant-1")))).block()
+				.getServer();
+
+		assertThat(retried).isNotEqualTo(instance);
+	}
+
+	@Test
+	void shouldBalanceRequestsWithoutKeyByOutstandingRequests() {
+		ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances.subList(0, 2));
+		stats.getStats(instances.get(0)).requestStarted();
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(choose(loadBalancer, null)).isEqualTo(instances.get(1));
+		}
+	}
+
+	private ConsistentHashLoadBalancer loadBalancer(List<ServiceInstance> list) {
+		ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(list);
+			}
+		};
+		return new ConsistentHashLoadBalancer(new SimpleObjectProvider<>(supplier), "test", stats, 1.25, 100);
+	}
+
+	private static ServiceInstance choose(ConsistentHashLoadBalancer loadBalancer, String affinityKey) {
+		return loadBalancer.choose(new DefaultRequest<>(new RequestDataContext(requestData(affinityKey)))).block()
+				.getServer();
+	}
+
+	private static RequestData requestData(String affinityKey) {
+		Map<String, Object> attributes = affinityKey != null
+				? Collections.singletonMap(ConsistentHashLoadBalancer.AFFINITY_KEY_ATTRIBUTE, affinityKey)
+				: Collections.emptyMap();
+		return new RequestData(HttpMethod.GET, URI.create("http://test/items"), new HttpHeaders(), null, attributes);
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(new DefaultServiceInstance("instance-" + i, "test", "host-" + i, 8080, false));
+		}
+		return instances;
+	}
+
+}
@@ -17,6 +17,10 @@
 package org.springframework.cloud.openfeign.loadbalancer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
@@ -24,7 +28,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import feign.Client;
 import feign.Request;
@@ -43,6 +51,9 @@ import org.springframework.cloud.client.loadbalancer.RequestDataContext;
 import org.springframework.cloud.client.loadbalancer.ResponseData;
 import org.springframework.cloud.loadbalancer.blocking.client.BlockingLoadBalancerClient;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.HedgedRequestOptions;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -52,6 +63,8 @@ import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -167,6 +180,202 @@ class FeignBlockingLoadBalancerClientTests {
 				.contains(HttpStatus.OK);
 	}
 
+	@Test
+	void shouldExposeRequestAndResponseDataToLifecycleProcessors() throws IOException {
+		Request request = testRequest();
+		Map<String, Collection<String>> responseHeaders = new HashMap<>();
+		responseHeaders.put("X-Test", Collections.singletonList("value"));
+		ServiceInstance serviceInstance = new DefaultServiceInstance("test-1", "test", "test-host", 8888, false);
+		when(loadBalancerClient.choose(eq("test"), any())).thenReturn(serviceInstance);
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://test-host:8888/path"));
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> Response.builder().status(200)
+				.request(invocation.getArgument(0)).headers(responseHeaders).build());
+		Map<String, LoadBalancerLifecycle> loadBalancerLifecycleBeans = new HashMap<>();
+		TestLoadBalancerLifecycle lifecycle = new TestLoadBalancerLifecycle();
+		loadBalancerLifecycleBeans.put("loadBalancerLifecycle", lifecycle);
+		when(loadBalancerClientFactory.getInstances("test", LoadBalancerLifecycle.class))
+				.thenReturn(loadBalancerLifecycleBeans);
+
+		feignBlockingLoadBalancerClient.execute(request, new Request.Options());
+
+		RequestDataContext requestContext = lifecycle.getStartLog().values().iterator().next().getContext();
+		assertThat(requestContext.getClientRequest().getUrl()).isEqualTo(URI.create("http://test/path"));
+		assertThat(requestContext.getClientRequest().getHeaders().getContentType())
+				.isEqualTo(MediaType.APPLICATION_JSON);
+		ResponseData responseData = lifecycle.getCompleteLog().values().iterator().next().getClientResponse();
+		assertThat(responseData.getHeaders().getFirst("X-Test")).isEqualTo("value");
+		assertThat(responseData.getRequestData().getUrl()).isEqualTo(URI.create("http://test-host:8888/path"));
+	}
+
+	@Test
+	void shouldLookUpLifecycleProcessorsOncePerServiceId() throws IOException {
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		verify(loadBalancerClientFactory, times(1)).getInstances("test", LoadBalancerLifecycle.class);
+
+		feignBlockingLoadBalancerClient.onApplicationEvent(new ContextRefreshedEvent(new GenericApplicationContext()));
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		verify(loadBalancerClientFactory, times(2)).getInstances("test", LoadBalancerLifecycle.class);
+	}
+
+	@Test
+	void shouldUseReboundHint() throws IOException {
+		Map<String, LoadBalancerLifecycle> loadBalancerLifecycleBeans = new HashMap<>();
+		TestLoadBalancerLifecycle lifecycle = new TestLoadBalancerLifecycle();
+		loadBalancerLifecycleBeans.put("loadBalancerLifecycle", lifecycle);
+		when(loadBalancerClientFactory.getInstances("test", LoadBalancerLifecycle.class))
+				.thenReturn(loadBalancerLifecycleBeans);
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		loadBalancerProperties.setHint(Collections.singletonMap("test", "reboundHint"));
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		assertThat(lifecycle.getStartLog().values()).extracting(lbRequest -> lbRequest.getContext().getHint())
+				.containsExactlyInAnyOrder("default", "reboundHint");
+	}
+
+	@Test
+	void shouldHedgeSlowRequestToAnotherInstance() throws Exception {
+		stubSlowAndFastInstances();
+		Thread caller = Thread.currentThread();
+		AtomicReference<Thread> slowAttemptThread = new AtomicReference<>();
+		CountDownLatch slowAttemptCancelled = new CountDownLatch(1);
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+			Request request = invocation.getArgument(0);
+			if (request.url().contains("slow-host")) {
+				slowAttemptThread.set(Thread.currentThread());
+				try {
+					Thread.sleep(5000);
+				}
+				catch (InterruptedException e) {
+					slowAttemptCancelled.countDown();
+					throw new InterruptedIOException();
+				}
+			}
+			return Response.builder().status(200).request(request).build();
+		});
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(),
+				new HedgedRequestOptions(new Request.Options(), 20));
+
+		assertThat(response.request().url()).isEqualTo("http://fast-host:8888/path");
+		assertThat(slowAttemptCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(slowAttemptThread.get()).isNotSameAs(caller);
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+	}
+
+	@Test
+	void shouldCloseResponseOfAttemptThatIgnoresCancellation() throws IOException {
+		stubSlowAndFastInstances();
+		Response.Body slowBody = mock(Response.Body.class);
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+			Request request = invocation.getArgument(0);
+			if (request.url().contains("slow-host")) {
+				long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+				while (System.nanoTime() < end) {
+					try {
+						Thread.sleep(10);
+					}
+					catch (InterruptedException e) {
+						// ignored, like a blocking socket read
+					}
+				}
+				return Response.builder().status(200).request(request).body(slowBody).build();
+			}
+			return Response.builder().status(200).request(request).build();
+		});
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(),
+				new HedgedRequestOptions(new Request.Options(), 20));
+
+		assertThat(response.request().url()).isEqualTo("http://fast-host:8888/path");
+		verify(slowBody, timeout(5000)).close();
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+	}
+
+	@Test
+	void shouldReturnHedgeWhileFirstAttemptIsBlockedInSocketRead() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			// accepts the connection of the first attempt, but never responds
+			CompletableFuture<Socket> accepted = CompletableFuture.supplyAsync(() -> {
+				try {
+					return server.accept();
+				}
+				catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			ServiceInstance slowInstance = new DefaultServiceInstance("test-1", "test", "localhost",
+					server.getLocalPort(), false);
+			ServiceInstance fastInstance = new DefaultServiceInstance("test-2", "test", "fast-host", 8888, false);
+			when(loadBalancerClient.choose(eq("test"), any())).thenReturn(slowInstance, fastInstance);
+			when(loadBalancerClient.reconstructURI(any(), eq(URI.create("http://test/path")))).thenAnswer(
+					invocation -> URI.create("http://" + ((ServiceInstance) invocation.getArgument(0)).getHost() + ":"
+							+ ((ServiceInstance) invocation.getArgument(0)).getPort() + "/path"));
+			Client socketClient = new Client.Default(null, null);
+			when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+				Request request = invocation.getArgument(0);
+				if (request.url().contains("fast-host")) {
+					return Response.builder().status(200).request(request).build();
+				}
+				return socketClient.execute(request, invocation.getArgument(1));
+			});
+
+			long start = System.nanoTime();
+			Response response = feignBlockingLoadBalancerClient.execute(testRequest(),
+					new HedgedRequestOptions(new Request.Options(1, TimeUnit.SECONDS, 30, TimeUnit.SECONDS, true), 50));
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertThat(response.request().url()).isEqualTo("http://fast-host:8888/path");
+			assertThat(elapsed).isLessThan(5000);
+			accepted.get(5, TimeUnit.SECONDS).close();
+		}
+		finally {
+			feignBlockingLoadBalancerClient.destroy();
+		}
+	}
+
+	@Test
+	void shouldNotHedgeOnceDestroyed() throws IOException {
+		stubSlowAndFastInstances();
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+			Request request = invocation.getArgument(0);
+			if (request.url().contains("slow-host")) {
+				Thread.sleep(100);
+			}
+			return Response.builder().status(200).request(request).build();
+		});
+
+		feignBlockingLoadBalancerClient.destroy();
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(),
+				new HedgedRequestOptions(new Request.Options(), 20));
+
+		assertThat(response.request().url()).isEqualTo("http://slow-host:8888/path");
+		verify(delegate, times(1)).execute(any(), any());
+	}
+
+	private void stubSlowAndFastInstances() {
+		ServiceInstance slowInstance = new DefaultServiceInstance("test-1", "test", "slow-host", 8888, false);
+		ServiceInstance fastInstance = new DefaultServiceInstance("test-2", "test", "fast-host", 8888, false);
+		when(loadBalancerClient.choose(eq("test"), any())).thenReturn(slowInstance, fastInstance);
+		when(loadBalancerClient.reconstructURI(any(), eq(URI.create("http://test/path")))).thenAnswer(invocation -> URI
+				.create("http://" + ((ServiceInstance) invocation.getArgument(0)).getHost() + ":8888/path"));
+	}
+
+	@Test
+	void shouldNotHedgeNonIdempotentRequest() throws IOException {
+		Request request = Request.create(Request.HttpMethod.POST, "http://test/path", testHeaders(), "hello".getBytes(),
+				StandardCharsets.UTF_8, null);
+
+		feignBlockingLoadBalancerClient.execute(request, new HedgedRequestOptions(new Request.Options(), 20));
+
+		verify(loadBalancerClient, times(1)).choose(eq("test"), any());
+		verify(delegate, never()).execute(any(), any());
+	}
+
 	private Request testRequest() {
 		return testRequest("test");
 	}
@@ -29,6 +29,9 @@ import org.springframework.cloud.commons.httpclient.HttpClientConfiguration;
 import org.springframework.cloud.loadbalancer.blocking.client.BlockingLoadBalancerClient;
 import org.springframework.cloud.loadbalancer.config.BlockingLoadBalancerClientAutoConfiguration;
 import org.springframework.cloud.loadbalancer.config.LoadBalancerAutoConfiguration;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.clientconfig.AsyncApacheHttp5Client;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +64,21 @@ class FeignLoadBalancerAutoConfigurationTests {
 		assertLoadBalanced(context, OkHttpClient.class);
 	}
 
+	@Test
+	void shouldInstantiateHttpClient5FeignClientWhenEnabled() {
+		ConfigurableApplicationContext context = initContext("feign.httpclient.enabled=false",
+				"feign.httpclient.hc5.enabled=true", "spring.cloud.loadbalancer.retry.enabled=false");
+		assertThatOneBeanPresent(context, BlockingLoadBalancerClient.class);
+		assertLoadBalanced(context, AsyncApacheHttp5Client.class);
+	}
+
+	@Test
+	void shouldPreferHttpClient5FeignClientOverApacheHttpClient() {
+		ConfigurableApplicationContext context = initContext("feign.httpclient.hc5.enabled=true",
+				"spring.cloud.loadbalancer.retry.enabled=false");
+		assertLoadBalanced(context, AsyncApacheHttp5Client.class);
+	}
+
 	@Test
 	void shouldInstantiateRetryableDefaultFeignBlockingLoadBalancerClientWhenHttpClientDisabled() {
 		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.ribbon.enabled=false",
@@ -84,6 +102,106 @@ class FeignLoadBalancerAutoConfigurationTests {
 		assertLoadBalancedWithRetries(context, OkHttpClient.class);
 	}
 
+	@Test
+	void shouldInstantiateRetryableHttpClient5FeignClientWhenEnabled() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.ribbon.enabled=false",
+				"feign.httpclient.enabled=false", "feign.httpclient.hc5.enabled=true");
+		assertThatOneBeanPresent(context, BlockingLoadBalancerClient.class);
+		assertLoadBalancedWithRetries(context, AsyncApacheHttp5Client.class);
+	}
+
+	@Test
+	void shouldUseDefaultLoadBalancerAndNoStatsByDefault() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false");
+		assertThat(context.getBeansOfType(FeignLoadBalancerStats.class)).isEmpty();
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test"))
+				.isInstanceOf(RoundRobinLoadBalancer.class);
+	}
+
+	@Test
+	void shouldUsePeakEwmaLoadBalancerWhenConfigured() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.strategy=peak-ewma");
+		assertThatOneBeanPresent(context, FeignLoadBalancerStatsLifecycle.class);
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test"))
+				.isInstanceOf(PeakEwmaLoadBalancer.class);
+	}
+
+	@Test
+	void shouldUseLeastOutstandingRequestsLoadBalancerWhenConfigured() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.strategy=least-outstanding-requests");
+		assertThatOneBeanPresent(context, FeignLoadBalancerStatsLifecycle.class);
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test"))
+				.isInstanceOf(LeastOutstandingRequestsLoadBalancer.class);
+	}
+
+	@Test
+	void shouldUseBackendLoadLoadBalancerWhenConfigured() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.strategy=backend-load");
+		assertThatOneBeanPresent(context, FeignLoadBalancerStatsLifecycle.class);
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test"))
+				.isInstanceOf(BackendLoadLoadBalancer.class);
+	}
+
+	@Test
+	void shouldUseConsistentHashLoadBalancerWhenConfigured() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.strategy=consistent-hash");
+		assertThatOneBeanPresent(context, FeignLoadBalancerStatsLifecycle.class);
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test"))
+				.isInstanceOf(ConsistentHashLoadBalancer.class);
+	}
+
+	@Test
+	void shouldInstantiateOutlierDetectionWhenEnabled() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.outlier-detection.enabled=true");
+		assertThatOneBeanPresent(context, FeignOutlierDetector.class);
+		assertThatOneBeanPresent(context, FeignOutlierDetectorLifecycle.class);
+		assertThatOneBeanPresent(context, FeignOutlierDetectorMetrics.class);
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test",
+				OutlierDetectionServiceInstanceListSupplierPostProcessor.class)).isNotNull();
+	}
+
+	@Test
+	void shouldNotInstantiateOutlierDetectionByDefault() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false");
+		assertThat(context.getBeansOfType(FeignOutlierDetector.class)).isEmpty();
+		assertThat(context.getBeansOfType(FeignOutlierDetectorLifecycle.class)).isEmpty();
+	}
+
+	@Test
+	void shouldInstantiateRetryBudgetsWhenEnabled() {
+		ConfigurableApplicationContext context = initContext("feign.loadbalancer.retry-budget.enabled=true");
+		assertThatOneBeanPresent(context, FeignRetryBudgets.class);
+		assertLoadBalancedWithRetries(context, ApacheHttpClient.class);
+	}
+
+	@Test
+	void shouldSubsetServiceInstancesWhenEnabled() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.subset.enabled=true");
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test",
+				SubsetServiceInstanceListSupplierPostProcessor.class)).isNotNull();
+	}
+
+	@Test
+	void shouldNotSubsetServiceInstancesByDefault() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false");
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test",
+				SubsetServiceInstanceListSupplierPostProcessor.class)).isNull();
+	}
+
+	@Test
+	void shouldRampUpNewServiceInstancesWhenSlowStartEnabled() {
+		ConfigurableApplicationContext context = initContext("spring.cloud.loadbalancer.retry.enabled=false",
+				"feign.loadbalancer.slow-start.enabled=true");
+		assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("test",
+				SlowStartServiceInstanceListSupplierPostProcessor.class)).isNotNull();
+	}
+
 	private ConfigurableApplicationContext initContext(String... properties) {
 		return new SpringApplicationBuilder().web(WebApplicationType.NONE).properties(properties)
 				.sources(HttpClientConfiguration.class, LoadBalancerAutoConfiguration.class,
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignLoadBalancerStats}.
+ */
+class FeignLoadBalancerStatsTests {
+
+	private final ServiceInstance idle = new DefaultServiceInstance("test-1", "test", "idle-host", 80, false);
+
+	private final ServiceInstance busy = new DefaultServiceInstance("test-2", "test", "busy-host", 80, false);
+
+	@Test
+	void shouldDropStatisticsOfIdleInstances() throws InterruptedException {
+		FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofMillis(10));
+		stats.getStats(idle).requestCompleted(1000, false);
+		stats.getStats(busy).requestStarted();
+
+		Thread.sleep(100);
+		stats.getStats(busy);
+
+		assertThat(stats.size()).isEqualTo(1);
+		assertThat(stats.getStats(busy).getOutstandingRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldKeepStatisticsOfInstancesInUse() {
+		FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofMinutes(1));
+		stats.getStats(idle).requestCompleted(1000, false);
+		stats.getStats(busy).requestCompleted(1000, false);
+
+		assertThat(stats.size()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldNotCountCompletionsOfRequestsStartedOnDroppedStatistics() {
+		FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofMinutes(1));
+
+		stats.getStats(idle).requestCompleted(1000, false);
+		stats.getStats(idle).requestStarted();
+
+		assertThat(stats.getStats(idle).getOutstandingRequests()).isEqualTo(1);
+	}
+
+}
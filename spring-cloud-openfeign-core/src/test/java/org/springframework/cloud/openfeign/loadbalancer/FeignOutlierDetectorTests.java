@@ -0,0 +1,311 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import feign.Client;
+import feign.Request;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link FeignOutlierDetector}, {@link FeignOutlierDetectorLifecycle} and
+ * {@link OutlierDetectionServiceInstanceListSupplier}.
+ */
+class FeignOutlierDetectorTests {
+
+	private final ServiceInstance first = new DefaultServiceInstance("first", "test", "first", 8080, false);
+
+	private final ServiceInstance second = new DefaultServiceInstance("second", "test", "second", 8080, false);
+
+	private final FeignOutlierDetector outlierDetector = new FeignOutlierDetector(3, Duration.ofMillis(200),
+			Duration.ofSeconds(10), 50);
+
+	@Test
+	void shouldEjectInstanceAfterConsecutiveFailures() {
+		outlierDetector.recordSuccess(second);
+		outlierDetector.recordFailure(first);
+		outlierDetector.recordFailure(first);
+
+		assertThat(outlierDetector.isEjected(first)).isFalse();
+
+		outlierDetector.recordFailure(first);
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+		assertThat(outlierDetector.isEjected(second)).isFalse();
+		assertThat(outlierDetector.getEjectedInstances("test")).isEqualTo(1);
+		assertThat(outlierDetector.getEjections("test")).isEqualTo(1);
+	}
+
+	@Test
+	void shouldResetConsecutiveFailuresOnSuccess() {
+		outlierDetector.recordSuccess(second);
+		outlierDetector.recordFailure(first);
+		outlierDetector.recordFailure(first);
+		outlierDetector.recordSuccess(first);
+		outlierDetector.recordFailure(first);
+		outlierDetector.recordFailure(first);
+
+		assertThat(outlierDetector.isEjected(first)).isFalse();
+	}
+
+	@Test
+	void shouldNotEjectMoreThanMaxEjectionPercent() {
+		outlierDetector.recordSuccess(second);
+		ejectInstance(first);
+		ejectInstance(second);
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+		assertThat(outlierDetector.isEjected(second)).isFalse();
+		assertThat(outlierDetector.getEjectedInstances("test")).isEqualTo(1);
+	}
+
+	@Test
+	void shouldNotEjectOnlyKnownInstance() {
+		ejectInstance(first);
+
+		assertThat(outlierDetector.isEjected(first)).isFalse();
+	}
+
+	@Test
+	void shouldComputeEjectionPercentageAgainstCurrentInstances() {
+		outlierDetector.updateInstances("test", Arrays.asList(first, second));
+		ejectInstance(first);
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+	}
+
+	@Test
+	void shouldForgetInstancesThatLeft() {
+		ServiceInstance third = new DefaultServiceInstance("third", "test", "third", 8080, false);
+		outlierDetector.updateInstances("test", Arrays.asList(first, second));
+		ejectInstance(first);
+
+		outlierDetector.updateInstances("test", Arrays.asList(second, third));
+
+		assertThat(outlierDetector.getEjectedInstances("test")).isZero();
+		ejectInstance(second);
+		assertThat(outlierDetector.isEjected(second)).isTrue();
+	}
+
+	@Test
+	void shouldNotEjectInstanceThatLeft() {
+		outlierDetector.updateInstances("test", Collections.singletonList(second));
+		ejectInstance(first);
+
+		assertThat(outlierDetector.getEjectedInstances("test")).isZero();
+	}
+
+	@Test
+	void shouldReleaseExpiredEjectionsBeforeEjecting() throws InterruptedException {
+		outlierDetector.updateInstances("test", Arrays.asList(first, second));
+		ejectInstance(first);
+
+		Thread.sleep(300);
+		ejectInstance(second);
+
+		assertThat(outlierDetector.isEjected(second)).isTrue();
+		assertThat(outlierDetector.getEjectedInstances("test")).isEqualTo(1);
+	}
+
+	@Test
+	void shouldReportSuppliedInstances() {
+		OutlierDetectionServiceInstanceListSupplier supplier = new OutlierDetectionServiceInstanceListSupplier(
+				new TestServiceInstanceListSupplier(first, second), outlierDetector);
+
+		supplier.get().blockFirst();
+		ejectInstance(first);
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+	}
+
+	@Test
+	void shouldLeaveEjectedInstancesOutOfSuppliedInstances() {
+		OutlierDetectionServiceInstanceListSupplier supplier = new OutlierDetectionServiceInstanceListSupplier(
+				new TestServiceInstanceListSupplier(first, second), outlierDetector);
+		supplier.get().blockFirst();
+		ejectInstance(first);
+
+		assertThat(supplier.get().blockFirst()).containsExactly(second);
+		assertThat(supplier.get(new DefaultRequest<>()).blockFirst()).containsExactly(second);
+	}
+
+	@Test
+	void shouldSupplySameListUntilEjectionsChange() throws InterruptedException {
+		TestServiceInstanceListSupplier delegate = new TestServiceInstanceListSupplier(first, second);
+		OutlierDetectionServiceInstanceListSupplier supplier = new OutlierDetectionServiceInstanceListSupplier(delegate,
+				outlierDetector);
+
+		assertThat(supplier.get().blockFirst()).isSameAs(delegate.instances);
+		ejectInstance(first);
+		List<ServiceInstance> available = supplier.get().blockFirst();
+
+		assertThat(available).containsExactly(second);
+		assertThat(supplier.get().blockFirst()).isSameAs(available);
+
+		Thread.sleep(300);
+
+		assertThat(supplier.get().blockFirst()).isSameAs(delegate.instances);
+	}
+
+	@Test
+	void shouldSupplyAllInstancesWhenAllAreEjected() {
+		FeignOutlierDetector outlierDetector = new FeignOutlierDetector(1, Duration.ofSeconds(10),
+				Duration.ofSeconds(10), 100);
+		OutlierDetectionServiceInstanceListSupplier supplier = new OutlierDetectionServiceInstanceListSupplier(
+				new TestServiceInstanceListSupplier(first, second), outlierDetector);
+		supplier.get().blockFirst();
+		outlierDetector.recordFailure(first);
+		outlierDetector.recordFailure(second);
+
+		assertThat(outlierDetector.getEjectedInstances("test")).isEqualTo(2);
+		assertThat(supplier.get().blockFirst()).containsExactly(first, second);
+	}
+
+	@Test
+	void shouldDoubleEjectionTimeOnEveryEjection() throws InterruptedException {
+		outlierDetector.recordSuccess(second);
+		ejectInstance(first);
+
+		Thread.sleep(300);
+
+		assertThat(outlierDetector.isEjected(first)).isFalse();
+		assertThat(outlierDetector.getEjectedInstances("test")).isZero();
+
+		ejectInstance(first);
+		Thread.sleep(300);
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+		assertThat(outlierDetector.getEjections("test")).isEqualTo(2);
+	}
+
+	@Test
+	void shouldRecordFailuresFromLifecycle() {
+		FeignOutlierDetectorLifecycle lifecycle = new FeignOutlierDetectorLifecycle(outlierDetector);
+		outlierDetector.recordSuccess(second);
+
+		complete(lifecycle, first, new ResponseData(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders(), null, null));
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, new ConnectException(),
+				new DefaultRequest<>(), new DefaultResponse(first)));
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED,
+				new IllegalStateException(new SocketTimeoutException()), new DefaultRequest<>(),
+				new DefaultResponse(first)));
+
+		assertThat(outlierDetector.isEjected(first)).isTrue();
+	}
+
+	@Test
+	void shouldRecordSuccessesAndIgnoreOtherExceptionsFromLifecycle() {
+		FeignOutlierDetectorLifecycle lifecycle = new FeignOutlierDetectorLifecycle(outlierDetector);
+		outlierDetector.recordSuccess(second);
+
+		complete(lifecycle, first, new ResponseData(HttpStatus.BAD_GATEWAY, new HttpHeaders(), null, null));
+		complete(lifecycle, first, new ResponseData(HttpStatus.NOT_FOUND, new HttpHeaders(), null, null));
+		complete(lifecycle, first, new ResponseData(HttpStatus.BAD_GATEWAY, new HttpHeaders(), null, null));
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, new IllegalStateException(),
+				new DefaultRequest<>(), new DefaultResponse(first)));
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED,
+				new InterruptedIOException("timeout"), new DefaultRequest<>(), new DefaultResponse(first)));
+		lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.DISCARD, new InterruptedIOException(),
+				new DefaultRequest<>(), new DefaultResponse(first)));
+		complete(lifecycle, first, new ResponseData(HttpStatus.BAD_GATEWAY, new HttpHeaders(), null, null));
+
+		assertThat(outlierDetector.isEjected(first)).isFalse();
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	void shouldReportCancelledAttemptsAsDiscarded() {
+		LoadBalancerLifecycle lifecycle = mock(LoadBalancerLifecycle.class);
+		Client client = (request, options) -> {
+			throw new InterruptedIOException();
+		};
+		Request request = Request.create(Request.HttpMethod.GET, "http://first:8080", Collections.emptyMap(), null,
+				StandardCharsets.UTF_8, null);
+
+		Throwable thrown = catchThrowable(
+				() -> LoadBalancerUtils.executeWithLoadBalancerLifecycleProcessing(client, new Request.Options(),
+						request, new DefaultRequest<>(), new DefaultResponse(first), Collections.singleton(lifecycle)));
+
+		assertThat(thrown).isInstanceOf(InterruptedIOException.class);
+
+		ArgumentCaptor<CompletionContext> completionContext = ArgumentCaptor.forClass(CompletionContext.class);
+		verify(lifecycle).onComplete(completionContext.capture());
+		assertThat(completionContext.getValue().status()).isEqualTo(CompletionContext.Status.DISCARD);
+		assertThat(LoadBalancerUtils.isCancelled(new InterruptedIOException("timeout"))).isFalse();
+		assertThat(LoadBalancerUtils.isCancelled(new SocketTimeoutException())).isFalse();
+	}
+
+	private void ejectInstance(ServiceInstance instance) {
+		for (int i = 0; i < 3; i++) {
+			outlierDetector.recordFailure(instance);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void complete(FeignOutlierDetectorLifecycle lifecycle, ServiceInstance instance,
+			ResponseData responseData) {
+		lifecycle.onComplete(new CompletionContext(CompletionContext.Status.SUCCESS, new DefaultRequest<>(),
+				new DefaultResponse(instance), responseData));
+	}
+
+	private static class TestServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+		private final List<ServiceInstance> instances;
+
+		TestServiceInstanceListSupplier(ServiceInstance... instances) {
+			this.instances = Arrays.asList(instances);
+		}
+
+		@Override
+		public String getServiceId() {
+			return "test";
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return Flux.just(instances);
+		}
+
+	}
+
+}
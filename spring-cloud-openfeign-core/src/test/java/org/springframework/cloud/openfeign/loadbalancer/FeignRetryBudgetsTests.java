@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FeignRetryBudgets}.
+ */
+class FeignRetryBudgetsTests {
+
+	@Test
+	void shouldStartWithOneSecondOfMinimumRetries() {
+		FeignRetryBudgets.RetryBudget budget = new FeignRetryBudgets(20, 3, 100).getBudget("test");
+
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isFalse();
+	}
+
+	@Test
+	void shouldAllowRetriesForPercentageOfSuccessfulRequests() {
+		FeignRetryBudgets.RetryBudget budget = new FeignRetryBudgets(20, 0, 100).getBudget("test");
+
+		for (int i = 0; i < 4; i++) {
+			budget.deposit();
+		}
+
+		assertThat(budget.tryWithdraw()).isFalse();
+
+		budget.deposit();
+
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isFalse();
+	}
+
+	@Test
+	void shouldNotSaveUpMoreThanMaxTokens() {
+		FeignRetryBudgets.RetryBudget budget = new FeignRetryBudgets(100, 0, 2).getBudget("test");
+
+		for (int i = 0; i < 10; i++) {
+			budget.deposit();
+		}
+
+		assertThat(budget.getAvailableTokens()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldRefillAtMinimumRate() throws InterruptedException {
+		FeignRetryBudgets.RetryBudget budget = new FeignRetryBudgets(0, 100, 100).getBudget("test");
+		while (budget.tryWithdraw()) {
+			// drain the bucket
+		}
+
+		Thread.sleep(100);
+
+		assertThat(budget.getAvailableTokens()).isBetween(5L, 100L);
+	}
+
+	@Test
+	void shouldShareBudgetPerService() {
+		FeignRetryBudgets retryBudgets = new FeignRetryBudgets(20, 1, 100);
+
+		assertThat(retryBudgets.getBudget("test")).isSameAs(retryBudgets.getBudget("test"));
+		assertThat(retryBudgets.getBudget("test")).isNotSameAs(retryBudgets.getBudget("other"));
+	}
+
+}
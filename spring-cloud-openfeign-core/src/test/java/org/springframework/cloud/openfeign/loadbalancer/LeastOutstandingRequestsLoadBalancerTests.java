@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link LeastOutstandingRequestsLoadBalancer}.
+ */
+class LeastOutstandingRequestsLoadBalancerTests {
+
+	private final ServiceInstance busy = new DefaultServiceInstance("busy", "test", "busy", 8080, false);
+
+	private final ServiceInstance idle = new DefaultServiceInstance("idle", "test", "idle", 8080, false);
+
+	private final FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofSeconds(10));
+
+	@Test
+	void shouldPickInstanceWithFewerOutstandingRequests() {
+		LeastOutstandingRequestsLoadBalancer loadBalancer = loadBalancer(busy, idle);
+		stats.getStats(busy).requestStarted();
+		stats.getStats(busy).requestStarted();
+		stats.getStats(idle).requestStarted();
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(choose(loadBalancer)).isEqualTo(idle);
+		}
+	}
+
+	@Test
+	void shouldPickAgainInstanceOnceRequestsComplete() {
+		LeastOutstandingRequestsLoadBalancer loadBalancer = loadBalancer(busy, idle);
+		stats.getStats(busy).requestStarted();
+
+		assertThat(choose(loadBalancer)).isEqualTo(idle);
+
+		stats.getStats(busy).requestCompleted(-1, false);
+		stats.getStats(idle).requestStarted();
+
+		assertThat(choose(loadBalancer)).isEqualTo(busy);
+	}
+
+	@Test
+	void shouldSpreadLoadAcrossInstances() {
+		ServiceInstance third = new DefaultServiceInstance("third", "test", "third", 8080, false);
+		LeastOutstandingRequestsLoadBalancer loadBalancer = loadBalancer(busy, idle, third);
+		Map<String, Integer> picks = new HashMap<>();
+
+		// requests never complete, so the picks must stay close to each other
+		for (int i = 0; i < 300; i++) {
+			ServiceInstance instance = choose(loadBalancer);
+			stats.getStats(instance).requestStarted();
+			picks.merge(instance.getInstanceId(), 1, Integer::sum);
+		}
+
+		assertThat(picks.values()).allSatisfy(count -> assertThat(count).isBetween(90, 110));
+	}
+
+	@Test
+	void shouldReturnOnlyInstance() {
+		stats.getStats(busy).requestStarted();
+
+		assertThat(choose(loadBalancer(busy))).isEqualTo(busy);
+	}
+
+	private LeastOutstandingRequestsLoadBalancer loadBalancer(ServiceInstance... instances) {
+		List<ServiceInstance> list = Arrays.asList(instances);
+		ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(list);
+			}
+		};
+		return new LeastOutstandingRequestsLoadBalancer(new SimpleObjectProvider<>(supplier), "test", stats);
+	}
+
+	private static ServiceInstance choose(LeastOutstandingRequestsLoadBalancer loadBalancer) {
+		return loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+	}
+
+}
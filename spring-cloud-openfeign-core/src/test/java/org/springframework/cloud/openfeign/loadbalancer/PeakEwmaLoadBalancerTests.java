@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PeakEwmaLoadBalancer}.
+ */
+class PeakEwmaLoadBalancerTests {
+
+	private final ServiceInstance fast1 = new DefaultServiceInstance("fast-1", "test", "fast-1", 8080, false);
+
+	private final ServiceInstance fast2 = new DefaultServiceInstance("fast-2", "test", "fast-2", 8080, false);
+
+	private final ServiceInstance slow = new DefaultServiceInstance("slow", "test", "slow", 8080, false);
+
+	private final FeignLoadBalancerStats stats = new FeignLoadBalancerStats(Duration.ofSeconds(10));
+
+	private final PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+			new SimpleObjectProvider<>(supplier(fast1, fast2, slow)), "test", stats);
+
+	@Test
+	void shouldSendLessTrafficToSlowInstance() {
+		Map<String, Integer> picks = new HashMap<>();
+		// simulates a fleet where one node answers 20 times slower than the others
+		for (int i = 0; i < 3000; i++) {
+			ServiceInstance instance = choose();
+			picks.merge(instance.getInstanceId(), 1, Integer::sum);
+			FeignLoadBalancerStats.InstanceStats instanceStats = stats.getStats(instance);
+			instanceStats.requestStarted();
+			long latency = instance == slow ? TimeUnit.MILLISECONDS.toNanos(200) : TimeUnit.MILLISECONDS.toNanos(10);
+			instanceStats.requestCompleted(latency, false);
+		}
+
+		assertThat(picks.getOrDefault("slow", 0)).isLessThan(300);
+		assertThat(picks.get("fast-1") + picks.get("fast-2")).isGreaterThan(2700);
+	}
+
+	@Test
+	void shouldAvoidInstanceWithOutstandingRequestsAndNoLatencyYet() {
+		stats.getStats(slow).requestStarted();
+		stats.getStats(fast1).requestStarted();
+		stats.getStats(fast1).requestCompleted(TimeUnit.MILLISECONDS.toNanos(10), false);
+		stats.getStats(fast2).requestStarted();
+		stats.getStats(fast2).requestCompleted(TimeUnit.MILLISECONDS.toNanos(10), false);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(choose()).isNotEqualTo(slow);
+		}
+	}
+
+	@Test
+	void shouldPreferFewerOutstandingRequestsWhenNoInstanceHasLatencyYet() {
+		PeakEwmaLoadBalancer twoInstances = new PeakEwmaLoadBalancer(new SimpleObjectProvider<>(supplier(fast1, slow)),
+				"test", stats);
+		stats.getStats(fast1).requestStarted();
+		for (int i = 0; i < 3; i++) {
+			stats.getStats(slow).requestStarted();
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(twoInstances.choose(new DefaultRequest<>()).block().getServer()).isEqualTo(fast1);
+		}
+	}
+
+	@Test
+	void shouldReturnEmptyResponseWithoutInstances() {
+		PeakEwmaLoadBalancer emptyLoadBalancer = new PeakEwmaLoadBalancer(new SimpleObjectProvider<>(supplier()),
+				"test", stats);
+
+		assertThat(emptyLoadBalancer.choose(new DefaultRequest<>()).block().hasServer()).isFalse();
+	}
+
+	private ServiceInstance choose() {
+		return loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+	}
+
+	private static ServiceInstanceListSupplier supplier(ServiceInstance... instances) {
+		List<ServiceInstance> list = Arrays.asList(instances);
+		return new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(list);
+			}
+		};
+	}
+
+}
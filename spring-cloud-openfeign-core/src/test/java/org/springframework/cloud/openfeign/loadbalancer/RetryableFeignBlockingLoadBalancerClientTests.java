@@ -25,10 +25,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import feign.Client;
 import feign.Request;
 import feign.Response;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -46,15 +48,21 @@ import org.springframework.cloud.client.loadbalancer.RetryableRequestContext;
 import org.springframework.cloud.loadbalancer.blocking.client.BlockingLoadBalancerClient;
 import org.springframework.cloud.loadbalancer.blocking.retry.BlockingLoadBalancedRetryPolicy;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.DeadlineExceededException;
+import org.springframework.cloud.openfeign.FeignDeadline;
+import org.springframework.cloud.openfeign.HedgedRequestOptions;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.retry.RetryListener;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -94,6 +102,11 @@ class RetryableFeignBlockingLoadBalancerClientTests {
 		when(loadBalancerClient.choose(eq("test"), any())).thenReturn(serviceInstance);
 	}
 
+	@AfterEach
+	void tearDown() {
+		FeignDeadline.setCurrent(null);
+	}
+
 	@Test
 	void shouldExtractServiceIdFromRequestUrl() throws IOException {
 		Request request = testRequest();
@@ -148,6 +161,159 @@ class RetryableFeignBlockingLoadBalancerClientTests {
 		verify(delegate, times(2)).execute(any(), any());
 	}
 
+	@Test
+	void shouldNotCreateRetryStateForSuccessfulRequests() throws IOException {
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> testResponse(200));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+		feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		verify(retryFactory, times(1)).createRetryPolicy(any(), any());
+		verify(retryFactory, times(1)).createBackOffPolicy("test");
+		verify(delegate, times(2)).execute(any(), any());
+	}
+
+	@Test
+	void shouldNotifyRetryListenersOfSuccessfulRequests() throws IOException {
+		RetryListener retryListener = mock(RetryListener.class);
+		when(retryListener.open(any(), any())).thenReturn(true);
+		when(retryFactory.createRetryListeners("test")).thenReturn(new RetryListener[] { retryListener });
+		when(delegate.execute(any(), any())).thenReturn(testResponse(200));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(200);
+		verify(retryListener).open(any(), any());
+		verify(retryListener).close(any(), any(), eq(null));
+		verify(retryListener, never()).onError(any(), any(), any());
+		verify(delegate).execute(any(), any());
+	}
+
+	@Test
+	void shouldNotifyRetryListenersOfRetriedRequests() throws IOException {
+		RetryListener retryListener = mock(RetryListener.class);
+		when(retryListener.open(any(), any())).thenReturn(true);
+		when(retryFactory.createRetryListeners("test")).thenReturn(new RetryListener[] { retryListener });
+		when(delegate.execute(any(), any())).thenThrow(new IOException("test")).thenReturn(testResponse(200));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(200);
+		verify(retryListener).open(any(), any());
+		verify(retryListener).onError(any(), any(), any(IOException.class));
+		verify(retryListener).close(any(), any(), eq(null));
+		verify(delegate, times(2)).execute(any(), any());
+	}
+
+	@Test
+	void shouldRetryOnIOExceptionOfFirstAttempt() throws IOException {
+		when(delegate.execute(any(), any())).thenThrow(new IOException("test")).thenReturn(testResponse(200));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(200);
+		verify(delegate, times(2)).execute(
+				argThat((Request actualRequest) -> actualRequest.url().equals("http://testhost:80/path")), any());
+	}
+
+	@Test
+	void shouldHedgeSlowFirstAttemptToAnotherInstance() throws IOException {
+		ServiceInstance fastInstance = new DefaultServiceInstance("test-b", "test", "fasthost", 80, false);
+		when(loadBalancerClient.choose(eq("test"), any())).thenReturn(serviceInstance, fastInstance);
+		when(loadBalancerClient.reconstructURI(any(), eq(URI.create("http://test/path")))).thenAnswer(invocation -> URI
+				.create("http://" + ((ServiceInstance) invocation.getArgument(0)).getHost() + ":80/path"));
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+			Request request = invocation.getArgument(0);
+			if (request.url().contains("testhost")) {
+				Thread.sleep(5000);
+			}
+			return Response.builder().status(200).request(request).build();
+		});
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(),
+				new HedgedRequestOptions(new Request.Options(), 20));
+
+		assertThat(response.request().url()).isEqualTo("http://fasthost:80/path");
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+		feignBlockingLoadBalancerClient.destroy();
+	}
+
+	@Test
+	void shouldNotRetryBeyondRetryBudget() throws IOException {
+		properties.getRetry().getRetryableStatusCodes().add(503);
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> testResponse(503));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+		FeignRetryBudgets retryBudgets = new FeignRetryBudgets(0, 1, 1);
+		RetryableFeignBlockingLoadBalancerClient client = new RetryableFeignBlockingLoadBalancerClient(delegate,
+				loadBalancerClient, retryFactory, properties, loadBalancerClientFactory, retryBudgets);
+
+		client.execute(testRequest(), new Request.Options());
+
+		verify(delegate, times(2)).execute(any(), any());
+		assertThat(retryBudgets.getBudget("test").getAvailableTokens()).isZero();
+
+		client.execute(testRequest(), new Request.Options());
+
+		verify(delegate, times(3)).execute(any(), any());
+	}
+
+	@Test
+	void shouldNotStartRequestAfterDeadline() throws IOException {
+		FeignDeadline.setCurrent(FeignDeadline.after(0, TimeUnit.MILLISECONDS));
+
+		assertThatThrownBy(() -> feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options()))
+				.isInstanceOf(DeadlineExceededException.class);
+
+		verify(delegate, never()).execute(any(), any());
+	}
+
+	@Test
+	void shouldLimitAttemptToRemainingTimeAndRefreshPropagatedDeadline() throws IOException {
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> testResponse(200));
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+		FeignDeadline.setCurrent(FeignDeadline.after(1, TimeUnit.SECONDS));
+		Request request = FeignDeadline.after(5, TimeUnit.SECONDS).propagateTo(testRequest());
+
+		feignBlockingLoadBalancerClient.execute(request,
+				new Request.Options(10, TimeUnit.SECONDS, 60, TimeUnit.SECONDS, true));
+
+		ArgumentCaptor<Request> requestCaptor = ArgumentCaptor.forClass(Request.class);
+		ArgumentCaptor<Request.Options> optionsCaptor = ArgumentCaptor.forClass(Request.Options.class);
+		verify(delegate).execute(requestCaptor.capture(), optionsCaptor.capture());
+		assertThat(optionsCaptor.getValue().connectTimeoutMillis()).isBetween(1, 1000);
+		assertThat(optionsCaptor.getValue().readTimeoutMillis()).isBetween(1, 1000);
+		assertThat(Long.parseLong(requestCaptor.getValue().headers().get(FeignDeadline.HEADER).iterator().next()))
+				.isBetween(0L, 1000L);
+	}
+
+	@Test
+	void shouldNotRetryAfterDeadline() throws IOException {
+		properties.getRetry().getRetryableStatusCodes().add(503);
+		properties.getRetry().setMaxRetriesOnNextServiceInstance(5);
+		when(delegate.execute(any(), any())).thenAnswer(invocation -> {
+			Thread.sleep(200);
+			return testResponse(503);
+		});
+		when(loadBalancerClient.reconstructURI(serviceInstance, URI.create("http://test/path")))
+				.thenReturn(URI.create("http://testhost:80/path"));
+		FeignDeadline.setCurrent(FeignDeadline.after(300, TimeUnit.MILLISECONDS));
+
+		Response response = feignBlockingLoadBalancerClient.execute(testRequest(), new Request.Options());
+
+		assertThat(response.status()).isEqualTo(503);
+		verify(delegate, times(2)).execute(any(), any());
+	}
+
 	@Test
 	void shouldPassCorrectRequestToDelegate() throws IOException {
 		Request request = testRequest();
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.openfeign.loadbalancer.FeignLoadBalancerProperties.SlowStart.Ramp;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link SlowStartServiceInstanceListSupplier}.
+ */
+class SlowStartServiceInstanceListSupplierTests {
+
+	@Test
+	void shouldConsiderInitialInstancesWarm() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMinutes(10), 0.1, Ramp.LINEAR);
+		List<ServiceInstance> instances = instances(3);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(supplier.filter(instances)).isSameAs(instances);
+		}
+	}
+
+	@Test
+	void shouldSendMinimumShareOfTrafficToNewInstance() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMinutes(10), 0.1, Ramp.LINEAR);
+		List<ServiceInstance> instances = instances(3);
+		supplier.filter(instances);
+		List<ServiceInstance> grown = new ArrayList<>(instances);
+		ServiceInstance added = instance(3);
+		grown.add(added);
+
+		int selected = 0;
+		for (int i = 0; i < 100000; i++) {
+			List<ServiceInstance> filtered = supplier.filter(grown);
+			assertThat(filtered).satisfiesAnyOf(list -> assertThat(list).containsExactlyElementsOf(instances),
+					list -> assertThat(list).containsExactly(added));
+			if (choose(filtered).equals(added)) {
+				selected++;
+			}
+		}
+
+		// a weight of 0.1 next to three instances weighing 1
+		assertThat(selected / 100000.0).isCloseTo(0.1 / 3.1, within(0.003));
+	}
+
+	@Test
+	void shouldSendShareOfTrafficFollowingRamp() {
+		long window = TimeUnit.MINUTES.toNanos(10);
+		for (Ramp ramp : Ramp.values()) {
+			SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofNanos(window), 0.05, ramp);
+			List<ServiceInstance> instances = instances(3);
+			long start = System.nanoTime();
+			supplier.filter(instances, start);
+			List<ServiceInstance> grown = new ArrayList<>(instances);
+			ServiceInstance added = instance(3);
+			grown.add(added);
+			supplier.filter(grown, start);
+
+			for (long elapsed : new long[] { window / 4, window / 2, window * 3 / 4 }) {
+				int selected = 0;
+				for (int i = 0; i < 100000; i++) {
+					if (choose(supplier.filter(grown, start + elapsed)).equals(added)) {
+						selected++;
+					}
+				}
+
+				double weight = supplier.weight(elapsed);
+				assertThat(selected / 100000.0).isCloseTo(weight / (3 + weight), within(0.005));
+			}
+		}
+	}
+
+	@Test
+	void shouldHandOutSameListsWhileInstanceWarmsUp() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMinutes(10), 0.5, Ramp.LINEAR);
+		List<ServiceInstance> instances = instances(3);
+		supplier.filter(instances);
+		List<ServiceInstance> grown = new ArrayList<>(instances);
+		grown.add(instance(3));
+
+		Map<List<ServiceInstance>, Boolean> lists = new IdentityHashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			lists.put(supplier.filter(grown), true);
+		}
+
+		assertThat(lists).hasSize(2);
+	}
+
+	@Test
+	void shouldGiveFullShareOfTrafficAfterWindow() throws InterruptedException {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMillis(100), 0.1, Ramp.LINEAR);
+		List<ServiceInstance> instances = instances(3);
+		supplier.filter(instances);
+		List<ServiceInstance> grown = new ArrayList<>(instances);
+		grown.add(instance(3));
+		supplier.filter(grown);
+
+		Thread.sleep(150);
+
+		assertThat(supplier.filter(grown)).isSameAs(grown);
+	}
+
+	@Test
+	void shouldRestartWindowOfReturningInstance() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMinutes(10), 0.1, Ramp.LINEAR);
+		List<ServiceInstance> instances = instances(3);
+		supplier.filter(instances);
+		supplier.filter(new ArrayList<>(instances.subList(0, 2)));
+
+		int selected = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (supplier.filter(instances).contains(instances.get(2))) {
+				selected++;
+			}
+		}
+
+		assertThat(selected).isLessThan(200);
+	}
+
+	@Test
+	void shouldNotReturnEmptyListWhileAllInstancesWarmUp() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofMinutes(10), 0.01, Ramp.LINEAR);
+		supplier.filter(instances(0));
+		List<ServiceInstance> instances = instances(1);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(supplier.filter(instances)).isEqualTo(instances);
+		}
+	}
+
+	@Test
+	void shouldNotFilterInstancesOfRequestsWithAffinityKey() {
+		List<ServiceInstance> instances = instances(3);
+		List<List<ServiceInstance>> lists = new ArrayList<>();
+		lists.add(instances);
+		lists.add(instances(4));
+		SlowStartServiceInstanceListSupplier supplier = new SlowStartServiceInstanceListSupplier(
+				new TestServiceInstanceListSupplier(lists), Duration.ofMinutes(10), 0.01, Ramp.LINEAR);
+		Map<String, Object> attributes = Collections.singletonMap(ConsistentHashLoadBalancer.AFFINITY_KEY_ATTRIBUTE,
+				"key");
+		DefaultRequest<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext(
+				new RequestData(HttpMethod.GET, URI.create("http://test/items"), new HttpHeaders(), null, attributes)));
+
+		assertThat(supplier.get(request).blockFirst()).isSameAs(instances);
+		for (int i = 0; i < 100; i++) {
+			assertThat(supplier.get(request).blockFirst()).hasSize(4);
+		}
+		int filtered = 0;
+		for (int i = 0; i < 100; i++) {
+			if (supplier.get(new DefaultRequest<>()).blockFirst().size() < 4) {
+				filtered++;
+			}
+		}
+		assertThat(filtered).isGreaterThan(80);
+	}
+
+	@Test
+	void shouldRampWeightLinearly() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofSeconds(10), 0.1, Ramp.LINEAR);
+
+		assertThat(supplier.weight(0)).isCloseTo(0.1, within(1e-9));
+		assertThat(supplier.weight(TimeUnit.SECONDS.toNanos(5))).isCloseTo(0.55, within(1e-9));
+		assertThat(supplier.weight(TimeUnit.SECONDS.toNanos(10))).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRampWeightExponentially() {
+		SlowStartServiceInstanceListSupplier supplier = supplier(Duration.ofSeconds(10), 0.01, Ramp.EXPONENTIAL);
+
+		assertThat(supplier.weight(0)).isCloseTo(0.01, within(1e-9));
+		assertThat(supplier.weight(TimeUnit.SECONDS.toNanos(5))).isCloseTo(0.1, within(1e-9));
+		assertThat(supplier.weight(TimeUnit.SECONDS.toNanos(10))).isEqualTo(1);
+	}
+
+	// picks an instance at random, as a load balancer without preferences would
+	private static ServiceInstance choose(List<ServiceInstance> instances) {
+		return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+	}
+
+	private static SlowStartServiceInstanceListSupplier supplier(Duration window, double minWeight, Ramp ramp) {
+		return new SlowStartServiceInstanceListSupplier(new NoopServiceInstanceListSupplier(), window, minWeight, ramp);
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(instance(i));
+		}
+		return instances;
+	}
+
+	private static ServiceInstance instance(int index) {
+		return new DefaultServiceInstance("instance-" + index, "test", "host-" + index, 80, false);
+	}
+
+	private static class TestServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+		private final List<List<ServiceInstance>> lists;
+
+		TestServiceInstanceListSupplier(List<List<ServiceInstance>> lists) {
+			this.lists = lists;
+		}
+
+		@Override
+		public String getServiceId() {
+			return "test";
+		}
+
+		// the next list on every call, then the last one
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return Flux.just(lists.size() > 1 ? lists.remove(0) : lists.get(0));
+		}
+
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.openfeign.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SubsetServiceInstanceListSupplier}.
+ */
+class SubsetServiceInstanceListSupplierTests {
+
+	private final List<ServiceInstance> instances = instances(500);
+
+	@Test
+	void shouldKeepAllInstancesOfSmallService() {
+		List<ServiceInstance> few = instances(5);
+
+		assertThat(supplier("client", 20).subset(few)).isSameAs(few);
+	}
+
+	@Test
+	void shouldSelectStableSubset() {
+		List<ServiceInstance> subset = supplier("client", 20).subset(instances);
+
+		assertThat(subset).hasSize(20).doesNotHaveDuplicates();
+		assertThat(supplier("client", 20).subset(new ArrayList<>(instances))).isEqualTo(subset);
+		assertThat(supplier("other", 20).subset(instances)).isNotEqualTo(subset);
+	}
+
+	@Test
+	void shouldSpreadSubsetsOfClientsEvenlyOverInstances() {
+		Map<ServiceInstance, Integer> clientsPerInstance = new HashMap<>();
+		for (int client = 0; client < 2000; client++) {
+			supplier("client-" + client, 20).subset(instances)
+					.forEach(instance -> clientsPerInstance.merge(instance, 1, Integer::sum));
+		}
+
+		// 80 clients per instance on average
+		assertThat(clientsPerInstance).hasSize(500);
+		assertThat(Collections.min(clientsPerInstance.values())).isGreaterThan(40);
+		assertThat(Collections.max(clientsPerInstance.values())).isLessThan(125);
+	}
+
+	@Test
+	void shouldOnlyReplaceRemovedInstance() {
+		for (int client = 0; client < 100; client++) {
+			Set<ServiceInstance> before = new HashSet<>(supplier("client-" + client, 20).subset(instances));
+			List<ServiceInstance> remaining = new ArrayList<>(instances);
+			ServiceInstance removed = before.iterator().next();
+			remaining.remove(removed);
+
+			Set<ServiceInstance> after = new HashSet<>(supplier("client-" + client, 20).subset(remaining));
+
+			Set<ServiceInstance> kept = new HashSet<>(before);
+			kept.retainAll(after);
+			assertThat(kept).hasSize(19).doesNotContain(removed);
+		}
+	}
+
+	@Test
+	void shouldNotChangeSubsetWhenUnselectedInstanceJoins() {
+		SubsetServiceInstanceListSupplier supplier = supplier("client", 20);
+		List<ServiceInstance> subset = supplier.subset(instances);
+		List<ServiceInstance> grown = new ArrayList<>(instances);
+		grown.add(new DefaultServiceInstance("new", "test", "new-host", 80, false));
+
+		List<ServiceInstance> grownSubset = supplier.subset(grown);
+
+		if (!grownSubset.contains(grown.get(500))) {
+			assertThat(grownSubset).isEqualTo(subset);
+		}
+		else {
+			assertThat(new HashSet<>(subset)).containsAll(grownSubset.subList(0, 19));
+		}
+	}
+
+	@Test
+	void shouldNarrowInstancesOfDelegate() {
+		SubsetServiceInstanceListSupplier supplier = new SubsetServiceInstanceListSupplier(
+				new TestServiceInstanceListSupplier(instances), "client", 20);
+
+		List<ServiceInstance> subset = supplier.get().blockFirst();
+
+		assertThat(subset).hasSize(20);
+		assertThat(supplier.get().blockFirst()).isSameAs(subset);
+	}
+
+	@Test
+	void shouldDeriveDefaultClientIdFromHostOfReplica() {
+		String first = SubsetServiceInstanceListSupplierPostProcessor.defaultClientId(replica("client-1", "10.0.0.1"));
+		String second = SubsetServiceInstanceListSupplierPostProcessor.defaultClientId(replica("client-2", "10.0.0.2"));
+
+		assertThat(first).isNotEqualTo(second);
+		assertThat(SubsetServiceInstanceListSupplierPostProcessor.defaultClientId(replica("client-1", "10.0.0.1")))
+				.isEqualTo(first);
+	}
+
+	@Test
+	void shouldUseRandomDefaultClientIdWhenHostIsUnknown() {
+		MockEnvironment environment = new MockEnvironment().withProperty("spring.application.name", "client")
+				.withProperty("server.port", "8080");
+
+		String clientId = SubsetServiceInstanceListSupplierPostProcessor.defaultClientId(environment);
+
+		assertThat(clientId).doesNotContain("client").doesNotContain("8080");
+		assertThat(SubsetServiceInstanceListSupplierPostProcessor.defaultClientId(environment)).isEqualTo(clientId);
+	}
+
+	private static MockEnvironment replica(String host, String ipAddress) {
+		return new MockEnvironment().withProperty("spring.application.name", "client")
+				.withProperty("server.port", "8080").withProperty("spring.cloud.client.hostname", host)
+				.withProperty("spring.cloud.client.ip-address", ipAddress);
+	}
+
+	private static SubsetServiceInstanceListSupplier supplier(String clientId, int size) {
+		return new SubsetServiceInstanceListSupplier(new TestServiceInstanceListSupplier(Collections.emptyList()),
+				clientId, size);
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(new DefaultServiceInstance("instance-" + i, "test", "host-" + i, 80, false));
+		}
+		return instances;
+	}
+
+	private static class TestServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+		private final List<ServiceInstance> instances;
+
+		TestServiceInstanceListSupplier(List<ServiceInstance> instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public String getServiceId() {
+			return "test";
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return Flux.just(instances);
+		}
+
+	}
+
+}